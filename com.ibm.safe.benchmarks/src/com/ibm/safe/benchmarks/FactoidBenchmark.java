@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.benchmarks;
+
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import com.ibm.safe.perf.ThreadSampler;
+import com.ibm.safe.typestate.quad.FactoidTable;
+
+/**
+ * Measures how the quad typestate domain finds factoid numbers: through a
+ * {@link FactoidTable} keyed by packed ids, as it does now, against a hash map
+ * keyed by a factoid built for every lookup, as it did before.
+ *
+ * The factoids are (instance, state, unique, auxiliary) tuples. The old path is
+ * modelled by {@link FactoidKey}, which has the fields, equality and hash code
+ * of a quad factoid; its auxiliaries are bit sets shared between lookups, as
+ * state deltas share them, so the old path pays neither the deep equality nor
+ * the hash code of access path sets, and its times are a lower bound.
+ *
+ * For each path and table size the benchmark reports, averaged over the
+ * measured iterations, the time and the bytes allocated by the benchmark
+ * thread per insert into an empty table and per lookup of a present factoid.
+ * Results are written as <code>case,metric,value</code> sorted by case and
+ * metric, as by {@link SolverBenchmark}.
+ *
+ * Usage: <code>FactoidBenchmark [warmup [iterations [output file]]]</code>.
+ */
+public final class FactoidBenchmark {
+
+  public static void main(final String[] args) throws Exception {
+    final int warmup = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_WARMUP;
+    final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+    final PrintWriter out = (args.length > 2) ? new PrintWriter(new FileWriter(args[2])) : new PrintWriter(System.out);
+    try {
+      new FactoidBenchmark(warmup, iterations).run(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  public FactoidBenchmark(final int warmupIterations, final int measuredIterations) {
+    assert measuredIterations > 0;
+    this.warmupIterations = warmupIterations;
+    this.measuredIterations = measuredIterations;
+  }
+
+  /**
+   * Run all cases and write their results to out.
+   */
+  public void run(final PrintWriter out) {
+    final Map<String, Double> results = new TreeMap<String, Double>();
+    for (int i = 0; i < SIZES.length; i++) {
+      final Workload workload = new Workload(SIZES[i]);
+      measure("FactoidTable/" + SIZES[i], new TablePath(workload), results);
+      measure("HashMap/" + SIZES[i], new MapPath(workload), results);
+    }
+    for (Iterator<Map.Entry<String, Double>> it = results.entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, Double> entry = it.next();
+      out.println(entry.getKey() + "," + format(entry.getValue().doubleValue()));
+    }
+    out.flush();
+  }
+
+  // --- Private code
+
+  private void measure(final String caseName, final Path path, final Map<String, Double> results) {
+    for (int i = 0; i < this.warmupIterations; i++) {
+      path.insertAll();
+      path.lookupAll();
+    }
+
+    long insertNanos = 0;
+    long insertBytes = 0;
+    long lookupNanos = 0;
+    long lookupBytes = 0;
+    for (int i = 0; i < this.measuredIterations; i++) {
+      long startBytes = ThreadSampler.getCurrentThreadAllocatedBytes();
+      long start = System.nanoTime();
+      path.insertAll();
+      insertNanos += System.nanoTime() - start;
+      insertBytes += ThreadSampler.getCurrentThreadAllocatedBytes() - startBytes;
+
+      startBytes = ThreadSampler.getCurrentThreadAllocatedBytes();
+      start = System.nanoTime();
+      path.lookupAll();
+      lookupNanos += System.nanoTime() - start;
+      lookupBytes += ThreadSampler.getCurrentThreadAllocatedBytes() - startBytes;
+    }
+
+    final double inserts = (double) this.measuredIterations * path.workload.size;
+    final double lookups = inserts * LOOKUP_ROUNDS;
+    record(results, caseName, "insert.ns/op", insertNanos / inserts);
+    record(results, caseName, "lookup.ns/op", lookupNanos / lookups);
+    if (ThreadSampler.getCurrentThreadAllocatedBytes() >= 0) {
+      record(results, caseName, "insert.alloc.bytes/op", insertBytes / inserts);
+      record(results, caseName, "lookup.alloc.bytes/op", lookupBytes / lookups);
+    }
+  }
+
+  private static void record(final Map<String, Double> results, final String caseName, final String metric,
+      final double value) {
+    results.put(caseName + "," + metric, Double.valueOf(value));
+  }
+
+  private static String format(final double value) {
+    return String.valueOf(Math.round(value * 1000) / 1000.0);
+  }
+
+  /**
+   * Distinct factoids, as indices into shared components, in a shuffled order
+   * for inserts and in another for lookups.
+   */
+  private static final class Workload {
+
+    Workload(final int theSize) {
+      this.size = theSize;
+      final Random random = new Random(SEED);
+      this.instances = new Object[theSize / (2 * STATES * AUXILIARIES) + 1];
+      for (int i = 0; i < this.instances.length; i++) {
+        this.instances[i] = new Object();
+      }
+      this.states = new Object[STATES];
+      for (int i = 0; i < STATES; i++) {
+        this.states[i] = new Object();
+      }
+      this.auxiliaries = new BitSet[AUXILIARIES];
+      for (int i = 0; i < AUXILIARIES; i++) {
+        this.auxiliaries[i] = new BitSet();
+        for (int j = 0; j < PATHS_PER_AUXILIARY; j++) {
+          this.auxiliaries[i].set(random.nextInt(PATHS));
+        }
+      }
+      this.insertOrder = shuffled(theSize, random);
+      this.lookupOrder = shuffled(theSize, random);
+    }
+
+    /**
+     * factoid k is (k / (2 * STATES * AUXILIARIES), k / 2 % STATES, k % 2,
+     * k / (2 * STATES) % AUXILIARIES)
+     */
+    static int instance(final int k) {
+      return k / (2 * STATES * AUXILIARIES);
+    }
+
+    static int state(final int k) {
+      return k / 2 % STATES;
+    }
+
+    static boolean isUnique(final int k) {
+      return k % 2 == 1;
+    }
+
+    static int auxiliary(final int k) {
+      return k / (2 * STATES) % AUXILIARIES;
+    }
+
+    private static int[] shuffled(final int n, final Random random) {
+      final int[] result = new int[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = i;
+      }
+      for (int i = n - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final int t = result[i];
+        result[i] = result[j];
+        result[j] = t;
+      }
+      return result;
+    }
+
+    final int size;
+
+    final Object[] instances;
+
+    final Object[] states;
+
+    final BitSet[] auxiliaries;
+
+    final int[] insertOrder;
+
+    final int[] lookupOrder;
+
+  }
+
+  /**
+   * One way of numbering the factoids of a workload.
+   */
+  private static abstract class Path {
+
+    Path(final Workload theWorkload) {
+      this.workload = theWorkload;
+    }
+
+    /**
+     * Number the factoids in an empty table, as the domain does: look the
+     * factoid up, and add it if missing.
+     */
+    abstract void insertAll();
+
+    /**
+     * Look every factoid up {@link FactoidBenchmark#LOOKUP_ROUNDS} times in the
+     * table filled by {@link #insertAll()}.
+     */
+    abstract void lookupAll();
+
+    final Workload workload;
+
+    /**
+     * keeps the results alive, so that no lookup is optimized away
+     */
+    int sink;
+
+  }
+
+  private static final class TablePath extends Path {
+
+    TablePath(final Workload theWorkload) {
+      super(theWorkload);
+    }
+
+    void insertAll() {
+      this.table = new FactoidTable();
+      final int[] order = this.workload.insertOrder;
+      for (int i = 0; i < order.length; i++) {
+        final long key = encode(order[i]);
+        if (this.table.get(key) == -1) {
+          this.table.put(key, i);
+        }
+      }
+    }
+
+    void lookupAll() {
+      final int[] order = this.workload.lookupOrder;
+      int sum = 0;
+      for (int r = 0; r < LOOKUP_ROUNDS; r++) {
+        for (int i = 0; i < order.length; i++) {
+          sum += this.table.get(encode(order[i]));
+        }
+      }
+      this.sink += sum;
+    }
+
+    /**
+     * @return the ids of factoid k, packed as the quad domain packs them
+     */
+    private static long encode(final int k) {
+      return ((long) Workload.auxiliary(k) << (INSTANCE_BITS + STATE_BITS + 1))
+          | ((long) Workload.instance(k) << (STATE_BITS + 1)) | (Workload.state(k) << 1) | (Workload.isUnique(k) ? 1 : 0);
+    }
+
+    private FactoidTable table;
+
+  }
+
+  private static final class MapPath extends Path {
+
+    MapPath(final Workload theWorkload) {
+      super(theWorkload);
+    }
+
+    void insertAll() {
+      this.map = new HashMap<FactoidKey, Integer>();
+      final int[] order = this.workload.insertOrder;
+      for (int i = 0; i < order.length; i++) {
+        final FactoidKey key = newKey(order[i]);
+        if (this.map.get(key) == null) {
+          this.map.put(key, Integer.valueOf(i));
+        }
+      }
+    }
+
+    void lookupAll() {
+      final int[] order = this.workload.lookupOrder;
+      int sum = 0;
+      for (int r = 0; r < LOOKUP_ROUNDS; r++) {
+        for (int i = 0; i < order.length; i++) {
+          sum += this.map.get(newKey(order[i])).intValue();
+        }
+      }
+      this.sink += sum;
+    }
+
+    private FactoidKey newKey(final int k) {
+      return new FactoidKey(this.workload.instances[Workload.instance(k)], this.workload.states[Workload.state(k)],
+          Workload.isUnique(k), this.workload.auxiliaries[Workload.auxiliary(k)]);
+    }
+
+    private Map<FactoidKey, Integer> map;
+
+  }
+
+  /**
+   * The fields, equality and hash code of a quad factoid.
+   */
+  private static final class FactoidKey {
+
+    FactoidKey(final Object theInstance, final Object theState, final boolean unique, final BitSet theAux) {
+      this.instance = theInstance;
+      this.state = theState;
+      this.isUnique = unique;
+      this.aux = theAux;
+    }
+
+    public boolean equals(final Object other) {
+      if (!(other instanceof FactoidKey)) {
+        return false;
+      }
+      final FactoidKey that = (FactoidKey) other;
+      return this.state.equals(that.state) && this.instance.equals(that.instance) && this.isUnique == that.isUnique
+          && this.aux.equals(that.aux);
+    }
+
+    public int hashCode() {
+      return 31 + 9091 * this.state.hashCode() + 8273 * this.instance.hashCode() + (this.isUnique ? 0 : 1) + 4813
+          * this.aux.hashCode();
+    }
+
+    private final Object instance;
+
+    private final Object state;
+
+    private final boolean isUnique;
+
+    private final BitSet aux;
+
+  }
+
+  private final int warmupIterations;
+
+  private final int measuredIterations;
+
+  private static final int[] SIZES = { 1000, 100000 };
+
+  private static final int LOOKUP_ROUNDS = 10;
+
+  private static final int STATES = 8;
+
+  private static final int AUXILIARIES = 16;
+
+  private static final int PATHS = 64;
+
+  private static final int PATHS_PER_AUXILIARY = 4;
+
+  /**
+   * bits of the packed key, as in the quad domain
+   */
+  private static final int INSTANCE_BITS = 20;
+
+  private static final int STATE_BITS = 11;
+
+  private static final long SEED = 42;
+
+  private static final int DEFAULT_WARMUP = 5;
+
+  private static final int DEFAULT_ITERATIONS = 10;
+
+}
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.benchmarks;
+
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import com.ibm.safe.controller.AbstractSafeController;
+import com.ibm.safe.controller.AbstractSafeJavaApplication;
+import com.ibm.safe.controller.GenericSafeController;
+import com.ibm.safe.core.tests.SafeRegressionUnit;
+import com.ibm.safe.internal.exceptions.SafeException;
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisKind;
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisStatus;
+import com.ibm.safe.lightweight.tests.LightweightRegressionUnit;
+import com.ibm.safe.metrics.IMetrics;
+import com.ibm.safe.metrics.ProgramStatistics;
+import com.ibm.safe.perf.NamedTimer;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.perf.ThreadSampler;
+import com.ibm.safe.properties.CommonProperties;
+import com.ibm.safe.properties.PropertiesManager;
+import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.rules.IRule;
+import com.ibm.safe.typestate.controller.TypeStateSolverKind;
+import com.ibm.safe.typestate.options.TypestateProperties;
+import com.ibm.safe.typestate.tests.TypestateRegressionUnit;
+import com.ibm.wala.classLoader.IClass;
+
+/**
+ * Measures the typestate solvers and the structural solver over programs of
+ * the typestate and lightweight testdata jars.
+ *
+ * Each case is a regression unit run end to end through a
+ * {@link GenericSafeController}, first for some warmup iterations, then for
+ * the measured ones. For each case the benchmark reports, averaged over the
+ * measured iterations:
+ * <ul>
+ * <li>throughput and time per run;
+ * <li>time of every phase timed by the {@link PerformanceTracker};
+ * <li>bytes allocated by the benchmark thread, allocation rate and GC time.
+ * </ul>
+ *
+ * Results are written one metric per line, as <code>case,metric,value</code>
+ * sorted by case and metric, so that the results of two revisions can be
+ * compared with a plain diff.
+ *
+ * Usage: <code>SolverBenchmark [warmup [iterations [output file]]]</code>.
+ *
+ * Allocation is measured on the benchmark thread only. Solvers run with one
+ * thread, and the typestate and structural thread options keep their default
+ * of one, so that the analysis allocates on that thread. A case which hands
+ * work to other threads would report less than it allocates.
+ */
+public final class SolverBenchmark {
+
+  public static void main(final String[] args) throws Exception {
+    final int warmup = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_WARMUP;
+    final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+    final PrintWriter out = (args.length > 2) ? new PrintWriter(new FileWriter(args[2])) : new PrintWriter(System.out);
+    try {
+      new SolverBenchmark(warmup, iterations).run(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  public SolverBenchmark(final int warmupIterations, final int measuredIterations) {
+    assert measuredIterations > 0;
+    this.warmupIterations = warmupIterations;
+    this.measuredIterations = measuredIterations;
+  }
+
+  /**
+   * Run all cases and write their results to out.
+   */
+  public void run(final PrintWriter out) throws SafeException, Exception {
+    initVMOptions();
+    final Map<String, Double> results = new TreeMap<String, Double>();
+    for (Iterator<BenchmarkCase> it = createCases().iterator(); it.hasNext();) {
+      final BenchmarkCase benchCase = it.next();
+      measure(benchCase, results);
+    }
+    for (Iterator<Map.Entry<String, Double>> it = results.entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, Double> entry = it.next();
+      out.println(entry.getKey() + "," + format(entry.getValue().doubleValue()));
+    }
+    out.flush();
+  }
+
+  // --- Private code
+
+  /**
+   * @return the cases: each typestate solver kind over each typestate
+   *         workload, then the structural solver over each lightweight
+   *         workload
+   */
+  private static List<BenchmarkCase> createCases() throws SafeException {
+    final List<BenchmarkCase> cases = new ArrayList<BenchmarkCase>();
+    for (int i = 0; i < TYPESTATE_WORKLOADS.length; i++) {
+      final String mainClass = TYPESTATE_WORKLOADS[i][0];
+      final String rule = TYPESTATE_WORKLOADS[i][1];
+      for (int j = 0; j < TYPESTATE_KINDS.length; j++) {
+        final TypestateRegressionUnit unit = new TypestateRegressionUnit(mainClass, -1);
+        unit.selectTypestateRule(rule);
+        unit.setOption(TypestateProperties.Props.TYPESTATE_SOLVER_KIND.getName(), TYPESTATE_KINDS[j].toString());
+        unit.setBooleanOption(CommonProperties.Props.TYPESTATE.getName());
+        unit.setTypestateThreads(1);
+        cases.add(new BenchmarkCase(caseName(mainClass, TYPESTATE_KINDS[j].toString()), unit));
+      }
+    }
+    for (int i = 0; i < STRUCTURAL_WORKLOADS.length; i++) {
+      final LightweightRegressionUnit unit = new LightweightRegressionUnit(STRUCTURAL_WORKLOADS[i], -1);
+      unit.selectStructuralAnalysis();
+      unit.setStructuralThreads(1);
+      cases.add(new BenchmarkCase(caseName(STRUCTURAL_WORKLOADS[i], "STRUCTURAL"), unit));
+    }
+    return cases;
+  }
+
+  private static String caseName(final String mainClass, final String solver) {
+    return mainClass.substring(mainClass.lastIndexOf('.') + 1) + "/" + solver;
+  }
+
+  private void measure(final BenchmarkCase benchCase, final Map<String, Double> results) throws SafeException, Exception {
+    final SafeRegressionUnit unit = benchCase.unit;
+    unit.setSolverThreads(1);
+    unit.setBooleanOption(CommonProperties.Props.PERFORMANCE_TRACKING.getName());
+    unit.setBooleanOption(CommonProperties.Props.VERBOSE.getName(), false);
+
+    for (int i = 0; i < this.warmupIterations; i++) {
+      runOnce(unit);
+    }
+
+    final Map<String, Double> phaseMillis = new TreeMap<String, Double>();
+    long totalNanos = 0;
+    long totalBytes = 0;
+    long totalGCMillis = 0;
+    int findings = 0;
+    for (int i = 0; i < this.measuredIterations; i++) {
+      final long startBytes = getAllocatedBytes();
+      final long startGC = getGCMillis();
+      final long start = System.nanoTime();
+      final BenchmarkReporter reporter = runOnce(unit);
+      totalNanos += System.nanoTime() - start;
+      totalGCMillis += getGCMillis() - startGC;
+      totalBytes += getAllocatedBytes() - startBytes;
+      findings = reporter.nFindings;
+      for (Iterator<Map.Entry<String, Long>> it = reporter.phaseMillis.entrySet().iterator(); it.hasNext();) {
+        final Map.Entry<String, Long> entry = it.next();
+        final Double previous = phaseMillis.get(entry.getKey());
+        final double sum = (previous == null) ? 0 : previous.doubleValue();
+        phaseMillis.put(entry.getKey(), Double.valueOf(sum + entry.getValue().longValue()));
+      }
+    }
+
+    final double n = this.measuredIterations;
+    final double msPerOp = totalNanos / n / NANOS_PER_MILLI;
+    record(results, benchCase.name, "findings", findings);
+    record(results, benchCase.name, "ms/op", msPerOp);
+    record(results, benchCase.name, "ops/s", (msPerOp == 0) ? 0 : MILLIS_PER_SECOND / msPerOp);
+    record(results, benchCase.name, "gc.ms/op", totalGCMillis / n);
+    if (getAllocatedBytes() >= 0) {
+      record(results, benchCase.name, "alloc.bytes/op", totalBytes / n);
+      record(results, benchCase.name, "alloc.MB/s", (totalNanos == 0) ? 0 : (totalBytes / BYTES_PER_MB)
+          / (totalNanos / NANOS_PER_SECOND));
+    }
+    for (Iterator<Map.Entry<String, Double>> it = phaseMillis.entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, Double> entry = it.next();
+      record(results, benchCase.name, "phase." + entry.getKey() + ".ms/op", entry.getValue().doubleValue() / n);
+    }
+  }
+
+  private static BenchmarkReporter runOnce(final SafeRegressionUnit unit) throws SafeException, Exception {
+    final PropertiesManager propManager = PropertiesManager.initFromMap(unit.getOptions());
+    final AbstractSafeController controller = new GenericSafeController(propManager);
+    final BenchmarkReporter reporter = new BenchmarkReporter();
+    controller.execute(controller.getRules(), reporter, new NullProgressMonitor());
+    if (reporter.status != AnalysisStatus.NORMAL) {
+      throw new SafeException("Abnormal Termination of Analysis " + reporter.status);
+    }
+    return reporter;
+  }
+
+  private static void record(final Map<String, Double> results, final String caseName, final String metric,
+      final double value) {
+    results.put(caseName + "," + metric, Double.valueOf(value));
+  }
+
+  private static String format(final double value) {
+    return String.valueOf(Math.round(value * 1000) / 1000.0);
+  }
+
+  /**
+   * @return bytes allocated so far by the current thread, or -1 if the VM
+   *         cannot tell
+   */
+  private static long getAllocatedBytes() {
+    return ThreadSampler.getCurrentThreadAllocatedBytes();
+  }
+
+  private static long getGCMillis() {
+    long result = 0;
+    for (Iterator<GarbageCollectorMXBean> it = ManagementFactory.getGarbageCollectorMXBeans().iterator(); it.hasNext();) {
+      final long time = it.next().getCollectionTime();
+      if (time > 0) {
+        result += time;
+      }
+    }
+    return result;
+  }
+
+  private static void initVMOptions() {
+    final String loggingConfigFile = System.getProperty(LOGGING_CONFIG_FILE);
+    if (loggingConfigFile == null) {
+      System.setProperty(LOGGING_CONFIG_FILE, AbstractSafeJavaApplication.class.getClassLoader().getResource(SAFE_LOG_FILE)
+          .getFile());
+    }
+  }
+
+  private static final class BenchmarkCase {
+
+    BenchmarkCase(final String caseName, final SafeRegressionUnit regressionUnit) {
+      this.name = caseName;
+      this.unit = regressionUnit;
+    }
+
+    final String name;
+
+    final SafeRegressionUnit unit;
+
+  }
+
+  /**
+   * Collects the findings count, the status and the phase timers of one run.
+   */
+  private static final class BenchmarkReporter implements IReporter {
+
+    private final Map<String, Long> phaseMillis = new TreeMap<String, Long>();
+
+    private int nFindings;
+
+    private AnalysisStatus status;
+
+    // --- Interface methods implementation
+    public void process(final IClass clazz) {
+      // Do nothing here !
+    }
+
+    public void produceFinalReport() throws Exception {
+      // Do nothing here !
+    }
+
+    public void reportException(final Throwable exception) {
+      exception.printStackTrace();
+    }
+
+    public void reportMessage(final Message message) {
+      // Do nothing here !
+    }
+
+    public void reportNumberOfFindings(final int numberOfFindings) {
+      this.nFindings = numberOfFindings;
+    }
+
+    public void reportNumberOfRulesActivated(final int numberOfRules) {
+      // Do nothing here !
+    }
+
+    public void reportPerformanceTracking(final PerformanceTracker perfoTracker) {
+      addPhases(perfoTracker);
+    }
+
+    /**
+     * Sum the timers of a span and of its descendants by name, so that phases
+     * timed per instance, such as tabulation, are totalled over the run.
+     */
+    private void addPhases(final PerformanceTracker span) {
+      final NamedTimer[] timers = span.getTimers();
+      for (int i = 0; i < timers.length; i++) {
+        final Long previous = this.phaseMillis.get(timers[i].getName());
+        final long sum = (previous == null) ? 0 : previous.longValue();
+        this.phaseMillis.put(timers[i].getName(), Long.valueOf(sum + timers[i].getElapsedMillis()));
+      }
+      final PerformanceTracker[] children = span.getChildren();
+      for (int i = 0; i < children.length; i++) {
+        addPhases(children[i]);
+      }
+    }
+
+    public void reportStatistics(final ProgramStatistics programStat) {
+      // Do nothing here !
+    }
+
+    public void reportStatistics(final IMetrics typeStateMetrics) {
+      // Do nothing here !
+    }
+
+    public void reportRuleLoading(final IRule rule) {
+      // Do nothing here !
+    }
+
+    public void reportRuleInstances(final IRule rule, int instances) {
+      // Do nothing here !
+    }
+
+    public void startAnalysis(final AnalysisKind nature) {
+      // Do nothing here !
+    }
+
+    public void stopAnalysis(final AnalysisKind nature) {
+      // Do nothing here !
+    }
+
+    public void reportAnalysisStatus(final AnalysisStatus analysisStatus) {
+      this.status = analysisStatus;
+    }
+
+    public void version(final String versionNumber) {
+      // Do nothing here !
+    }
+  }
+
+  private final int warmupIterations;
+
+  private final int measuredIterations;
+
+  /**
+   * pairs (main class, typestate rule) of the typestate workloads
+   */
+  private static final String[][] TYPESTATE_WORKLOADS = {
+      { "j2se.typestate.vector.RunningExample", "EmptyVector" }, //$NON-NLS-1$ //$NON-NLS-2$
+      { "j2se.typestate.socket.Sender", "Socket" }, //$NON-NLS-1$ //$NON-NLS-2$
+      { "j2se.typestate.fileComponent.StagingExample1", "FileOpenAndReadFromOpFileComponent" } //$NON-NLS-1$ //$NON-NLS-2$
+  };
+
+  private static final TypeStateSolverKind[] TYPESTATE_KINDS = { TypeStateSolverKind.BASE, TypeStateSolverKind.UNIQUE,
+      TypeStateSolverKind.AP_MUST, TypeStateSolverKind.AP_MUST_MUSTNOT, TypeStateSolverKind.LOCAL_MUST_MUSTNOT,
+      TypeStateSolverKind.STAGED };
+
+  private static final String[] STRUCTURAL_WORKLOADS = { "j2se.structural.PerformanceRelatedExamples", //$NON-NLS-1$
+      "j2se.structural.SuspiciousOverriddingExamples", "j2se.structural.EqualsHashCodeExample1" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+  private static final int DEFAULT_WARMUP = 3;
+
+  private static final int DEFAULT_ITERATIONS = 5;
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private static final double NANOS_PER_SECOND = 1000000000.0;
+
+  private static final double MILLIS_PER_SECOND = 1000.0;
+
+  private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+  private static final String LOGGING_CONFIG_FILE = "java.util.logging.config.file"; //$NON-NLS-1$
+
+  private static final String SAFE_LOG_FILE = "safelog.properties"; //$NON-NLS-1$
+
+}
@@ -81,6 +81,14 @@ public class SafeRegressionUnit {
     this.options.put(optionName, String.valueOf(value));
   }
 
+  public void setSolverThreads(int n) {
+    setIntegerOption(CommonProperties.Props.SOLVER_THREADS.getName(), n);
+  }
+
+  public void setIncrementalCache(String path) {
+    setOption(CommonProperties.Props.INCREMENTAL_CACHE.getName(), path);
+  }
+
   private String createRulesDirsOption() throws SafeException {
     return createRulesDirsOption("");
   }
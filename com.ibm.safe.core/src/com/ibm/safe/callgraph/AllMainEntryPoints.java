@@ -12,42 +12,67 @@ package com.ibm.safe.callgraph;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.regex.Matcher;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import com.ibm.safe.internal.exceptions.SetUpException;
+import com.ibm.safe.utils.SafeLogger;
+import com.ibm.safe.utils.Utils;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.types.MethodReference;
-import com.ibm.wala.util.strings.Atom;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
 
 
 /**
- * @author egeay 
+ * The main methods of the application classes whose names match some selector,
+ * or of all application classes if there is no selector.
+ *
+ * The selectors are matched as one pattern, and only against the classes which
+ * declare a main method. The classes found for the last few scopes are
+ * remembered, keyed by the application archives and the selectors, so that a
+ * later analysis of the same archives does not look for them again.
+ *
+ * @author egeay
  * @author yahave
  */
 public final class AllMainEntryPoints implements Iterable<Entrypoint> {
 
   public AllMainEntryPoints(final AnalysisScope analysisScope, final IClassHierarchy classHierarchy,
       final Pattern[] mainClassesSelector, final boolean isVerboseMode) throws SetUpException {
-    final Atom mainMethod = Atom.findOrCreateAsciiAtom(MAIN_METHOD_NAME);
-    final Descriptor mainDescriptor = Descriptor.findOrCreateUTF8(MAIN_DESCRIPTOR);
-
-    for (IClass clazz : classHierarchy) {
-      if (!clazz.isInterface() && !clazz.isAbstract() && isApplicationClass(analysisScope, clazz)) {
-        for (Iterator<IMethod> methodIter = clazz.getDeclaredMethods().iterator(); methodIter.hasNext();) {
-          final IMethod method = methodIter.next();
-          if (isMainMethod(method.getReference(), mainMethod, mainDescriptor)) {
-            addPotentiallyMainClass(classHierarchy, mainClassesSelector, clazz, method);
-          }
-        }
+    this(analysisScope, classHierarchy, mainClassesSelector, isVerboseMode, 1);
+  }
+
+  /**
+   * @param threadCount
+   *          number of threads looking for main methods
+   */
+  public AllMainEntryPoints(final AnalysisScope analysisScope, final IClassHierarchy classHierarchy,
+      final Pattern[] mainClassesSelector, final boolean isVerboseMode, final int threadCount) throws SetUpException {
+    final String key = getCacheKey(analysisScope, mainClassesSelector);
+    List<String> mainClasses = (key == null) ? null : getCachedMainClasses(key);
+    if ((mainClasses == null) || !addEntryPoints(analysisScope, classHierarchy, mainClasses)) {
+      mainClasses = findMainClasses(analysisScope, classHierarchy, mainClassesSelector, threadCount);
+      if (key != null) {
+        putCachedMainClasses(key, mainClasses);
       }
+      addEntryPoints(analysisScope, classHierarchy, mainClasses);
     }
     if (this.entryPoints.isEmpty()) {
       throw new SetUpException(SafeEntryPoints.NO_VALID_ENTRYPOINTS); //$NON-NLS-1$
@@ -64,37 +89,212 @@ public final class AllMainEntryPoints implements Iterable<Entrypoint> {
 
   // --- Private code
 
+  /**
+   * Add the main method of each of the given classes.
+   *
+   * @return false if one of the classes is no longer in the class hierarchy
+   */
+  private boolean addEntryPoints(final AnalysisScope scope, final IClassHierarchy cha, final List<String> mainClasses) {
+    this.entryPoints.clear();
+    for (String name : mainClasses) {
+      final IClass clazz = cha.lookupClass(TypeReference.findOrCreate(scope.getApplicationLoader(), name));
+      if (clazz == null) {
+        return false;
+      }
+      final IMethod method = clazz.getMethod(MAIN_SELECTOR);
+      if ((method == null) || !method.getDeclaringClass().equals(clazz)) {
+        return false;
+      }
+      addEntryPoint(getClassName(clazz), method.getReference(), cha);
+    }
+    return true;
+  }
+
   private void addEntryPoint(final String className, final MethodReference methodRef, final IClassHierarchy cha) {
-    System.out.println("Main class " + className + " detected as entry point.");
+    SafeLogger.fine("Main class " + className + " detected as entry point.");
     this.entryPoints.add(new DefaultEntrypoint(methodRef, cha));
   }
 
-  private void addPotentiallyMainClass(final IClassHierarchy classHierarchy, final Pattern[] mainClassesSelector,
-      final IClass clazz, final IMethod method) {
-    final String className = clazz.getName().toString().substring(1).replace('/', '.');
-    if (mainClassesSelector.length > 0) {
-      for (int i = 0; i < mainClassesSelector.length; i++) {
-        final Matcher matcher = mainClassesSelector[i].matcher(className);
-        if (matcher.matches()) {
-          addEntryPoint(className, method.getReference(), classHierarchy);
-        }
+  /**
+   * @return the names of the selected application classes declaring a main
+   *         method, in the order of the class hierarchy
+   */
+  private static List<String> findMainClasses(final AnalysisScope scope, final IClassHierarchy cha,
+      final Pattern[] mainClassesSelector, final int threadCount) {
+    final List<IClass> classes = new ArrayList<IClass>();
+    for (IClass clazz : cha) {
+      if (isApplicationClass(scope, clazz)) {
+        classes.add(clazz);
       }
-    } else {
-      addEntryPoint(className, method.getReference(), classHierarchy);
     }
+    final ClassSelector selector = new ClassSelector(mainClassesSelector);
+    final int nSlices = Math.max(1, Math.min(threadCount, classes.size() / MIN_CLASSES_PER_THREAD));
+    final List<String> result = new ArrayList<String>();
+    if (nSlices == 1) {
+      result.addAll(findMainClasses(classes, selector));
+      return result;
+    }
+    final ExecutorService pool = Executors.newFixedThreadPool(nSlices);
+    try {
+      final List<Future<List<String>>> pending = new ArrayList<Future<List<String>>>(nSlices);
+      for (int i = 0; i < nSlices; i++) {
+        final List<IClass> slice = classes.subList(i * classes.size() / nSlices, (i + 1) * classes.size() / nSlices);
+        pending.add(pool.submit(new Callable<List<String>>() {
+          public List<String> call() {
+            return findMainClasses(slice, selector);
+          }
+        }));
+      }
+      for (Future<List<String>> f : pending) {
+        result.addAll(f.get());
+      }
+    } catch (InterruptedException except) {
+      // preserve the interrupt for our caller, but do not return a partial list
+      Thread.currentThread().interrupt();
+      result.clear();
+      result.addAll(findMainClasses(classes, selector));
+    } catch (ExecutionException except) {
+      final Throwable cause = except.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    return result;
+  }
+
+  private static List<String> findMainClasses(final List<IClass> classes, final ClassSelector selector) {
+    final List<String> result = new ArrayList<String>();
+    for (IClass clazz : classes) {
+      if (!clazz.isInterface() && !clazz.isAbstract() && declaresMainMethod(clazz) && selector.matches(getClassName(clazz))) {
+        result.add(clazz.getName().toString());
+      }
+    }
+    return result;
+  }
+
+  private static boolean declaresMainMethod(final IClass clazz) {
+    for (IMethod method : clazz.getDeclaredMethods()) {
+      if (method.getSelector().equals(MAIN_SELECTOR)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String getClassName(final IClass clazz) {
+    return clazz.getName().toString().substring(1).replace('/', '.');
   }
 
-  private boolean isApplicationClass(final AnalysisScope scope, final IClass clazz) {
+  private static boolean isApplicationClass(final AnalysisScope scope, final IClass clazz) {
     return scope.getApplicationLoader().equals(clazz.getClassLoader().getReference());
   }
 
-  private boolean isMainMethod(final MethodReference methodRef, final Atom mainMethod, final Descriptor mainDescriptor) {
-    return (methodRef.getName().equals(mainMethod) && methodRef.getDescriptor().equals(mainDescriptor));
+  /**
+   * @return the key of the main classes of the scope for the given selectors,
+   *         or null if they are not to be cached: archives are identified by
+   *         path, size and modification time; the content of other modules
+   *         is only known by reading it, which costs as much as looking for the
+   *         main classes
+   */
+  private static String getCacheKey(final AnalysisScope scope, final Pattern[] mainClassesSelector) {
+    final StringBuilder key = new StringBuilder();
+    for (Module module : scope.getModules(scope.getApplicationLoader())) {
+      if (!(module instanceof JarFileModule)) {
+        return null;
+      }
+      key.append(Utils.getArchiveFingerprint((JarFileModule) module)).append('\n');
+    }
+    for (Pattern pattern : mainClassesSelector) {
+      key.append('|').append(pattern.pattern());
+    }
+    return key.toString();
+  }
+
+  private static synchronized List<String> getCachedMainClasses(final String key) {
+    return mainClassesCache.get(key);
+  }
+
+  private static synchronized void putCachedMainClasses(final String key, final List<String> mainClasses) {
+    mainClassesCache.put(key, Collections.unmodifiableList(new ArrayList<String>(mainClasses)));
+  }
+
+  /**
+   * The selectors as a single alternation, so that a class name is matched
+   * once rather than once per selector. Selectors with capturing groups are
+   * matched one by one, as joining them would renumber their back references.
+   */
+  private static final class ClassSelector {
+
+    private final Pattern combined;
+
+    private final Pattern[] selectors;
+
+    ClassSelector(final Pattern[] mainClassesSelector) {
+      this.selectors = mainClassesSelector;
+      this.combined = combine(mainClassesSelector);
+    }
+
+    boolean matches(final String className) {
+      if (this.selectors.length == 0) {
+        return true;
+      } else if (this.combined != null) {
+        return this.combined.matcher(className).matches();
+      }
+      for (Pattern selector : this.selectors) {
+        if (selector.matcher(className).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static Pattern combine(final Pattern[] selectors) {
+      if (selectors.length == 0) {
+        return null;
+      }
+      final StringBuilder regex = new StringBuilder();
+      for (Pattern selector : selectors) {
+        if ((selector.flags() != 0) || (selector.matcher("").groupCount() > 0)) { //$NON-NLS-1$
+          return null;
+        }
+        if (regex.length() > 0) {
+          regex.append('|');
+        }
+        regex.append("(?:").append(selector.pattern()).append(')'); //$NON-NLS-1$
+      }
+      return Pattern.compile(regex.toString());
+    }
   }
 
   private final Collection<Entrypoint> entryPoints = new ArrayList<Entrypoint>(10);
 
-  private static final String MAIN_METHOD_NAME = "main"; //$NON-NLS-1$
+  private static final Selector MAIN_SELECTOR = Selector.make("main([Ljava/lang/String;)V"); //$NON-NLS-1$
+
+  /**
+   * below this many classes per thread, looking in parallel does not pay
+   */
+  private static final int MIN_CLASSES_PER_THREAD = 256;
 
-  private static final String MAIN_DESCRIPTOR = "([Ljava/lang/String;)V"; //$NON-NLS-1$
+  /**
+   * number of keys whose main classes are remembered
+   */
+  private static final int MAX_CACHED_KEYS = 16;
+
+  /**
+   * Map: key -> main classes, least recently used first
+   */
+  private static final Map<String, List<String>> mainClassesCache = new LinkedHashMap<String, List<String>>(16, 0.75f,
+      true /* access order */) {
+    private static final long serialVersionUID = 4139856251770164562L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+      return size() > MAX_CACHED_KEYS;
+    }
+  };
 }
@@ -10,21 +10,18 @@
  *******************************************************************************/
 package com.ibm.safe.callgraph;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import com.ibm.safe.utils.ConeDispatchCache;
 import com.ibm.safe.utils.ReceiverTypeInference;
+import com.ibm.safe.utils.ReceiverTypeInferenceCache;
 import com.ibm.wala.analysis.typeInference.ConeType;
 import com.ibm.wala.analysis.typeInference.PointType;
 import com.ibm.wala.analysis.typeInference.TypeAbstraction;
-import com.ibm.wala.analysis.typeInference.TypeInference;
 import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
-import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.Context;
@@ -34,8 +31,11 @@ import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ContextInsensitiveSSAInterpreter;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
@@ -48,9 +48,21 @@ public class CHABasedCallGraph extends ExplicitCallGraph {
 
 	protected static final Context CONTEXT = Everywhere.EVERYWHERE;
 
+	/**
+	 * Dispatch targets of cone types, shared by all nodes.
+	 */
+	private final ConeDispatchCache dispatchCache;
+
+	/**
+	 * Receiver types of the call sites of each node, kept while the node's IR
+	 * is.
+	 */
+	private final ReceiverTypeInferenceCache receiverTypes = new ReceiverTypeInferenceCache();
+
 	public CHABasedCallGraph(IClassHierarchy cha, AnalysisOptions options,
 			IAnalysisCacheView cache) {
 		super(cha, options, cache);
+		this.dispatchCache = new ConeDispatchCache(cha);
 		setInterpreter(new ContextInsensitiveSSAInterpreter(options, cache));
 
 		// Create nodes for methods in classes found by CHA.
@@ -75,9 +87,16 @@ public class CHABasedCallGraph extends ExplicitCallGraph {
 	// It may be more appropriate to extend BasicCallGraph's NodeImpl
 	// but the asymmetry would be very confusing.
 	public class CHABasedNode extends ExplicitNode {
-		// For now, everything is done over and over the hard way.
-		// Once this works, we should use ExplicitNode's data structures
-		// to cache results, thus building up a CHA-based call graph.
+		/**
+		 * Numbers of the targets of each call site, computed on the first
+		 * query for the site. Guarded by itself, which only keeps two queries
+		 * on this node from computing the same site at once: computing the
+		 * targets builds the IR of the node and adds nodes to the graph,
+		 * neither of which is thread-safe, so the graph is only walked from
+		 * several threads once the targets of its nodes are computed.
+		 */
+		private final Map<CallSiteReference, IntSet> targetNumbers = HashMapFactory
+				.make();
 
 		/**
 		 * @param method
@@ -88,57 +107,70 @@ public class CHABasedCallGraph extends ExplicitCallGraph {
 		}
 
 		/**
-		 * Look up possible targets based on CHA information. Essentially, this
-		 * is copied from InfiniteRecursionMethodProcessor. TODO: Move the meat
-		 * to a method that returns an iterator over methods. Then, we don't
-		 * waste collections for counting/converting.
+		 * Look up possible targets based on CHA information, once per call
+		 * site.
 		 */
 		@Override
 		protected Set<CGNode> getPossibleTargets(CallSiteReference site) {
+			IntSet numbers = getPossibleTargetNumbers(site);
+			Set<CGNode> result = HashSetFactory.make(numbers.size());
+			for (IntIterator it = numbers.intIterator(); it.hasNext();) {
+				result.add(getCallGraph().getNode(it.next()));
+			}
+			return result;
+		}
+
+		@Override
+		protected IntSet getPossibleTargetNumbers(CallSiteReference site) {
+			synchronized (targetNumbers) {
+				IntSet result = targetNumbers.get(site);
+				if (result == null) {
+					result = computeTargetNumbers(site);
+					targetNumbers.put(site, result);
+				}
+				return result;
+			}
+		}
+
+		@Override
+		protected int getNumberOfTargets(CallSiteReference site) {
+			return getPossibleTargetNumbers(site).size();
+		}
+
+		/**
+		 * Essentially, this is copied from InfiniteRecursionMethodProcessor;
+		 * both share the resolution of cone types through ConeDispatchCache.
+		 */
+		private IntSet computeTargetNumbers(CallSiteReference site) {
 			// Find the possible classes that could contain the target methods.
-			TypeInference ti = TypeInference.make(getIR(), false);
-			ReceiverTypeInference rti = new ReceiverTypeInference(ti);
+			ReceiverTypeInference rti = receiverTypes.findOrCreate(getIR());
 			TypeAbstraction t = rti.getReceiverType(site);
 
 			// Now, find the possible target methods in the classes found above.
-			HashSet<CGNode> result = HashSetFactory.make();
+			MutableIntSet result = new MutableSharedBitVectorIntSet();
 			if (t instanceof ConeType) {
-				ConeType cone = (ConeType) t;
-				if (cone.getType().isInterface()) {
-					Set<IClass> implementors = cha.getImplementors(cone
-							.getType().getReference());
-					for (Iterator<IClass> it = implementors.iterator(); it
-							.hasNext();) {
-						IClass klass = it.next();
-						addTarget(result, klass, site);
-					}
-				} else {
-					Collection<IClass> subTypes = cha.computeSubClasses(t
-							.getType().getReference());
-					for (Iterator<IClass> it = subTypes.iterator(); it
-							.hasNext();) {
-						IClass klass = it.next();
-						addTarget(result, klass, site);
-					}
+				for (IMethod target : dispatchCache.getConeTargets(
+						((ConeType) t).getType(), site.getDeclaredTarget()
+								.getSelector())) {
+					addTarget(result, target);
 				}
 			} else if (t instanceof PointType) {
-				addTarget(result, t.getType(), site);
+				addTarget(result, cha.resolveMethod(t.getType(), site
+						.getDeclaredTarget().getSelector()));
 			} else if (t.equals(TypeAbstraction.TOP)) {
 				// TODO: Log type-inference failures or complain somewhere. This
 				// is bad!
-				return Collections.emptySet();
+				return EmptyIntSet.instance;
 			} else {
 				Assertions.UNREACHABLE("internal error: " + t.getClass());
 			}
 			return result;
 		}
 
-		protected void addTarget(Collection<CGNode> nodes, IClass klass,
-				CallSiteReference site) {
-			IMethod target = cha.resolveMethod(klass, site.getDeclaredTarget()
-					.getSelector());
+		private void addTarget(MutableIntSet numbers, IMethod target) {
 			try {
-				nodes.add(getCallGraph().findOrCreateNode(target, CONTEXT));
+				numbers.add(getCallGraph().getNumber(
+						getCallGraph().findOrCreateNode(target, CONTEXT)));
 			} catch (CancelException e) {
 				// TODO Auto-generated catch block
 				System.err
@@ -148,20 +180,6 @@ public class CHABasedCallGraph extends ExplicitCallGraph {
 			}
 		}
 
-		@Override
-		protected IntSet getPossibleTargetNumbers(CallSiteReference site) {
-			MutableIntSet result = new MutableSharedBitVectorIntSet();
-			for (CGNode target : getPossibleTargets(site)) {
-				result.add(getCallGraph().getNumber(target));
-			}
-			return result;
-		}
-
-		@Override
-		protected int getNumberOfTargets(CallSiteReference site) {
-			return getPossibleTargets(site).size();
-		}
-
 		@Override
 		public boolean addTarget(CallSiteReference site, CGNode tNode) {
 			Assertions.UNREACHABLE();
@@ -89,10 +89,12 @@ public class CallGraphEngine extends AbstractAnalysisEngine {
 
     try {
       super.scope = wholeProgramOptions.getOrCreateAnalysisScope();
-      if (chaEngine.getClassHierarchy() == null) {
-        chaEngine.buildClassHierarchy();
+      if (getClassHierarchy() == null) {
+        if (chaEngine.getClassHierarchy() == null) {
+          chaEngine.buildClassHierarchy();
+        }
+        super.setClassHierarchy(chaEngine.getClassHierarchy());
       }
-      super.setClassHierarchy(chaEngine.getClassHierarchy());
     } catch (JavaModelException e) {
       // TODO Auto-generated catch block
       e.printStackTrace();
@@ -108,7 +110,7 @@ public class CallGraphEngine extends AbstractAnalysisEngine {
 
     if (this.wholeProgramOptions.allMainClassesEntrypoints()) {
       entrypoints = new AllMainEntryPoints(getScope(), getClassHierarchy(), this.wholeProgramOptions.getMainClassesSelector(),
-          this.wholeProgramOptions.isVerboseMode());
+          this.wholeProgramOptions.isVerboseMode(), this.wholeProgramOptions.getSolverThreadCount());
     } else {
       entrypoints = new SelectiveEntryPoints(getScope(), getClassHierarchy(), this.wholeProgramOptions.getEntryPointDefinitions());
     }
@@ -128,6 +130,14 @@ public class CallGraphEngine extends AbstractAnalysisEngine {
     }
   }
 
+  /**
+   * Use a class hierarchy that was already built for the same scope, instead
+   * of building one when computing the call graph.
+   */
+  public void useClassHierarchy(final IClassHierarchy cha) {
+    super.setClassHierarchy(cha);
+  }
+
   public void setInterestingTypes(final String[] interestingTypes) throws PropertiesException {
     this.interestingTypes = interestingTypes;
   }
@@ -195,7 +195,9 @@ public abstract class AbstractSafeController {
   }
 
   protected boolean shouldUsePerfomanceTracker() throws PropertiesException {
-    return this.propertiesManager.getBooleanValue(Props.PERFORMANCE_TRACKING);
+    final String performanceFile = this.propertiesManager.getStringValue(Props.PERFORMANCE_FILE);
+    return this.propertiesManager.getBooleanValue(Props.PERFORMANCE_TRACKING)
+        || ((performanceFile != null) && (performanceFile.length() > 0));
   }
 
   protected static final String VERSION_PROPERTIES_FILE = "com/ibm/safe/version.properties"; //$NON-NLS-1$
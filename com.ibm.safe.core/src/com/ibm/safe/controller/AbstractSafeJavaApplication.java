@@ -17,12 +17,14 @@ import java.net.URL;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 
+import com.ibm.safe.internal.exceptions.PropertiesException;
 import com.ibm.safe.internal.exceptions.SafeException;
 import com.ibm.safe.internal.reporting.ReporterFactory;
 import com.ibm.safe.properties.CommonProperties;
 import com.ibm.safe.properties.CommonProperties.Props;
 import com.ibm.safe.properties.PropertiesManager;
 import com.ibm.safe.properties.PropertiesManager.IPropertyDescriptor;
+import com.ibm.safe.reporting.IReporter;
 import com.ibm.safe.rules.IRule;
 import com.ibm.safe.utils.SafeLogger;
 
@@ -46,7 +48,10 @@ public abstract class AbstractSafeJavaApplication {
       final IRule[] rules = runner.getRules();
       final String analysisResultFile = propertiesManager.getPathValue(Props.OUTPUT_DIR) + File.separator
           + propertiesManager.getStringValue(Props.RESULT_FILENAME);
-      runner.execute(rules, ReporterFactory.createDefaultReporter(analysisResultFile), new NullProgressMonitor());
+      final IReporter reporter = ReporterFactory.createDefaultReporter(analysisResultFile, propertiesManager
+          .getBooleanValue(Props.STREAM_RESULTS));
+      runner.execute(rules, ReporterFactory.addPerformanceReporter(reporter, getPerformanceFile(propertiesManager)),
+          new NullProgressMonitor());
     } catch (SafeException except) {
       SafeLogger.severe(except.getMessage());
       System.err.println(except.getMessage());
@@ -64,6 +69,18 @@ public abstract class AbstractSafeJavaApplication {
     }
   }
 
+  /**
+   * @return the file to export performance tracking to, relative to the output
+   *         directory unless absolute, or null if none was asked for
+   */
+  private static String getPerformanceFile(final PropertiesManager propertiesManager) throws PropertiesException {
+    final String fileName = propertiesManager.getStringValue(Props.PERFORMANCE_FILE);
+    if ((fileName == null) || (fileName.length() == 0) || new File(fileName).isAbsolute()) {
+      return fileName;
+    }
+    return propertiesManager.getPathValue(Props.OUTPUT_DIR) + File.separator + fileName;
+  }
+
   protected String getStackStrace(final Throwable exception) {
     final StringWriter strWriter = new StringWriter();
     final PrintWriter printWriter = new PrintWriter(strWriter);
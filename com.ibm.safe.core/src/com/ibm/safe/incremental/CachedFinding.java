@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.incremental;
+
+import java.io.Serializable;
+
+import com.ibm.safe.reporting.message.ClassLocation;
+import com.ibm.safe.reporting.message.Location;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.reporting.message.MethodLocation;
+import com.ibm.safe.rules.IRule;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+
+/**
+ * The part of a finding which survives from one run to the next: its rule
+ * name, type, text and location. The rule itself is bound again, by name, when
+ * the finding is replayed.
+ */
+public final class CachedFinding implements Serializable {
+
+  // --- Public services
+
+  public CachedFinding(final Message message) {
+    this.ruleName = (message.getRule() == null) ? null : message.getRule().getName();
+    this.messageType = message.getMessageType();
+    this.text = message.getText();
+    final Location location = message.getLocation();
+    if (location.isMethodMember()) {
+      this.locationKind = METHOD;
+      this.member = ((MethodLocation) location).getLocationMethodSignature();
+    } else if (location.isFieldMember()) {
+      this.locationKind = FIELD;
+      this.member = location.getSourceLocation();
+    } else if (location instanceof ClassLocation) {
+      this.locationKind = CLASS;
+      this.member = null;
+    } else {
+      this.locationKind = UNKNOWN;
+      this.member = null;
+    }
+    this.className = location.getLocationClass();
+    this.lineNumber = location.getLocationLineNumber();
+    this.bcIndex = location.getByteCodeIndex();
+  }
+
+  public String getRuleName() {
+    return this.ruleName;
+  }
+
+  /**
+   * @param rule
+   *          the rule of the current run whose name is {@link #getRuleName()}
+   * @return the finding as a message of the current run
+   */
+  public Message toMessage(final IRule rule) {
+    return new ReplayedMessage(rule, this.messageType, this.text, toLocation());
+  }
+
+  // --- Private code
+
+  private Location toLocation() {
+    switch (this.locationKind) {
+    case METHOD:
+      return Location.createMethodLocation(TypeName.string2TypeName(this.className), Selector.make(this.member),
+          this.lineNumber, this.bcIndex);
+    case FIELD:
+      return Location.createFieldLocation(TypeName.string2TypeName(this.className), this.member);
+    case CLASS:
+      return Location.createClassLocation(this.className, this.lineNumber);
+    default:
+      return Location.createUnknownLocation();
+    }
+  }
+
+  private static final long serialVersionUID = 2418809514306718045L;
+
+  private static final int METHOD = 0, FIELD = 1, CLASS = 2, UNKNOWN = 3;
+
+  private final String ruleName;
+
+  private final String messageType;
+
+  private final String text;
+
+  private final int locationKind;
+
+  private final String className;
+
+  private final String member;
+
+  private final int lineNumber;
+
+  private final int bcIndex;
+
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.incremental;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ibm.safe.cha.J2SEClassHierarchyEngine;
+import com.ibm.safe.utils.Utils;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Content fingerprints of the classes of an analysis scope.
+ *
+ * An application class is fingerprinted by the SHA-1 of its class file. Library
+ * classes (primordial and extension loaders) are fingerprinted by name only:
+ * the runtime they come from is part of the configuration of the
+ * {@link IncrementalStore}. A class whose bytes cannot be read gets a
+ * fingerprint of its own on every run, so that it always counts as changed.
+ */
+public final class ClassFingerprints {
+
+  // --- Public services
+
+  /**
+   * @return the fingerprint of the given class
+   */
+  public synchronized String getFingerprint(final IClass klass) {
+    String result = this.fingerprints.get(klass);
+    if (result == null) {
+      result = computeFingerprint(klass);
+      this.fingerprints.put(klass, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return Map: class name -> fingerprint, for the given classes, sorted by
+   *         name so that equal footprints compare and print equal
+   */
+  public Map<String, String> getFootprint(final Collection<IClass> classes) {
+    final Map<String, String> result = new TreeMap<String, String>();
+    for (IClass klass : classes) {
+      result.put(klass.getName().toString(), getFingerprint(klass));
+    }
+    return result;
+  }
+
+  /**
+   * @return the SHA-1 of the given texts, in order, as a fixed-size key
+   */
+  public static String digest(final Iterable<String> texts) {
+    final MessageDigest sha = Utils.newSHA1Digest();
+    for (String text : texts) {
+      Utils.updateDigest(sha, text);
+    }
+    return Utils.toHex(sha.digest());
+  }
+
+  // --- Private code
+
+  private static String computeFingerprint(final IClass klass) {
+    if (!J2SEClassHierarchyEngine.isApplicationClass(klass)) {
+      return LIBRARY_CLASS;
+    }
+    if (klass instanceof ShrikeClass) {
+      final ModuleEntry entry = ((ShrikeClass) klass).getModuleEntry();
+      if (entry != null) {
+        try {
+          final MessageDigest sha = Utils.newSHA1Digest();
+          Utils.updateDigest(sha, entry.getInputStream());
+          return Utils.toHex(sha.digest());
+        } catch (IOException except) {
+          // falls through: the class is considered as changed
+        }
+      }
+    }
+    return UNKNOWN_CLASS + System.identityHashCode(klass) + '@' + System.nanoTime();
+  }
+
+  private static final String LIBRARY_CLASS = "library"; //$NON-NLS-1$
+
+  private static final String UNKNOWN_CLASS = "unknown:"; //$NON-NLS-1$
+
+  private final Map<IClass, String> fingerprints = HashMapFactory.make();
+
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.incremental;
+
+/**
+ * A solver which can replay the findings of a previous run for the parts of
+ * the program which did not change since.
+ */
+public interface IIncrementalSolver {
+
+  /**
+   * @param store
+   *            the findings of previous runs, or null to analyze everything
+   */
+  public void setIncrementalStore(final IncrementalStore store);
+
+}
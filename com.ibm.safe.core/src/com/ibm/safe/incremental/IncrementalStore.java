@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.incremental;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.utils.SafeLogger;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * The findings of previous runs, each with the footprint it depends on: the
+ * classes the solver looked at, and their fingerprints. A solver asks for the
+ * findings of a unit of work (a class, a property and its instances, ...)
+ * under a key, with the footprint of that unit in the current scope; if the
+ * footprint did not change, the findings are replayed instead of recomputed.
+ *
+ * The store is discarded as a whole when the configuration of the run
+ * (properties, runtime) differs from the one it was written with. Only the
+ * entries looked up or recorded in the current run are written back, so that
+ * the store follows the program instead of growing with it.
+ */
+public final class IncrementalStore {
+
+  // --- Public services
+
+  /**
+   * Read the store from a file written by {@link #save()}.
+   *
+   * @param file
+   *          the store file; it need not exist
+   * @param configuration
+   *          describes everything but the classes the findings depend on
+   * @return the store read, or an empty store if the file does not exist, is
+   *         unreadable, or was written with another configuration
+   */
+  public static IncrementalStore load(final File file, final String configuration) {
+    final IncrementalStore store = new IncrementalStore(file, configuration);
+    if (file.isFile()) {
+      try {
+        final ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+          if ((input.readInt() == FORMAT_VERSION) && configuration.equals(input.readObject())) {
+            @SuppressWarnings("unchecked")
+            final Map<String, Entry> entries = (Map<String, Entry>) input.readObject();
+            store.previous.putAll(entries);
+          }
+        } finally {
+          input.close();
+        }
+      } catch (IOException except) {
+        SafeLogger.warning("Unable to read incremental cache " + file + ", all classes will be analyzed: " + except.getMessage());
+        store.previous.clear();
+      } catch (ClassNotFoundException except) {
+        store.previous.clear();
+      }
+    }
+    return store;
+  }
+
+  /**
+   * @return the fingerprints of the classes of the current scope
+   */
+  public ClassFingerprints getFingerprints() {
+    return this.fingerprints;
+  }
+
+  /**
+   * @param key
+   *          identifies a unit of work of a solver
+   * @param footprint
+   *          Map: class name -> fingerprint, of the classes the unit depends
+   *          on in the current scope
+   * @return the findings of the unit in a previous run with the same
+   *         footprint, or null if they must be computed
+   */
+  public synchronized List<CachedFinding> lookup(final String key, final Map<String, String> footprint) {
+    final Entry entry = this.previous.get(key);
+    if ((entry == null) || !entry.footprint.equals(footprint)) {
+      ++this.misses;
+      return null;
+    }
+    ++this.hits;
+    this.current.put(key, entry);
+    return entry.findings;
+  }
+
+  /**
+   * @param key
+   *          identifies a unit of work of a solver
+   * @return the facts recorded with the findings of the unit, if its findings
+   *         were looked up or recorded in this run, or an empty list
+   */
+  public synchronized List<String> getFacts(final String key) {
+    final Entry entry = this.current.get(key);
+    if (entry == null) {
+      return Collections.emptyList();
+    }
+    return entry.facts;
+  }
+
+  /**
+   * Remember the findings of a unit of work computed in this run.
+   */
+  public void record(final String key, final Map<String, String> footprint, final Collection<? extends Message> messages) {
+    record(key, footprint, messages, Collections.<String> emptyList());
+  }
+
+  /**
+   * Remember the findings of a unit of work computed in this run, with the
+   * facts the solver derived besides them and must restore on replay.
+   */
+  public synchronized void record(final String key, final Map<String, String> footprint,
+      final Collection<? extends Message> messages, final Collection<String> facts) {
+    final List<CachedFinding> findings = new ArrayList<CachedFinding>(messages.size());
+    for (Message message : messages) {
+      findings.add(new CachedFinding(message));
+    }
+    this.current.put(key, new Entry(new TreeMap<String, String>(footprint), findings, new ArrayList<String>(facts)));
+  }
+
+  /**
+   * Write the entries used or recorded in this run.
+   */
+  public synchronized void save() throws IOException {
+    final File parent = this.file.getAbsoluteFile().getParentFile();
+    if ((parent != null) && !parent.exists()) {
+      parent.mkdirs();
+    }
+    final ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(this.file)));
+    try {
+      output.writeInt(FORMAT_VERSION);
+      output.writeObject(this.configuration);
+      output.writeObject(new TreeMap<String, Entry>(this.current));
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * @return number of units whose findings were replayed
+   */
+  public synchronized int getHits() {
+    return this.hits;
+  }
+
+  /**
+   * @return number of units which had to be analyzed
+   */
+  public synchronized int getMisses() {
+    return this.misses;
+  }
+
+  // --- Private code
+
+  private IncrementalStore(final File theFile, final String theConfiguration) {
+    this.file = theFile;
+    this.configuration = theConfiguration;
+  }
+
+  private static final class Entry implements Serializable {
+
+    Entry(final TreeMap<String, String> theFootprint, final List<CachedFinding> theFindings, final List<String> theFacts) {
+      this.footprint = theFootprint;
+      this.findings = theFindings;
+      this.facts = theFacts;
+    }
+
+    private static final long serialVersionUID = 4411356710529016453L;
+
+    final TreeMap<String, String> footprint;
+
+    final List<CachedFinding> findings;
+
+    final List<String> facts;
+
+  }
+
+  private static final int FORMAT_VERSION = 2;
+
+  private final File file;
+
+  private final String configuration;
+
+  private final ClassFingerprints fingerprints = new ClassFingerprints();
+
+  private final Map<String, Entry> previous = HashMapFactory.make();
+
+  private final Map<String, Entry> current = HashMapFactory.make();
+
+  private int hits;
+
+  private int misses;
+
+}
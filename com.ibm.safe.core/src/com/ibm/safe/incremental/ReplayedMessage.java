@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.incremental;
+
+import com.ibm.safe.reporting.message.Location;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.rules.IRule;
+
+/**
+ * A finding of a previous run, reported again because nothing it depends on
+ * has changed.
+ */
+public final class ReplayedMessage implements Message {
+
+  // --- Interface methods implementation
+
+  public IRule getRule() {
+    return this.rule;
+  }
+
+  public Location getLocation() {
+    return this.location;
+  }
+
+  public String getMessageType() {
+    return this.messageType;
+  }
+
+  public String getText() {
+    return this.text;
+  }
+
+  // --- Overridden methods
+
+  public boolean equals(final Object other) {
+    if (!(other instanceof ReplayedMessage)) {
+      return false;
+    }
+    final ReplayedMessage otherMessage = (ReplayedMessage) other;
+    return this.messageType.equals(otherMessage.messageType) && this.text.equals(otherMessage.text)
+        && this.location.equals(otherMessage.location);
+  }
+
+  public int hashCode() {
+    return this.text.hashCode() + this.location.hashCode();
+  }
+
+  public String toString() {
+    return this.text;
+  }
+
+  // --- Private code
+
+  ReplayedMessage(final IRule theRule, final String theMessageType, final String theText, final Location theLocation) {
+    this.rule = theRule;
+    this.messageType = theMessageType;
+    this.text = theText;
+    this.location = theLocation;
+  }
+
+  private final IRule rule;
+
+  private final String messageType;
+
+  private final String text;
+
+  private final Location location;
+
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.incremental;
+
+import java.util.Set;
+
+import com.ibm.safe.reporting.message.ISolverResult;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * The result of a unit of work whose findings were replayed from a previous
+ * run.
+ */
+public final class ReplayedSolverResult implements ISolverResult {
+
+  // --- Interface methods implementation
+
+  public Set<? extends Message> getMessages() {
+    return this.messages;
+  }
+
+  public void addMessages(final Set<? extends Message> messageSet) {
+    this.messages.addAll(messageSet);
+  }
+
+  // --- Overridden methods
+
+  public String toString() {
+    return this.messages.toString();
+  }
+
+  // --- Private code
+
+  private final Set<Message> messages = HashSetFactory.make();
+
+}
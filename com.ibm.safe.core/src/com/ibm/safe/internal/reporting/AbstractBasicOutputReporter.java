@@ -21,6 +21,7 @@ import com.ibm.safe.metrics.IMetrics;
 import com.ibm.safe.metrics.ProgramStatistics;
 import com.ibm.safe.perf.NamedTimer;
 import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.perf.SolverPerfTracker;
 import com.ibm.safe.reporting.IReporter;
 import com.ibm.safe.reporting.message.Message;
 import com.ibm.safe.reporting.message.SignatureUtils;
@@ -114,6 +115,12 @@ abstract class AbstractBasicOutputReporter implements IReporter {
     }
 
     write("Total time: " + totalResultsWrapper.totalTime + " ms");
+    if (perfoTracker instanceof SolverPerfTracker) {
+      final SolverPerfTracker spt = (SolverPerfTracker) perfoTracker;
+      if (spt.getWallClockMillis() >= 0) {
+        write("Wall-clock time: " + spt.getWallClockMillis() + " ms");
+      }
+    }
   }
 
   public final void reportStatistics(final ProgramStatistics programStat) {
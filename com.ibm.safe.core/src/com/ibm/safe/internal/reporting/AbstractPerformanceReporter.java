@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.reporting;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisKind;
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisStatus;
+import com.ibm.safe.metrics.IMetrics;
+import com.ibm.safe.metrics.ProgramStatistics;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.rules.IRule;
+import com.ibm.wala.classLoader.IClass;
+
+/**
+ * Base class of the reporters which export the performance trackers of a run
+ * to a file. The trackers are kept as they are reported, and written with
+ * their spans once the final report is produced, when all spans are complete.
+ */
+public abstract class AbstractPerformanceReporter implements IReporter {
+
+  protected AbstractPerformanceReporter(final String performanceFileName) {
+    this.fileName = performanceFileName;
+  }
+
+  // --- Interface methods implementation
+
+  public final void reportPerformanceTracking(final PerformanceTracker perfoTracker) {
+    synchronized (this.trackers) {
+      this.trackers.add(perfoTracker);
+    }
+  }
+
+  public final void produceFinalReport() throws Exception {
+    final PerformanceTracker[] reported;
+    synchronized (this.trackers) {
+      reported = this.trackers.toArray(new PerformanceTracker[this.trackers.size()]);
+    }
+    final File file = new File(this.fileName);
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    final Writer writer = new BufferedWriter(new FileWriter(file));
+    try {
+      write(writer, reported);
+    } finally {
+      writer.close();
+    }
+  }
+
+  public void process(final IClass clazz) {
+    // Do nothing here !
+  }
+
+  public void reportException(final Throwable exception) {
+    // Do nothing here !
+  }
+
+  public void reportMessage(final Message message) {
+    // Do nothing here !
+  }
+
+  public void reportNumberOfFindings(final int numberOfFindings) {
+    // Do nothing here !
+  }
+
+  public void reportNumberOfRulesActivated(final int numberOfRules) {
+    // Do nothing here !
+  }
+
+  public void reportRuleLoading(final IRule rule) {
+    // Do nothing here !
+  }
+
+  public void reportRuleInstances(final IRule rule, final int instances) {
+    // Do nothing here !
+  }
+
+  public void reportStatistics(final ProgramStatistics programStat) {
+    // Do nothing here !
+  }
+
+  public void reportStatistics(final IMetrics typeStateMetrics) {
+    // Do nothing here !
+  }
+
+  public void startAnalysis(final AnalysisKind nature) {
+    // Do nothing here !
+  }
+
+  public void stopAnalysis(final AnalysisKind nature) {
+    // Do nothing here !
+  }
+
+  public void reportAnalysisStatus(final AnalysisStatus status) {
+    // Do nothing here !
+  }
+
+  public void version(final String versionNumber) {
+    // Do nothing here !
+  }
+
+  // --- Abstract methods definition
+
+  /**
+   * Write the given root trackers, in reporting order, with their spans.
+   */
+  protected abstract void write(final Writer writer, final PerformanceTracker[] roots) throws IOException;
+
+  // --- Private code
+
+  private final String fileName;
+
+  private final List<PerformanceTracker> trackers = new ArrayList<PerformanceTracker>();
+
+}
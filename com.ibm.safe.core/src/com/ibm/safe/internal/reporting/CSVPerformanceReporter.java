@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.reporting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.safe.perf.NamedTimer;
+import com.ibm.safe.perf.PerformanceTracker;
+
+/**
+ * Exports the performance trackers of a run as CSV, one value per row:
+ * <code>span,parent,kind,metric,value</code>. Spans are numbered in the order
+ * they are written, and a span refers to its parent by number, so that the
+ * rows of a span do not repeat the names leading to it. The first rows of a
+ * span give its name and its attributes; timers then give three metrics each
+ * (wall, CPU and allocated bytes), counters and gauges one.
+ */
+public final class CSVPerformanceReporter extends AbstractPerformanceReporter {
+
+  public CSVPerformanceReporter(final String performanceFileName) {
+    super(performanceFileName);
+  }
+
+  // --- Overridden methods
+
+  protected void write(final Writer writer, final PerformanceTracker[] roots) throws IOException {
+    writer.write("span,parent,kind,metric,value\n");
+    final int[] nextId = new int[1];
+    for (int i = 0; i < roots.length; i++) {
+      writeSpan(writer, roots[i], "", nextId);
+    }
+  }
+
+  // --- Private code
+
+  /**
+   * @param parent
+   *          the number of the parent span, or "" for a root
+   * @param nextId
+   *          holds the number of the next span written
+   */
+  private static void writeSpan(final Writer writer, final PerformanceTracker span, final String parent, final int[] nextId)
+      throws IOException {
+    final String id = String.valueOf(nextId[0]++);
+    final String prefix = id + "," + parent + "," + span.getTrackerKind() + ",";
+    writer.write(prefix + "name," + quote(span.getTrackerName().trim()) + "\n");
+    for (Iterator<Map.Entry<String, String>> it = span.getAttributes().entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, String> entry = it.next();
+      writer.write(prefix + quote("attribute." + entry.getKey()) + "," + quote(entry.getValue()) + "\n");
+    }
+    final NamedTimer[] timers = span.getTimers();
+    for (int i = 0; i < timers.length; i++) {
+      final String name = timers[i].getName();
+      writer.write(prefix + quote(name + ".wall_ms") + "," + timers[i].getElapsedMillis() + "\n");
+      writer.write(prefix + quote(name + ".cpu_ms") + "," + timers[i].getCpuMillis() + "\n");
+      writer.write(prefix + quote(name + ".allocated_bytes") + "," + timers[i].getAllocatedBytes() + "\n");
+    }
+    writeValues(writer, prefix, "counter.", span.getCounters());
+    writeValues(writer, prefix, "gauge.", span.getGauges());
+
+    final PerformanceTracker[] children = span.getChildren();
+    for (int i = 0; i < children.length; i++) {
+      writeSpan(writer, children[i], id, nextId);
+    }
+  }
+
+  private static void writeValues(final Writer writer, final String prefix, final String metricPrefix,
+      final Map<String, Long> values) throws IOException {
+    for (Iterator<Map.Entry<String, Long>> it = values.entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, Long> entry = it.next();
+      writer.write(prefix + quote(metricPrefix + entry.getKey()) + "," + entry.getValue() + "\n");
+    }
+  }
+
+  /**
+   * @return the value, quoted if it holds a character special to CSV
+   */
+  private static String quote(final String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    final StringBuffer buf = new StringBuffer(value.length() + 2);
+    buf.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"') {
+        buf.append('"');
+      }
+      buf.append(c);
+    }
+    buf.append('"');
+    return buf.toString();
+  }
+
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.reporting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.safe.perf.NamedTimer;
+import com.ibm.safe.perf.PerformanceTracker;
+
+/**
+ * Exports the performance trackers of a run as a JSON document: an object
+ * holding the array of root trackers, each written as a tree of spans with
+ * their attributes, timers, counters and gauges.
+ */
+public final class JSONPerformanceReporter extends AbstractPerformanceReporter {
+
+  public JSONPerformanceReporter(final String performanceFileName) {
+    super(performanceFileName);
+  }
+
+  // --- Overridden methods
+
+  protected void write(final Writer writer, final PerformanceTracker[] roots) throws IOException {
+    writer.write("{\"trackers\": [");
+    for (int i = 0; i < roots.length; i++) {
+      writer.write((i == 0) ? "\n" : ",\n");
+      writeSpan(writer, roots[i], INDENT);
+    }
+    writer.write("\n]}\n");
+  }
+
+  // --- Private code
+
+  private static void writeSpan(final Writer writer, final PerformanceTracker span, final String indent) throws IOException {
+    final String inner = indent + INDENT;
+    writer.write(indent + "{\"name\": " + quote(span.getTrackerName().trim()) + ", \"kind\": "
+        + quote(span.getTrackerKind().toString()) + ",\n");
+
+    writer.write(inner + "\"attributes\": {");
+    for (Iterator<Map.Entry<String, String>> it = span.getAttributes().entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, String> entry = it.next();
+      writer.write(quote(entry.getKey()) + ": " + quote(entry.getValue()));
+      if (it.hasNext()) {
+        writer.write(", ");
+      }
+    }
+    writer.write("},\n");
+
+    writer.write(inner + "\"timers\": [");
+    final NamedTimer[] timers = span.getTimers();
+    for (int i = 0; i < timers.length; i++) {
+      writer.write((i == 0) ? "" : ", ");
+      writer.write("{\"name\": " + quote(timers[i].getName()) + ", \"wallMillis\": " + timers[i].getElapsedMillis()
+          + ", \"cpuMillis\": " + timers[i].getCpuMillis() + ", \"allocatedBytes\": " + timers[i].getAllocatedBytes() + "}");
+    }
+    writer.write("],\n");
+
+    writer.write(inner + "\"counters\": ");
+    writeValues(writer, span.getCounters());
+    writer.write(",\n" + inner + "\"gauges\": ");
+    writeValues(writer, span.getGauges());
+    writer.write(",\n" + inner + "\"children\": [");
+
+    final PerformanceTracker[] children = span.getChildren();
+    for (int i = 0; i < children.length; i++) {
+      writer.write((i == 0) ? "\n" : ",\n");
+      writeSpan(writer, children[i], inner + INDENT);
+    }
+    writer.write((children.length == 0) ? "]}" : "\n" + inner + "]}");
+  }
+
+  private static void writeValues(final Writer writer, final Map<String, Long> values) throws IOException {
+    writer.write("{");
+    for (Iterator<Map.Entry<String, Long>> it = values.entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<String, Long> entry = it.next();
+      writer.write(quote(entry.getKey()) + ": " + entry.getValue());
+      if (it.hasNext()) {
+        writer.write(", ");
+      }
+    }
+    writer.write("}");
+  }
+
+  private static String quote(final String value) {
+    final StringBuffer buf = new StringBuffer(value.length() + 2);
+    buf.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+      case '"':
+        buf.append("\\\"");
+        break;
+      case '\\':
+        buf.append("\\\\");
+        break;
+      case '\n':
+        buf.append("\\n");
+        break;
+      case '\r':
+        buf.append("\\r");
+        break;
+      case '\t':
+        buf.append("\\t");
+        break;
+      default:
+        if (c < 0x20) {
+          buf.append(String.format("\\u%04x", Integer.valueOf(c)));
+        } else {
+          buf.append(c);
+        }
+      }
+    }
+    buf.append('"');
+    return buf.toString();
+  }
+
+  private static final String INDENT = "  "; //$NON-NLS-1$
+
+}
@@ -10,7 +10,10 @@
  *******************************************************************************/
 package com.ibm.safe.internal.reporting;
 
+import java.io.IOException;
+
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import com.ibm.safe.reporting.CompositeReporter;
 import com.ibm.safe.reporting.IReporter;
@@ -33,10 +36,20 @@ public final class ReporterFactory {
    *         <i>eventually</i> an XML file (if we were able to create it).
    */
   public static IReporter createDefaultReporter(final String analysisResultFileName) {
+    return createDefaultReporter(analysisResultFileName, false);
+  }
+
+  /**
+   * Same as {@link #createDefaultReporter(String)}, with an XML reporter which
+   * writes the file as events arrive if <i>streamXML</i> is true.
+   * 
+   * @see StreamingXMLReporter
+   */
+  public static IReporter createDefaultReporter(final String analysisResultFileName, final boolean streamXML) {
     final CompositeReporter reporter = new CompositeReporter();
     reporter.addReporter(new StandardOutputReporter());
     reporter.addReporter(new LogReporter());
-    addXMLReporter(reporter, analysisResultFileName);
+    addXMLReporter(reporter, analysisResultFileName, streamXML);
     return reporter;
   }
 
@@ -48,7 +61,7 @@ public final class ReporterFactory {
   public static IReporter createLogAndXMLReporter(final String analysisResultFileName) {
     final CompositeReporter reporter = new CompositeReporter();
     reporter.addReporter(new LogReporter());
-    addXMLReporter(reporter, analysisResultFileName);
+    addXMLReporter(reporter, analysisResultFileName, false);
     return reporter;
   }
 
@@ -56,24 +69,68 @@ public final class ReporterFactory {
    * Creates a standard output and XML reporter to report SAFE analysis results.
    */
   public static IReporter createXMLAndConsoleReporter(final String analysisResultFileName) {
+    return createXMLAndConsoleReporter(analysisResultFileName, false);
+  }
+
+  /**
+   * Same as {@link #createXMLAndConsoleReporter(String)}, with an XML reporter
+   * which writes the file as events arrive if <i>streamXML</i> is true.
+   * 
+   * @see StreamingXMLReporter
+   */
+  public static IReporter createXMLAndConsoleReporter(final String analysisResultFileName, final boolean streamXML) {
     final CompositeReporter reporter = new CompositeReporter();
     reporter.addReporter(new StandardOutputReporter());
-    addXMLReporter(reporter, analysisResultFileName);
+    addXMLReporter(reporter, analysisResultFileName, streamXML);
     return reporter;
   }
 
+  /**
+   * Adds to a reporter one exporting the performance tracking of the run to
+   * the given file, if a file name is given.
+   * 
+   * @param performanceFileName
+   *            the file to write, as CSV if its name ends with ".csv" and as
+   *            JSON otherwise; null or empty to export nothing
+   * @return the reporter to use
+   */
+  public static IReporter addPerformanceReporter(final IReporter reporter, final String performanceFileName) {
+    if ((performanceFileName == null) || (performanceFileName.length() == 0)) {
+      return reporter;
+    }
+    final CompositeReporter result = new CompositeReporter();
+    result.addReporter(reporter);
+    if (performanceFileName.toLowerCase().endsWith(CSV_EXTENSION)) {
+      result.addReporter(new CSVPerformanceReporter(performanceFileName));
+    } else {
+      result.addReporter(new JSONPerformanceReporter(performanceFileName));
+    }
+    return result;
+  }
+
   // --- Private code
 
   private ReporterFactory() {
   }
 
-  private static void addXMLReporter(final CompositeReporter reporter, final String analysisResultFilename) {
+  private static void addXMLReporter(final CompositeReporter reporter, final String analysisResultFilename,
+      final boolean streamXML) {
     try {
-      reporter.addReporter(new XMLReporter(analysisResultFilename));
+      if (streamXML) {
+        reporter.addReporter(new StreamingXMLReporter(analysisResultFilename));
+      } else {
+        reporter.addReporter(new XMLReporter(analysisResultFilename));
+      }
     } catch (ParserConfigurationException except) {
       // We simply don't add this reporter.
       SafeLogger.warning("Unable to create XML reporter.");
+    } catch (IOException except) {
+      SafeLogger.warning("Unable to create XML reporter.");
+    } catch (XMLStreamException except) {
+      SafeLogger.warning("Unable to create XML reporter.");
     }
   }
 
+  private static final String CSV_EXTENSION = ".csv"; //$NON-NLS-1$
+
 }
@@ -0,0 +1,512 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.reporting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisKind;
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisStatus;
+import com.ibm.safe.io.ZipUtils;
+import com.ibm.safe.metrics.IMetrics;
+import com.ibm.safe.metrics.ProgramStatistics;
+import com.ibm.safe.perf.NamedTimer;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.perf.SolverPerfTracker;
+import com.ibm.safe.perf.TimeoutStopwatch;
+import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.reporting.message.MethodLocation;
+import com.ibm.safe.reporting.message.SignatureUtils;
+import com.ibm.safe.rules.IRule;
+import com.ibm.safe.utils.SafeEclipseUtils;
+import com.ibm.safe.utils.SafeLogger;
+import com.ibm.wala.classLoader.IClass;
+
+/**
+ * Writes the same elements as {@link XMLReporter}, but to the result file as
+ * events arrive, so that no document tree is built in memory and the file
+ * fills while analysis runs.
+ * 
+ * Findings are not kept either: each one is written as it arrives to a
+ * temporary file of its message type, and the files are copied into the result
+ * at the final report, one messages element per type, followed by the rules the
+ * findings matched. Unlike {@link XMLReporter}, findings appear in the order
+ * they were reported, types and rules in the order of their first finding, and
+ * a finding reported twice is written twice.
+ * 
+ * Not thread-safe; wrap with {@link com.ibm.safe.reporting.SynchronizedReporter}
+ * when events come from several threads.
+ */
+public final class StreamingXMLReporter implements IReporter {
+
+  public StreamingXMLReporter(final String anXMLFileName) throws IOException, XMLStreamException {
+    this.xmlFileName = anXMLFileName;
+    final File xmlFile = new File(anXMLFileName);
+    if (xmlFile.getParentFile() != null && !xmlFile.getParentFile().exists()) {
+      xmlFile.getParentFile().mkdirs();
+    }
+    this.output = new BufferedOutputStream(new FileOutputStream(xmlFile));
+    this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(this.output, ENCODING);
+
+    this.writer.writeStartDocument(ENCODING, "1.0"); //$NON-NLS-1$
+    final StringBuffer dataBuf = new StringBuffer(" href=\""); //$NON-NLS-1$
+    dataBuf.append(STYLESHEET_FILENAME).append("\" type=\"text/xsl\""); //$NON-NLS-1$
+    this.writer.writeProcessingInstruction("xml-stylesheet", dataBuf.toString()); //$NON-NLS-1$
+    this.writer.writeStartElement(XMLReporterConstants.ANALYSIS_RESULT_TAG);
+    final DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
+    this.writer.writeAttribute(XMLReporterConstants.DATE_TAG, dateFormat.format(new Date()));
+  }
+
+  // --- Interface methods implementation
+
+  public void process(final IClass clazz) {
+    // Do nothing !
+  }
+
+  public void produceFinalReport() throws Exception {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      closeOpenSection();
+      writeFindings();
+      if (this.rulesActivated) {
+        writeRulesMatched();
+      }
+      this.writer.writeEndElement();
+      this.writer.writeEndDocument();
+      this.writer.close();
+    } finally {
+      this.output.close();
+      deleteFindingFiles();
+    }
+
+    copyRequiredFiles(new File(this.xmlFileName).getAbsoluteFile().getParent());
+
+    SafeLogger.info("XML results have been created at " + this.xmlFileName);
+  }
+
+  public void reportException(final Throwable exception) {
+    final StringWriter strWriter = new StringWriter();
+    final PrintWriter printWriter = new PrintWriter(strWriter);
+    exception.printStackTrace(printWriter);
+    printWriter.close();
+
+    try {
+      closeOpenSection();
+      this.writer.writeStartElement(XMLReporterConstants.EXCEPTION_TAG);
+      this.writer.writeCData(strWriter.toString());
+      this.writer.writeEndElement();
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  public void reportMessage(final Message message) {
+    if (this.closed) {
+      return;
+    }
+    try {
+      FindingFile file = this.findingFiles.get(message.getMessageType());
+      if (file == null) {
+        file = new FindingFile();
+        this.findingFiles.put(message.getMessageType(), file);
+      }
+      writeMessage(file.writer, message);
+      if (message.getRule() != null) {
+        this.rulesMatched.add(message.getRule());
+      }
+    } catch (IOException except) {
+      failed(except);
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  public void reportNumberOfFindings(final int numberOfFindings) {
+    // Do nothing !
+  }
+
+  public void reportNumberOfRulesActivated(final int numberOfRules) {
+    // Do nothing !
+  }
+
+  public void reportRuleLoading(final IRule rule) {
+    try {
+      if (!this.rulesActivatedOpen) {
+        closeOpenSection();
+        this.writer.writeStartElement(XMLReporterConstants.RULES_ACTIVATED_TAG);
+        this.rulesActivatedOpen = true;
+        this.rulesActivated = true;
+      }
+      writeTextElement(XMLReporterConstants.RULE_ACTIVATED_TAG, rule.getName());
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  public void reportRuleInstances(final IRule rule, int instances) {
+    // Do nothing !
+  }
+
+  public void reportStatistics(final ProgramStatistics programStat) {
+    try {
+      closeOpenSection();
+      this.writer.writeStartElement(XMLReporterConstants.STATS_TAG);
+      this.writer.writeAttribute(XMLReporterConstants.STATS_ATTR, "structural"); //$NON-NLS-1$
+      writeStatisticsEntry(programStat, ProgramStatistics.NUM_CLASSES);
+      writeStatisticsEntry(programStat, ProgramStatistics.NUM_METHODS);
+      writeStatisticsEntry(programStat, ProgramStatistics.TOTAL_LOB);
+      this.writer.writeEndElement();
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  public void reportStatistics(final IMetrics typeStateMetrics) {
+  }
+
+  public void reportPerformanceTracking(final PerformanceTracker perfoTracker) {
+    final NamedTimer[] timers = perfoTracker.getTimers();
+    if (timers.length == 0)
+      return;
+
+    try {
+      closeOpenSection();
+      this.writer.writeStartElement(XMLReporterConstants.TIMERS_TAG);
+      this.writer.writeAttribute(XMLReporterConstants.TIMERS_NAME_TAG, perfoTracker.getTrackerKind().toString());
+
+      long totalTime = 0;
+      if (perfoTracker instanceof SolverPerfTracker) {
+        final SolverPerfTracker spt = (SolverPerfTracker) perfoTracker;
+        for (int i = 0; i < timers.length; ++i) {
+          totalTime += timers[i].getElapsedMillis();
+          final String name = timers[i].getName();
+          writeTimer(timers[i], spt.getProcessedInstances(name), spt.getTotalInstances(name), spt.getStartOffsetMillis(name));
+        }
+        if (spt.getWallClockMillis() >= 0) {
+          writeTextElement(XMLReporterConstants.WALL_CLOCK_TIME, String.valueOf(spt.getWallClockMillis()));
+        }
+      } else {
+        for (int i = 0; i < timers.length; i++) {
+          this.writer.writeStartElement(XMLReporterConstants.TIMER_TAG);
+          writeTimerContents(timers[i]);
+          this.writer.writeEndElement();
+          totalTime += timers[i].getElapsedMillis();
+        }
+      }
+      writeTextElement(XMLReporterConstants.TOTAL_TIME, String.valueOf(totalTime));
+
+      this.writer.writeEndElement();
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  public void startAnalysis(final AnalysisKind nature) {
+    writeAnalysisEvent(XMLReporterConstants.START_ANALYSIS_TAG, nature);
+  }
+
+  public void stopAnalysis(final AnalysisKind nature) {
+    writeAnalysisEvent(XMLReporterConstants.STOP_ANALYSIS_TAG, nature);
+  }
+
+  public void reportAnalysisStatus(final AnalysisStatus status) {
+    try {
+      closeOpenSection();
+      this.writer.writeEmptyElement(XMLReporterConstants.ANALYSIS_STATUS_TAG);
+      this.writer.writeAttribute(XMLReporterConstants.ANALYSIS_STATUS_ATTR, status.toString());
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  public void version(final String versionNumber) {
+    try {
+      closeOpenSection();
+      writeTextElement(XMLReporterConstants.VERSION_TAG, versionNumber);
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  // --- Private code
+
+  /**
+   * ends the rules-activated element being filled, if any
+   */
+  private void closeOpenSection() throws XMLStreamException {
+    if (this.rulesActivatedOpen) {
+      this.writer.writeEndElement();
+      this.rulesActivatedOpen = false;
+    }
+  }
+
+  private void failed(final Exception except) {
+    SafeLogger.severe("Unable to write XML results to " + this.xmlFileName, except);
+  }
+
+  private void writeAnalysisEvent(final String tag, final AnalysisKind nature) {
+    try {
+      closeOpenSection();
+      this.writer.writeStartElement(tag);
+      this.writer.writeAttribute(XMLReporterConstants.ANALYSIS_NATURE_ATTR, nature.toString());
+      this.writer.writeCharacters(String.valueOf(System.currentTimeMillis()));
+      this.writer.writeEndElement();
+    } catch (XMLStreamException except) {
+      failed(except);
+    }
+  }
+
+  /**
+   * writes the findings, each type in a messages element of its own filled with
+   * the content of the file of the type, the types in the order of their first
+   * finding
+   */
+  private void writeFindings() throws XMLStreamException, IOException {
+    for (Map.Entry<String, FindingFile> entry : this.findingFiles.entrySet()) {
+      entry.getValue().close();
+      this.writer.writeStartElement(XMLReporterConstants.MESSAGES_TAG);
+      this.writer.writeAttribute(XMLReporterConstants.MESSAGE_TYPE_ATTR, entry.getKey());
+      // no characters, but the start tag is complete once they are written
+      this.writer.writeCharacters(""); //$NON-NLS-1$
+      this.writer.flush();
+      entry.getValue().copyTo(this.output);
+      this.writer.writeEndElement();
+    }
+  }
+
+  private void writeRulesMatched() throws XMLStreamException {
+    this.writer.writeStartElement(XMLReporterConstants.RULES_MATCHED_TAG);
+    for (IRule rule : this.rulesMatched) {
+      writeRule(rule);
+    }
+    this.writer.writeEndElement();
+  }
+
+  private void deleteFindingFiles() {
+    for (FindingFile file : this.findingFiles.values()) {
+      file.delete();
+    }
+  }
+
+  private static void writeMessage(final XMLStreamWriter out, final Message message) throws XMLStreamException {
+    out.writeStartElement(XMLReporterConstants.MESSAGE_TAG);
+
+    if (message.getRule() != null) {
+      writeTextElement(out, XMLReporterConstants.SEVERITY_TAG, message.getRule().getSeverity().toString());
+    }
+
+    writeTextElement(out, XMLReporterConstants.MESSAGE_TEXT_TAG, message.getText());
+
+    out.writeStartElement(XMLReporterConstants.CLASS_TAG);
+    out.writeAttribute(XMLReporterConstants.JVM_SIG_ATTR, message.getLocation().getLocationClass());
+    out.writeCharacters(SignatureUtils.getClassName(message.getLocation()));
+    out.writeEndElement();
+
+    if (message.getLocation().isFieldMember()) {
+      writeTextElement(out, XMLReporterConstants.FIELD_TAG, message.getLocation().getSourceLocation());
+    } else if (message.getLocation().isMethodMember()) {
+      final MethodLocation methodLoc = (MethodLocation) message.getLocation();
+      out.writeStartElement(XMLReporterConstants.METHOD_TAG);
+      out.writeAttribute(XMLReporterConstants.JVM_SIG_ATTR, methodLoc.getByteCodeLocation());
+      out.writeCharacters(SignatureUtils.getMethodSignature(methodLoc, true));
+      out.writeEndElement();
+    }
+
+    writeTextElement(out, XMLReporterConstants.LINE_TAG, String.valueOf(message.getLocation().getLocationLineNumber()));
+
+    if (message.getLocation().getByteCodeIndex() != -1) {
+      writeTextElement(out, XMLReporterConstants.BC_INDEX_TAG, String.valueOf(message.getLocation().getByteCodeIndex()));
+    }
+
+    if (message.getLocation().getAdditionalInformation() != null) {
+      writeTextElement(out, XMLReporterConstants.ADDINFO_TAG, message.getLocation().getAdditionalInformation().toString());
+    }
+
+    out.writeEndElement();
+  }
+
+  private void writeRule(final IRule rule) throws XMLStreamException {
+    this.writer.writeStartElement(XMLReporterConstants.RULE_TAG);
+    this.writer.writeAttribute(XMLReporterConstants.RULE_NAME_ATTR, rule.getName());
+
+    writeTextElement(XMLReporterConstants.RULE_SEVERITY_TAG, rule.getSeverity().toString());
+    writeTextElement(XMLReporterConstants.RULE_LEVEL_TAG, rule.getLevel().toString());
+    writeCDataElement(XMLReporterConstants.RULE_DESCRIPTION_TAG, rule.getDescription());
+    writeCDataElement(XMLReporterConstants.RULE_EXAMPLE_TAG, rule.getExample());
+    writeCDataElement(XMLReporterConstants.RULE_ACTION_TAG, rule.getAction());
+
+    this.writer.writeEndElement();
+  }
+
+  private void writeStatisticsEntry(final ProgramStatistics programStat, final int entry) throws XMLStreamException {
+    this.writer.writeStartElement(XMLReporterConstants.STAT_ENTRY_TAG);
+    writeTextElement(XMLReporterConstants.STAT_NAME_TAG, programStat.getName(entry));
+    writeTextElement(XMLReporterConstants.STAT_VALUE_TAG, String.valueOf(programStat.getEntry(entry)));
+    this.writer.writeEndElement();
+  }
+
+  private void writeTimer(final NamedTimer namedTimer, int processed, int total, long start) throws XMLStreamException {
+    this.writer.writeStartElement(XMLReporterConstants.TIMER_TAG);
+    writeTimerContents(namedTimer);
+    if (start >= 0) {
+      writeTextElement(XMLReporterConstants.TIMER_START_TAG, String.valueOf(start));
+    }
+    writeTextElement(XMLReporterConstants.TOTAL_INSTANCES_TAG, String.valueOf(total));
+    writeTextElement(XMLReporterConstants.PROCESSED_INSTANCES_TAG, String.valueOf(processed));
+    this.writer.writeEndElement();
+  }
+
+  private void writeTimerContents(final NamedTimer namedTimer) throws XMLStreamException {
+    writeTextElement(XMLReporterConstants.TIMER_NAME_TAG, namedTimer.getName());
+    writeTextElement(XMLReporterConstants.TIMER_VALUE_TAG, String.valueOf(namedTimer.getElapsedMillis()));
+    if (namedTimer instanceof TimeoutStopwatch) {
+      writeTextElement(XMLReporterConstants.TIMER_TIMEOUT_TAG, Boolean.toString(((TimeoutStopwatch) namedTimer).timedOut()));
+    }
+  }
+
+  private void writeTextElement(final String tag, final String text) throws XMLStreamException {
+    writeTextElement(this.writer, tag, text);
+  }
+
+  private static void writeTextElement(final XMLStreamWriter out, final String tag, final String text)
+      throws XMLStreamException {
+    out.writeStartElement(tag);
+    if (text != null) {
+      out.writeCharacters(text);
+    }
+    out.writeEndElement();
+  }
+
+  private void writeCDataElement(final String tag, final String content) throws XMLStreamException {
+    if (content != null) {
+      this.writer.writeStartElement(tag);
+      this.writer.writeCData(content.trim());
+      this.writer.writeEndElement();
+    }
+  }
+
+  private void copyRequiredFiles(final String outputDir) {
+    final URL url = getClass().getClassLoader().getResource(SCRIPTS_ZIP_FILENAME);
+    if (url != null) {
+      try {
+        ZipUtils.uncompress(SafeEclipseUtils.getFileFromURL(url), outputDir);
+      } catch (IOException except) {
+        SafeLogger.severe("Unzipping of " + SCRIPTS_ZIP_FILENAME + " failed.", except);
+      }
+    } // Do nothing otherwise !
+  }
+
+  /**
+   * The message elements of the findings of one type, as they arrive, in a
+   * temporary file.
+   */
+  private static final class FindingFile {
+
+    FindingFile() throws IOException, XMLStreamException {
+      this.file = File.createTempFile("safe-findings", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+      this.file.deleteOnExit();
+      this.output = new BufferedOutputStream(new FileOutputStream(this.file));
+      this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(this.output, ENCODING);
+    }
+
+    void close() throws XMLStreamException, IOException {
+      this.writer.close();
+      this.output.close();
+    }
+
+    void copyTo(final OutputStream out) throws IOException {
+      final InputStream input = new BufferedInputStream(new FileInputStream(this.file));
+      try {
+        final byte[] buffer = new byte[8192];
+        for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+          out.write(buffer, 0, read);
+        }
+      } finally {
+        input.close();
+      }
+    }
+
+    void delete() {
+      try {
+        this.output.close();
+      } catch (IOException except) {
+        // Already closed, or nothing more to lose.
+      }
+      this.file.delete();
+    }
+
+    private final File file;
+
+    private final OutputStream output;
+
+    final XMLStreamWriter writer;
+
+  }
+
+  private final String xmlFileName;
+
+  private final OutputStream output;
+
+  private final XMLStreamWriter writer;
+
+  /**
+   * is the rules-activated element being filled?
+   */
+  private boolean rulesActivatedOpen;
+
+  /**
+   * has the rules-activated element been written?
+   */
+  private boolean rulesActivated;
+
+  private boolean closed;
+
+  /**
+   * Map: message type -> the file of its findings, in the order of the first
+   * finding of each type
+   */
+  private final Map<String, FindingFile> findingFiles = new LinkedHashMap<String, FindingFile>();
+
+  /**
+   * the rules matched by findings, in the order of their first finding
+   */
+  private final Set<IRule> rulesMatched = new LinkedHashSet<IRule>();
+
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  private static final String STYLESHEET_FILENAME = "main_page.xsl"; //$NON-NLS-1$
+
+  private static final String SCRIPTS_ZIP_FILENAME = "scripts.zip"; //$NON-NLS-1$
+
+}
@@ -178,7 +178,12 @@ public final class XMLReporter implements IReporter {
         totalTime += timers[i].getElapsedMillis();
         int total = spt.getTotalInstances(timers[i].getName());
         int processed = spt.getProcessedInstances(timers[i].getName());
-        addTimer(timersElement, timers[i], processed, total);
+        addTimer(timersElement, timers[i], processed, total, spt.getStartOffsetMillis(timers[i].getName()));
+      }
+      if (spt.getWallClockMillis() >= 0) {
+        final Element wallClockElement = this.document.createElement(XMLReporterConstants.WALL_CLOCK_TIME);
+        wallClockElement.appendChild(this.document.createTextNode(String.valueOf(spt.getWallClockMillis())));
+        timersElement.appendChild(wallClockElement);
       }
     } else {
       for (int i = 0; i < timers.length; i++) {
@@ -284,9 +289,15 @@ public final class XMLReporter implements IReporter {
     parentNode.appendChild(entry);
   }
 
-  private void addTimer(final Element parentNode, final NamedTimer namedTimer, int processed, int total) {
+  private void addTimer(final Element parentNode, final NamedTimer namedTimer, int processed, int total, long start) {
     Element timer = createTimerElement(parentNode, namedTimer);
 
+    if (start >= 0) {
+      final Element startElement = this.document.createElement(XMLReporterConstants.TIMER_START_TAG);
+      startElement.appendChild(this.document.createTextNode(String.valueOf(start)));
+      timer.appendChild(startElement);
+    }
+
     final Element totalInstances = this.document.createElement(XMLReporterConstants.TOTAL_INSTANCES_TAG);
     totalInstances.appendChild(this.document.createTextNode(String.valueOf(total)));
     timer.appendChild(totalInstances);
@@ -128,6 +128,10 @@ public final class XMLReporterConstants {
 
   public static final String TOTAL_TIME = "total-time"; //$NON-NLS-1$
 
+  public static final String WALL_CLOCK_TIME = "wall-clock-time"; //$NON-NLS-1$
+
+  public static final String TIMER_START_TAG = "start"; //$NON-NLS-1$
+
   public static final String TOTAL_INSTANCES_TAG = "total-instances"; //$NON-NLS-1$
 
   public static final String PROCESSED_INSTANCES_TAG = "processed-instances"; //$NON-NLS-1$
@@ -11,18 +11,34 @@
 package com.ibm.safe.internal.runners;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Timer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import com.ibm.safe.controller.ISafeSolver;
+import com.ibm.safe.incremental.IIncrementalSolver;
 import com.ibm.safe.internal.exceptions.MaxFindingsException;
 import com.ibm.safe.internal.exceptions.PropertiesException;
 import com.ibm.safe.internal.exceptions.SetUpException;
 import com.ibm.safe.internal.exceptions.SolverTimeoutException;
 import com.ibm.safe.options.CommonOptions;
+import com.ibm.safe.perf.IPerformanceTracked;
 import com.ibm.safe.perf.PerformanceTracker;
 import com.ibm.safe.perf.PerformanceTracker.Kind;
 import com.ibm.safe.perf.PerformanceTracker.Stages;
@@ -30,6 +46,7 @@ import com.ibm.safe.perf.SolverPerfTracker;
 import com.ibm.safe.properties.CommonProperties.Props;
 import com.ibm.safe.properties.PropertiesManager;
 import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.SynchronizedReporter;
 import com.ibm.safe.reporting.message.ISolverResult;
 import com.ibm.safe.runners.IResultObserver;
 import com.ibm.safe.runners.ISolverRunner;
@@ -62,13 +79,55 @@ public abstract class AbstractSolverRunner implements ISolverRunner {
 
 	private final IReporter reporter;
 
+	private AnalysisSession session;
+
 	protected AbstractSolverRunner(
 			final PropertiesManager thePropertiesManager,
 			final PerformanceTracker performanceTracker,
 			final IReporter safeReporter) {
 		this.propertiesManager = thePropertiesManager;
 		this.perfoTracker = performanceTracker;
-		this.reporter = safeReporter;
+		this.reporter = makeReporter(thePropertiesManager, safeReporter);
+	}
+
+	/**
+	 * @return the reporter shared by the solvers; serialized when several
+	 *         solvers run concurrently.
+	 */
+	private static IReporter makeReporter(
+			final PropertiesManager thePropertiesManager,
+			final IReporter safeReporter) {
+		if ((thePropertiesManager == null) || (safeReporter == null)) {
+			return safeReporter;
+		}
+		try {
+			if (thePropertiesManager.getIntValue(Props.SOLVER_THREADS) > 1) {
+				return new SynchronizedReporter(safeReporter);
+			}
+		} catch (PropertiesException e) {
+			// solver_threads has a default value
+			Assertions.UNREACHABLE();
+		}
+		return safeReporter;
+	}
+
+	/**
+	 * Share the analysis scope, class hierarchy and call graphs with the other
+	 * runners of the same invocation.
+	 */
+	public final void setAnalysisSession(final AnalysisSession theSession) {
+		this.session = theSession;
+	}
+
+	/**
+	 * @return the session shared with the other runners of this invocation,
+	 *         or a session of this runner's own if it runs alone
+	 */
+	protected final AnalysisSession getAnalysisSession() {
+		if (this.session == null) {
+			this.session = new AnalysisSession();
+		}
+		return this.session;
 	}
 
 	protected final CommonOptions getCommonOptions() throws PropertiesException {
@@ -133,10 +192,57 @@ public abstract class AbstractSolverRunner implements ISolverRunner {
 		final SolverPerfTracker solverPerfoTracker = ((this.perfoTracker == null) || (solvers.length == 1)) ? null
 				: new SolverPerfTracker(
 						"Solvers tracking report\n", Kind.SOLVERS); //$NON-NLS-1$
+		if (solverPerfoTracker != null) {
+			solverPerfoTracker.startWallClock();
+		}
+		try {
+			monitor.beginTask(null, solvers.length);
+			if (shouldRunSolversConcurrently(solvers)) {
+				runSolversConcurrently(solvers, observer, solverPerfoTracker,
+						getSolverThreadCount(), monitor);
+			} else {
+				runSolversSerially(solvers, observer, solverPerfoTracker,
+						monitor);
+			}
+		} finally {
+			monitor.done();
+			stopTracking(timerName.toString());
+			if (solverPerfoTracker != null) {
+				solverPerfoTracker.stopWallClock();
+			}
+
+			getReporter().stopAnalysis(analysisNature);
+			if (solverPerfoTracker != null) {
+				getReporter().reportPerformanceTracking(solverPerfoTracker);
+			}
+		}
+	}
+
+	/**
+	 * @return true iff {@link #runSolvers} runs the given solvers on several
+	 *         threads. Subclasses must then make whatever the solvers share
+	 *         safe to use from those threads before the solvers run.
+	 */
+	protected final boolean shouldRunSolversConcurrently(
+			final ISafeSolver[] solvers) throws PropertiesException {
+		// the trace reporter used for mining is shared by all solvers and
+		// is not thread-safe, so mining always runs serially
+		return (getSolverThreadCount() > 1) && (solvers.length > 1)
+				&& !shouldMineDFA();
+	}
+
+	/**
+	 * Runs the solvers one after another on the calling thread, which is
+	 * interrupted if a solver runs longer than the timeout.
+	 */
+	private void runSolversSerially(final ISafeSolver[] solvers,
+			final IResultObserver observer,
+			final SolverPerfTracker solverPerfoTracker,
+			final IProgressMonitor monitor) throws PropertiesException,
+			SetUpException, CancelException {
 		SafeTimeoutTask timeout = null;
 		Timer timeoutTimer = null;
 		try {
-			monitor.beginTask(null, solvers.length);
 			for (int i = 0; i < solvers.length; i++) {
 				try {
 					if (getTimeoutSecs() > 0) {
@@ -188,22 +294,178 @@ public abstract class AbstractSolverRunner implements ISolverRunner {
 				}
 			}
 		} finally {
-			monitor.done();
-			stopTracking(timerName.toString());
 			if (timeout != null) {
 				timeout.cancel(); // cancel the task
 			}
 			if (timeoutTimer != null) {
 				timeoutTimer.cancel(); // cancel the entire timer
 			}
+		}
+	}
 
-			getReporter().stopAnalysis(analysisNature);
+	/**
+	 * Runs the solvers on a pool of worker threads. Each solver has its own
+	 * timeout, which interrupts only the worker running it, so a slow rule
+	 * does not eat into the time budget of the others. The calling thread
+	 * waits for the workers, reports progress, and cancels the outstanding
+	 * solvers if the monitor is canceled.
+	 * 
+	 * @throws CancelException
+	 *             if the monitor is canceled before all solvers are done
+	 */
+	private void runSolversConcurrently(final ISafeSolver[] solvers,
+			final IResultObserver observer,
+			final SolverPerfTracker solverPerfoTracker, final int nThreads,
+			final IProgressMonitor monitor) throws PropertiesException,
+			SetUpException, CancelException {
+		final IResultObserver syncObserver = new SynchronizedResultObserver(
+				observer);
+		final long timeoutMillis = 1000L * getTimeoutSecs();
+		// a single daemon timer serves the timeouts of all workers
+		final Timer timeoutTimer = (timeoutMillis > 0) ? new Timer(true /* isDaemon */)
+				: null;
+		final ExecutorService pool = Executors.newFixedThreadPool(
+				Math.min(nThreads, solvers.length), new SolverThreadFactory());
+		final CompletionService<ISafeSolver> completion = new ExecutorCompletionService<ISafeSolver>(
+				pool);
+		final List<Future<ISafeSolver>> pending = new ArrayList<Future<ISafeSolver>>(
+				solvers.length);
+		try {
+			for (int i = 0; i < solvers.length; i++) {
+				final ISafeSolver solver = solvers[i];
+				pending.add(completion.submit(new Callable<ISafeSolver>() {
+					public ISafeSolver call() throws Exception {
+						runSolverWithTimeout(solver, solverPerfoTracker,
+								syncObserver, timeoutTimer, timeoutMillis);
+						return solver;
+					}
+				}));
+			}
+
+			int finished = 0;
+			while (finished < solvers.length) {
+				if (monitor.isCanceled()) {
+					cancelAll(pending);
+					throw CancelException.make("SAFE solvers canceled"); //$NON-NLS-1$
+				}
+				final Future<ISafeSolver> done = completion.poll(
+						MONITOR_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (done != null) {
+					finished++;
+					monitor.worked(1);
+					awaitSolver(done);
+				}
+			}
+		} catch (InterruptedException e) {
+			cancelAll(pending);
+			// preserve the interrupt for our caller
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+			if (timeoutTimer != null) {
+				timeoutTimer.cancel(); // cancel the entire timer
+			}
+		}
+	}
+
+	/**
+	 * Runs a single solver on a worker thread, interrupting that thread if the
+	 * solver runs longer than the timeout.
+	 */
+	private void runSolverWithTimeout(final ISafeSolver solver,
+			final SolverPerfTracker solverPerfoTracker,
+			final IResultObserver observer, final Timer timeoutTimer,
+			final long timeoutMillis) throws PropertiesException,
+			SetUpException, CancelException {
+		SafeTimeoutTask timeout = null;
+		if (timeoutTimer != null) {
+			// clear a timeout which fired just after the previous solver
+			// run by this worker completed.
+			if (Thread.interrupted()) {
+				Trace.print("*** Interrupt Carried Over ***");
+			}
+			timeout = new SafeTimeoutTask(Thread.currentThread());
+			timeoutTimer.schedule(timeout, timeoutMillis);
+		}
+		try {
+			runSolver(solver, solverPerfoTracker, observer,
+					new NullProgressMonitor());
+		} catch (WalaException exception) {
+			SafeLogger.severe("Error occured during SAFE solver running.",
+					exception);
+		} catch (SolverTimeoutException exception) {
 			if (solverPerfoTracker != null) {
-				getReporter().reportPerformanceTracking(solverPerfoTracker);
+				solverPerfoTracker.timeout(solver.toString(),
+						exception.getResult());
+			}
+			observer.notify(exception.getResult(),
+					AnalysisStatus.ABORT_TIMEOUT);
+			SafeLogger.warning("SAFE Solver timed out.");
+		} finally {
+			if (timeout != null) {
+				timeout.cancel(); // cancel the task
+			}
+		}
+	}
+
+	private static void cancelAll(final List<Future<ISafeSolver>> pending) {
+		for (Iterator<Future<ISafeSolver>> it = pending.iterator(); it
+				.hasNext();) {
+			it.next().cancel(true);
+		}
+	}
+
+	/**
+	 * Rethrows on the calling thread any failure of a completed solver.
+	 */
+	private static void awaitSolver(final Future<ISafeSolver> done)
+			throws InterruptedException, PropertiesException, SetUpException,
+			CancelException {
+		try {
+			done.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof PropertiesException) {
+				throw (PropertiesException) cause;
+			} else if (cause instanceof SetUpException) {
+				throw (SetUpException) cause;
+			} else if (cause instanceof CancelException) {
+				throw (CancelException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new SetUpException("SAFE solver failed", cause);
 			}
 		}
 	}
 
+	private int getSolverThreadCount() throws PropertiesException {
+		return getCommonOptions().getSolverThreadCount();
+	}
+
+	/**
+	 * Creates daemon solver threads, so that a solver which ignores its
+	 * timeout never keeps the VM alive.
+	 */
+	private static final class SolverThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(final Runnable r) {
+			final Thread t = new Thread(r, "SAFE solver " + count.incrementAndGet()); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * how often the calling thread checks the monitor for cancellation while
+	 * solvers run concurrently
+	 */
+	private static final long MONITOR_POLL_MILLIS = 200;
+
 	protected final boolean shouldCollectStatistics()
 			throws PropertiesException {
 		return this.propertiesManager.getBooleanValue(Props.COLLECT_STATISTICS);
@@ -231,6 +493,13 @@ public abstract class AbstractSolverRunner implements ISolverRunner {
 			throws WalaException, SolverTimeoutException, PropertiesException,
 			SetUpException, CancelException {
 		Assertions.productionAssertion(solver != null);
+		if (solver instanceof IPerformanceTracked) {
+			((IPerformanceTracked) solver).setPerformanceSpan(getSolverSpan(solver));
+		}
+		if (solver instanceof IIncrementalSolver) {
+			((IIncrementalSolver) solver).setIncrementalStore(getAnalysisSession()
+					.getIncrementalStore(getCommonOptions()));
+		}
 		if (solverPerfoTracker != null) {
 			solverPerfoTracker.startTracking(solver.toString());
 		}
@@ -249,6 +518,18 @@ public abstract class AbstractSolverRunner implements ISolverRunner {
 		}
 	}
 
+	/**
+	 * @return the span of the given solver, under the span of this runner in
+	 *         the global tracker, or null if performance is not tracked
+	 */
+	private PerformanceTracker getSolverSpan(final ISafeSolver solver) {
+		if (this.perfoTracker == null) {
+			return null;
+		}
+		return this.perfoTracker.getChild(getClass().getSimpleName(), Kind.RUNNER)
+				.getChild(solver.toString(), Kind.SOLVER);
+	}
+
 	private void startTracking(final String timerName) {
 		if (this.perfoTracker != null) {
 			this.perfoTracker.startTracking(timerName);
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.runners;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.ibm.safe.callgraph.CallGraphEngine;
+import com.ibm.safe.cha.J2SEClassHierarchyEngine;
+import com.ibm.safe.incremental.IncrementalStore;
+import com.ibm.safe.internal.exceptions.PropertiesException;
+import com.ibm.safe.internal.exceptions.SafeException;
+import com.ibm.safe.options.CommonOptions;
+import com.ibm.safe.options.WholeProgramOptions;
+import com.ibm.safe.options.WholeProgramProperties;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.perf.PerformanceTracker.Stages;
+import com.ibm.safe.properties.CommonProperties.Props;
+import com.ibm.safe.utils.SafeLogger;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * The analysis artifacts shared by all solver runners of one invocation: the
+ * analysis scope, the class hierarchy, and the call graphs (with their pointer
+ * analyses) of the whole-program runners. Each is built at most once, by the
+ * first runner that needs it; all runners of an invocation read the same
+ * properties, so they would otherwise build identical copies.
+ *
+ * The session also holds the findings of previous runs, when the analysis is
+ * incremental, and looks up the call graphs kept by previous invocations in
+ * the same process, when asked to reuse them.
+ */
+public final class AnalysisSession {
+
+  // --- Public services
+
+  /**
+   * @return the scope of this session, built from the given options if no
+   *         runner has built it yet. The options are made to use the shared
+   *         scope, so that engines asking them for a scope get this one.
+   */
+  public synchronized AnalysisScope getOrCreateAnalysisScope(final CommonOptions options, final PerformanceTracker perfoTracker)
+      throws PropertiesException, IOException, CoreException {
+    if (this.scope == null) {
+      startTracking(perfoTracker, Stages.SCOPE);
+      try {
+        this.scope = options.getOrCreateAnalysisScope();
+      } finally {
+        stopTracking(perfoTracker, Stages.SCOPE);
+      }
+    } else {
+      options.setAnalysisScope(this.scope);
+    }
+    return this.scope;
+  }
+
+  /**
+   * @return the J2SE class hierarchy of this session, built if no runner has
+   *         built it yet
+   */
+  public synchronized IClassHierarchy getOrCreateClassHierarchy(final CommonOptions options,
+      final PerformanceTracker perfoTracker, final IProgressMonitor monitor) throws PropertiesException, IOException,
+      CoreException {
+    if (this.classHierarchy == null) {
+      getOrCreateAnalysisScope(options, perfoTracker);
+      this.classHierarchy = new J2SEClassHierarchyEngine(options, perfoTracker, monitor).buildClassHierarchy();
+    }
+    return this.classHierarchy;
+  }
+
+  /**
+   * Compute the call graph and pointer analysis of an engine, unless an engine
+   * with the same key already computed them in this session.
+   *
+   * @param engine
+   *          a new engine, configured but not yet run
+   * @param options
+   *          the options the engine was created with
+   * @param key
+   *          identifies the call graph the engine computes; engines with equal
+   *          keys must compute the same call graph
+   * @return the engine holding the call graph for this key: either the given
+   *         one, now computed, or the one computed before
+   */
+  public synchronized CallGraphEngine getOrComputeCallGraph(final CallGraphEngine engine, final CommonOptions options,
+      final String key, final PerformanceTracker perfoTracker) throws SafeException, CancelException, IOException,
+      CoreException {
+    final CallGraphEngine cached = this.callGraphEngines.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    final AnalysisScope theScope = getOrCreateAnalysisScope(options, perfoTracker);
+    final String snapshotKey = getSnapshotKey(options, key, theScope);
+    if (snapshotKey != null) {
+      final CallGraphEngine snapshot = CallGraphSnapshots.get(snapshotKey);
+      if (snapshot != null) {
+        if (this.classHierarchy == null) {
+          this.classHierarchy = snapshot.getClassHierarchy();
+        }
+        this.callGraphEngines.put(key, snapshot);
+        if (perfoTracker != null) {
+          perfoTracker.addToCounter(REUSED_CALL_GRAPHS, 1);
+        }
+        return snapshot;
+      }
+    }
+    if (this.classHierarchy != null) {
+      engine.useClassHierarchy(this.classHierarchy);
+    }
+    engine.computeCallGraph();
+    if (this.classHierarchy == null) {
+      this.classHierarchy = engine.getClassHierarchy();
+    }
+    this.callGraphEngines.put(key, engine);
+    if (snapshotKey != null) {
+      CallGraphSnapshots.put(snapshotKey, engine);
+    }
+    return engine;
+  }
+
+  /**
+   * @return the findings of previous runs, read when first asked for, or null
+   *         if the analysis is not incremental
+   */
+  public synchronized IncrementalStore getIncrementalStore(final CommonOptions options) throws PropertiesException {
+    if (!this.incrementalStoreLoaded) {
+      this.incrementalStoreLoaded = true;
+      final File file = options.getIncrementalCacheFile();
+      if (file != null) {
+        this.incrementalStore = IncrementalStore.load(file, getIncrementalConfiguration(options));
+      }
+    }
+    return this.incrementalStore;
+  }
+
+  /**
+   * Write the findings of this run for the next one, if the analysis is
+   * incremental.
+   */
+  public synchronized void saveIncrementalStore() {
+    if (this.incrementalStore == null) {
+      return;
+    }
+    SafeLogger.info("Incremental analysis: " + this.incrementalStore.getHits() + " units replayed, " //$NON-NLS-1$
+        + this.incrementalStore.getMisses() + " analyzed."); //$NON-NLS-1$
+    try {
+      this.incrementalStore.save();
+    } catch (IOException except) {
+      SafeLogger.warning("Unable to write incremental cache: " + except.getMessage()); //$NON-NLS-1$
+    }
+  }
+
+  // --- Private code
+
+  /**
+   * @return the key under which the call graph identified by key is kept for
+   *         later invocations, or null if it is not to be kept: the key
+   *         extended with a digest of the modules of the scope and the
+   *         settings the call graph depends on
+   */
+  private String getSnapshotKey(final CommonOptions options, final String key, final AnalysisScope theScope)
+      throws PropertiesException, IOException {
+    if (!(options instanceof WholeProgramOptions) || !((WholeProgramOptions) options).shouldReuseCallGraph()) {
+      return null;
+    }
+    if (this.scopeDigest == null) {
+      this.scopeDigest = CallGraphSnapshots.digestScope(theScope);
+    }
+    return key + '|' + this.scopeDigest + '|' + options.getSelectedSettingsDescription(Props.J2SE_DIR, Props.J2EE,
+        Props.CLOSE_WORLD, Props.MAIN_CLASSES, Props.EXCLUSION_FILE, Props.NO_EXCLUSIONS,
+        WholeProgramProperties.Props.ALL_MAIN_CLASSES_ENTRY_POINT, WholeProgramProperties.Props.CG_KIND,
+        WholeProgramProperties.Props.ENTRY_POINTS, WholeProgramProperties.Props.ENTRY_POINTS_FILE,
+        WholeProgramProperties.Props.SELECT_MAIN_CLASSES);
+  }
+
+  /**
+   * @return what, besides the classes analyzed, the findings depend on: the
+   *         properties which may change them, and the runtime
+   */
+  private static String getIncrementalConfiguration(final CommonOptions options) {
+    return options.getSettingsDescription(Props.INCREMENTAL_CACHE, Props.PERFORMANCE_TRACKING, Props.PERFORMANCE_FILE,
+        Props.VERBOSE, Props.SOLVER_THREADS, WholeProgramProperties.Props.REUSE_CALL_GRAPH)
+        + "java.version=" + System.getProperty("java.version"); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static void startTracking(final PerformanceTracker perfoTracker, final Stages stage) {
+    if (perfoTracker != null) {
+      perfoTracker.startTracking(stage.toString());
+    }
+  }
+
+  private static void stopTracking(final PerformanceTracker perfoTracker, final Stages stage) {
+    if (perfoTracker != null) {
+      perfoTracker.stopTracking(stage.toString());
+    }
+  }
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy classHierarchy;
+
+  private static final String REUSED_CALL_GRAPHS = "reused call graphs"; //$NON-NLS-1$
+
+  private final Map<String, CallGraphEngine> callGraphEngines = HashMapFactory.make();
+
+  /**
+   * digest of the modules of the scope, computed when a call graph is first
+   * looked up among those kept by previous invocations
+   */
+  private String scopeDigest;
+
+  private IncrementalStore incrementalStore;
+
+  private boolean incrementalStoreLoaded;
+
+}
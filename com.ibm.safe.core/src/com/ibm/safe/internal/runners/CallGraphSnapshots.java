@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.runners;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.safe.callgraph.CallGraphEngine;
+import com.ibm.safe.utils.Utils;
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Call graphs, with their pointer analyses and class hierarchies, kept from
+ * one invocation to the next in the same process (IDE, Ant build, benchmark),
+ * so that an invocation which only changes rules does not build them again.
+ *
+ * A snapshot is keyed by a digest of the modules of the analysis scope and by
+ * the settings which shape the call graph. Archives, the application ones
+ * included, are only identified by path, size and modification time, so an
+ * archive rewritten with the same size within the resolution of its file time
+ * is taken for the old one. Snapshots are softly referenced: the VM drops them
+ * rather than running out of memory.
+ */
+final class CallGraphSnapshots {
+
+  // --- Package services
+
+  /**
+   * @return the engine computed before under this key, or null
+   */
+  static synchronized CallGraphEngine get(final String key) {
+    final SoftReference<CallGraphEngine> ref = snapshots.get(key);
+    final CallGraphEngine result = (ref == null) ? null : ref.get();
+    if ((ref != null) && (result == null)) {
+      snapshots.remove(key);
+    }
+    return result;
+  }
+
+  static synchronized void put(final String key, final CallGraphEngine engine) {
+    snapshots.put(key, new SoftReference<CallGraphEngine>(engine));
+  }
+
+  /**
+   * @return a digest of the modules of the scope. Archives, runtime and
+   *         application alike, are identified by path, size and modification
+   *         time, which is cheap; other modules by the content of their
+   *         entries.
+   */
+  static String digestScope(final AnalysisScope scope) throws IOException {
+    final MessageDigest sha = Utils.newSHA1Digest();
+    for (ClassLoaderReference loader : scope.getLoaders()) {
+      Utils.updateDigest(sha, loader.getName().toString());
+      for (Module module : scope.getModules(loader)) {
+        digestModule(sha, module);
+      }
+    }
+    return Utils.toHex(sha.digest());
+  }
+
+  // --- Private code
+
+  private CallGraphSnapshots() {
+  }
+
+  private static void digestModule(final MessageDigest sha, final Module module) throws IOException {
+    if (module instanceof JarFileModule) {
+      Utils.updateDigest(sha, Utils.getArchiveFingerprint((JarFileModule) module));
+    } else if (module instanceof FileModule) {
+      final File file = ((FileModule) module).getFile();
+      Utils.updateDigest(sha, file.getAbsolutePath());
+      Utils.updateDigest(sha, ((FileModule) module).getInputStream());
+    } else {
+      Utils.updateDigest(sha, module.toString());
+      for (Iterator<? extends ModuleEntry> it = module.getEntries(); it.hasNext();) {
+        final ModuleEntry entry = it.next();
+        Utils.updateDigest(sha, entry.getName());
+        Utils.updateDigest(sha, entry.getInputStream());
+      }
+    }
+  }
+
+  private static final Map<String, SoftReference<CallGraphEngine>> snapshots = HashMapFactory.make();
+
+}
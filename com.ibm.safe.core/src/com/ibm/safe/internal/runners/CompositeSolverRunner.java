@@ -45,6 +45,10 @@ public final class CompositeSolverRunner implements ISolverRunner {
       }
     }
 
+    if (oneRunnerSucceeded) {
+      this.session.saveIncrementalStore();
+    }
+
     if (!exceptContainer.isEmpty()) {
       if (oneRunnerSucceeded) {
         SafeLogger.severe("Set up before analyzer run failed.", exceptContainer);
@@ -56,7 +60,15 @@ public final class CompositeSolverRunner implements ISolverRunner {
 
   // --- Public services
 
+  /**
+   * Add a runner. Runners built on {@link AbstractSolverRunner} share the
+   * analysis session of this composite, so that the scope, class hierarchy and
+   * call graph are built once for all of them.
+   */
   public void addSolverRunner(final ISolverRunner solverRunner) {
+    if (solverRunner instanceof AbstractSolverRunner) {
+      ((AbstractSolverRunner) solverRunner).setAnalysisSession(this.session);
+    }
     this.solverRunners.add(solverRunner);
   }
 
@@ -68,4 +80,6 @@ public final class CompositeSolverRunner implements ISolverRunner {
 
   private final Collection<ISolverRunner> solverRunners = new Stack<ISolverRunner>();
 
+  private final AnalysisSession session = new AnalysisSession();
+
 }
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.internal.runners;
+
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisStatus;
+import com.ibm.safe.reporting.message.ISolverResult;
+import com.ibm.safe.runners.IResultObserver;
+
+/**
+ * Serializes notifications to an observer which receives results from solvers
+ * running concurrently.
+ */
+final class SynchronizedResultObserver implements IResultObserver {
+
+  private final IResultObserver delegate;
+
+  public SynchronizedResultObserver(final IResultObserver observer) {
+    this.delegate = observer;
+  }
+
+  public synchronized void notify(final ISolverResult result, final AnalysisStatus status) {
+    this.delegate.notify(result, status);
+  }
+
+}
@@ -132,6 +132,14 @@ public class CommonOptions extends PropertiesManager {
     return this.scope;
   }
 
+  /**
+   * Use a scope already built from the same properties, e.g. by another runner
+   * of the same invocation, instead of creating one.
+   */
+  public void setAnalysisScope(final AnalysisScope analysisScope) {
+    this.scope = analysisScope;
+  }
+
   private final boolean isNoExclusion() throws PropertiesException {
     return getBooleanValue(CommonProperties.Props.NO_EXCLUSIONS);
   }
@@ -148,10 +156,36 @@ public class CommonOptions extends PropertiesManager {
     return getBooleanValue(CommonProperties.Props.PERFORMANCE_TRACKING);
   }
 
+  /**
+   * @return the file where findings are kept between runs, relative to the
+   *         output directory unless absolute, or null if the analysis is not
+   *         incremental
+   */
+  public File getIncrementalCacheFile() throws PropertiesException {
+    final String fileName = getStringValue(CommonProperties.Props.INCREMENTAL_CACHE);
+    if ((fileName == null) || (fileName.length() == 0)) {
+      return null;
+    }
+    final File file = new File(fileName);
+    final String outputDir = getPathValue(CommonProperties.Props.OUTPUT_DIR);
+    if (file.isAbsolute() || (outputDir == null)) {
+      return file;
+    }
+    return new File(outputDir, fileName);
+  }
+
   public int getMaxFindingsPerRule() throws PropertiesException {
     return getIntValue(CommonProperties.Props.MAX_FINDINGS_PER_RULE);
   }
 
+  /**
+   * @return number of solvers run concurrently; never less than 1
+   * @throws PropertiesException
+   */
+  public int getSolverThreadCount() throws PropertiesException {
+    return Math.max(1, getIntValue(CommonProperties.Props.SOLVER_THREADS));
+  }
+
   public String getShortProgramName() throws PropertiesException {
     return getStringValue(CommonProperties.Props.SHORT_PROGRAM_NAME);
   }
@@ -85,6 +85,10 @@ public class WholeProgramOptions extends CommonOptions {
     return getBooleanValue(WholeProgramProperties.Props.LIVE_ANALYSIS);
   }
 
+  public boolean shouldReuseCallGraph() throws PropertiesException {
+    return getBooleanValue(WholeProgramProperties.Props.REUSE_CALL_GRAPH);
+  }
+
   public final Pattern[] getMainClassesSelector() throws PropertiesException {
     final String option = getStringValue(WholeProgramProperties.Props.SELECT_MAIN_CLASSES);
     if (option == null) {
@@ -33,7 +33,9 @@ public class WholeProgramProperties {
         Type.STRING, "Specifies an XML file where some end-user entry points are defined."), GENERATE_WITNESS("generate_witness",
         Type.BOOLEAN, ""), LIVE_ANALYSIS("live_analysis", Type.BOOLEAN, true, ""), CONTRADICTION_ANALYSIS("contradiction_analysis",
         Type.BOOLEAN, false, "Perform contradiction analysis."), POINTS_TO_GRAPH("points_to_graph", Type.STRING,
-        "Outputs points-to graph"), REPORT_CALL_GRAPH("report_call_graph", Type.BOOLEAN, "Outputs or not the call graph."), SELECT_MAIN_CLASSES(
+        "Outputs points-to graph"), REPORT_CALL_GRAPH("report_call_graph", Type.BOOLEAN, "Outputs or not the call graph."), REUSE_CALL_GRAPH(
+        "reuse_call_graph", Type.BOOLEAN, false,
+        "Keeps the call graph for later runs in the same process, which reuse it if the scope and entry points did not change."), SELECT_MAIN_CLASSES(
         "select_main_classes", Type.STRING, "Filters some main classes among the ones automatically detected."), SLICE_SUPERGRAPH(
         "slice_supergraph", Type.BOOLEAN, "Enable supergraph slicing.");
 
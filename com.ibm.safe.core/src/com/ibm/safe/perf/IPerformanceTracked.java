@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.perf;
+
+/**
+ * A solver which records its phases, counters and gauges in a span of the
+ * performance tracker of the run.
+ */
+public interface IPerformanceTracked {
+
+  /**
+   * @param span
+   *            the SOLVER span the solver reports to, or null to disable
+   *            tracking
+   */
+  public void setPerformanceSpan(final PerformanceTracker span);
+
+}
@@ -12,20 +12,76 @@ package com.ibm.safe.perf;
 
 import com.ibm.wala.util.perf.Stopwatch;
 
+/**
+ * A stopwatch with a name, which also samples the CPU time and the bytes
+ * allocated by the thread it runs on. The samples are only meaningful if each
+ * period is started and stopped on the same thread; otherwise they are
+ * reported as unknown.
+ */
 public class NamedTimer extends Stopwatch {
 
   public NamedTimer(final String timerName) {
     this.name = timerName;
   }
 
+  public void start() {
+    super.start();
+    this.startThread = Thread.currentThread();
+    this.startCpuNanos = ThreadSampler.getCurrentThreadCpuNanos();
+    this.startAllocatedBytes = ThreadSampler.getCurrentThreadAllocatedBytes();
+  }
+
+  public void stop() {
+    super.stop();
+    if (this.startThread != Thread.currentThread()) {
+      this.cpuNanos = -1;
+      this.allocatedBytes = -1;
+      return;
+    }
+    this.cpuNanos = accumulate(this.cpuNanos, this.startCpuNanos, ThreadSampler.getCurrentThreadCpuNanos());
+    this.allocatedBytes = accumulate(this.allocatedBytes, this.startAllocatedBytes, ThreadSampler
+        .getCurrentThreadAllocatedBytes());
+  }
+
   public String getName() {
     return this.name;
   }
 
+  /**
+   * @return CPU time used while this timer ran, or -1 if unknown
+   */
+  public long getCpuMillis() {
+    return (this.cpuNanos < 0) ? -1 : this.cpuNanos / 1000000;
+  }
+
+  /**
+   * @return bytes allocated while this timer ran, or -1 if unknown
+   */
+  public long getAllocatedBytes() {
+    return this.allocatedBytes;
+  }
+
   public String toString() {
     return this.name;
   }
 
+  private static long accumulate(final long total, final long start, final long end) {
+    if (total < 0 || start < 0 || end < 0) {
+      return -1;
+    }
+    return total + (end - start);
+  }
+
   private final String name;
 
+  private Thread startThread;
+
+  private long startCpuNanos;
+
+  private long startAllocatedBytes;
+
+  private long cpuNanos = 0;
+
+  private long allocatedBytes = 0;
+
 }
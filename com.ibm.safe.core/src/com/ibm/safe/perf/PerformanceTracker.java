@@ -10,19 +10,32 @@
  *******************************************************************************/
 package com.ibm.safe.perf;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.perf.Stopwatch;
 
+/**
+ * Times the phases of an analysis, and records counters, gauges and
+ * attributes about it.
+ * 
+ * Trackers form a hierarchy of spans: the GLOBAL tracker of a run holds one
+ * RUNNER child per solver runner, which holds one SOLVER child per solver,
+ * which holds one INSTANCE child per set of instances solved together. Each
+ * span times its own phases, so that a timer name is unique within a span but
+ * may be reused across spans.
+ */
 public class PerformanceTracker {
 
   public static enum Stages {
-    CHA, CALLGRAPH, HEAPGRAPH, CALLGRAPH_REACH, STRUCTURAL, NULLDEREF, TYPESTATE
+    SCOPE, CHA, CALLGRAPH, HEAPGRAPH, CALLGRAPH_REACH, STRUCTURAL, NULLDEREF, TYPESTATE, SUPERGRAPH, TABULATION
   };
 
   public static enum Kind {
-    GLOBAL, SOLVERS
+    GLOBAL, SOLVERS, RUNNER, SOLVER, INSTANCE
   }
 
   public PerformanceTracker(final String trackerName, final Kind trackerKind) {
@@ -30,10 +43,91 @@ public class PerformanceTracker {
     this.kind = trackerKind;
   }
 
-  public final NamedTimer[] getTimers() {
+  public final synchronized NamedTimer[] getTimers() {
     return (NamedTimer[]) this.timers.values().toArray(new NamedTimer[this.timers.size()]);
   }
 
+  /**
+   * @return the child span of this tracker with the given name, created with
+   *         the given kind if there is none yet
+   */
+  public final synchronized PerformanceTracker getChild(final String childName, final Kind childKind) {
+    PerformanceTracker child = this.childrenByName.get(childName);
+    if (child == null) {
+      child = new PerformanceTracker(childName, childKind);
+      child.parent = this;
+      this.children.add(child);
+      this.childrenByName.put(childName, child);
+    }
+    return child;
+  }
+
+  /**
+   * @return the child spans of this tracker, in creation order
+   */
+  public final synchronized PerformanceTracker[] getChildren() {
+    return this.children.toArray(new PerformanceTracker[this.children.size()]);
+  }
+
+  /**
+   * @return the span this tracker is a child of, or null for a root tracker
+   */
+  public final PerformanceTracker getParent() {
+    return this.parent;
+  }
+
+  /**
+   * Add delta to the counter with the given name, which starts at 0.
+   */
+  public final synchronized void addToCounter(final String counterName, final long delta) {
+    final Long value = this.counters.get(counterName);
+    this.counters.put(counterName, Long.valueOf((value == null) ? delta : value.longValue() + delta));
+  }
+
+  /**
+   * @return the value of the counter, or 0 if it was never incremented
+   */
+  public final synchronized long getCounter(final String counterName) {
+    final Long value = this.counters.get(counterName);
+    return (value == null) ? 0 : value.longValue();
+  }
+
+  /**
+   * @return Map: counter name -> value, sorted by name
+   */
+  public final synchronized Map<String, Long> getCounters() {
+    return new TreeMap<String, Long>(this.counters);
+  }
+
+  /**
+   * Record the current value of a quantity, such as the size of a table.
+   */
+  public final synchronized void setGauge(final String gaugeName, final long value) {
+    this.gauges.put(gaugeName, Long.valueOf(value));
+  }
+
+  /**
+   * @return Map: gauge name -> last value recorded, sorted by name
+   */
+  public final synchronized Map<String, Long> getGauges() {
+    return new TreeMap<String, Long>(this.gauges);
+  }
+
+  /**
+   * Describe this span, for instance with what it worked on, apart from its
+   * name.
+   */
+  public final synchronized void setAttribute(final String attributeName, final String value) {
+    this.attributes.put(attributeName, value);
+  }
+
+  /**
+   * @return Map: attribute name -> value, sorted by name
+   */
+  public final synchronized Map<String, String> getAttributes() {
+    return new TreeMap<String, String>(this.attributes);
+  }
+
   public final Kind getTrackerKind() {
     return this.kind;
   }
@@ -42,7 +136,7 @@ public class PerformanceTracker {
     return this.name;
   }
 
-  public final void startTracking(final String timerName) {
+  public final synchronized void startTracking(final String timerName) {
     assert !this.timers.containsKey(timerName);
 
     final NamedTimer timer = createTimerInstance(timerName);
@@ -50,13 +144,13 @@ public class PerformanceTracker {
     timer.start();
   }
 
-  public final void stopTracking(final String timerName) {
+  public final synchronized void stopTracking(final String timerName) {
     final NamedTimer timer = this.timers.get(timerName);
     assert timer != null;
     timer.stop();
   }
 
-  public final Stopwatch getTimer(String timerName) {
+  public final synchronized Stopwatch getTimer(String timerName) {
     return (Stopwatch) this.timers.get(timerName);
   }
 
@@ -67,23 +161,55 @@ public class PerformanceTracker {
   public String reportPerformanceTracking() {
     StringBuffer result = new StringBuffer();
     final NamedTimer[] timers = getTimers();
-    if (timers.length == 0) {
-      return result.toString();
+    if (timers.length > 0) {
+      result.append("\n");
+      result.append(getTrackerName());
+      int totalTime = 0;
+      for (int i = 0; i < timers.length; i++) {
+        NamedTimer current = timers[i];
+        totalTime += current.getElapsedMillis();
+        result.append(current.getName() + " \t Time = " + current.getElapsedMillis() + " ms \n");
+      }
+      result.append("Total time: " + totalTime + " ms");
     }
-    result.append("\n");
-    result.append(getTrackerName());
-    int totalTime = 0;
-    for (int i = 0; i < timers.length; i++) {
-      NamedTimer current = timers[i];
-      totalTime += current.getElapsedMillis();
-      result.append(current.getName() + " \t Time = " + current.getElapsedMillis() + " ms \n");
-    }
-    result.append("Total time: " + totalTime + " ms");
+    appendCountersAndChildren(result);
     return result.toString();
   }
 
+  /**
+   * Append the attributes, counters and gauges of this span, then the reports
+   * of its children.
+   */
+  protected final void appendCountersAndChildren(final StringBuffer result) {
+    final Map<String, Object> allCounters = new TreeMap<String, Object>(getAttributes());
+    allCounters.putAll(getCounters());
+    allCounters.putAll(getGauges());
+    if (!allCounters.isEmpty() && getTimers().length == 0) {
+      result.append("\n" + getTrackerName());
+    }
+    for (Map.Entry<String, Object> entry : allCounters.entrySet()) {
+      result.append("\n" + entry.getKey() + " \t = " + entry.getValue());
+    }
+    final PerformanceTracker[] spans = getChildren();
+    for (int i = 0; i < spans.length; i++) {
+      result.append(spans[i].reportPerformanceTracking());
+    }
+  }
+
   protected final Map<String, NamedTimer> timers = HashMapFactory.make();
 
+  private final Map<String, Long> counters = HashMapFactory.make();
+
+  private final Map<String, Long> gauges = HashMapFactory.make();
+
+  private final Map<String, String> attributes = HashMapFactory.make();
+
+  private final List<PerformanceTracker> children = new ArrayList<PerformanceTracker>();
+
+  private final Map<String, PerformanceTracker> childrenByName = HashMapFactory.make();
+
+  private PerformanceTracker parent;
+
   private final String name;
 
   private final Kind kind;
@@ -24,7 +24,7 @@ public final class SolverPerfTracker extends PerformanceTracker {
 
   // --- Interface methods implementation
 
-  public int getProcessedInstances(final String trackerName) {
+  public synchronized int getProcessedInstances(final String trackerName) {
     final Integer value = this.solverProcessedInstances.get(trackerName);
     if (value == null) {
       return 0;
@@ -33,7 +33,7 @@ public final class SolverPerfTracker extends PerformanceTracker {
     }
   }
 
-  public int getTotalInstances(final String trackerName) {
+  public synchronized int getTotalInstances(final String trackerName) {
     final Integer value = this.solverTotalInstances.get(trackerName);
     if (value == null) {
       return 0;
@@ -42,25 +42,85 @@ public final class SolverPerfTracker extends PerformanceTracker {
     }
   }
 
-  public void stopTracking(final String timerName, final ISolverResult result) {
+  public synchronized void stopTracking(final String timerName, final ISolverResult result) {
     super.stopTracking(timerName);
     updateProgress(timerName, result);
   }
 
-  public void timeout(final String timerName, ISolverResult result) {
+  public synchronized void timeout(final String timerName, ISolverResult result) {
     final TimeoutStopwatch current = (TimeoutStopwatch) super.timers.get(timerName);
     assert current != null;
     current.timeout();
     updateProgress(timerName, result);
   }
 
+  /**
+   * Marks the start of the wall-clock period covering all solvers, which may
+   * run concurrently.
+   */
+  public synchronized void startWallClock() {
+    this.wallClockStart = System.currentTimeMillis();
+  }
+
+  /**
+   * Marks the end of the wall-clock period covering all solvers.
+   */
+  public synchronized void stopWallClock() {
+    this.wallClockMillis = System.currentTimeMillis() - this.wallClockStart;
+  }
+
+  /**
+   * @return the wall-clock time spent running all solvers, or -1 if it was not
+   *         tracked
+   */
+  public synchronized long getWallClockMillis() {
+    return this.wallClockMillis;
+  }
+
+  /**
+   * @return the time between the start of the wall-clock period and the start
+   *         of the given solver, or -1 if unknown
+   */
+  public synchronized long getStartOffsetMillis(final String timerName) {
+    final Long value = this.solverStartOffsets.get(timerName);
+    return (value == null) ? -1 : value.longValue();
+  }
+
+  /**
+   * @return the name of the thread which ran the given solver, or null if
+   *         unknown
+   */
+  public synchronized String getThreadName(final String timerName) {
+    return this.solverThreads.get(timerName);
+  }
+
   // --- Overridden methods
 
   protected NamedTimer createTimerInstance(final String timerName) {
+    // called by startTracking() on the thread about to run the solver
+    if (this.wallClockMillis == -1 && this.wallClockStart > 0) {
+      this.solverStartOffsets.put(timerName, System.currentTimeMillis() - this.wallClockStart);
+    }
+    this.solverThreads.put(timerName, Thread.currentThread().getName());
     return new TimeoutStopwatch(timerName);
   }
 
-  private void updateProgress(final String timerName, final ISolverResult result) {
+  public String reportPerformanceTracking() {
+    StringBuffer result = new StringBuffer(super.reportPerformanceTracking());
+    final long wallClock = getWallClockMillis();
+    if (wallClock < 0) {
+      return result.toString();
+    }
+    result.append("\nWall-clock time: " + wallClock + " ms\n");
+    final NamedTimer[] timers = getTimers();
+    for (int i = 0; i < timers.length; i++) {
+      final String name = timers[i].getName();
+      result.append(name + " \t Start = " + getStartOffsetMillis(name) + " ms \t Thread = " + getThreadName(name) + "\n");
+    }
+    return result.toString();
+  }
+
+  private synchronized void updateProgress(final String timerName, final ISolverResult result) {
     if (result instanceof AggregateSolverResult && result != null) { // short
       // works for now
       AggregateSolverResult r = (AggregateSolverResult) result;
@@ -73,4 +133,12 @@ public final class SolverPerfTracker extends PerformanceTracker {
 
   private Map<String, Integer> solverProcessedInstances = HashMapFactory.make();
 
+  private Map<String, Long> solverStartOffsets = HashMapFactory.make();
+
+  private Map<String, String> solverThreads = HashMapFactory.make();
+
+  private long wallClockStart = 0;
+
+  private long wallClockMillis = -1;
+
 }
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.perf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Samples the CPU time and the allocated bytes of the current thread, when the
+ * VM supports it.
+ */
+public final class ThreadSampler {
+
+  /**
+   * @return CPU time used so far by the current thread in nanoseconds, or -1 if
+   *         the VM cannot tell
+   */
+  public static long getCurrentThreadCpuNanos() {
+    if (BEAN.isCurrentThreadCpuTimeSupported() && BEAN.isThreadCpuTimeEnabled()) {
+      return BEAN.getCurrentThreadCpuTime();
+    }
+    return -1;
+  }
+
+  /**
+   * @return bytes allocated so far by the current thread, or -1 if the VM
+   *         cannot tell
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    if (BEAN instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) BEAN;
+      if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  // --- Private code
+
+  private ThreadSampler() {
+  }
+
+  private static final ThreadMXBean BEAN = ManagementFactory.getThreadMXBean();
+
+}
@@ -43,20 +43,26 @@ public class CommonProperties {
         "Specifies a list of directories where modules can be loaded (otherwise use current class loader)."), NULLDEREF(
         "nullderef", Type.BOOLEAN, "Activates or not null-dereference analysis on code transmitted."), PERFORMANCE_TRACKING(
         "performance_tracking", Type.BOOLEAN,
-        "Specifies that some time and memory tracking for graphs building and analysis should be done."), PROJECT("project",
+        "Specifies that some time and memory tracking for graphs building and analysis should be done."), PERFORMANCE_FILE(
+        "performance_file", Type.STRING,
+        "Exports performance tracking to this file, as CSV if its name ends with '.csv', as JSON otherwise."), PROJECT("project",
         Type.STRING, "Specifies an Eclipse Java project name to analyze (see 'workspace' option)."), RESULT_FILENAME(
         "result_filename", Type.STRING, "analysis_results.xml",
         "Specifies XML file name where to dump analysis result (default file name in properties file)."), RULES_DIRS("rules_dirs",
         Type.PATH, "nl/en/rules", "Specifies the root directories where SAFE rules are located."), OUTPUT_DIR("output_dir",
         Type.PATH, "results", "Specifies directory where all generated files without absolute path will be located."), SHORT_PROGRAM_NAME(
-        "short_program_name", Type.STRING, ""), STRUCTURAL("structural", Type.BOOLEAN,
+        "short_program_name", Type.STRING, ""), SOLVER_THREADS("solver_threads", Type.INT, 1,
+        "Number of solvers run concurrently, each with its own timeout (1 runs them one after another)."), STREAM_RESULTS(
+        "stream_results", Type.BOOLEAN,
+        "Write the XML result file while analysis runs, in reporting order, instead of building it in memory."), STRUCTURAL("structural", Type.BOOLEAN,
         "Activates or not structural analysis on code transmitted."), TIMEOUT_SECS("timeout_secs", Type.INT, 60,
         "Specifies a time after which current typestate solver is cancelled if analysis produces nothing."), TYPESTATE("typestate",
         Type.BOOLEAN, "Activates or not typestate analysis on code transmitted."), VERBOSE("verbose", Type.BOOLEAN,
         "Specifies verbose mode for SAFE analysis."), WORKSPACE("workspace", Type.PATH,
         "Specifies the workspace directory where we could find Eclipse Java projects."), NO_EXCLUSIONS("no_exclusions",
         Type.BOOLEAN, false, "avoid SAFE exclusions."), EXCLUSION_FILE("exclusion_file", Type.STRING, null,
-        "specific exclusion file");
+        "specific exclusion file"), INCREMENTAL_CACHE("incremental_cache", Type.STRING, null,
+        "File where findings are kept between runs, so that only the rules and instances depending on changed classes are analyzed again.");
 
     private final String name;
 
@@ -14,6 +14,7 @@ import java.io.File;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.TreeSet;
 
 import com.ibm.safe.internal.exceptions.PropertiesException;
 import com.ibm.safe.utils.SafeHome;
@@ -212,6 +213,42 @@ public class PropertiesManager {
     p.put(key, val);
   }
 
+  /**
+   * @param ignored
+   *          properties which do not matter to the caller
+   * @return one "name=value" line per property set, sorted by name
+   */
+  public String getSettingsDescription(IPropertyDescriptor... ignored) {
+    TreeSet<String> names = new TreeSet<String>(p.stringPropertyNames());
+    for (IPropertyDescriptor d : ignored) {
+      names.remove(d.getName());
+    }
+    return describe(names);
+  }
+
+  /**
+   * @param selected
+   *          properties which matter to the caller
+   * @return one "name=value" line per selected property set, sorted by name
+   */
+  public String getSelectedSettingsDescription(IPropertyDescriptor... selected) {
+    TreeSet<String> names = new TreeSet<String>();
+    for (IPropertyDescriptor d : selected) {
+      if (p.getProperty(d.getName()) != null) {
+        names.add(d.getName());
+      }
+    }
+    return describe(names);
+  }
+
+  private String describe(Iterable<String> names) {
+    StringBuilder result = new StringBuilder();
+    for (String name : names) {
+      result.append(name).append('=').append(p.getProperty(name)).append('\n');
+    }
+    return result.toString();
+  }
+
   /**
    * load the safe.properties into a properties object
    * 
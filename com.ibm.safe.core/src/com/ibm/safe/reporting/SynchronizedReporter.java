@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.reporting;
+
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisKind;
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisStatus;
+import com.ibm.safe.metrics.IMetrics;
+import com.ibm.safe.metrics.ProgramStatistics;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.rules.IRule;
+import com.ibm.wala.classLoader.IClass;
+
+/**
+ * A reporter which serializes all events to a delegate, so that solvers running
+ * concurrently may share it.
+ */
+public final class SynchronizedReporter implements IReporter {
+
+  // --- Interface methods implementation
+
+  public synchronized void process(final IClass clazz) {
+    this.delegate.process(clazz);
+  }
+
+  public synchronized void produceFinalReport() throws Exception {
+    this.delegate.produceFinalReport();
+  }
+
+  public synchronized void reportException(final Throwable exception) {
+    this.delegate.reportException(exception);
+  }
+
+  public synchronized void reportMessage(final Message message) {
+    this.delegate.reportMessage(message);
+  }
+
+  public synchronized void reportNumberOfFindings(final int numberOfFindings) {
+    this.delegate.reportNumberOfFindings(numberOfFindings);
+  }
+
+  public synchronized void reportNumberOfRulesActivated(final int numberOfRules) {
+    this.delegate.reportNumberOfRulesActivated(numberOfRules);
+  }
+
+  public synchronized void reportRuleLoading(final IRule rule) {
+    this.delegate.reportRuleLoading(rule);
+  }
+
+  public synchronized void reportRuleInstances(final IRule rule, int instances) {
+    this.delegate.reportRuleInstances(rule, instances);
+  }
+
+  public synchronized void reportPerformanceTracking(final PerformanceTracker perfoTracker) {
+    this.delegate.reportPerformanceTracking(perfoTracker);
+  }
+
+  public synchronized void reportStatistics(final ProgramStatistics programStat) {
+    this.delegate.reportStatistics(programStat);
+  }
+
+  public synchronized void reportStatistics(final IMetrics typeStateMetrics) {
+    this.delegate.reportStatistics(typeStateMetrics);
+  }
+
+  public synchronized void startAnalysis(final AnalysisKind nature) {
+    this.delegate.startAnalysis(nature);
+  }
+
+  public synchronized void stopAnalysis(final AnalysisKind nature) {
+    this.delegate.stopAnalysis(nature);
+  }
+
+  public synchronized void reportAnalysisStatus(final AnalysisStatus status) {
+    this.delegate.reportAnalysisStatus(status);
+  }
+
+  public synchronized void version(final String versionNumber) {
+    this.delegate.version(versionNumber);
+  }
+
+  // --- Public services
+
+  public SynchronizedReporter(final IReporter delegate) {
+    assert delegate != null;
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return the underlying reporter
+   */
+  public IReporter getDelegate() {
+    return this.delegate;
+  }
+
+  // --- Private code
+
+  private final IReporter delegate;
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * The methods a virtual call may dispatch to when the receiver is any subtype
+ * of a declared type (a cone type), computed once per (declared type,
+ * selector) instead of enumerating the subclasses or implementors at every
+ * call site. Safe for use by several threads.
+ */
+public class ConeDispatchCache {
+
+  private final IClassHierarchy cha;
+
+  private final ConcurrentHashMap<Pair<IClass, Selector>, Set<IMethod>> targets = new ConcurrentHashMap<Pair<IClass, Selector>, Set<IMethod>>();
+
+  public ConeDispatchCache(IClassHierarchy cha) {
+    this.cha = cha;
+  }
+
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  /**
+   * @return the resolution of selector in each subclass of type, or each
+   *         implementor if type is an interface. The set holds null if the
+   *         selector does not resolve in some of these classes.
+   */
+  public Set<IMethod> getConeTargets(IClass type, Selector selector) {
+    Pair<IClass, Selector> key = Pair.make(type, selector);
+    Set<IMethod> result = targets.get(key);
+    if (result == null) {
+      // computed outside any lock; if two threads race, both compute the same
+      // set
+      result = Collections.unmodifiableSet(computeConeTargets(type, selector));
+      Set<IMethod> old = targets.putIfAbsent(key, result);
+      if (old != null) {
+        result = old;
+      }
+    }
+    return result;
+  }
+
+  private Set<IMethod> computeConeTargets(IClass type, Selector selector) {
+    Collection<IClass> classes = type.isInterface() ? cha.getImplementors(type.getReference()) : cha.computeSubClasses(type
+        .getReference());
+    Set<IMethod> result = HashSetFactory.make();
+    for (IClass klass : classes) {
+      result.add(cha.resolveMethod(klass, selector));
+    }
+    return result;
+  }
+}
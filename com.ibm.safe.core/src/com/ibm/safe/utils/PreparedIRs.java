@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ssa.IR;
+
+/**
+ * The IRs and def-uses of all nodes of a call graph, built on one thread
+ * before several threads work on the graph.
+ *
+ * {@link CGNode#getIR()} and {@link CGNode#getDU()} go through the cache of
+ * the call graph, which is not thread-safe: threads may only share it as long
+ * as none of them fills it. Once prepared, the IRs and def-uses are held here,
+ * so that the cache does not drop them, hence never has to build them again,
+ * until {@link #release()}.
+ */
+public final class PreparedIRs {
+
+  private final List<Object> held;
+
+  private PreparedIRs(List<Object> held) {
+    this.held = held;
+  }
+
+  /**
+   * Build the IR and def-use of each node of cg on the calling thread.
+   */
+  public static PreparedIRs prepare(CallGraph cg) {
+    List<Object> held = new ArrayList<Object>(2 * cg.getNumberOfNodes());
+    for (CGNode n : cg) {
+      IR ir = n.getIR();
+      if (ir != null) {
+        held.add(ir);
+        held.add(n.getDU());
+      }
+    }
+    return new PreparedIRs(held);
+  }
+
+  /**
+   * Let the cache of the call graph drop the IRs again, once no other thread
+   * works on the graph.
+   */
+  public synchronized void release() {
+    held.clear();
+  }
+}
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package com.ibm.safe.utils;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.ibm.wala.analysis.typeInference.TypeInference;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
@@ -31,11 +33,26 @@ public class ReceiverTypeInferenceCache {
     this.analysisCache = cache;
   }
 
+  /**
+   * A cache that is only queried with IRs built elsewhere, through
+   * {@link #findOrCreate(IR)}.
+   */
+  public ReceiverTypeInferenceCache() {
+    this(null);
+  }
+
   /**
    * A cache of TypeInference results; a mapping from CGNode -> ReceiverTypeInference
    */
   private final Map<CGNode, Object> typeInferenceMap = HashMapFactory.make();
 
+  /**
+   * A cache of TypeInference results for IRs built outside an analysis cache;
+   * a weak mapping from IR -> ReceiverTypeInference, so that an entry goes
+   * away with the IR it was computed for
+   */
+  private final Map<IR, Object> irTypeInferenceMap = Collections.synchronizedMap(new WeakHashMap<IR, Object>());
+
   /**
    * @param n node
    * @return null if unable to perform type inference
@@ -61,4 +78,19 @@ public class ReceiverTypeInferenceCache {
     }
   }
 
+  /**
+   * @param ir IR of a method, for example from a cache of IR shared by several
+   *          clients
+   * @return type inference results of the receivers of the call sites of ir
+   */
+  public ReceiverTypeInference findOrCreate(IR ir) {
+    ReceiverTypeInference result = (ReceiverTypeInference) CacheReference.get(irTypeInferenceMap.get(ir));
+    if (result == null) {
+      // computed outside the lock; if two threads race, the last result wins
+      result = new ReceiverTypeInference(TypeInference.make(ir, false));
+      irTypeInferenceMap.put(ir, CacheReference.make(result));
+    }
+    return result;
+  }
+
 }
@@ -51,6 +51,21 @@ public final class SafeLogger {
     Logger.getLogger("").log(Level.INFO, infoMessage, exception); //$NON-NLS-1$
   }
 
+  /**
+   * Log a message with a fine severity level, for tracing.
+   */
+  public static void fine(final String fineMessage) {
+    Logger.getLogger("").log(Level.FINE, fineMessage); //$NON-NLS-1$
+  }
+
+  /**
+   * @return true iff messages of the given level are logged; callers check it
+   *         before building expensive messages.
+   */
+  public static boolean isLoggable(final Level level) {
+    return Logger.getLogger("").isLoggable(level); //$NON-NLS-1$
+  }
+
   /**
    * Log a message with a severe severity level.
    */
@@ -10,6 +10,13 @@
  *******************************************************************************/
 package com.ibm.safe.utils;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.ibm.wala.classLoader.JarFileModule;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAInstruction;
@@ -31,4 +38,67 @@ public class Utils {
     return instrIndex;
   }
 
+  /**
+   * cheap, but does not tell an archive from one rewritten with the same size
+   * within the resolution of its file time
+   * 
+   * @param module
+   * @return the path, size and modification time of the archive
+   */
+  public static String getArchiveFingerprint(JarFileModule module) {
+    File jar = new File(module.getAbsolutePath());
+    return jar.getAbsolutePath() + ':' + jar.length() + ':' + jar.lastModified();
+  }
+
+  /**
+   * @return a new SHA-1 digest, which every Java platform provides
+   */
+  public static MessageDigest newSHA1Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+    } catch (NoSuchAlgorithmException except) {
+      throw new IllegalStateException("SHA-1 is not available: " + except.getMessage());
+    }
+  }
+
+  /**
+   * Add the characters of text to the digest, followed by a separator, so that
+   * consecutive texts cannot run into each other.
+   */
+  public static void updateDigest(MessageDigest digest, String text) {
+    for (int i = 0; i < text.length(); ++i) {
+      char c = text.charAt(i);
+      digest.update((byte) (c >> 8));
+      digest.update((byte) c);
+    }
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Add the content of input to the digest, and close it.
+   */
+  public static void updateDigest(MessageDigest digest, InputStream input) throws IOException {
+    try {
+      byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+      for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * @return the bytes in lower case hexadecimal
+   */
+  public static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return result.toString();
+  }
+
+  private static final int DIGEST_BUFFER_SIZE = 8192;
+
 }
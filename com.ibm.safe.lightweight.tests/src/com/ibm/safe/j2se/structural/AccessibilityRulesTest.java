@@ -1,9 +1,16 @@
 package com.ibm.safe.j2se.structural;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.ibm.safe.core.tests.SafeMessageCheck;
 import com.ibm.safe.core.tests.SafeRegressionDriver;
 import com.ibm.safe.core.tests.SafeTCase;
 import com.ibm.safe.internal.exceptions.SafeException;
 import com.ibm.safe.lightweight.tests.LightweightRegressionUnit;
+import com.ibm.safe.reporting.message.Message;
 
 public final class AccessibilityRulesTest extends SafeTCase {
 
@@ -13,4 +20,36 @@ public final class AccessibilityRulesTest extends SafeTCase {
     SafeRegressionDriver.run(test);
   }
 
+  /**
+   * Classes decoded on several threads must give the findings of a serial
+   * scan.
+   */
+  public void testCaseAccessibilityParallel() throws SafeException, Exception {
+    List<String> serial = runAccessibility(1);
+    assertEquals(37, serial.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(serial, runAccessibility(4));
+    }
+  }
+
+  // --- Private code
+
+  /**
+   * @return the findings of a run, as sorted text
+   */
+  private static List<String> runAccessibility(int threads) throws SafeException, Exception {
+    final LightweightRegressionUnit test = new LightweightRegressionUnit("AccessibilityExamples", 37);
+    test.selectStructuralAccessibilityAnalysis();
+    test.setStructuralThreads(threads);
+    final List<String> findings = new ArrayList<String>();
+    SafeRegressionDriver.run(test, new SafeMessageCheck() {
+      public void check(Collection<? extends Message> messages) {
+        for (Message m : messages) {
+          findings.add(m.getLocation() + ": " + m.getText());
+        }
+      }
+    });
+    Collections.sort(findings);
+    return findings;
+  }
 }
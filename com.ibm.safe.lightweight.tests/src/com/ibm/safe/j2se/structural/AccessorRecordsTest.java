@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.structural;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.secure.accessibility.AccessorRecords;
+
+public final class AccessorRecordsTest extends SafeTCase {
+
+  public void testNoAccessors() {
+    AccessorRecords records = new AccessorRecords(3, Collections.<AccessorRecords.Accesses> emptyList());
+    for (int t = 0; t < 3; t++) {
+      assertEquals(0, records.firstAccessor(t));
+      assertEquals(0, records.endAccessor(t));
+    }
+  }
+
+  public void testAccessorsByTargetInScanOrder() {
+    AccessorRecords.Accesses first = new AccessorRecords.Accesses();
+    first.add(2, 10, 11, 12, 13, 14);
+    first.add(0, 20, 21, 22, 23, 24);
+    AccessorRecords.Accesses second = new AccessorRecords.Accesses();
+    second.add(2, 30, 31, 32, 33, 34);
+    AccessorRecords records = new AccessorRecords(3, Arrays.asList(first, second));
+
+    assertAccessors(records, 0, new int[][] { { 20, 21, 22, 23, 24 } });
+    assertAccessors(records, 1, new int[0][]);
+    assertAccessors(records, 2, new int[][] { { 10, 11, 12, 13, 14 }, { 30, 31, 32, 33, 34 } });
+  }
+
+  /**
+   * Many accessors of a few targets, so that the scans grow past their
+   * initial capacity.
+   */
+  public void testManyAccessors() {
+    List<AccessorRecords.Accesses> scans = new ArrayList<AccessorRecords.Accesses>();
+    for (int s = 0; s < 4; s++) {
+      AccessorRecords.Accesses scan = new AccessorRecords.Accesses();
+      for (int i = 0; i < 1000; i++) {
+        scan.add(i % 5, s, i, 0, 0, 0);
+      }
+      scans.add(scan);
+    }
+    AccessorRecords records = new AccessorRecords(5, scans);
+    for (int t = 0; t < 5; t++) {
+      assertEquals(4 * 200 * AccessorRecords.RECORD_SIZE, records.endAccessor(t) - records.firstAccessor(t));
+      int previousScan = 0;
+      int previousClass = -1;
+      for (int a = records.firstAccessor(t); a < records.endAccessor(t); a += AccessorRecords.RECORD_SIZE) {
+        int scan = records.getAccessorLoader(a);
+        int klass = records.getAccessorClass(a);
+        assertEquals(t, klass % 5);
+        // in scan order, then in the order of each scan
+        assertTrue(scan > previousScan || (scan == previousScan && klass > previousClass));
+        previousScan = scan;
+        previousClass = klass;
+      }
+    }
+    assertEquals(records.endAccessor(4), 4 * 1000 * AccessorRecords.RECORD_SIZE);
+  }
+
+  // --- Private code
+
+  private static void assertAccessors(AccessorRecords records, int target, int[][] expected) {
+    List<String> actual = new ArrayList<String>();
+    for (int a = records.firstAccessor(target); a < records.endAccessor(target); a += AccessorRecords.RECORD_SIZE) {
+      actual.add(Arrays.toString(new int[] { records.getAccessorLoader(a), records.getAccessorClass(a),
+          records.getAccessorPackage(a), records.getAccessingLoader(a), records.getAccessingPackage(a) }));
+    }
+    List<String> wanted = new ArrayList<String>();
+    for (int[] record : expected) {
+      wanted.add(Arrays.toString(record));
+    }
+    assertEquals(wanted, actual);
+  }
+}
@@ -21,6 +21,7 @@ public class J2SEStructuralSuite {
     suite.addTestSuite(RecurseTest.class);
     suite.addTestSuite(SCCPTest.class);
     suite.addTestSuite(AccessibilityRulesTest.class);
+    suite.addTestSuite(AccessorRecordsTest.class);
     suite.addTestSuite(CloneableTest.class);
 
     return suite;
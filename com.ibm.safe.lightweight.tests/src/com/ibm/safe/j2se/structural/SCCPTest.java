@@ -69,6 +69,20 @@ public final class SCCPTest extends SafeTCase {
     SafeRegressionDriver.run(test);
   }
 
+  /**
+   * same as {@link #testSCCP3()}, processing classes on several threads
+   * 
+   * @throws SafeException
+   * @throws Exception
+   */
+  public void testSCCP3Concurrent() throws SafeException, Exception {
+    LightweightRegressionUnit test = new LightweightRegressionUnit("j2se.structural.SCCPExample3", 4);
+    test.selectStructuralRule("ConstantCondition");
+    test.selectStructuralAnalysis();
+    test.setStructuralThreads(4);
+    SafeRegressionDriver.run(test);
+  }
+
   /**
    * expected result - Warning: Potential null dereference
    * (j2se.structural.SCCPExample4.SCCPExample4(int, boolean,
@@ -48,6 +48,10 @@ public class LightweightRegressionUnit extends SafeRegressionUnit {
     setOption(LightweightProperties.Props.SELECT_STRUCTURAL_RULES.getName(), ruleName);
   }
 
+  public void setStructuralThreads(int n) {
+    setIntegerOption(LightweightProperties.Props.STRUCTURAL_THREADS.getName(), n);
+  }
+
   private String getStructuralRulesDirs() throws SafeException {
     return createRulesDirsOption(STRUCTURAL_SUBDIR);
   }
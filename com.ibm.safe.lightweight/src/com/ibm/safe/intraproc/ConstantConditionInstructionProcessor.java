@@ -16,6 +16,8 @@ import java.util.Map;
 
 import com.ibm.safe.intraproc.sccp.SCCPValue;
 import com.ibm.safe.processors.BaseInstructionProcessor;
+import com.ibm.safe.processors.InstructionProcessor;
+import com.ibm.safe.processors.ParallelProcessor;
 import com.ibm.safe.reporting.message.Location;
 import com.ibm.safe.reporting.message.Message;
 import com.ibm.safe.reporting.message.MethodLocation;
@@ -35,7 +37,8 @@ import com.ibm.wala.util.CancelException;
  * 
  * @author Eran Yahav (yahave)
  */
-public class ConstantConditionInstructionProcessor extends BaseInstructionProcessor {
+public class ConstantConditionInstructionProcessor extends BaseInstructionProcessor implements
+    ParallelProcessor<InstructionProcessor> {
 
   /**
    * visitor for identifying instructions with constant conditions
@@ -150,6 +153,21 @@ public class ConstantConditionInstructionProcessor extends BaseInstructionProces
     return result;
   }
 
+  public boolean canFork() {
+    return true;
+  }
+
+  public InstructionProcessor fork() {
+    return new ConstantConditionInstructionProcessor(rule);
+  }
+
+  /**
+   * nothing to merge: results are collected per instruction by the enclosing
+   * method processor
+   */
+  public void merge(InstructionProcessor forked) {
+  }
+
   /**
    * ConstantConditionVisitor identifies conditionals that compare constant
    * values, and are therefore meaningless.
@@ -17,14 +17,18 @@ import java.util.Iterator;
 import java.util.Set;
 
 import com.ibm.safe.processors.BaseMethodProcessor;
+import com.ibm.safe.processors.IRCache;
+import com.ibm.safe.processors.MethodProcessor;
+import com.ibm.safe.processors.ParallelProcessor;
 import com.ibm.safe.reporting.message.Location;
 import com.ibm.safe.rules.StructuralRule;
 import com.ibm.safe.structural.impl.StructuralMessage;
+import com.ibm.safe.utils.ConeDispatchCache;
 import com.ibm.safe.utils.ReceiverTypeInference;
+import com.ibm.safe.utils.ReceiverTypeInferenceCache;
 import com.ibm.wala.analysis.typeInference.ConeType;
 import com.ibm.wala.analysis.typeInference.PointType;
 import com.ibm.wala.analysis.typeInference.TypeAbstraction;
-import com.ibm.wala.analysis.typeInference.TypeInference;
 import com.ibm.wala.cfg.CFGSanitizer;
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -32,17 +36,10 @@ import com.ibm.wala.classLoader.CodeScanner;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
-import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
-import com.ibm.wala.ipa.callgraph.AnalysisOptions;
-import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.ssa.CompoundPiPolicy;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.ISSABasicBlock;
-import com.ibm.wala.ssa.InstanceOfPiPolicy;
-import com.ibm.wala.ssa.NullTestPiPolicy;
-import com.ibm.wala.ssa.SSAPiNodePolicy;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.Predicate;
 import com.ibm.wala.util.WalaException;
@@ -54,7 +51,7 @@ import com.ibm.wala.util.graph.traverse.DFS;
  * @author sfink
  * @author yahave
  */
-public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
+public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor implements ParallelProcessor<MethodProcessor> {
 
   private static final int UNKNOWN_LINE_NUMBER = -1;
 
@@ -67,12 +64,37 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
    */
   private StructuralRule rule;
 
+  /**
+   * Receiver types of the methods whose IR is in irCache, shared with the
+   * forks of this processor.
+   */
+  private final ReceiverTypeInferenceCache rtiCache;
+
+  /**
+   * Dispatch targets of cone types, shared with the forks of this processor.
+   */
+  private final ConeDispatchCache dispatchCache;
+
   /**
    * Initializes rule field and let the other fields to their default value.
    */
   public InfiniteRecursionMethodProcessor(final StructuralRule structuralRule, IClassHierarchy cha) {
-    super(cha);
+    this(structuralRule, cha, new IRCache());
+  }
+
+  /**
+   * Initializes rule field, sharing IR with the other method processors.
+   */
+  public InfiniteRecursionMethodProcessor(final StructuralRule structuralRule, IClassHierarchy cha, IRCache irCache) {
+    this(structuralRule, cha, irCache, new ReceiverTypeInferenceCache(), new ConeDispatchCache(cha));
+  }
+
+  private InfiniteRecursionMethodProcessor(final StructuralRule structuralRule, IClassHierarchy cha, IRCache irCache,
+      ReceiverTypeInferenceCache rtiCache, ConeDispatchCache dispatchCache) {
+    super(cha, irCache);
     this.rule = structuralRule;
+    this.rtiCache = rtiCache;
+    this.dispatchCache = dispatchCache;
   }
 
   /**
@@ -93,7 +115,8 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
       return;
     }
     try {
-      boolean mayInfiniteRecursion = InfiniteRecursionMethodProcessor.checkMethod(method, classHierarchy);
+      boolean mayInfiniteRecursion = InfiniteRecursionMethodProcessor.checkMethod(method, classHierarchy, irCache, rtiCache,
+          dispatchCache);
       if (mayInfiniteRecursion) {
         Location currLocation = Location.createMethodLocation(method.getDeclaringClass().getName(), method.getSelector(),
             UNKNOWN_LINE_NUMBER);
@@ -112,6 +135,18 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
     return result;
   }
 
+  public boolean canFork() {
+    return true;
+  }
+
+  public MethodProcessor fork() {
+    return new InfiniteRecursionMethodProcessor(rule, cha, irCache, rtiCache, dispatchCache);
+  }
+
+  public void merge(MethodProcessor forked) {
+    result.addAll(((InfiniteRecursionMethodProcessor) forked).result);
+  }
+
   /**
    * @param m
    * @param cha
@@ -119,6 +154,38 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
    * @throws WalaException
    */
   public static boolean checkMethod(IMethod m, ClassHierarchy cha) throws WalaException {
+    return checkMethod(m, cha, new IRCache());
+  }
+
+  /**
+   * @param m
+   * @param cha
+   * @param irCache
+   *            source of m's IR
+   * @return true iff m looks like it suffers from infinite recursion
+   * @throws WalaException
+   */
+  public static boolean checkMethod(IMethod m, ClassHierarchy cha, IRCache irCache) throws WalaException {
+    return checkMethod(m, cha, irCache, new ReceiverTypeInferenceCache(), new ConeDispatchCache(cha));
+  }
+
+  /**
+   * @param m
+   * @param cha
+   * @param irCache
+   *            source of m's IR
+   * @param rtiCache
+   *            source of the receiver types of m's call sites
+   * @param dispatchCache
+   *            source of the targets of virtual calls on cone types
+   * @return true iff m looks like it suffers from infinite recursion
+   * @throws WalaException
+   */
+  public static boolean checkMethod(IMethod m, ClassHierarchy cha, IRCache irCache, ReceiverTypeInferenceCache rtiCache,
+      ConeDispatchCache dispatchCache) throws WalaException {
+    if (dispatchCache.getClassHierarchy() != cha) {
+      dispatchCache = new ConeDispatchCache(cha);
+    }
     try {
       if (m.isAbstract()) {
         return false;
@@ -147,12 +214,12 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
           }
         } else {
           if (ir == null) {
-            ir = makeIR(m, cha);
-            rti = makeRTI(ir);
+            ir = irCache.findOrCreateIR(m, IRCache.piNodeOptions());
+            rti = rtiCache.findOrCreate(ir);
           }
           TypeAbstraction t = rti.getReceiverType(site);
           if (t != null) {
-            Collection<IMethod> possibleTargets = getPossibleTargets(t, cha, site);
+            Collection<IMethod> possibleTargets = getPossibleTargets(t, dispatchCache, site);
             if (possibleTargets.size() == 1) {
               IMethod targetMethod = possibleTargets.iterator().next();
               if (targetMethod != null && targetMethod.equals(m)) {
@@ -167,7 +234,7 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
         return false;
       }
       if (ir == null) {
-        ir = makeIR(m, cha);
+        ir = irCache.findOrCreateIR(m, IRCache.piNodeOptions());
       }
       // compute a "cleaned CFG", ignoring undeclared exceptional edges to
       // exit()
@@ -199,49 +266,19 @@ public class InfiniteRecursionMethodProcessor extends BaseMethodProcessor {
     }
   }
 
-  private static Collection<IMethod> getPossibleTargets(TypeAbstraction t, ClassHierarchy cha, CallSiteReference site)
-      throws WalaException {
-    HashSet<IMethod> result = HashSetFactory.make();
+  private static Collection<IMethod> getPossibleTargets(TypeAbstraction t, ConeDispatchCache dispatchCache,
+      CallSiteReference site) throws WalaException {
     if (t instanceof ConeType) {
-      ConeType cone = (ConeType) t;
-      if (cone.getType().isInterface()) {
-        Set<IClass> implementors = cha.getImplementors(cone.getType().getReference());
-        for (Iterator<IClass> it = implementors.iterator(); it.hasNext();) {
-          IClass klass = it.next();
-          IMethod target = cha.resolveMethod(klass, site.getDeclaredTarget().getSelector());
-          result.add(target);
-        }
-      } else {
-        Collection<IClass> subTypes = cha.computeSubClasses(t.getType().getReference());
-        for (Iterator<IClass> it = subTypes.iterator(); it.hasNext();) {
-          IClass klass = it.next();
-          IMethod target = cha.resolveMethod(klass, site.getDeclaredTarget().getSelector());
-          result.add(target);
-        }
-      }
+      return dispatchCache.getConeTargets(((ConeType) t).getType(), site.getDeclaredTarget().getSelector());
     } else if (t instanceof PointType) {
-      IMethod target = cha.resolveMethod(t.getType(), site.getDeclaredTarget().getSelector());
-      result.add(target);
+      IMethod target = dispatchCache.getClassHierarchy().resolveMethod(t.getType(), site.getDeclaredTarget().getSelector());
+      return Collections.singleton(target);
     } else if (t.equals(TypeAbstraction.TOP)) {
       // type inference failed. give up
       return Collections.emptySet();
     } else {
       throw new WalaException("internal error: " + t.getClass());
     }
-    return result;
-  }
-
-  private static ReceiverTypeInference makeRTI(IR ir) throws WalaException {
-    TypeInference t = TypeInference.make(ir, false);
-    return new ReceiverTypeInference(t);
-  }
-
-  private static IR makeIR(IMethod m, ClassHierarchy cha) throws WalaException {
-    AnalysisOptions options = new AnalysisOptions();
-    SSAPiNodePolicy policy = CompoundPiPolicy.createCompoundPiPolicy(InstanceOfPiPolicy.createInstanceOfPiPolicy(), NullTestPiPolicy.createNullTestPiPolicy());
-    options.getSSAOptions().setPiNodePolicy(policy);
-    IR ir = new AnalysisCacheImpl().getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options.getSSAOptions());
-    return ir;
   }
 
 }
@@ -20,28 +20,24 @@ import com.ibm.safe.intraproc.sccp.NewSCCPSolver;
 import com.ibm.safe.intraproc.sccp.SCCPSolver;
 import com.ibm.safe.intraproc.sccp.SCCPValue;
 import com.ibm.safe.processors.BaseMethodProcessor;
+import com.ibm.safe.processors.IRCache;
 import com.ibm.safe.processors.InstructionProcessor;
+import com.ibm.safe.processors.MethodProcessor;
+import com.ibm.safe.processors.ParallelProcessor;
 import com.ibm.safe.reporting.message.Message;
 import com.ibm.safe.utils.Trace;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
-import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
-import com.ibm.wala.ipa.callgraph.AnalysisOptions;
-import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.ssa.CompoundPiPolicy;
 import com.ibm.wala.ssa.IR;
-import com.ibm.wala.ssa.InstanceOfPiPolicy;
-import com.ibm.wala.ssa.NullTestPiPolicy;
 import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAPiNodePolicy;
 import com.ibm.wala.util.CancelException;
 
 /**
  * @author Eran Yahav (yahave)
  * 
  */
-public class SCCPMethodProcessor extends BaseMethodProcessor {
+public class SCCPMethodProcessor extends BaseMethodProcessor implements ParallelProcessor<MethodProcessor> {
 
   private final static boolean DEBUG = false;
 
@@ -53,15 +49,16 @@ public class SCCPMethodProcessor extends BaseMethodProcessor {
     super(cha);
   }
 
+  public SCCPMethodProcessor(IClassHierarchy cha, IRCache irCache) {
+    super(cha, irCache);
+  }
+
   public void process(IMethod method) throws CancelException {
     if (method.isAbstract() || method.isNative()) {
       return;
     }
 
-    AnalysisOptions options = new AnalysisOptions();
-    SSAPiNodePolicy policy = CompoundPiPolicy.createCompoundPiPolicy(InstanceOfPiPolicy.createInstanceOfPiPolicy(), NullTestPiPolicy.createNullTestPiPolicy());
-    options.getSSAOptions().setPiNodePolicy(policy);
-    IR ir = new AnalysisCacheImpl().getSSACache().findOrCreateIR(method, Everywhere.EVERYWHERE, options.getSSAOptions());
+    IR ir = irCache.findOrCreateIR(method, IRCache.piNodeOptions());
     if (ir == null) {
       return;
     }
@@ -69,7 +66,7 @@ public class SCCPMethodProcessor extends BaseMethodProcessor {
     Map<Integer, SCCPValue> methodConstants = null;
 
     if (NEW_SOLVER) {
-      NewSCCPSolver solver = new NewSCCPSolver(ir);
+      NewSCCPSolver solver = new NewSCCPSolver(ir, irCache.findOrCreateDU(ir));
       solver.solve();
       methodConstants = solver.getConstantValues();
     } else {
@@ -117,4 +114,29 @@ public class SCCPMethodProcessor extends BaseMethodProcessor {
     return violations;
   }
 
+  /**
+   * May be forked when all its instruction processors may.
+   */
+  public boolean canFork() {
+    for (InstructionProcessor ip : instructionProcessors) {
+      if (!(ip instanceof ParallelProcessor) || !((ParallelProcessor<?>) ip).canFork()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public MethodProcessor fork() {
+    SCCPMethodProcessor result = new SCCPMethodProcessor(cha, irCache);
+    for (InstructionProcessor ip : instructionProcessors) {
+      result.addInstructionProcessor(((ParallelProcessor<InstructionProcessor>) ip).fork());
+    }
+    return result;
+  }
+
+  public void merge(MethodProcessor forked) {
+    violations.addAll(((SCCPMethodProcessor) forked).violations);
+  }
+
 }
\ No newline at end of file
@@ -133,7 +133,19 @@ public class NewSCCPSolver {
    * @param ir
    */
   public NewSCCPSolver(IR ir) {
+    this(ir, new DefUse(ir));
+  }
+
+  /**
+   * create a new solver for a given IR
+   * 
+   * @param ir
+   * @param du
+   *          def-use information for ir
+   */
+  public NewSCCPSolver(IR ir, DefUse du) {
     assert ir != null;
+    assert du != null;
 
     if (DEBUG) {
       Trace.println("Creating New SCCP Solver");
@@ -153,7 +165,7 @@ public class NewSCCPSolver {
 
     edgeDictionary = new EdgeDictionary();
 
-    defUse = new DefUse(ir);
+    defUse = du;
     this.st = ir.getSymbolTable();
     init(ir, this.new SCCPVarFactory());
 
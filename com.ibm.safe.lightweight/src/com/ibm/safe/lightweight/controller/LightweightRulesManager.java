@@ -20,6 +20,7 @@ import com.ibm.safe.lightweight.options.LightweightProperties.Props;
 import com.ibm.safe.properties.PropertiesManager;
 import com.ibm.safe.rules.IRule;
 import com.ibm.safe.rules.StructuralRule;
+import com.ibm.safe.structural.xml.XPathQueryRegistry;
 
 public class LightweightRulesManager extends RulesManager {
 
@@ -39,6 +40,7 @@ public class LightweightRulesManager extends RulesManager {
       }
     }
     applyFilters(this.structuralRules, allStructurals, propertiesManager.getStringValue(Props.SELECT_STRUCTURAL_RULES));
+    XPathQueryRegistry.register(getStructuralRules());
   }
 
   public StructuralRule[] getStructuralRules() {
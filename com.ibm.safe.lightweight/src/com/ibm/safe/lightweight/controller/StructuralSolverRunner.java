@@ -56,12 +56,12 @@ public final class StructuralSolverRunner extends AbstractSolverRunner {
 
     ISafeSolver[] solvers = null;
     StructuralOptions structuralOptions = new StructuralOptions(this.rules, getClassFilterList(), getDumpXMLDirectory(),
-        shouldCollectStatistics(), pessimisticEval());
+        shouldCollectStatistics(), pessimisticEval(), getStructuralThreadCount());
     SubProgressMonitor subProgressMonitor = new SubProgressMonitor(monitor, 5);
 
     try {
       if (getModulesCodeKind(commonOptions) == CodeKind.J2SE) {
-        IClassHierarchy cha = StructuralSolverRunner.createJ2SEClassHierarchy(getManager(), getPerformanceTracker(), monitor);
+        IClassHierarchy cha = getAnalysisSession().getOrCreateClassHierarchy(getManager(), getPerformanceTracker(), monitor);
         solvers = StructuralSolverRunner.createSolversStatic(cha, structuralOptions.getClassFilter(), structuralOptions,
             getReporter());
       } else {
@@ -107,6 +107,10 @@ public final class StructuralSolverRunner extends AbstractSolverRunner {
     return this.propertiesManager.getBooleanValue(Props.PESSIMISTIC_EVAL);
   }
 
+  protected final int getStructuralThreadCount() throws PropertiesException {
+    return this.propertiesManager.getIntValue(Props.STRUCTURAL_THREADS);
+  }
+
   public static ISafeSolver[] createSolversStatic(IClassHierarchy cha, Predicate<IClass> classFilter, IStructuralOptions sOptions,
       IReporter reporter) {
     return new ISafeSolver[] { new StructuralSolver(cha, classFilter, null /* callGraph */, null /* pointerAnalysis */, sOptions,
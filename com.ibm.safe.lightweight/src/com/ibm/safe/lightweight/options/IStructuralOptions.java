@@ -63,4 +63,10 @@ public interface IStructuralOptions {
    */
   public boolean pessimisticEval();
 
+  /**
+   * Returns the number of threads processing classes; 1 processes them one
+   * after another on the calling thread.
+   */
+  public int getThreadCount();
+
 }
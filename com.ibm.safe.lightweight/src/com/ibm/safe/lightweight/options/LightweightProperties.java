@@ -34,7 +34,8 @@ public class LightweightProperties {
     DUMP_XML_DIRECTORY("dump_xml", Type.STRING, "Specifies that we should dump created XMLs for Java code inspected."), SELECT_CLASSES(
         "select_classes", Type.STRING, "Selects a set of classes to analyze among the modules identified."), SELECT_STRUCTURAL_RULES(
         "select_structural_rules", Type.STRING, "Selects a list of structural rules to apply (file name without extension XMI)."), PESSIMISTIC_EVAL(
-        "pessimistic_eval", Type.BOOLEAN, "Use pessimistic evaluation.");
+        "pessimistic_eval", Type.BOOLEAN, "Use pessimistic evaluation."), STRUCTURAL_THREADS("structural_threads", Type.INT, 1,
+        "Number of threads processing classes for structural rules (1 processes them one after another).");
 
     private final String name;
 
@@ -46,6 +47,14 @@ public class LightweightProperties {
 
     private final String description;
 
+    Props(final String name, final Type type, final int defaultInt, final String description) {
+      this.name = name;
+      this.type = type;
+      this.description = description;
+      this.cmdLine = true;
+      this.defaultString = String.valueOf(defaultInt);
+    }
+
     Props(final String name, final Type type, final String description) {
       this.name = name;
       this.type = type;
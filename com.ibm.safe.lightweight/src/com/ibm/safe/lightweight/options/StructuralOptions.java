@@ -31,15 +31,23 @@ public final class StructuralOptions implements IStructuralOptions {
 
   private boolean pessimisticEval;
 
+  private final int threadCount;
+
   private static final char[] REGULAR_EXP_CHARS = { '*', '[', '(', '{', '\\', '|', '?', '+' };
 
   public StructuralOptions(final IRule[] structuralRules, final String[] classFilterList, final String dumpXMLDirectory,
       final boolean shouldCollectStatistics, final boolean pessimisticEval) {
+    this(structuralRules, classFilterList, dumpXMLDirectory, shouldCollectStatistics, pessimisticEval, 1);
+  }
+
+  public StructuralOptions(final IRule[] structuralRules, final String[] classFilterList, final String dumpXMLDirectory,
+      final boolean shouldCollectStatistics, final boolean pessimisticEval, final int threadCount) {
     this.classFilter = createClassFilter(classFilterList);
     this.rules = structuralRules;
     this.dumpXMLDir = dumpXMLDirectory;
     this.collectStatistics = shouldCollectStatistics;
     this.pessimisticEval = pessimisticEval;
+    this.threadCount = threadCount;
   }
 
   // --- Interface methods implementation
@@ -117,4 +125,8 @@ public final class StructuralOptions implements IStructuralOptions {
     return pessimisticEval;
   }
 
+  public int getThreadCount() {
+    return threadCount;
+  }
+
 }
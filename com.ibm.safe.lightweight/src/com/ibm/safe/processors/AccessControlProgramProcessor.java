@@ -30,6 +30,8 @@ public class AccessControlProgramProcessor implements ProgramProcessor {
 
   private Set<? extends Message> messages;
 
+  private int threadCount = 1;
+
   public AccessControlProgramProcessor(IClassHierarchy classHierarchy, StructuralRule[] theStructuralRules,
       final Predicate<IClass> someClassFilter) {
     this.classHierarchy = classHierarchy;
@@ -37,8 +39,17 @@ public class AccessControlProgramProcessor implements ProgramProcessor {
     this.classFilter = someClassFilter;
   }
 
+  /**
+   * @param threadCount
+   *          number of threads scanning classes for accessors
+   */
+  public void setThreadCount(int threadCount) {
+    assert threadCount > 0;
+    this.threadCount = threadCount;
+  }
+
   public void process() {
-    AccessibilityAnalyzer analyzer = new AccessibilityAnalyzer();
+    AccessibilityAnalyzer analyzer = new AccessibilityAnalyzer(threadCount);
     messages = analyzer.process(classHierarchy, this.structuralRules, this.classFilter);
   }
 
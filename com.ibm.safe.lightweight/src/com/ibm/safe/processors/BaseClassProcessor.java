@@ -29,7 +29,7 @@ import com.ibm.wala.util.CancelException;
  * @author Eran Yahav (yahave)
  * 
  */
-public class BaseClassProcessor implements ClassProcessor {
+public class BaseClassProcessor implements ClassProcessor, ParallelProcessor<ClassProcessor> {
 
   private final static boolean DEBUG = false;
 
@@ -93,4 +93,34 @@ public class BaseClassProcessor implements ClassProcessor {
     return null;
   }
 
+  /**
+   * A base class processor may be forked when all its method processors may.
+   */
+  public boolean canFork() {
+    for (MethodProcessor mp : methodProcessors) {
+      if (!(mp instanceof ParallelProcessor) || !((ParallelProcessor<?>) mp).canFork()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public ClassProcessor fork() {
+    BaseClassProcessor result = new BaseClassProcessor(classHierarchy, callGraph);
+    for (MethodProcessor mp : methodProcessors) {
+      result.addMethodProcessor(((ParallelProcessor<MethodProcessor>) mp).fork());
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  public void merge(ClassProcessor forked) {
+    List<MethodProcessor> forkedProcessors = ((BaseClassProcessor) forked).methodProcessors;
+    assert forkedProcessors.size() == methodProcessors.size();
+    for (int i = 0; i < methodProcessors.size(); i++) {
+      ((ParallelProcessor<MethodProcessor>) methodProcessors.get(i)).merge(forkedProcessors.get(i));
+    }
+  }
+
 }
\ No newline at end of file
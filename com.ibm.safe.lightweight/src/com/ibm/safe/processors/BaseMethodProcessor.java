@@ -16,16 +16,9 @@ import java.util.List;
 
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
-import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
-import com.ibm.wala.ipa.callgraph.AnalysisOptions;
-import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.ssa.CompoundPiPolicy;
 import com.ibm.wala.ssa.IR;
-import com.ibm.wala.ssa.InstanceOfPiPolicy;
-import com.ibm.wala.ssa.NullTestPiPolicy;
 import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAPiNodePolicy;
 import com.ibm.wala.util.CancelException;
 
 /**
@@ -38,8 +31,18 @@ public class BaseMethodProcessor implements MethodProcessor {
 
   protected final IClassHierarchy cha;
 
+  /**
+   * IR shared with the other method processors
+   */
+  protected final IRCache irCache;
+
   public BaseMethodProcessor(IClassHierarchy cha) {
+    this(cha, new IRCache());
+  }
+
+  public BaseMethodProcessor(IClassHierarchy cha, IRCache irCache) {
     this.cha = cha;
+    this.irCache = irCache;
   }
 
   public void processProlog(IMethod method) {
@@ -56,10 +59,7 @@ public class BaseMethodProcessor implements MethodProcessor {
       return;
     }
 
-    AnalysisOptions options = new AnalysisOptions();
-    SSAPiNodePolicy policy = CompoundPiPolicy.createCompoundPiPolicy(InstanceOfPiPolicy.createInstanceOfPiPolicy(), NullTestPiPolicy.createNullTestPiPolicy());
-    options.getSSAOptions().setPiNodePolicy(policy);
-    IR ir = new AnalysisCacheImpl().getSSACache().findOrCreateIR(method, Everywhere.EVERYWHERE, options.getSSAOptions());
+    IR ir = irCache.findOrCreateIR(method, IRCache.piNodeOptions());
     if (ir == null) {
       return;
     }
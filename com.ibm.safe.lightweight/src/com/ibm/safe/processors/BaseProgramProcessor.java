@@ -14,15 +14,25 @@
 package com.ibm.safe.processors;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import com.ibm.safe.cha.J2SEClassHierarchyEngine;
 import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.utils.SafeLogger;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
@@ -54,6 +64,25 @@ public class BaseProgramProcessor implements ProgramProcessor {
 
   private final IProgressMonitor progressMonitor;
 
+  /**
+   * IR shared by all method processors of this run
+   */
+  private final IRCache irCache = new IRCache();
+
+  /**
+   * number of threads processing classes; 1 processes them on the calling
+   * thread
+   */
+  private int threadCount = 1;
+
+  private static final long MONITOR_POLL_MILLIS = 200;
+
+  /**
+   * pools by number of threads, shared by all runs so that their workers are
+   * not started again for each run; their threads are daemons
+   */
+  private static final Map<Integer, ForkJoinPool> pools = new HashMap<Integer, ForkJoinPool>();
+
   public BaseProgramProcessor(IClassHierarchy hierarchy, CallGraph callGraph, IReporter safeReporter, Predicate<IClass> classFilter,
       IProgressMonitor monitor) {
     assert (hierarchy != null);
@@ -75,6 +104,25 @@ public class BaseProgramProcessor implements ProgramProcessor {
     return baseClassProcessor;
   }
 
+  /**
+   * @return the IR cache which method processors added to this program
+   *         processor should use
+   */
+  public IRCache getIRCache() {
+    return irCache;
+  }
+
+  /**
+   * Process classes on the given number of threads. Only class processors
+   * which are {@link ParallelProcessor}s that can fork run on those threads,
+   * each thread using its own copies; the others then run on the calling
+   * thread.
+   */
+  public void setThreadCount(int threadCount) {
+    assert threadCount > 0;
+    this.threadCount = threadCount;
+  }
+
   public void process() throws CancelException {
     this.progressMonitor.beginTask(null, 10);
     final IClass[] classes = getAcceptedClasses();
@@ -83,22 +131,210 @@ public class BaseProgramProcessor implements ProgramProcessor {
     final IProgressMonitor subMonitor = new SubProgressMonitor(this.progressMonitor, 8);
     subMonitor.beginTask(null, classes.length);
 
-    for (int i = 0; i < classes.length; ++i) {
-      final IClass currentClass = classes[i];
-      reporter.process(currentClass);
+    final List<ClassProcessor> forkable = new ArrayList<ClassProcessor>();
+    final List<ClassProcessor> serial = new ArrayList<ClassProcessor>();
+    for (ClassProcessor cp : classProcessors) {
+      if (cp instanceof ParallelProcessor && ((ParallelProcessor<?>) cp).canFork()) {
+        forkable.add(cp);
+      } else {
+        serial.add(cp);
+      }
+    }
+
+    if (threadCount > 1 && classes.length > 1 && !forkable.isEmpty()) {
+      if (processConcurrently(classes, forkable, subMonitor)) {
+        for (int i = 0; i < classes.length && !serial.isEmpty(); ++i) {
+          if (this.progressMonitor.isCanceled())
+            break;
+          processClass(classes[i], serial);
+        }
+      }
+    } else {
+      for (int i = 0; i < classes.length; ++i) {
+        final IClass currentClass = classes[i];
+        reporter.process(currentClass);
+
+        if (this.progressMonitor.isCanceled())
+          break;
+        subMonitor.subTask("Process structural rules on class " + getClassName(currentClass));
+
+        processClass(currentClass, classProcessors);
+
+        subMonitor.worked(1);
+      }
+    }
+    SafeLogger.info(irCache.toString() + ", hit rate " + (int) (100 * irCache.getHitRate()) + "%");
+  }
+
+  private static void processClass(final IClass currentClass, final List<ClassProcessor> processors) throws CancelException {
+    for (Iterator<ClassProcessor> it = processors.iterator(); it.hasNext();) {
+      ClassProcessor cp = it.next();
+      cp.processProlog(currentClass);
+      cp.process(currentClass);
+      cp.processEpilog(currentClass);
+    }
+  }
+
+  /**
+   * Process classes with forks of the given processors on a fork-join pool,
+   * while the calling thread reports progress and watches for cancellation.
+   * 
+   * @return false iff processing stopped before all classes were processed
+   */
+  private boolean processConcurrently(final IClass[] classes, final List<ClassProcessor> processors,
+      final IProgressMonitor subMonitor) throws CancelException {
+    final ConcurrentRun run = new ConcurrentRun(classes, processors, Math.max(1, classes.length / (4 * threadCount)));
+    final ForkJoinTask<Void> task = getPool(threadCount).submit(new ClassBatch(run, 0, classes.length));
+    try {
+      int reported = 0;
+      while (true) {
+        try {
+          task.get(MONITOR_POLL_MILLIS, TimeUnit.MILLISECONDS);
+          break;
+        } catch (TimeoutException e) {
+          // still running
+        } finally {
+          final int processed = run.processed.get();
+          if (processed > reported) {
+            subMonitor.worked(processed - reported);
+            reported = processed;
+          }
+        }
+        if (this.progressMonitor.isCanceled()) {
+          // let the workers stop after their current class, as the serial
+          // loop does, so that partial results are merged
+          run.stopped = true;
+        }
+      }
+    } catch (InterruptedException e) {
+      run.stopped = true;
+      // preserve the interrupt for our caller
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      run.stopped = true;
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      if (!task.isDone()) {
+        // the workers stop after their current class; wait for them, so that
+        // their results are merged before we return
+        task.quietlyJoin();
+      }
+    }
+    if (run.cancelException != null) {
+      throw run.cancelException;
+    }
+    return !run.stopped;
+  }
+
+  private static synchronized ForkJoinPool getPool(int threadCount) {
+    ForkJoinPool result = pools.get(Integer.valueOf(threadCount));
+    if (result == null) {
+      result = new ForkJoinPool(threadCount);
+      pools.put(Integer.valueOf(threadCount), result);
+    }
+    return result;
+  }
+
+  /**
+   * State shared by the batches of one concurrent run
+   */
+  private static final class ConcurrentRun {
+    private final IClass[] classes;
+
+    /**
+     * the processors whose forks do the work, and into which results are
+     * merged
+     */
+    private final List<ClassProcessor> processors;
+
+    /**
+     * batches holding at most that many classes are not split further
+     */
+    private final int grain;
+
+    private final AtomicInteger processed = new AtomicInteger();
 
-      if (this.progressMonitor.isCanceled())
-        break;
-      subMonitor.subTask("Process structural rules on class " + getClassName(currentClass));
+    private volatile boolean stopped;
 
-      for (Iterator<ClassProcessor> it = classProcessors.iterator(); it.hasNext();) {
-        ClassProcessor cp = it.next();
-        cp.processProlog(currentClass);
-        cp.process(currentClass);
-        cp.processEpilog(currentClass);
+    private volatile CancelException cancelException;
+
+    ConcurrentRun(IClass[] classes, List<ClassProcessor> processors, int grain) {
+      this.classes = classes;
+      this.processors = processors;
+      this.grain = grain;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<ClassProcessor> fork() {
+      final List<ClassProcessor> result = new ArrayList<ClassProcessor>(processors.size());
+      for (ClassProcessor cp : processors) {
+        result.add(((ParallelProcessor<ClassProcessor>) cp).fork());
       }
+      return result;
+    }
 
-      subMonitor.worked(1);
+    @SuppressWarnings("unchecked")
+    synchronized void merge(List<ClassProcessor> forks) {
+      for (int i = 0; i < processors.size(); i++) {
+        ((ParallelProcessor<ClassProcessor>) processors.get(i)).merge(forks.get(i));
+      }
+    }
+
+    synchronized void cancel(CancelException e) {
+      stopped = true;
+      if (cancelException == null) {
+        cancelException = e;
+      }
+    }
+  }
+
+  /**
+   * Processes classes [from, to) of a run, splitting the range in halves until
+   * it is small enough
+   */
+  private final class ClassBatch extends RecursiveAction {
+    private static final long serialVersionUID = 3170912867206839523L;
+
+    private final ConcurrentRun run;
+
+    private final int from;
+
+    private final int to;
+
+    ClassBatch(ConcurrentRun run, int from, int to) {
+      this.run = run;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > run.grain) {
+        final int middle = (from + to) >>> 1;
+        invokeAll(new ClassBatch(run, from, middle), new ClassBatch(run, middle, to));
+        return;
+      }
+      final List<ClassProcessor> forks = run.fork();
+      try {
+        for (int i = from; i < to && !run.stopped; ++i) {
+          final IClass currentClass = run.classes[i];
+          synchronized (reporter) {
+            reporter.process(currentClass);
+          }
+          processClass(currentClass, forks);
+          run.processed.incrementAndGet();
+        }
+      } catch (CancelException e) {
+        run.cancel(e);
+      } finally {
+        run.merge(forks);
+      }
     }
   }
 
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.processors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ssa.CompoundPiPolicy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.InstanceOfPiPolicy;
+import com.ibm.wala.ssa.NullTestPiPolicy;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SSAPiNodePolicy;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * A size-bounded cache of IR and DefUse, shared by all the method processors
+ * of a structural run, so that each method's IR is built once rather than once
+ * per processor. The least recently used entries are evicted first.
+ * 
+ * Callers should pass {@link #piNodeOptions()} or {@link #defaultOptions()},
+ * so that processors asking for the same kind of IR share the entry.
+ */
+public class IRCache {
+
+  public final static int DEFAULT_MAX_SIZE = 1000;
+
+  private final static SSAOptions PI_NODE_OPTIONS = makePiNodeOptions();
+
+  private final static SSAOptions DEFAULT_OPTIONS = SSAOptions.defaultOptions();
+
+  private final IRFactory<IMethod> irFactory = new DefaultIRFactory();
+
+  private final Map<Pair<IMethod, SSAOptions>, Entry> entries;
+
+  private long hits;
+
+  private long misses;
+
+  public IRCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize
+   *            maximum number of IRs held at once
+   */
+  public IRCache(final int maxSize) {
+    assert maxSize > 0;
+    this.entries = new LinkedHashMap<Pair<IMethod, SSAOptions>, Entry>(16, 0.75f, true /* access order */) {
+      private static final long serialVersionUID = -5320478253715420347L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Pair<IMethod, SSAOptions>, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return options for IR with pi nodes for instanceof and null tests, as used
+   *         by the intraprocedural processors
+   */
+  public static SSAOptions piNodeOptions() {
+    return PI_NODE_OPTIONS;
+  }
+
+  /**
+   * @return default SSA options
+   */
+  public static SSAOptions defaultOptions() {
+    return DEFAULT_OPTIONS;
+  }
+
+  /**
+   * @return the IR of method built with the given options
+   */
+  public IR findOrCreateIR(final IMethod method, final SSAOptions options) {
+    final Pair<IMethod, SSAOptions> key = Pair.make(method, options);
+    synchronized (this) {
+      final Entry e = entries.get(key);
+      if (e != null) {
+        hits++;
+        return e.ir;
+      }
+      misses++;
+    }
+    // build outside the lock, so that threads processing other classes do not
+    // wait for this one; if two threads race, the first IR stored wins
+    final IR ir = irFactory.makeIR(method, Everywhere.EVERYWHERE, options);
+    synchronized (this) {
+      final Entry e = entries.get(key);
+      if (e != null) {
+        return e.ir;
+      }
+      entries.put(key, new Entry(ir));
+      return ir;
+    }
+  }
+
+  /**
+   * @return def-use information for an IR; cached along with the IR if it came
+   *         from this cache
+   */
+  public DefUse findOrCreateDU(final IR ir) {
+    final Entry e;
+    synchronized (this) {
+      e = entries.get(Pair.make(ir.getMethod(), ir.getOptions()));
+      if (e != null && e.ir == ir && e.du != null) {
+        hits++;
+        return e.du;
+      }
+      misses++;
+    }
+    final DefUse du = new DefUse(ir);
+    if (e == null || e.ir != ir) {
+      return du;
+    }
+    synchronized (this) {
+      if (e.du == null) {
+        e.du = du;
+      }
+      return e.du;
+    }
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return fraction of lookups answered from the cache
+   */
+  public synchronized double getHitRate() {
+    final long lookups = hits + misses;
+    return (lookups == 0) ? 0.0 : ((double) hits) / lookups;
+  }
+
+  public synchronized String toString() {
+    return "IR cache: " + hits + " hits, " + misses + " misses, " + entries.size() + " entries";
+  }
+
+  private static SSAOptions makePiNodeOptions() {
+    AnalysisOptions options = new AnalysisOptions();
+    SSAPiNodePolicy policy = CompoundPiPolicy.createCompoundPiPolicy(InstanceOfPiPolicy.createInstanceOfPiPolicy(), NullTestPiPolicy.createNullTestPiPolicy());
+    options.getSSAOptions().setPiNodePolicy(policy);
+    return options.getSSAOptions();
+  }
+
+  private static final class Entry {
+    private final IR ir;
+
+    private DefUse du;
+
+    Entry(final IR ir) {
+      this.ir = ir;
+    }
+  }
+}
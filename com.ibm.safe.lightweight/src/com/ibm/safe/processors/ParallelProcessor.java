@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.processors;
+
+/**
+ * A processor which can be copied so that several threads process classes at
+ * once, each with its own copy, and whose results can then be gathered back.
+ * Processors that do not implement this interface, or whose
+ * {@link #canFork()} answers false, are run on the calling thread only.
+ * 
+ * @param <T>
+ *            the kind of processor
+ */
+public interface ParallelProcessor<T> {
+
+  /**
+   * @return true iff {@link #fork()} yields a copy that may run on another
+   *         thread, concurrently with this processor and its other copies
+   */
+  public boolean canFork();
+
+  /**
+   * @return a processor with the same configuration as this one and no
+   *         results, to be used by a single thread
+   */
+  public T fork();
+
+  /**
+   * add the results gathered by forked, which was returned by {@link #fork()}
+   * on this processor, to the results of this processor
+   */
+  public void merge(T forked);
+}
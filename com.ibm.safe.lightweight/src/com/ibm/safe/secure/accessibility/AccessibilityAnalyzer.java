@@ -18,6 +18,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ibm.safe.cha.J2SEClassHierarchyEngine;
 import com.ibm.safe.reporting.message.Location;
@@ -35,6 +40,7 @@ import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.Predicate;
 
 /**
@@ -71,7 +77,18 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
 
   private List<IClass> classes = new ArrayList<IClass>();
 
+  /**
+   * number of threads scanning classes for accessors
+   */
+  private final int threadCount;
+
   public AccessibilityAnalyzer() {
+    this(1);
+  }
+
+  public AccessibilityAnalyzer(int threadCount) {
+    assert threadCount > 0;
+    this.threadCount = threadCount;
   }
 
   /**
@@ -83,30 +100,31 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
    *            The IStructuralRules representing the accessibility rule for
    *            this analysis
    * @return a Set of Message objects, each Message object representing a
-   *         violation of the <code>rule</code>
+   *         violation of the <code>rule</code>; empty if the calling thread
+   *         was interrupted, which it still is on return
    */
   public Set<StructuralMessage> process(IClassHierarchy cha, StructuralRule[] rules, final Predicate<IClass> classFilter) {
-    Map<AccessibilityTarget, ArrayList<Accessor>> targetsToAccessors = computeAccessibility(cha, classFilter);
+    AccessibilityGraph graph = computeAccessibility(cha, classFilter);
+    if (graph == null) {
+      return new HashSet<StructuralMessage>();
+    }
     if (DEBUG)
-      printAccessibility(targetsToAccessors);
+      printAccessibility(graph);
     Map<Integer, StructuralRule> accessibilityRulesMap = getAccessibilityRules(rules);
-    return computeMemberViolations(targetsToAccessors, accessibilityRulesMap, cha);
+    return computeMemberViolations(graph, accessibilityRulesMap, cha);
   }
 
   /**
-   * For debug purposes, this method prints, for each target member, the set of
-   * methods accessing it.
+   * For debug purposes, this method prints, for each target member, the
+   * numbers of the loader, class and package of the methods accessing it.
    */
-  private void printAccessibility(Map<AccessibilityTarget, ArrayList<Accessor>> targetsToAccessors) {
-    Iterator<Map.Entry<AccessibilityTarget, ArrayList<Accessor>>> targetsToAccessorsIter = targetsToAccessors.entrySet().iterator();
-    while (targetsToAccessorsIter.hasNext()) {
-      Map.Entry<AccessibilityTarget, ArrayList<Accessor>> entry = targetsToAccessorsIter.next();
-      AccessibilityTarget target = (AccessibilityTarget) entry.getKey();
-      System.out.println(target);
-      Iterator<Accessor> accIter = ((List<Accessor>) entry.getValue()).iterator();
-      while (accIter.hasNext()) {
-        AccessibilityMember accessor = (AccessibilityMember) accIter.next();
-        System.out.println(accessor);
+  private void printAccessibility(AccessibilityGraph graph) {
+    for (int t = 0; t < graph.getNumberOfTargets(); t++) {
+      System.out.println(graph.getTarget(t));
+      for (int a = graph.firstAccessor(t); a < graph.endAccessor(t); a += AccessorRecords.RECORD_SIZE) {
+        System.out.println("Accessor: loader " + graph.getAccessorLoader(a) + ", class " + graph.getAccessorClass(a) + ", package "
+            + graph.getAccessorPackage(a) + ", accessing loader " + graph.getAccessingLoader(a) + ", accessing package "
+            + graph.getAccessingPackage(a));
       }
       System.out.println("=======================");
     }
@@ -122,13 +140,15 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
    * @return a Set of Message objects, each of which represents an access
    *         control violation.
    */
-  private Set<StructuralMessage> computeMemberViolations(Map<AccessibilityTarget, ArrayList<Accessor>> targetsToAccessors,
+  private Set<StructuralMessage> computeMemberViolations(AccessibilityGraph graph,
       Map<Integer, StructuralRule> accessibilityRulesMap, IClassHierarchy cha) {
     Set<StructuralMessage> messages = new HashSet<StructuralMessage>();
-    Iterator<Map.Entry<AccessibilityTarget, ArrayList<Accessor>>> targetsToAccessorsIter = targetsToAccessors.entrySet().iterator();
-    while (targetsToAccessorsIter.hasNext()) {
-      Map.Entry<AccessibilityTarget, ArrayList<Accessor>> entry = targetsToAccessorsIter.next();
-      AccessibilityTarget target = (AccessibilityTarget) entry.getKey();
+    for (int t = 0; t < graph.getNumberOfTargets(); t++) {
+      AccessibilityTarget target = graph.getTarget(t);
+      int targetLoader = graph.getTargetLoader(t);
+      int targetPackage = graph.getTargetPackage(t);
+      int first = graph.firstAccessor(t);
+      int end = graph.endAccessor(t);
 
       // Detect if the given target represents a non-private, non-final, static
       // field
@@ -139,8 +159,7 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
       }
 
       int currentModifier = target.getCurrentModifier();
-      List<Accessor> accessors = (List<Accessor>) entry.getValue();
-      if (accessors.isEmpty() && !target.getMemberName().endsWith("<clinit>()V")) {
+      if (first == end && !target.getMemberName().endsWith("<clinit>()V")) {
         Location location = Location.createMethodLocation(target.getClassName(), target.getMemberName());
         StructuralRule rule = null;
         if (target.isField()) {
@@ -171,64 +190,32 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
         target.setSuggestedModifier(currentModifier);
         continue;
       }
-      Iterator<Accessor> accessorsIter = accessors.iterator();
-      // Default scope: see if we can make it private
+
+      // Accessor records keep the package and loader of the class through
+      // which a target is accessed, but not the class itself, so no accessor
+      // shows that a member could be private.
+
+      // Default scope: nothing to do
       if (currentModifier == DEFAULT) {
-        boolean okToBeDefault = false; // assume that it is not OK for this
-        // member to have default scope
-        while (accessorsIter.hasNext()) {
-          Accessor accessor = accessorsIter.next();
-          // If the class to which the target member belongs is not the same as
-          // the class of the accessor
-          if (!target.getClassLoaderName().equals(accessor.getClassLoaderName())
-              || !target.getClassName().equals(accessor.getClassName())
-              || !target.getClassLoaderName().equals(accessor.getAccessingClassLoaderName())
-              || !target.getClassName().equals(accessor.getAccessingClassName())) {
-            okToBeDefault = true;
-            target.setSuggestedModifier(DEFAULT);
-            break;
-          }
-          if (!okToBeDefault) {
-            target.setSuggestedModifier(PRIVATE);
-            Location location;
-            StructuralRule rule;
-            if (target.isField()) {
-              location = Location.createFieldLocation(target.getClassName(), target.getMemberName());
-              rule = accessibilityRulesMap.get(DEFAULT_FIELD_PRIVATE_ID);
-            } else {
-              location = Location.createMethodLocation(target.getClassName(), target.getMemberName());
-              rule = accessibilityRulesMap.get(DEFAULT_METHOD_PRIVATE_ID);
-            }
-            messages.add(new AccessibilityMessage(rule, location, target));
-            if (DEBUG)
-              System.out.println(target + MAKE_PRIVATE);
-          }
+        if (first < end) {
+          target.setSuggestedModifier(DEFAULT);
         }
         continue;
       }
 
       // Protected scope: see if we can make it default or private
       if (currentModifier == PROTECTED) {
-        boolean okNotToBePrivate = false;
+        boolean okNotToBePrivate = first < end;
         boolean okNotToBeDefault = false;
-        while (accessorsIter.hasNext()) {
-          Accessor accessor = (Accessor) accessorsIter.next();
-          if (!target.getClassLoaderName().equals(accessor.getClassLoaderName())
-              || !target.getClassLoaderName().equals(accessor.getAccessingClassLoaderName())) {
+        for (int a = first; a < end; a += AccessorRecords.RECORD_SIZE) {
+          if (targetLoader != graph.getAccessorLoader(a) || targetLoader != graph.getAccessingLoader(a)) {
             // The protected modifier was appropriate.
             okNotToBePrivate = true;
             okNotToBeDefault = true;
             target.setSuggestedModifier(PROTECTED);
             break;
           }
-          if (!target.getClassName().equals(accessor.getClassName())
-              || !target.getClassName().equals(accessor.getAccessingClassName())) {
-            // The private modifier would have been too restrictive.
-            // Either default of protected is appropriate.
-            okNotToBePrivate = true;
-          }
-          if (!target.getPackageName().equals(accessor.getPackageName())
-              || !target.getPackageName().equals(accessor.getAccessingPackageName())) {
+          if (targetPackage != graph.getAccessorPackage(a) || targetPackage != graph.getAccessingPackage(a)) {
             okNotToBeDefault = true;
             target.setSuggestedModifier(PROTECTED);
             break;
@@ -269,27 +256,15 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
 
       // Public scope: see if we can make it protected, default, or private
       if (currentModifier == PUBLIC) {
-        boolean okNotToBePrivate = false;
+        boolean okNotToBePrivate = first < end;
         boolean okNotToBeDefault = false;
         boolean okNotToBeProtected = false;
-        while (accessorsIter.hasNext()) {
-          Accessor accessor = (Accessor) accessorsIter.next();
-          if (!target.getClassLoaderName().equals(accessor.getClassLoaderName())
-              || !target.getClassLoaderName().equals(accessor.getAccessingClassLoaderName())) {
-            okNotToBePrivate = true;
+        for (int a = first; a < end; a += AccessorRecords.RECORD_SIZE) {
+          if (targetLoader != graph.getAccessorLoader(a) || targetLoader != graph.getAccessingLoader(a)
+              || targetPackage != graph.getAccessorPackage(a) || targetPackage != graph.getAccessingPackage(a)) {
             okNotToBeDefault = true;
-          } else {
-            if (!target.getClassName().equals(accessor.getClassName())
-                || !target.getClassName().equals(accessor.getAccessingClassName())) {
-              okNotToBePrivate = true;
-            }
-            if (!target.getPackageName().equals(accessor.getPackageName())
-                || !target.getPackageName().equals(accessor.getAccessingPackageName())) {
-              okNotToBeDefault = true;
-            }
           }
-          if (!target.getPackageName().equals(accessor.getPackageName())
-              && !accessor.getClassName().equals(accessor.getAccessingClassName())) {
+          if (targetPackage != graph.getAccessorPackage(a)) {
             okNotToBeProtected = true;
             target.setSuggestedModifier(PUBLIC);
             break;
@@ -349,13 +324,12 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
       if (Modifier.isDefault(klass.getModifiers())) {
         continue; // Nothing better to do
       }
-      String thisPackageName = AccessibilityMember.computePackageName(klass.getName().toString());
+      int thisPackage = graph.packageId(klass.getName());
       Iterator<IClass> subclasses = cha.getImmediateSubclasses(klass).iterator();
       boolean okToBePublic = false;
       while (subclasses.hasNext()) {
         IClass subclass = subclasses.next();
-        String thatPackageName = AccessibilityMember.computePackageName(subclass.getName().toString());
-        if (!thisPackageName.equals(thatPackageName)) {
+        if (thisPackage != graph.packageId(subclass.getName())) {
           okToBePublic = true;
           break; // Nothing to do here
         }
@@ -409,9 +383,11 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
    * @param cha
    *            A ClassHierarchy object representing the class hierarchy of all
    *            the classes in the analysis scope.
+   * @return the accessibility graph, or null if the calling thread was
+   *         interrupted
    */
-  private Map<AccessibilityTarget, ArrayList<Accessor>> computeAccessibility(final IClassHierarchy cha, final Predicate<IClass> classFilter) {
-    Map<AccessibilityTarget, ArrayList<Accessor>> targetsToAccessors = new HashMap<AccessibilityTarget, ArrayList<Accessor>>();
+  private AccessibilityGraph computeAccessibility(final IClassHierarchy cha, final Predicate<IClass> classFilter) {
+    AccessibilityGraph graph = new AccessibilityGraph();
     IClassLoader appLoader = cha.getLoader(ClassLoaderReference.Application);
     Iterator<IClass> appClassesIter = appLoader.iterateAllClasses();
     while (appClassesIter.hasNext()) {
@@ -428,8 +404,7 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
         IField field = fieldsIter.next();
         if (!field.getDeclaringClass().getClassLoader().equals(appLoader) || field.getName().toString().indexOf('$') > -1)
           continue;
-        AccessibilityTarget target = AccessibilityTarget.getAccessibilityTarget(field);
-        targetsToAccessors.put(target, new ArrayList<Accessor>(3));
+        graph.addTarget(field);
       }
       Iterator<IMethod> methodsIter = klass.getAllMethods().iterator();
       while (methodsIter.hasNext()) {
@@ -437,8 +412,7 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
         if (method.isAbstract() || !method.getDeclaringClass().getClassLoader().equals(appLoader)
             || method.getName().toString().indexOf('$') > -1)
           continue;
-        AccessibilityTarget target = AccessibilityTarget.getAccessibilityTarget(method);
-        targetsToAccessors.put(target, new ArrayList<Accessor>(3));
+        graph.addTarget(method);
       }
     }
 
@@ -446,125 +420,252 @@ public class AccessibilityAnalyzer implements AccessibilityConstants {
       int numClasses = cha.getNumberOfClasses();
       Trace.println("Number of classes:" + numClasses);
     }
+    List<IClass> accessingClasses = new ArrayList<IClass>();
     for (IClass klass : cha) {
-      if (!J2SEClassHierarchyEngine.isApplicationClass(klass)) {
-        continue;
+      if (J2SEClassHierarchyEngine.isApplicationClass(klass)) {
+        accessingClasses.add(klass);
       }
-      Iterator<IMethod> methodsIter = klass.getDeclaredMethods().iterator();
-      while (methodsIter.hasNext()) {
-        IMethod method = methodsIter.next();
-        try {
-          Iterator<FieldReference> readFieldRefIter = CodeScanner.getFieldsRead(method).iterator();
-          while (readFieldRefIter.hasNext()) {
-            FieldReference fieldRef = readFieldRefIter.next();
-            if (!fieldRef.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
-                || fieldRef.getName().toString().indexOf('$') > -1)
-              continue;
-            IField iField = appLoader.lookupClass(fieldRef.getDeclaringClass().getName()).getField(fieldRef.getName());
-            if (!iField.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
-                || iField.getName().toString().indexOf('$') > -1)
-              continue;
-            AccessibilityTarget target = AccessibilityTarget.getAccessibilityTarget(iField);
-            List<Accessor> accessors = targetsToAccessors.get(target);
-            accessors.add(new Accessor(method, fieldRef.getDeclaringClass().getName().toString(), fieldRef.getDeclaringClass()
-                .getClassLoader().getName().toString()));
-          }
-          Iterator<FieldReference> writtenFieldRefIter = CodeScanner.getFieldsWritten(method).iterator();
-          while (writtenFieldRefIter.hasNext()) {
-            FieldReference fieldRef = writtenFieldRefIter.next();
-            if (!fieldRef.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
-                || fieldRef.getName().toString().indexOf('$') > -1)
-              continue;
-            IField iField = appLoader.lookupClass(fieldRef.getDeclaringClass().getName()).getField(fieldRef.getName());
-            if (!iField.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
-                || iField.getName().toString().indexOf('$') > -1)
-              continue;
-            AccessibilityTarget target = AccessibilityTarget.getAccessibilityTarget(iField);
-            List<Accessor> accessors = targetsToAccessors.get(target);
-            accessors.add(new Accessor(method, fieldRef.getDeclaringClass().getName().toString(), fieldRef.getDeclaringClass()
-                .getClassLoader().getName().toString()));
-          }
-          Iterator<CallSiteReference> callSitesIter = CodeScanner.getCallSites(method).iterator();
-          while (callSitesIter.hasNext()) {
-            CallSiteReference callSiteRef = callSitesIter.next();
-            MethodReference methodRef = callSiteRef.getDeclaredTarget();
-            if (!methodRef.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
-                || methodRef.getName().toString().indexOf('$') > -1)
-              continue;
-            IMethod iMethod = appLoader.lookupClass(methodRef.getDeclaringClass().getName()).getMethod(methodRef.getSelector());
-            IClass iClass = iMethod.getDeclaringClass();
-
-            if (!J2SEClassHierarchyEngine.isApplicationClass(iClass) || iMethod.getName().toString().indexOf('$') > -1)
-              continue;
-
-            int superModifier = -1;
-            int modifier;
-            if (iMethod.isPublic()) {
-              modifier = PUBLIC;
-            } else if (iMethod.isProtected()) {
-              modifier = PROTECTED;
-            } else if (iMethod.isPrivate()) {
-              modifier = PRIVATE;
-            } else {
-              modifier = DEFAULT;
-            }
-            IClass superClass = iClass.getSuperclass();
-            if (superClass != null) {
-              IMethod superMethod = superClass.getMethod(iMethod.getSelector());
-              if (superMethod != null) {
-                if (superMethod.isPublic()) {
-                  superModifier = PUBLIC;
-                } else if (superMethod.isProtected()) {
-                  superModifier = PROTECTED;
-                } else if (superMethod.isPrivate()) {
-                  superModifier = PRIVATE;
-                } else {
-                  superModifier = DEFAULT;
-                }
-              }
-            }
-            if (modifier > superModifier) {
-              // try to see if iMethod overrides a method in an interface
-              Collection<IClass> interfaces;
-
-              interfaces = iClass.getAllImplementedInterfaces();
-              Iterator<IClass> interfacesIter = interfaces.iterator();
-              while (interfacesIter.hasNext()) {
-                IClass intf = interfacesIter.next();
-                IMethod intfMethod = intf.getMethod(iMethod.getSelector());
-                if (intfMethod == null)
-                  continue;
-                int intfModifier = -1;
-                if (intfMethod.isPublic()) {
-                  intfModifier = PUBLIC;
-                } else if (intfMethod.isProtected()) {
-                  intfModifier = PROTECTED;
-                } else if (intfMethod.isPrivate()) {
-                  intfModifier = PRIVATE;
-                } else {
-                  intfModifier = DEFAULT;
-                }
-                superModifier = Math.max(superModifier, intfModifier);
-                if (modifier == superModifier) {
-                  // The modifier of iMethod cannot be restricted
-                  break;
-                }
-              }
-            }
+    }
+    List<AccessorRecords.Accesses> accesses = scanClasses(graph, appLoader, accessingClasses);
+    if (accesses == null) {
+      return null;
+    }
+    graph.build(accesses);
+    return graph;
+  }
+
+  /**
+   * Scan the given classes for accessors. The bytecodes of the classes are
+   * decoded on {@link #threadCount} threads; the members they refer to are
+   * then resolved on the calling thread, since looking up the methods or the
+   * interfaces of a class fills caches of the class hierarchy which are not
+   * thread-safe.
+   * 
+   * @return the accessors found in each class, in the order of the classes, or
+   *         null if the calling thread was interrupted
+   */
+  private List<AccessorRecords.Accesses> scanClasses(AccessibilityGraph graph, IClassLoader appLoader,
+      List<IClass> accessingClasses) {
+    List<ClassReferences> decoded = decodeClasses(accessingClasses);
+    if (decoded == null) {
+      return null;
+    }
+    List<AccessorRecords.Accesses> result = new ArrayList<AccessorRecords.Accesses>(accessingClasses.size());
+    for (ClassReferences refs : decoded) {
+      result.add(scanClass(graph, appLoader, refs));
+    }
+    return result;
+  }
 
-            AccessibilityTarget target = AccessibilityTarget.getAccessibilityTarget(iMethod);
-            target.setSuperModifier(superModifier);
-            List<Accessor> accessors = targetsToAccessors.get(target);
-            accessors.add(new Accessor(method, methodRef.getDeclaringClass().getName().toString(), methodRef.getDeclaringClass()
-                .getClassLoader().getName().toString()));
+  /**
+   * @return the references of each class, in the order of the classes, or null
+   *         if the calling thread was interrupted while waiting for them
+   */
+  private List<ClassReferences> decodeClasses(List<IClass> accessingClasses) {
+    if (threadCount == 1 || accessingClasses.size() <= 1) {
+      return decodeSerially(accessingClasses);
+    }
+    List<ClassReferences> result = new ArrayList<ClassReferences>(accessingClasses.size());
+    ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<ClassReferences>> pending = new ArrayList<Future<ClassReferences>>(accessingClasses.size());
+      for (final IClass klass : accessingClasses) {
+        pending.add(pool.submit(new Callable<ClassReferences>() {
+          public ClassReferences call() {
+            return new ClassReferences(klass);
           }
+        }));
+      }
+      for (Future<ClassReferences> f : pending) {
+        result.add(f.get());
+      }
+    } catch (InterruptedException e) {
+      // preserve the interrupt for our caller, but do not return a partial list
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    return result;
+  }
+
+  private static List<ClassReferences> decodeSerially(List<IClass> accessingClasses) {
+    List<ClassReferences> result = new ArrayList<ClassReferences>(accessingClasses.size());
+    for (IClass klass : accessingClasses) {
+      result.add(new ClassReferences(klass));
+    }
+    return result;
+  }
+
+  /**
+   * Find the fields read and written and the methods called by the methods of
+   * a class.
+   */
+  private static AccessorRecords.Accesses scanClass(AccessibilityGraph graph, IClassLoader appLoader, ClassReferences refs) {
+    AccessorRecords.Accesses accesses = new AccessorRecords.Accesses();
+    int loader = graph.loaderId(refs.klass.getClassLoader().getName());
+    int klassId = graph.classId(refs.klass.getName());
+    int pkg = graph.packageId(refs.klass.getName());
+    for (MethodReferences method : refs.methods) {
+      try {
+        scanMethod(graph, appLoader, method, accesses, loader, klassId, pkg);
+      } catch (NullPointerException npe) {
+      }
+    }
+    return accesses;
+  }
+
+  /**
+   * Add the accessors of a method, whose class has the given numbers. As it
+   * always has, the scan of the method stops at the first access to a member
+   * which is not a target.
+   */
+  private static void scanMethod(AccessibilityGraph graph, IClassLoader appLoader, MethodReferences method,
+      AccessorRecords.Accesses accesses, int loader, int klass, int pkg) {
+    for (FieldReference fieldRef : method.fieldsRead) {
+      if (!scanFieldAccess(graph, appLoader, fieldRef, accesses, loader, klass, pkg)) {
+        return;
+      }
+    }
+    for (FieldReference fieldRef : method.fieldsWritten) {
+      if (!scanFieldAccess(graph, appLoader, fieldRef, accesses, loader, klass, pkg)) {
+        return;
+      }
+    }
+    for (CallSiteReference callSiteRef : method.callSites) {
+      MethodReference methodRef = callSiteRef.getDeclaredTarget();
+      if (!methodRef.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
+          || methodRef.getName().toString().indexOf('$') > -1)
+        continue;
+      IMethod iMethod = appLoader.lookupClass(methodRef.getDeclaringClass().getName()).getMethod(methodRef.getSelector());
+      IClass iClass = iMethod.getDeclaringClass();
+
+      if (!J2SEClassHierarchyEngine.isApplicationClass(iClass) || iMethod.getName().toString().indexOf('$') > -1)
+        continue;
+
+      int target = graph.getTargetId(iMethod);
+      if (target == -1) {
+        return;
+      }
+      accesses.setSuperModifier(target, computeSuperModifier(iMethod));
+      TypeReference ref = methodRef.getDeclaringClass();
+      accesses.add(target, loader, klass, pkg, graph.loaderId(ref.getClassLoader().getName()), graph.packageId(ref.getName()));
+    }
+  }
+
+  /**
+   * @return false iff the field accessed is not a target
+   */
+  private static boolean scanFieldAccess(AccessibilityGraph graph, IClassLoader appLoader, FieldReference fieldRef,
+      AccessorRecords.Accesses accesses, int loader, int klass, int pkg) {
+    if (!fieldRef.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
+        || fieldRef.getName().toString().indexOf('$') > -1)
+      return true;
+    IField iField = appLoader.lookupClass(fieldRef.getDeclaringClass().getName()).getField(fieldRef.getName());
+    if (!iField.getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)
+        || iField.getName().toString().indexOf('$') > -1)
+      return true;
+    int target = graph.getTargetId(iField);
+    if (target == -1) {
+      return false;
+    }
+    TypeReference ref = fieldRef.getDeclaringClass();
+    accesses.add(target, loader, klass, pkg, graph.loaderId(ref.getClassLoader().getName()), graph.packageId(ref.getName()));
+    return true;
+  }
+
+  private static int getModifier(IMethod method) {
+    if (method.isPublic()) {
+      return PUBLIC;
+    } else if (method.isProtected()) {
+      return PROTECTED;
+    } else if (method.isPrivate()) {
+      return PRIVATE;
+    } else {
+      return DEFAULT;
+    }
+  }
+
+  /**
+   * @return the strictest modifier iMethod could have, given the methods it
+   *         overrides in its superclass and interfaces, or -1 if none
+   */
+  private static int computeSuperModifier(IMethod iMethod) {
+    IClass iClass = iMethod.getDeclaringClass();
+    int superModifier = -1;
+    int modifier = getModifier(iMethod);
+    IClass superClass = iClass.getSuperclass();
+    if (superClass != null) {
+      IMethod superMethod = superClass.getMethod(iMethod.getSelector());
+      if (superMethod != null) {
+        superModifier = getModifier(superMethod);
+      }
+    }
+    if (modifier > superModifier) {
+      // try to see if iMethod overrides a method in an interface
+      Collection<IClass> interfaces;
+
+      interfaces = iClass.getAllImplementedInterfaces();
+      Iterator<IClass> interfacesIter = interfaces.iterator();
+      while (interfacesIter.hasNext()) {
+        IClass intf = interfacesIter.next();
+        IMethod intfMethod = intf.getMethod(iMethod.getSelector());
+        if (intfMethod == null)
+          continue;
+        superModifier = Math.max(superModifier, getModifier(intfMethod));
+        if (modifier == superModifier) {
+          // The modifier of iMethod cannot be restricted
+          break;
+        }
+      }
+    }
+    return superModifier;
+  }
+
+  /**
+   * The members referred to by the methods of a class, as decoded from their
+   * bytecodes. Decoding only reads the class itself, so classes may be decoded
+   * concurrently.
+   */
+  private static final class ClassReferences {
+
+    private final IClass klass;
+
+    private final List<MethodReferences> methods = new ArrayList<MethodReferences>();
+
+    ClassReferences(IClass klass) {
+      this.klass = klass;
+      for (IMethod method : klass.getDeclaredMethods()) {
+        try {
+          methods.add(new MethodReferences(method));
         } catch (InvalidClassFileException ice) {
           ice.printStackTrace();
-        } catch (NullPointerException npe) {
         }
       }
     }
-    return targetsToAccessors;
+  }
+
+  private static final class MethodReferences {
+
+    private final Collection<FieldReference> fieldsRead;
+
+    private final Collection<FieldReference> fieldsWritten;
+
+    private final Collection<CallSiteReference> callSites;
+
+    MethodReferences(IMethod method) throws InvalidClassFileException {
+      this.fieldsRead = CodeScanner.getFieldsRead(method);
+      this.fieldsWritten = CodeScanner.getFieldsWritten(method);
+      this.callSites = CodeScanner.getCallSites(method);
+    }
   }
 
   private Map<Integer, StructuralRule> getAccessibilityRules(StructuralRule[] rules) {
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.secure.accessibility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMember;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * The accessors of each accessibility target, in primitive form. Targets,
+ * classes, packages and class loaders are numbered; the accessors of the
+ * targets are laid out as {@link AccessorRecords}.
+ * <p>
+ * Targets are registered first. The classes scanned for accessors each fill
+ * an {@link AccessorRecords.Accesses}, which {@link #build(List)} gathers.
+ */
+final class AccessibilityGraph {
+
+  // names of a target
+  private static final int LOADER = 0;
+
+  private static final int CLASS = 1;
+
+  private static final int PACKAGE = 2;
+
+  private final Names classes = new Names();
+
+  private final Names packages = new Names();
+
+  private final Names loaders = new Names();
+
+  private final ConcurrentHashMap<TypeName, Integer> packageOfClass = new ConcurrentHashMap<TypeName, Integer>();
+
+  private final List<AccessibilityTarget> targets = new ArrayList<AccessibilityTarget>();
+
+  /**
+   * equal targets share a number, that of the first registered
+   */
+  private final Map<AccessibilityTarget, Integer> targetIds = new HashMap<AccessibilityTarget, Integer>();
+
+  private final Map<IMember, Integer> memberIds = new HashMap<IMember, Integer>();
+
+  /**
+   * loader, class and package of target t, at offsets 3t to 3t + 2
+   */
+  private int[] targetNames = new int[3 * 64];
+
+  private AccessorRecords records;
+
+  /**
+   * Register a member as a target. Not thread-safe.
+   */
+  void addTarget(IMember member) {
+    AccessibilityTarget target = AccessibilityTarget.getAccessibilityTarget(member);
+    Integer id = targetIds.get(target);
+    if (id == null) {
+      id = Integer.valueOf(targets.size());
+      targets.add(target);
+      targetIds.put(target, id);
+      IClass klass = member.getDeclaringClass();
+      int t = 3 * id.intValue();
+      if (t + 3 > targetNames.length) {
+        int[] newNames = new int[2 * targetNames.length];
+        System.arraycopy(targetNames, 0, newNames, 0, t);
+        targetNames = newNames;
+      }
+      targetNames[t + LOADER] = loaderId(klass.getClassLoader().getName());
+      targetNames[t + CLASS] = classId(klass.getName());
+      targetNames[t + PACKAGE] = packageId(klass.getName());
+    }
+    memberIds.put(member, id);
+  }
+
+  /**
+   * @return the number of the target for member, or -1 if it is not a target
+   */
+  int getTargetId(IMember member) {
+    Integer id = memberIds.get(member);
+    if (id == null) {
+      id = targetIds.get(AccessibilityTarget.getAccessibilityTarget(member));
+    }
+    return (id == null) ? -1 : id.intValue();
+  }
+
+  int getNumberOfTargets() {
+    return targets.size();
+  }
+
+  AccessibilityTarget getTarget(int t) {
+    return targets.get(t);
+  }
+
+  int getTargetLoader(int t) {
+    return targetNames[3 * t + LOADER];
+  }
+
+  int getTargetClass(int t) {
+    return targetNames[3 * t + CLASS];
+  }
+
+  int getTargetPackage(int t) {
+    return targetNames[3 * t + PACKAGE];
+  }
+
+  int firstAccessor(int t) {
+    return records.firstAccessor(t);
+  }
+
+  int endAccessor(int t) {
+    return records.endAccessor(t);
+  }
+
+  int getAccessorLoader(int a) {
+    return records.getAccessorLoader(a);
+  }
+
+  int getAccessorClass(int a) {
+    return records.getAccessorClass(a);
+  }
+
+  int getAccessorPackage(int a) {
+    return records.getAccessorPackage(a);
+  }
+
+  int getAccessingLoader(int a) {
+    return records.getAccessingLoader(a);
+  }
+
+  int getAccessingPackage(int a) {
+    return records.getAccessingPackage(a);
+  }
+
+  int loaderId(Atom loaderName) {
+    return loaders.id(loaderName);
+  }
+
+  int classId(TypeName className) {
+    return classes.id(className);
+  }
+
+  int packageId(TypeName className) {
+    Integer id = packageOfClass.get(className);
+    if (id == null) {
+      id = Integer.valueOf(packages.id(AccessibilityMember.computePackageName(className.toString())));
+      packageOfClass.putIfAbsent(className, id);
+    }
+    return id.intValue();
+  }
+
+  /**
+   * Lay out the accessors found by the scans, in the order of the scans.
+   */
+  void build(List<AccessorRecords.Accesses> scans) {
+    records = new AccessorRecords(targets.size(), scans);
+    for (AccessorRecords.Accesses s : scans) {
+      s.applySuperModifiers(targets);
+    }
+  }
+
+  /**
+   * Numbers names, safely for concurrent use.
+   */
+  private static final class Names {
+
+    private final ConcurrentHashMap<Object, Integer> ids = new ConcurrentHashMap<Object, Integer>();
+
+    int id(Object name) {
+      Integer id = ids.get(name);
+      if (id == null) {
+        synchronized (this) {
+          id = ids.get(name);
+          if (id == null) {
+            id = Integer.valueOf(ids.size());
+            ids.put(name, id);
+          }
+        }
+      }
+      return id.intValue();
+    }
+  }
+}
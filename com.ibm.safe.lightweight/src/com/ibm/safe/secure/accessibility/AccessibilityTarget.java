@@ -65,7 +65,7 @@ public final class AccessibilityTarget extends AccessibilityMember {
     suggestedModifier = -1;
   }
 
-  public static AccessibilityTarget getAccessibilityTarget(IMember member) {
+  public static synchronized AccessibilityTarget getAccessibilityTarget(IMember member) {
     AccessibilityTarget at = cache.get(member);
     if (at == null) {
       at = new AccessibilityTarget(member);
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.secure.accessibility;
+
+import java.util.List;
+
+/**
+ * The accessors of numbered targets. An accessor is a record of
+ * {@link #RECORD_SIZE} numbers, and the accessors of target t are the records
+ * at offsets [{@link #firstAccessor(int)}, {@link #endAccessor(int)}) of one
+ * array, in the order of the scans which found them.
+ */
+public final class AccessorRecords {
+
+  // fields of an accessor record
+  private static final int LOADER = 0;
+
+  private static final int CLASS = 1;
+
+  private static final int PACKAGE = 2;
+
+  private static final int ACCESSING_LOADER = 3;
+
+  private static final int ACCESSING_PACKAGE = 4;
+
+  public static final int RECORD_SIZE = 5;
+
+  /**
+   * the accessors of target t are at offsets [start[t], start[t + 1]) of
+   * accessors
+   */
+  private final int[] start;
+
+  private final int[] accessors;
+
+  /**
+   * Lay out the accessors found by the scans, in the order of the scans.
+   */
+  public AccessorRecords(int numberOfTargets, List<Accesses> scans) {
+    int n = numberOfTargets;
+    start = new int[n + 1];
+    for (Accesses s : scans) {
+      for (int i = 0; i < s.size; i += Accesses.ENTRY_SIZE) {
+        start[s.data[i] + 1] += RECORD_SIZE;
+      }
+    }
+    for (int t = 0; t < n; t++) {
+      start[t + 1] += start[t];
+    }
+    accessors = new int[start[n]];
+    int[] next = new int[n];
+    System.arraycopy(start, 0, next, 0, n);
+    for (Accesses s : scans) {
+      for (int i = 0; i < s.size; i += Accesses.ENTRY_SIZE) {
+        int t = s.data[i];
+        System.arraycopy(s.data, i + 1, accessors, next[t], RECORD_SIZE);
+        next[t] += RECORD_SIZE;
+      }
+    }
+  }
+
+  public int firstAccessor(int t) {
+    return start[t];
+  }
+
+  public int endAccessor(int t) {
+    return start[t + 1];
+  }
+
+  /**
+   * @return the loader of the class declaring the method of the accessor at
+   *         offset a
+   */
+  public int getAccessorLoader(int a) {
+    return accessors[a + LOADER];
+  }
+
+  /**
+   * @return the class declaring the method of the accessor at offset a
+   */
+  public int getAccessorClass(int a) {
+    return accessors[a + CLASS];
+  }
+
+  /**
+   * @return the package of the class declaring the method of the accessor at
+   *         offset a
+   */
+  public int getAccessorPackage(int a) {
+    return accessors[a + PACKAGE];
+  }
+
+  /**
+   * @return the loader of the class through which the accessor at offset a
+   *         accesses its target
+   */
+  public int getAccessingLoader(int a) {
+    return accessors[a + ACCESSING_LOADER];
+  }
+
+  /**
+   * @return the package of the class through which the accessor at offset a
+   *         accesses its target
+   */
+  public int getAccessingPackage(int a) {
+    return accessors[a + ACCESSING_PACKAGE];
+  }
+
+  /**
+   * The accessors found by scanning some classes, as (target, record) entries.
+   * Confined to the thread doing the scan.
+   */
+  public static final class Accesses {
+
+    private static final int ENTRY_SIZE = 1 + RECORD_SIZE;
+
+    private int[] data = new int[16 * ENTRY_SIZE];
+
+    private int size;
+
+    /**
+     * (target, super modifier) pairs
+     */
+    private final Accesses superModifiers;
+
+    public Accesses() {
+      this(true);
+    }
+
+    private Accesses(boolean withSuperModifiers) {
+      this.superModifiers = withSuperModifiers ? new Accesses(false) : null;
+    }
+
+    public void add(int target, int loader, int klass, int pkg, int accessingLoader, int accessingPackage) {
+      ensureCapacity(ENTRY_SIZE);
+      data[size++] = target;
+      data[size++] = loader;
+      data[size++] = klass;
+      data[size++] = pkg;
+      data[size++] = accessingLoader;
+      data[size++] = accessingPackage;
+    }
+
+    public void setSuperModifier(int target, int superModifier) {
+      superModifiers.ensureCapacity(2);
+      superModifiers.data[superModifiers.size++] = target;
+      superModifiers.data[superModifiers.size++] = superModifier;
+    }
+
+    /**
+     * Hand the super modifiers found to the targets, which are numbered by
+     * their position in the list.
+     */
+    void applySuperModifiers(List<AccessibilityTarget> targets) {
+      for (int i = 0; i < superModifiers.size; i += 2) {
+        targets.get(superModifiers.data[i]).setSuperModifier(superModifiers.data[i + 1]);
+      }
+    }
+
+    private void ensureCapacity(int extra) {
+      if (size + extra > data.length) {
+        int[] newData = new int[Math.max(2 * data.length, size + extra)];
+        System.arraycopy(data, 0, newData, 0, size);
+        data = newData;
+      }
+    }
+  }
+}
@@ -13,11 +13,21 @@
  */
 package com.ibm.safe.structural;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import com.ibm.safe.cha.J2SEClassHierarchyEngine;
 import com.ibm.safe.controller.ISafeSolver;
+import com.ibm.safe.incremental.CachedFinding;
+import com.ibm.safe.incremental.ClassFingerprints;
+import com.ibm.safe.incremental.IIncrementalSolver;
+import com.ibm.safe.incremental.IncrementalStore;
 import com.ibm.safe.intraproc.ConstantConditionInstructionProcessor;
 import com.ibm.safe.intraproc.InfiniteRecursionMethodProcessor;
 import com.ibm.safe.intraproc.SCCPMethodProcessor;
@@ -39,12 +49,15 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 
 /**
  * @author Eran Yahav (yahave)
  * 
  */
-public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
+public class StructuralSolver implements ISafeSolver, IIncrementalSolver,
+		AccessibilityConstants {
 
 	protected CallGraph cg;
 
@@ -58,6 +71,13 @@ public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
 
 	private Predicate<IClass> classFilter;
 
+	private IncrementalStore incrementalStore;
+
+	/**
+	 * digest of the current rules, computed on the first incremental lookup
+	 */
+	private String rulesDigest;
+
 	private static final String NULL_DEREF_RULE_NAME = "Potential null dereference"; //$NON-NLS-1$
 
 	private static final String CONSTANT_CONDITION_RULE_NAME = "Suspicious condition over a constant value"; //$NON-NLS-1$
@@ -85,11 +105,19 @@ public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
 		SafeStructuralSolverResult result = new SafeStructuralSolverResult();
 
 		assert (classHierarchy != null);
+		final IncrementalStore store = getUsableIncrementalStore();
+		final Map<IClass, Map<String, String>> footprints = HashMapFactory
+				.make();
+		Predicate<IClass> filter = this.classFilter;
+		if (store != null) {
+			filter = replayUnchangedClasses(store, footprints, result);
+		}
 		BaseProgramProcessor bpp = new BaseProgramProcessor(classHierarchy, cg,
-				reporter, this.classFilter, monitor);
+				reporter, filter, monitor);
+		bpp.setThreadCount(structuralOptions.getThreadCount());
 		BaseClassProcessor bcp = bpp.getBaseClassProcessor();
 		ClassXMLProcessor cxp = new ClassXMLProcessor(classHierarchy, cg,
-				structuralOptions);
+				structuralOptions, bpp.getIRCache());
 		bpp.addClassProcessor(cxp);
 
 		StatisticsClassProcessor csp = null;
@@ -103,7 +131,7 @@ public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
 		}
 
 		final SCCPMethodProcessor sndmp = new SCCPMethodProcessor(
-				classHierarchy);
+				classHierarchy, bpp.getIRCache());
 
 		final StructuralRule constantConditionRule = getConstantConditionRule();
 		final ConstantConditionInstructionProcessor ccip = new ConstantConditionInstructionProcessor(
@@ -120,7 +148,7 @@ public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
 
 		final StructuralRule infiniteRecursionRule = getInfiniteRecursionRule();
 		final InfiniteRecursionMethodProcessor irmp = new InfiniteRecursionMethodProcessor(
-				infiniteRecursionRule, classHierarchy);
+				infiniteRecursionRule, classHierarchy, bpp.getIRCache());
 		if (infiniteRecursionRule != null) {
 			bcp.addMethodProcessor(irmp);
 		}
@@ -131,10 +159,19 @@ public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
 		result.addMessages((Set<Message>) cxp.getResult());
 		result.addMessages((Set<Message>) irmp.getResult());
 
+		if (store != null) {
+			final Set<Message> analyzed = HashSetFactory.make();
+			analyzed.addAll((Set<Message>) sndmp.getResult());
+			analyzed.addAll((Set<Message>) cxp.getResult());
+			analyzed.addAll((Set<Message>) irmp.getResult());
+			recordAnalyzedClasses(store, footprints, analyzed);
+		}
+
 		if (findRuleByName(PUBLIC_METHOD_PROTECTED) != null) {
 			AccessControlProgramProcessor acpp = new AccessControlProgramProcessor(
 					classHierarchy, this.structuralOptions.getRules(),
 					classFilter);
+			acpp.setThreadCount(structuralOptions.getThreadCount());
 			acpp.process();
 			result.addMessages((Set<Message>) acpp.getResult());
 		}
@@ -146,6 +183,148 @@ public class StructuralSolver implements ISafeSolver, AccessibilityConstants {
 		return result;
 	}
 
+	public void setIncrementalStore(final IncrementalStore store) {
+		this.incrementalStore = store;
+	}
+
+	/**
+	 * @return the store of findings of previous runs, or null if this run must
+	 *         analyze all classes: statistics are program-wide, and the
+	 *         accessibility rule depends on every caller of a method.
+	 */
+	private IncrementalStore getUsableIncrementalStore() {
+		if ((this.incrementalStore == null)
+				|| this.structuralOptions.shouldCollectStatistics()
+				|| (findRuleByName(PUBLIC_METHOD_PROTECTED) != null)) {
+			return null;
+		}
+		return this.incrementalStore;
+	}
+
+	/**
+	 * Replay the findings of the classes which, like their supertypes and
+	 * subtypes, did not change since the previous run.
+	 * 
+	 * @param footprints
+	 *            populated with the footprint of each class to analyze
+	 * @return a filter accepting the classes to analyze
+	 */
+	private Predicate<IClass> replayUnchangedClasses(
+			final IncrementalStore store,
+			final Map<IClass, Map<String, String>> footprints,
+			final SafeStructuralSolverResult result) {
+		final Set<IClass> replayed = HashSetFactory.make();
+		for (IClass klass : classHierarchy) {
+			if (!J2SEClassHierarchyEngine.isApplicationClass(klass)
+					|| !this.classFilter.test(klass)) {
+				continue;
+			}
+			final Map<String, String> footprint = store.getFingerprints()
+					.getFootprint(getRelatedTypes(klass));
+			final List<CachedFinding> findings = store.lookup(
+					getIncrementalKey(klass), footprint);
+			if (findings == null) {
+				footprints.put(klass, footprint);
+			} else {
+				replayed.add(klass);
+				final Set<Message> messages = HashSetFactory.make();
+				for (CachedFinding finding : findings) {
+					messages.add(finding.toMessage(findRuleByName(finding
+							.getRuleName())));
+				}
+				result.addMessages(messages);
+			}
+		}
+		final Predicate<IClass> filter = this.classFilter;
+		return new Predicate<IClass>() {
+			public boolean test(final IClass klass) {
+				return filter.test(klass) && !replayed.contains(klass);
+			}
+		};
+	}
+
+	/**
+	 * Record the findings of the analyzed classes. Nothing is recorded if a
+	 * finding cannot be attributed to one of them, since its class would then
+	 * be replayed without it.
+	 */
+	private void recordAnalyzedClasses(final IncrementalStore store,
+			final Map<IClass, Map<String, String>> footprints,
+			final Collection<Message> analyzed) {
+		final Map<String, IClass> classesByName = HashMapFactory.make();
+		final Map<IClass, Set<Message>> findings = HashMapFactory.make();
+		for (IClass klass : footprints.keySet()) {
+			classesByName.put(klass.getName().toString().substring(1), klass);
+			findings.put(klass, HashSetFactory.<Message> make());
+		}
+		for (Message message : analyzed) {
+			final IClass klass = classesByName.get(normalizeClassName(message
+					.getLocation().getLocationClass(), classesByName));
+			if (klass == null) {
+				return;
+			}
+			findings.get(klass).add(message);
+		}
+		for (Map.Entry<IClass, Set<Message>> entry : findings.entrySet()) {
+			store.record(getIncrementalKey(entry.getKey()),
+					footprints.get(entry.getKey()), entry.getValue());
+		}
+	}
+
+	/**
+	 * @return the name of a location class as in classesByName: in slashed
+	 *         form, without the leading 'L'
+	 */
+	private static String normalizeClassName(final String locationClass,
+			final Map<String, IClass> classesByName) {
+		final String slashed = locationClass.replace('.', '/');
+		if (slashed.startsWith("L") && !classesByName.containsKey(slashed)) { //$NON-NLS-1$
+			return slashed.substring(1);
+		}
+		return slashed;
+	}
+
+	/**
+	 * @return the class, its supertypes, and its subclasses or implementors:
+	 *         rules resolving calls over cone types, as the infinite recursion
+	 *         rule does, depend on the subtypes of the receiver
+	 */
+	private Collection<IClass> getRelatedTypes(final IClass klass) {
+		final Set<IClass> result = HashSetFactory.make();
+		for (IClass c = klass; c != null; c = c.getSuperclass()) {
+			result.add(c);
+			result.addAll(c.getAllImplementedInterfaces());
+		}
+		if (klass.isInterface()) {
+			result.addAll(classHierarchy.getImplementors(klass.getReference()));
+		} else {
+			result.addAll(classHierarchy.computeSubClasses(klass.getReference()));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the key of the findings of a class under the current rules: the
+	 *         rules are present through a digest of their names and queries,
+	 *         so that the key changes when a query is edited
+	 */
+	private String getIncrementalKey(final IClass klass) {
+		if (this.rulesDigest == null) {
+			final Map<String, StructuralRule> rulesByName = new TreeMap<String, StructuralRule>();
+			for (StructuralRule rule : this.structuralOptions.getRules()) {
+				rulesByName.put(rule.getName(), rule);
+			}
+			final List<String> texts = new ArrayList<String>();
+			for (StructuralRule rule : rulesByName.values()) {
+				texts.add(rule.getName());
+				texts.add(String.valueOf(rule.getQuery()));
+				texts.add(String.valueOf(rule.getReportLocationQuery()));
+			}
+			this.rulesDigest = ClassFingerprints.digest(texts);
+		}
+		return "structural|" + this.rulesDigest + '|' + klass.getName().toString(); //$NON-NLS-1$
+	}
+
 	private StructuralRule findRuleByName(final String ruleName) {
 		final StructuralRule[] rules = this.structuralOptions.getRules();
 		for (int i = 0; i < rules.length; i++) {
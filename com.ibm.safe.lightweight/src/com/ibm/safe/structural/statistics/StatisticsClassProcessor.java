@@ -36,6 +36,14 @@ public class StatisticsClassProcessor extends BaseClassProcessor {
     this.programStats = programStatistics;
   }
 
+  /**
+   * All classes are accumulated into a single ProgramStatistics, so this
+   * processor runs on the calling thread only.
+   */
+  public boolean canFork() {
+    return false;
+  }
+
   public void process(IClass klass) {
     ClassStatistics cs = new ClassStatistics();
     int methodNumber = 0;
@@ -33,7 +33,9 @@ import com.ibm.safe.cha.J2SEClassHierarchyEngine;
 import com.ibm.safe.io.XMLUtil;
 import com.ibm.safe.lightweight.options.IStructuralOptions;
 import com.ibm.safe.processors.ClassProcessor;
+import com.ibm.safe.processors.IRCache;
 import com.ibm.safe.processors.MethodProcessor;
+import com.ibm.safe.processors.ParallelProcessor;
 import com.ibm.safe.reporting.message.Message;
 import com.ibm.safe.rules.StructuralRule;
 import com.ibm.safe.structural.impl.StructuralMessage;
@@ -51,7 +53,7 @@ import com.ibm.wala.util.collections.HashSetFactory;
  * @author Eran Yahav (yahave)
  * 
  */
-public class ClassXMLProcessor implements ClassProcessor {
+public class ClassXMLProcessor implements ClassProcessor, ParallelProcessor<ClassProcessor> {
 
   // private static final String MODIFIER_PUBLIC = "public";
 
@@ -129,12 +131,20 @@ public class ClassXMLProcessor implements ClassProcessor {
 
   private IStructuralOptions structuralOptions;
 
+  private final IRCache irCache;
+
   public ClassXMLProcessor(IClassHierarchy hierarchy, CallGraph callGraph, IStructuralOptions structuralSafeOptions) {
+    this(hierarchy, callGraph, structuralSafeOptions, new IRCache());
+  }
+
+  public ClassXMLProcessor(IClassHierarchy hierarchy, CallGraph callGraph, IStructuralOptions structuralSafeOptions,
+      IRCache irCache) {
     this.classHierarchy = hierarchy;
     this.callGraph = callGraph;
     this.allMessages = HashSetFactory.make();
-    methodXMLModel = new MethodXMLProcessor(hierarchy, callGraph);
+    methodXMLModel = new MethodXMLProcessor(hierarchy, callGraph, irCache);
     this.structuralOptions = structuralSafeOptions;
+    this.irCache = irCache;
   }
 
   public void process(IClass currentClass) {
@@ -241,7 +251,8 @@ public class ClassXMLProcessor implements ClassProcessor {
 
   private boolean directoryCreated(final String xmlDir) {
     final File dir = new File(xmlDir);
-    if (!dir.exists() && !dir.mkdirs()) {
+    // another thread may create the directory between exists() and mkdirs()
+    if (!dir.exists() && !dir.mkdirs() && !dir.isDirectory()) {
       SafeLogger.severe("Unable to create XML directory " + xmlDir + ". Writing of XML file aborted.");
       return false;
     }
@@ -391,6 +402,18 @@ public class ClassXMLProcessor implements ClassProcessor {
     return allMessages;
   }
 
+  public boolean canFork() {
+    return true;
+  }
+
+  public ClassProcessor fork() {
+    return new ClassXMLProcessor(classHierarchy, callGraph, structuralOptions, irCache);
+  }
+
+  public void merge(ClassProcessor forked) {
+    allMessages.addAll(((ClassXMLProcessor) forked).allMessages);
+  }
+
   public Set<? extends Message> getMessages() {
     return allMessages;
   }
@@ -20,6 +20,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import com.ibm.safe.intraproc.sccp.SCCPValue;
+import com.ibm.safe.processors.IRCache;
 import com.ibm.safe.processors.InstructionProcessor;
 import com.ibm.safe.reporting.message.Message;
 import com.ibm.wala.analysis.typeInference.TypeAbstraction;
@@ -149,6 +150,14 @@ public class InstructionXMLProcessor implements InstructionProcessor {
     visitor.setEnvironment(ir);
   }
 
+  /**
+   * @param irCache
+   *            source of def-use information for the IR being processed
+   */
+  public void setIRCache(IRCache irCache) {
+    visitor.setIRCache(irCache);
+  }
+
   public void setup(IMethod method, Map<Integer, SCCPValue> context, IR ir) {
 
   }
@@ -182,9 +191,29 @@ public class InstructionXMLProcessor implements InstructionProcessor {
 
     private int bcIndex;
 
+    private IRCache irCache;
+
+    /**
+     * def-use for the current IR, computed on first use
+     */
+    private DefUse du;
+
     public void setEnvironment(IR ir) {
       st = ir.getSymbolTable();
       typeInference = TypeInference.make(ir, true);
+      du = null;
+    }
+
+    public void setIRCache(IRCache irCache) {
+      this.irCache = irCache;
+    }
+
+    protected DefUse getDefUse() {
+      if (du == null) {
+        IR ir = typeInference.getIR();
+        du = (irCache == null) ? new DefUse(ir) : irCache.findOrCreateDU(ir);
+      }
+      return du;
     }
 
     public void setDocument(Document doc) {
@@ -368,8 +397,7 @@ public class InstructionXMLProcessor implements InstructionProcessor {
         int lhs = instruction.getDef();
         if (lhs != -1) {
           Element lhsElement = createOperandElement(doc, LHS_TAG, lhs);
-          final DefUse du = new DefUse(this.typeInference.getIR());
-          lhsElement.setAttribute(USED_ATTR, String.valueOf(du.getUses(instruction.getDef()).hasNext()));
+          lhsElement.setAttribute(USED_ATTR, String.valueOf(getDefUse().getUses(instruction.getDef()).hasNext()));
           result.appendChild(lhsElement);
         }
       }
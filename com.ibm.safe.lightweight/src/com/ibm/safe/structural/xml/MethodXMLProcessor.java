@@ -16,18 +16,16 @@ package com.ibm.safe.structural.xml;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.ibm.safe.processors.IRCache;
 import com.ibm.safe.processors.InstructionProcessor;
 import com.ibm.safe.processors.MethodProcessor;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
-import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.CallGraph;
-import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAOptions;
 
 /**
  * @author Eran Yahav (yahave)
@@ -51,9 +49,20 @@ public class MethodXMLProcessor implements MethodProcessor {
 
   private Element bodyRoot;
 
+  /**
+   * IR shared with the other method processors
+   */
+  private final IRCache irCache;
+
   public MethodXMLProcessor(IClassHierarchy cha, CallGraph callGraph) {
+    this(cha, callGraph, new IRCache());
+  }
+
+  public MethodXMLProcessor(IClassHierarchy cha, CallGraph callGraph, IRCache irCache) {
     this.cha = cha;
     this.callGraph = callGraph;
+    this.irCache = irCache;
+    this.instXMLModel.setIRCache(irCache);
   }
 
   public void setup(IClass c, Object context) {
@@ -90,7 +99,7 @@ public class MethodXMLProcessor implements MethodProcessor {
       return;
     }
 
-    IR methodIR = new AnalysisCacheImpl().getSSACache().findOrCreateIR(method, Everywhere.EVERYWHERE, SSAOptions.defaultOptions());
+    IR methodIR = irCache.findOrCreateIR(method, IRCache.defaultOptions());
     int i = 0;
     instXMLModel.setDocument(doc);
     instXMLModel.setEnvironment(methodIR);
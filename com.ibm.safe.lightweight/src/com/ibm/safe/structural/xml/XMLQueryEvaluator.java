@@ -16,11 +16,6 @@ package com.ibm.safe.structural.xml;
 import java.util.ArrayList;
 import java.util.Collection;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
-
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -40,14 +35,13 @@ public class XMLQueryEvaluator {
 
   public static StructuralMessage[] execute(StructuralRule rule, Document doc) throws Exception {
     final Collection<StructuralMessage> messages = new ArrayList<StructuralMessage>(10);
-    final XPath xpath = XPathFactory.newInstance().newXPath();
-    final XPathExpression xpathExpression = xpath.compile(rule.getQuery());
-    final NodeList nodeList = (NodeList) xpathExpression.evaluate(doc, XPathConstants.NODESET);
-    for (int i = 0, size = nodeList.getLength(); i < size; ++i) {
+    final NodeList nodeList = XPathQueryRegistry.evaluate(rule, doc);
+    final int size = nodeList.getLength();
+    final String repLoc = (size == 0) ? null : rule.getReportLocationQuery().getName().toLowerCase();
+    for (int i = 0; i < size; ++i) {
       final Node ithNode = nodeList.item(i);
       final Node methodNode = getMethodNode(ithNode);
 
-      final String repLoc = rule.getReportLocationQuery().getName().toLowerCase();
       boolean found = false;
       String locationString = null;
       for (Node child = methodNode.getFirstChild(); child != null && !found; child = child.getNextSibling()) {
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.structural.xml;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import com.ibm.safe.rules.StructuralRule;
+import com.ibm.safe.utils.SafeLogger;
+
+/**
+ * Compiled XPath queries of structural rules, so that a rule's query is
+ * compiled once rather than once per class analyzed.
+ * 
+ * An {@link XPathExpression} is not thread-safe, so each query keeps the
+ * expressions compiled for it so far, and a thread evaluating the query takes
+ * one for itself until it is done. A query is thus compiled at most once per
+ * thread evaluating it at the same time, whichever threads these are, and the
+ * expressions outlive the pools that run the rules. Queries are keyed by their
+ * text, so rules sharing a query share its expressions.
+ */
+public final class XPathQueryRegistry {
+
+  private XPathQueryRegistry() {
+  }
+
+  /**
+   * Compile the queries of the given rules on the calling thread, reporting
+   * those which do not compile.
+   */
+  public static void register(final StructuralRule[] rules) {
+    for (int i = 0; i < rules.length; i++) {
+      final String query = rules[i].getQuery();
+      if (query == null) {
+        continue;
+      }
+      final Queue<XPathExpression> idle = getIdleExpressions(query);
+      if (idle.isEmpty()) {
+        try {
+          idle.offer(compile(query));
+        } catch (XPathExpressionException e) {
+          SafeLogger.severe("Invalid XPath query for rule " + rules[i].getName() + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the nodes of doc selected by the query of rule
+   * @throws XPathExpressionException
+   *             if the query does not compile
+   */
+  public static NodeList evaluate(final StructuralRule rule, final Document doc) throws XPathExpressionException {
+    final Queue<XPathExpression> idle = getIdleExpressions(rule.getQuery());
+    XPathExpression expression = idle.poll();
+    if (expression == null) {
+      expression = compile(rule.getQuery());
+    }
+    try {
+      return (NodeList) expression.evaluate(doc, XPathConstants.NODESET);
+    } finally {
+      idle.offer(expression);
+    }
+  }
+
+  // --- Private code
+
+  private static Queue<XPathExpression> getIdleExpressions(final String query) {
+    Queue<XPathExpression> result = expressions.get(query);
+    if (result == null) {
+      final Queue<XPathExpression> created = new ConcurrentLinkedQueue<XPathExpression>();
+      result = expressions.putIfAbsent(query, created);
+      if (result == null) {
+        result = created;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Queries are compiled once per concurrent evaluation at most, so compiling
+   * them one at a time with a single {@link XPath} costs little.
+   */
+  private static synchronized XPathExpression compile(final String query) throws XPathExpressionException {
+    if (xpath == null) {
+      xpath = XPathFactory.newInstance().newXPath();
+    }
+    return xpath.compile(query);
+  }
+
+  /**
+   * expressions compiled for each query and not being evaluated
+   */
+  private static final ConcurrentMap<String, Queue<XPathExpression>> expressions = new ConcurrentHashMap<String, Queue<XPathExpression>>();
+
+  /**
+   * guarded by the class
+   */
+  private static XPath xpath;
+}
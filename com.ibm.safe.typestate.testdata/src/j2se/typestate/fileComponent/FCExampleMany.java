@@ -0,0 +1,745 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package j2se.typestate.fileComponent;
+
+/**
+ * Many instances, each used by methods of its own, so that a solver has many
+ * instances to solve for, over slices of distinct call graph nodes. Every
+ * eighth instance is read after it is closed.
+ * 
+ * Expected Result: the solvers report the same alarms whether they solve
+ * serially or in parallel.
+ */
+public class FCExampleMany {
+
+  public static void main(String[] args) {
+    use0();
+    use1();
+    use2();
+    use3();
+    use4();
+    use5();
+    use6();
+    use7();
+    use8();
+    use9();
+    use10();
+    use11();
+    use12();
+    use13();
+    use14();
+    use15();
+    use16();
+    use17();
+    use18();
+    use19();
+    use20();
+    use21();
+    use22();
+    use23();
+    use24();
+    use25();
+    use26();
+    use27();
+    use28();
+    use29();
+    use30();
+    use31();
+    use32();
+    use33();
+    use34();
+    use35();
+    use36();
+    use37();
+    use38();
+    use39();
+    use40();
+    use41();
+    use42();
+    use43();
+    use44();
+    use45();
+    use46();
+    use47();
+  }
+
+  private static void use0() {
+    FileComponent f = new FileComponent();
+    read0(f);
+    close0(f);
+  }
+
+  private static void read0(FileComponent f) {
+    f.read();
+  }
+
+  private static void close0(FileComponent f) {
+    f.close();
+  }
+
+  private static void use1() {
+    FileComponent f = new FileComponent();
+    read1(f);
+    close1(f);
+  }
+
+  private static void read1(FileComponent f) {
+    f.read();
+  }
+
+  private static void close1(FileComponent f) {
+    f.close();
+  }
+
+  private static void use2() {
+    FileComponent f = new FileComponent();
+    read2(f);
+    close2(f);
+  }
+
+  private static void read2(FileComponent f) {
+    f.read();
+  }
+
+  private static void close2(FileComponent f) {
+    f.close();
+  }
+
+  private static void use3() {
+    FileComponent f = new FileComponent();
+    read3(f);
+    close3(f);
+  }
+
+  private static void read3(FileComponent f) {
+    f.read();
+  }
+
+  private static void close3(FileComponent f) {
+    f.close();
+  }
+
+  private static void use4() {
+    FileComponent f = new FileComponent();
+    read4(f);
+    close4(f);
+  }
+
+  private static void read4(FileComponent f) {
+    f.read();
+  }
+
+  private static void close4(FileComponent f) {
+    f.close();
+  }
+
+  private static void use5() {
+    FileComponent f = new FileComponent();
+    read5(f);
+    close5(f);
+  }
+
+  private static void read5(FileComponent f) {
+    f.read();
+  }
+
+  private static void close5(FileComponent f) {
+    f.close();
+  }
+
+  private static void use6() {
+    FileComponent f = new FileComponent();
+    read6(f);
+    close6(f);
+  }
+
+  private static void read6(FileComponent f) {
+    f.read();
+  }
+
+  private static void close6(FileComponent f) {
+    f.close();
+  }
+
+  private static void use7() {
+    FileComponent f = new FileComponent();
+    close7(f);
+    read7(f);
+  }
+
+  private static void read7(FileComponent f) {
+    f.read();
+  }
+
+  private static void close7(FileComponent f) {
+    f.close();
+  }
+
+  private static void use8() {
+    FileComponent f = new FileComponent();
+    read8(f);
+    close8(f);
+  }
+
+  private static void read8(FileComponent f) {
+    f.read();
+  }
+
+  private static void close8(FileComponent f) {
+    f.close();
+  }
+
+  private static void use9() {
+    FileComponent f = new FileComponent();
+    read9(f);
+    close9(f);
+  }
+
+  private static void read9(FileComponent f) {
+    f.read();
+  }
+
+  private static void close9(FileComponent f) {
+    f.close();
+  }
+
+  private static void use10() {
+    FileComponent f = new FileComponent();
+    read10(f);
+    close10(f);
+  }
+
+  private static void read10(FileComponent f) {
+    f.read();
+  }
+
+  private static void close10(FileComponent f) {
+    f.close();
+  }
+
+  private static void use11() {
+    FileComponent f = new FileComponent();
+    read11(f);
+    close11(f);
+  }
+
+  private static void read11(FileComponent f) {
+    f.read();
+  }
+
+  private static void close11(FileComponent f) {
+    f.close();
+  }
+
+  private static void use12() {
+    FileComponent f = new FileComponent();
+    read12(f);
+    close12(f);
+  }
+
+  private static void read12(FileComponent f) {
+    f.read();
+  }
+
+  private static void close12(FileComponent f) {
+    f.close();
+  }
+
+  private static void use13() {
+    FileComponent f = new FileComponent();
+    read13(f);
+    close13(f);
+  }
+
+  private static void read13(FileComponent f) {
+    f.read();
+  }
+
+  private static void close13(FileComponent f) {
+    f.close();
+  }
+
+  private static void use14() {
+    FileComponent f = new FileComponent();
+    read14(f);
+    close14(f);
+  }
+
+  private static void read14(FileComponent f) {
+    f.read();
+  }
+
+  private static void close14(FileComponent f) {
+    f.close();
+  }
+
+  private static void use15() {
+    FileComponent f = new FileComponent();
+    close15(f);
+    read15(f);
+  }
+
+  private static void read15(FileComponent f) {
+    f.read();
+  }
+
+  private static void close15(FileComponent f) {
+    f.close();
+  }
+
+  private static void use16() {
+    FileComponent f = new FileComponent();
+    read16(f);
+    close16(f);
+  }
+
+  private static void read16(FileComponent f) {
+    f.read();
+  }
+
+  private static void close16(FileComponent f) {
+    f.close();
+  }
+
+  private static void use17() {
+    FileComponent f = new FileComponent();
+    read17(f);
+    close17(f);
+  }
+
+  private static void read17(FileComponent f) {
+    f.read();
+  }
+
+  private static void close17(FileComponent f) {
+    f.close();
+  }
+
+  private static void use18() {
+    FileComponent f = new FileComponent();
+    read18(f);
+    close18(f);
+  }
+
+  private static void read18(FileComponent f) {
+    f.read();
+  }
+
+  private static void close18(FileComponent f) {
+    f.close();
+  }
+
+  private static void use19() {
+    FileComponent f = new FileComponent();
+    read19(f);
+    close19(f);
+  }
+
+  private static void read19(FileComponent f) {
+    f.read();
+  }
+
+  private static void close19(FileComponent f) {
+    f.close();
+  }
+
+  private static void use20() {
+    FileComponent f = new FileComponent();
+    read20(f);
+    close20(f);
+  }
+
+  private static void read20(FileComponent f) {
+    f.read();
+  }
+
+  private static void close20(FileComponent f) {
+    f.close();
+  }
+
+  private static void use21() {
+    FileComponent f = new FileComponent();
+    read21(f);
+    close21(f);
+  }
+
+  private static void read21(FileComponent f) {
+    f.read();
+  }
+
+  private static void close21(FileComponent f) {
+    f.close();
+  }
+
+  private static void use22() {
+    FileComponent f = new FileComponent();
+    read22(f);
+    close22(f);
+  }
+
+  private static void read22(FileComponent f) {
+    f.read();
+  }
+
+  private static void close22(FileComponent f) {
+    f.close();
+  }
+
+  private static void use23() {
+    FileComponent f = new FileComponent();
+    close23(f);
+    read23(f);
+  }
+
+  private static void read23(FileComponent f) {
+    f.read();
+  }
+
+  private static void close23(FileComponent f) {
+    f.close();
+  }
+
+  private static void use24() {
+    FileComponent f = new FileComponent();
+    read24(f);
+    close24(f);
+  }
+
+  private static void read24(FileComponent f) {
+    f.read();
+  }
+
+  private static void close24(FileComponent f) {
+    f.close();
+  }
+
+  private static void use25() {
+    FileComponent f = new FileComponent();
+    read25(f);
+    close25(f);
+  }
+
+  private static void read25(FileComponent f) {
+    f.read();
+  }
+
+  private static void close25(FileComponent f) {
+    f.close();
+  }
+
+  private static void use26() {
+    FileComponent f = new FileComponent();
+    read26(f);
+    close26(f);
+  }
+
+  private static void read26(FileComponent f) {
+    f.read();
+  }
+
+  private static void close26(FileComponent f) {
+    f.close();
+  }
+
+  private static void use27() {
+    FileComponent f = new FileComponent();
+    read27(f);
+    close27(f);
+  }
+
+  private static void read27(FileComponent f) {
+    f.read();
+  }
+
+  private static void close27(FileComponent f) {
+    f.close();
+  }
+
+  private static void use28() {
+    FileComponent f = new FileComponent();
+    read28(f);
+    close28(f);
+  }
+
+  private static void read28(FileComponent f) {
+    f.read();
+  }
+
+  private static void close28(FileComponent f) {
+    f.close();
+  }
+
+  private static void use29() {
+    FileComponent f = new FileComponent();
+    read29(f);
+    close29(f);
+  }
+
+  private static void read29(FileComponent f) {
+    f.read();
+  }
+
+  private static void close29(FileComponent f) {
+    f.close();
+  }
+
+  private static void use30() {
+    FileComponent f = new FileComponent();
+    read30(f);
+    close30(f);
+  }
+
+  private static void read30(FileComponent f) {
+    f.read();
+  }
+
+  private static void close30(FileComponent f) {
+    f.close();
+  }
+
+  private static void use31() {
+    FileComponent f = new FileComponent();
+    close31(f);
+    read31(f);
+  }
+
+  private static void read31(FileComponent f) {
+    f.read();
+  }
+
+  private static void close31(FileComponent f) {
+    f.close();
+  }
+
+  private static void use32() {
+    FileComponent f = new FileComponent();
+    read32(f);
+    close32(f);
+  }
+
+  private static void read32(FileComponent f) {
+    f.read();
+  }
+
+  private static void close32(FileComponent f) {
+    f.close();
+  }
+
+  private static void use33() {
+    FileComponent f = new FileComponent();
+    read33(f);
+    close33(f);
+  }
+
+  private static void read33(FileComponent f) {
+    f.read();
+  }
+
+  private static void close33(FileComponent f) {
+    f.close();
+  }
+
+  private static void use34() {
+    FileComponent f = new FileComponent();
+    read34(f);
+    close34(f);
+  }
+
+  private static void read34(FileComponent f) {
+    f.read();
+  }
+
+  private static void close34(FileComponent f) {
+    f.close();
+  }
+
+  private static void use35() {
+    FileComponent f = new FileComponent();
+    read35(f);
+    close35(f);
+  }
+
+  private static void read35(FileComponent f) {
+    f.read();
+  }
+
+  private static void close35(FileComponent f) {
+    f.close();
+  }
+
+  private static void use36() {
+    FileComponent f = new FileComponent();
+    read36(f);
+    close36(f);
+  }
+
+  private static void read36(FileComponent f) {
+    f.read();
+  }
+
+  private static void close36(FileComponent f) {
+    f.close();
+  }
+
+  private static void use37() {
+    FileComponent f = new FileComponent();
+    read37(f);
+    close37(f);
+  }
+
+  private static void read37(FileComponent f) {
+    f.read();
+  }
+
+  private static void close37(FileComponent f) {
+    f.close();
+  }
+
+  private static void use38() {
+    FileComponent f = new FileComponent();
+    read38(f);
+    close38(f);
+  }
+
+  private static void read38(FileComponent f) {
+    f.read();
+  }
+
+  private static void close38(FileComponent f) {
+    f.close();
+  }
+
+  private static void use39() {
+    FileComponent f = new FileComponent();
+    close39(f);
+    read39(f);
+  }
+
+  private static void read39(FileComponent f) {
+    f.read();
+  }
+
+  private static void close39(FileComponent f) {
+    f.close();
+  }
+
+  private static void use40() {
+    FileComponent f = new FileComponent();
+    read40(f);
+    close40(f);
+  }
+
+  private static void read40(FileComponent f) {
+    f.read();
+  }
+
+  private static void close40(FileComponent f) {
+    f.close();
+  }
+
+  private static void use41() {
+    FileComponent f = new FileComponent();
+    read41(f);
+    close41(f);
+  }
+
+  private static void read41(FileComponent f) {
+    f.read();
+  }
+
+  private static void close41(FileComponent f) {
+    f.close();
+  }
+
+  private static void use42() {
+    FileComponent f = new FileComponent();
+    read42(f);
+    close42(f);
+  }
+
+  private static void read42(FileComponent f) {
+    f.read();
+  }
+
+  private static void close42(FileComponent f) {
+    f.close();
+  }
+
+  private static void use43() {
+    FileComponent f = new FileComponent();
+    read43(f);
+    close43(f);
+  }
+
+  private static void read43(FileComponent f) {
+    f.read();
+  }
+
+  private static void close43(FileComponent f) {
+    f.close();
+  }
+
+  private static void use44() {
+    FileComponent f = new FileComponent();
+    read44(f);
+    close44(f);
+  }
+
+  private static void read44(FileComponent f) {
+    f.read();
+  }
+
+  private static void close44(FileComponent f) {
+    f.close();
+  }
+
+  private static void use45() {
+    FileComponent f = new FileComponent();
+    read45(f);
+    close45(f);
+  }
+
+  private static void read45(FileComponent f) {
+    f.read();
+  }
+
+  private static void close45(FileComponent f) {
+    f.close();
+  }
+
+  private static void use46() {
+    FileComponent f = new FileComponent();
+    read46(f);
+    close46(f);
+  }
+
+  private static void read46(FileComponent f) {
+    f.read();
+  }
+
+  private static void close46(FileComponent f) {
+    f.close();
+  }
+
+  private static void use47() {
+    FileComponent f = new FileComponent();
+    close47(f);
+    read47(f);
+  }
+
+  private static void read47(FileComponent f) {
+    f.read();
+  }
+
+  private static void close47(FileComponent f) {
+    f.close();
+  }
+}
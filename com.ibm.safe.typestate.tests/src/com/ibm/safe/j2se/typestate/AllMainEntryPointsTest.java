@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.typestate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import com.ibm.safe.callgraph.AllMainEntryPoints;
+import com.ibm.safe.cha.J2SEClassHierarchyEngine;
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.options.CommonOptions;
+import com.ibm.safe.properties.CommonProperties;
+import com.ibm.safe.properties.PropertiesManager;
+import com.ibm.safe.typestate.tests.TypestateRegressionUnit;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+
+/**
+ * The main classes selected must not depend on how the selectors are matched,
+ * nor on whether they were found before for the same archives.
+ */
+public final class AllMainEntryPointsTest extends SafeTCase {
+
+  private static final String ITERATOR = "j2se.typestate.iterator.IteratorExample1";
+
+  private static final String BUFFER = "j2se.typestate.buffer.BufferExample1";
+
+  public void testCombinedSelectors() throws Exception {
+    Program both = new Program("IteratorExample1.jar,BufferExample1.jar"); //$NON-NLS-1$
+    assertEquals(list(BUFFER, ITERATOR), both.mainClasses(Pattern.compile("j2se\\.typestate\\.iterator\\..*"), //$NON-NLS-1$
+        Pattern.compile("j2se\\.typestate\\.buffer\\..*"))); //$NON-NLS-1$
+    assertEquals(list(ITERATOR), both.mainClasses(Pattern.compile("j2se\\.typestate\\.iterator\\..*"), //$NON-NLS-1$
+        Pattern.compile("j2se\\.typestate\\.list\\..*"))); //$NON-NLS-1$
+  }
+
+  /**
+   * A back reference of the second selector would refer to the group of the
+   * first one in a single alternation.
+   */
+  public void testCapturingGroups() throws Exception {
+    Program both = new Program("IteratorExample1.jar,BufferExample1.jar"); //$NON-NLS-1$
+    assertEquals(list(BUFFER, ITERATOR), both.mainClasses(Pattern.compile("j2se\\.typestate\\.(iterator)\\..*"), //$NON-NLS-1$
+        Pattern.compile("j2se\\.(t)ypes\\1ate\\.buffer\\..*"))); //$NON-NLS-1$
+  }
+
+  public void testFlags() throws Exception {
+    Program both = new Program("IteratorExample1.jar,BufferExample1.jar"); //$NON-NLS-1$
+    assertEquals(list(BUFFER, ITERATOR), both.mainClasses(Pattern.compile("j2se\\.typestate\\.iterator\\..*"), //$NON-NLS-1$
+        Pattern.compile("J2SE\\.TYPESTATE\\.BUFFER\\..*", Pattern.CASE_INSENSITIVE))); //$NON-NLS-1$
+  }
+
+  /**
+   * The classes found for the archives of a scope are taken again as long as
+   * the class hierarchy still declares them, even if it now has more.
+   */
+  public void testCacheHit() throws Exception {
+    Pattern selector = Pattern.compile("j2se\\.typestate\\.[a-z]+\\..*"); //$NON-NLS-1$
+    Program iterator = new Program("IteratorExample1.jar"); //$NON-NLS-1$
+    Program both = new Program("IteratorExample1.jar,BufferExample1.jar"); //$NON-NLS-1$
+    assertEquals(list(ITERATOR), iterator.mainClasses(selector));
+    assertEquals(list(ITERATOR), mainClasses(iterator.scope, both.cha, selector));
+    assertEquals(list(BUFFER, ITERATOR), both.mainClasses(selector));
+  }
+
+  /**
+   * The classes found for the archives of a scope are looked for again once
+   * the class hierarchy no longer declares them.
+   */
+  public void testStaleClasses() throws Exception {
+    Pattern selector = Pattern.compile("j2se\\.typestate\\..*"); //$NON-NLS-1$
+    Program buffer = new Program("BufferExample1.jar"); //$NON-NLS-1$
+    Program iterator = new Program("IteratorExample1.jar"); //$NON-NLS-1$
+    assertEquals(list(BUFFER), buffer.mainClasses(selector));
+    assertEquals(list(ITERATOR), mainClasses(buffer.scope, iterator.cha, selector));
+    assertEquals(list(BUFFER), buffer.mainClasses(selector));
+  }
+
+  // --- Private code
+
+  private static final class Program {
+
+    final AnalysisScope scope;
+
+    final IClassHierarchy cha;
+
+    Program(String modules) throws Exception {
+      TypestateRegressionUnit unit = new TypestateRegressionUnit(null, -1);
+      unit.setOption(CommonProperties.Props.MODULES.toString(), modules);
+      CommonOptions options = new CommonOptions(PropertiesManager.initFromMap(unit.getOptions()));
+      this.cha = new J2SEClassHierarchyEngine(options, null, new NullProgressMonitor()).buildClassHierarchy();
+      this.scope = options.getOrCreateAnalysisScope();
+    }
+
+    List<String> mainClasses(Pattern... selectors) throws Exception {
+      return AllMainEntryPointsTest.mainClasses(scope, cha, selectors);
+    }
+  }
+
+  /**
+   * @return the sorted names of the classes whose main methods are entry
+   *         points
+   */
+  private static List<String> mainClasses(AnalysisScope scope, IClassHierarchy cha, Pattern... selectors) throws Exception {
+    List<String> result = new ArrayList<String>();
+    for (Entrypoint e : new AllMainEntryPoints(scope, cha, selectors, false)) {
+      result.add(e.getMethod().getDeclaringClass().getName().toString().substring(1).replace('/', '.'));
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static List<String> list(String... names) {
+    List<String> result = new ArrayList<String>();
+    Collections.addAll(result, names);
+    return result;
+  }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.typestate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.safe.accesspath.AccessPathDictionary;
+import com.ibm.safe.accesspath.AccessPathSet;
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.dfa.DFAState;
+import com.ibm.safe.dfa.IDFAState;
+import com.ibm.safe.typestate.ap.must.MustAuxiliary;
+import com.ibm.safe.typestate.ap.must.mustnot.MustMustNotAuxiliary;
+import com.ibm.safe.typestate.quad.Auxiliary;
+import com.ibm.safe.typestate.quad.FactoidTable;
+import com.ibm.safe.typestate.quad.QuadFactoid;
+import com.ibm.safe.typestate.quad.QuadTypeStateDomain;
+import com.ibm.wala.ipa.callgraph.propagation.ConstantKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+
+/**
+ * The factoid table of the quad domain, and the numbers the domain gives
+ * through it, which must be those of the factoids themselves.
+ */
+public final class FactoidTableTest extends SafeTCase {
+
+  /**
+   * more states than fit in a packed key
+   */
+  private static final int MANY_STATES = 2100;
+
+  public void testGrowAndCollide() {
+    FactoidTable table = new FactoidTable();
+    List<Long> keys = new ArrayList<Long>();
+    for (long k = 0; k < 5000; k++) {
+      // keys which differ in high bits only, or in low bits only
+      keys.add(Long.valueOf(k << 40));
+      keys.add(Long.valueOf(k));
+    }
+    keys.add(Long.valueOf(Long.MIN_VALUE));
+    keys.add(Long.valueOf(Long.MAX_VALUE));
+    for (int i = 0; i < keys.size(); i++) {
+      table.put(keys.get(i).longValue(), i);
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(i, table.get(keys.get(i).longValue()));
+    }
+    assertEquals(-1, table.get(5000));
+    assertEquals(-1, table.get(-1L));
+  }
+
+  public void testOverwrite() {
+    FactoidTable table = new FactoidTable();
+    table.put(42, 0);
+    assertEquals(0, table.get(42));
+    table.put(42, 7);
+    assertEquals(7, table.get(42));
+  }
+
+  public void testSameNumbersAsFactoids() {
+    QuadTypeStateDomain domain = new QuadTypeStateDomain(null, null, null);
+    AccessPathDictionary dictionary = new AccessPathDictionary();
+    for (int i = 0; i < 3; i++) {
+      for (int s = 0; s < 4; s++) {
+        for (int u = 0; u < 2; u++) {
+          for (int a = 0; a < 2; a++) {
+            // equal, but not identical, components on each lookup
+            InstanceKey instance = makeInstance(i);
+            IDFAState state = makeState(s);
+            Auxiliary aux = makeAuxiliary(dictionary, a);
+            int viaFactoid = domain.add(new QuadFactoid(instance, state, u == 1, aux));
+            assertEquals(viaFactoid, domain.add(makeInstance(i), makeState(s), u == 1, makeAuxiliary(dictionary, a)));
+            assertEquals(viaFactoid, domain.add(instance, state, u == 1, aux));
+          }
+        }
+      }
+    }
+  }
+
+  public void testComponentsFirst() {
+    QuadTypeStateDomain domain = new QuadTypeStateDomain(null, null, null);
+    AccessPathDictionary dictionary = new AccessPathDictionary();
+    List<Integer> numbers = new ArrayList<Integer>();
+    for (int i = 0; i < 3; i++) {
+      for (int a = 0; a < 2; a++) {
+        numbers.add(Integer.valueOf(domain.add(makeInstance(i), makeState(0), true, makeAuxiliary(dictionary, a))));
+      }
+    }
+    int k = 0;
+    for (int i = 0; i < 3; i++) {
+      for (int a = 0; a < 2; a++) {
+        QuadFactoid f = new QuadFactoid(makeInstance(i), makeState(0), true, makeAuxiliary(dictionary, a));
+        assertEquals(numbers.get(k++).intValue(), domain.getMappedIndex(f));
+      }
+    }
+  }
+
+  public void testStatesBeyondKey() {
+    QuadTypeStateDomain domain = new QuadTypeStateDomain(null, null, null);
+    Auxiliary aux = makeAuxiliary(new AccessPathDictionary(), 0);
+    int[] numbers = new int[MANY_STATES];
+    for (int s = 0; s < MANY_STATES; s++) {
+      numbers[s] = domain.add(makeInstance(0), makeState(s), false, aux);
+    }
+    for (int s = 0; s < MANY_STATES; s++) {
+      assertEquals(numbers[s], domain.add(makeInstance(0), makeState(s), false, aux));
+      assertEquals(numbers[s], domain.getMappedIndex(new QuadFactoid(makeInstance(0), makeState(s), false, aux)));
+    }
+  }
+
+  // --- Private code
+
+  private static InstanceKey makeInstance(int i) {
+    return new ConstantKey<String>("instance" + i, null); //$NON-NLS-1$
+  }
+
+  private static IDFAState makeState(int s) {
+    IDFAState result = new DFAState();
+    result.setName("state" + s); //$NON-NLS-1$
+    result.setAccepting(false);
+    return result;
+  }
+
+  /**
+   * @return one of two auxiliaries with empty access path sets, a fresh object
+   *         on each call
+   */
+  private static Auxiliary makeAuxiliary(AccessPathDictionary dictionary, int a) {
+    if (a == 0) {
+      return new MustAuxiliary(new AccessPathSet(dictionary), false);
+    }
+    return new MustMustNotAuxiliary(new AccessPathSet(dictionary), new AccessPathSet(dictionary), false);
+  }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.typestate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.ibm.safe.core.tests.SafeMessageCheck;
+import com.ibm.safe.core.tests.SafeRegressionDriver;
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.incremental.ReplayedMessage;
+import com.ibm.safe.internal.exceptions.SafeException;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.typestate.tests.TypestateRegressionUnit;
+
+/**
+ * A second run over the same program, with the findings of the first one in
+ * the incremental cache, must replay them rather than solve again.
+ */
+public final class IncrementalTest extends SafeTCase {
+
+  private static final String PROGRAM = "j2se.typestate.fileComponent.FCExampleMany";
+
+  private static final String RULE = "FileReadAndCloseFromFileComponent";
+
+  public void testStagedReplay() throws SafeException, Exception {
+    assertReplayed(new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectStagedTypestateSolver();
+      }
+    });
+  }
+
+  public void testBaseReplay() throws SafeException, Exception {
+    assertReplayed(new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectBaseTypestateSolver();
+      }
+    });
+  }
+
+  // --- Private code
+
+  private interface Configuration {
+    void select(TypestateRegressionUnit test);
+  }
+
+  private static void assertReplayed(Configuration configuration) throws SafeException, Exception {
+    File cache = File.createTempFile("safe-incremental", ".cache"); //$NON-NLS-1$ //$NON-NLS-2$
+    try {
+      // the first run starts without a cache
+      assertTrue(cache.delete());
+      List<Message> first = run(configuration, cache);
+      assertFalse(first.isEmpty());
+      for (Message m : first) {
+        assertFalse(m instanceof ReplayedMessage);
+      }
+      assertTrue(cache.exists());
+
+      List<Message> second = run(configuration, cache);
+      for (Message m : second) {
+        assertTrue(m.toString(), m instanceof ReplayedMessage);
+      }
+      assertEquals(toText(first), toText(second));
+    } finally {
+      cache.delete();
+    }
+  }
+
+  private static List<Message> run(Configuration configuration, File cache) throws SafeException, Exception {
+    TypestateRegressionUnit test = new TypestateRegressionUnit(PROGRAM, -1);
+    test.selectTypestateRule(RULE);
+    configuration.select(test);
+    test.setIncrementalCache(cache.getAbsolutePath());
+    final List<Message> findings = new ArrayList<Message>();
+    SafeRegressionDriver.run(test, new SafeMessageCheck() {
+      public void check(Collection<? extends Message> messages) {
+        findings.addAll(messages);
+      }
+    });
+    return findings;
+  }
+
+  /**
+   * @return the findings as sorted text
+   */
+  private static List<String> toText(List<Message> messages) {
+    List<String> result = new ArrayList<String>();
+    for (Message m : messages) {
+      result.add(m.getLocation() + ": " + m.getText());
+    }
+    Collections.sort(result);
+    return result;
+  }
+}
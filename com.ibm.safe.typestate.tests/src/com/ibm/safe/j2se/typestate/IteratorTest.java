@@ -322,6 +322,14 @@ public final class IteratorTest extends SafeTCase {
     SafeRegressionDriver.run(test);
   }
 
+  public void testIteratorExample14APMustMustNotParallel() throws SafeException, Exception {
+    TypestateRegressionUnit test = new TypestateRegressionUnit("j2se.typestate.iterator.IteratorExample14", 0);
+    test.selectTypestateRule("IteratorHasNext");
+    test.selectAPMustMustNotTypestateSolver();
+    test.setTypestateThreads(4);
+    SafeRegressionDriver.run(test);
+  }
+
   public void testIteratorExample16Unique() throws SafeException, Exception {
     // for now, using cheap live analysis, which gives one false alarm.
     // expensive live analysis should be ok. need to optimize the expensive live
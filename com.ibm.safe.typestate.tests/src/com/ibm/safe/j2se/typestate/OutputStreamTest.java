@@ -45,6 +45,18 @@ public final class OutputStreamTest extends SafeTCase {
     SafeRegressionDriver.run(test);
   }
 
+  /**
+   * same as above, with the two rules solved concurrently; the iterator rule
+   * has no instances here.
+   */
+  public void testPipedOutputStreamExample1SeparatingConcurrentRules() throws SafeException, Exception {
+    TypestateRegressionUnit test = new TypestateRegressionUnit("j2se.typestate.output_stream.PipedOutputStreamExample1", 4);
+    test.selectTypestateRule("PipedOutputStream,IteratorHasNext");
+    test.selectSeparatingTypestateSolver();
+    test.setSolverThreads(2);
+    SafeRegressionDriver.run(test);
+  }
+
   /**
    * - Warning: Always connect a PipedOutputStream when using default
    * constructor
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.typestate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.ibm.safe.core.tests.SafeMessageCheck;
+import com.ibm.safe.core.tests.SafeRegressionDriver;
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.internal.exceptions.SafeException;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.typestate.tests.TypestateRegressionUnit;
+
+/**
+ * Solving on several threads must report the same findings as solving on one.
+ * The program has many instances, each with a slice of its own, so that the
+ * workers run many batches at once over distinct call graph nodes.
+ */
+public final class ParallelSolvingTest extends SafeTCase {
+
+  private static final String PROGRAM = "j2se.typestate.fileComponent.FCExampleMany";
+
+  private static final String RULE = "FileReadAndCloseFromFileComponent";
+
+  private static final int THREADS = 8;
+
+  /**
+   * runs of each configuration, to give races a chance to show
+   */
+  private static final int RUNS = 5;
+
+  public void testAPMustMustNotParallel() throws SafeException, Exception {
+    assertSameFindings(new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectAPMustMustNotTypestateSolver();
+      }
+    });
+  }
+
+  public void testBaseBatchedParallel() throws SafeException, Exception {
+    assertSameFindings(new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectBaseTypestateSolver();
+        test.setTypestateBatchSize(4);
+      }
+    });
+  }
+
+  public void testLocalMMNParallel() throws SafeException, Exception {
+    assertSameFindings(new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectLocalMMNSolver();
+      }
+    });
+  }
+
+  public void testStagedPipelined() throws SafeException, Exception {
+    List<String> inStages = run(new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectStagedTypestateSolver();
+      }
+    }, 1);
+    Configuration pipelined = new Configuration() {
+      public void select(TypestateRegressionUnit test) {
+        test.selectStagedTypestateSolver();
+        test.setStagedPipelineBatch(4);
+      }
+    };
+    for (int i = 0; i < RUNS; i++) {
+      assertEquals(inStages, run(pipelined, THREADS));
+    }
+  }
+
+  // --- Private code
+
+  private interface Configuration {
+    void select(TypestateRegressionUnit test);
+  }
+
+  private static void assertSameFindings(Configuration configuration) throws SafeException, Exception {
+    List<String> serial = run(configuration, 1);
+    assertFalse(serial.isEmpty());
+    for (int i = 0; i < RUNS; i++) {
+      assertEquals(serial, run(configuration, THREADS));
+    }
+  }
+
+  /**
+   * @return the findings of a run, as sorted text
+   */
+  private static List<String> run(Configuration configuration, int threads) throws SafeException, Exception {
+    TypestateRegressionUnit test = new TypestateRegressionUnit(PROGRAM, -1);
+    test.selectTypestateRule(RULE);
+    configuration.select(test);
+    test.setTypestateThreads(threads);
+    final List<String> findings = new ArrayList<String>();
+    SafeRegressionDriver.run(test, new SafeMessageCheck() {
+      public void check(Collection<? extends Message> messages) {
+        for (Message m : messages) {
+          findings.add(m.getLocation() + ": " + m.getText());
+        }
+      }
+    });
+    Collections.sort(findings);
+    return findings;
+  }
+}
@@ -27,6 +27,28 @@ public final class StagingExample extends SafeTCase {
     SafeRegressionDriver.run(test);
   }
 
+  public void testStagingExample1StagedPipelined() throws SafeException, Exception {
+    if (isPreCommit()) {
+      return;
+    }
+    TypestateRegressionUnit test = new TypestateRegressionUnit("j2se.typestate.fileComponent.StagingExample1", 0);
+    test.selectTypestateRule("FileOpenAndReadFromOpFileComponent");
+    test.selectStagedTypestateSolver();
+    test.setStagedPipelineBatch(1);
+    SafeRegressionDriver.run(test);
+  }
+
+  public void testStagingExample1StagedWithoutAccessPaths() throws SafeException, Exception {
+    if (isPreCommit()) {
+      return;
+    }
+    TypestateRegressionUnit test = new TypestateRegressionUnit("j2se.typestate.fileComponent.StagingExample1", 1);
+    test.selectTypestateRule("FileOpenAndReadFromOpFileComponent");
+    test.selectStagedTypestateSolver();
+    test.setStagedSolvers("LocalMustMustNot,Unique");
+    SafeRegressionDriver.run(test);
+  }
+
   public void testStagingExample1Unique() throws SafeException, Exception {
     if (isPreCommit()) {
       return;
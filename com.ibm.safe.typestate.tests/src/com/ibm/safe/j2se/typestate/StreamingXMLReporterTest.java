@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.typestate;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.ibm.safe.core.tests.SafeMessageCheck;
+import com.ibm.safe.core.tests.SafeRegressionDriver;
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.internal.exceptions.SafeException;
+import com.ibm.safe.internal.reporting.FindingComparator;
+import com.ibm.safe.internal.reporting.StreamingXMLReporter;
+import com.ibm.safe.internal.reporting.XMLReporter;
+import com.ibm.safe.internal.reporting.XMLReporterConstants;
+import com.ibm.safe.internal.runners.AbstractSolverRunner.AnalysisStatus;
+import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.message.Location;
+import com.ibm.safe.reporting.message.Message;
+import com.ibm.safe.rules.IRule;
+import com.ibm.safe.typestate.tests.TypestateRegressionUnit;
+
+/**
+ * The streaming XML reporter must write the same elements as the XML reporter,
+ * including when the types of findings interleave; only the order of findings,
+ * types and rules may differ.
+ */
+public final class StreamingXMLReporterTest extends SafeTCase {
+
+  private static final String PROGRAM = "j2se.typestate.fileComponent.FCExampleMany";
+
+  private static final String RULE = "FileReadAndCloseFromFileComponent";
+
+  public void testSameDocument() throws SafeException, Exception {
+    final List<Message> findings = new ArrayList<Message>();
+    TypestateRegressionUnit test = new TypestateRegressionUnit(PROGRAM, -1);
+    test.selectTypestateRule(RULE);
+    SafeRegressionDriver.run(test, new SafeMessageCheck() {
+      public void check(Collection<? extends Message> messages) {
+        // the XML reporter merges the findings the streaming one writes twice
+        Set<Message> distinct = new TreeSet<Message>(new FindingComparator());
+        distinct.addAll(messages);
+        findings.addAll(distinct);
+      }
+    });
+    assertFalse(findings.isEmpty());
+
+    File directory = File.createTempFile("safe-xml", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    assertTrue(directory.delete());
+    assertTrue(directory.mkdir());
+    try {
+      File expected = new File(directory, "results.xml"); //$NON-NLS-1$
+      File streamed = new File(directory, "streamed.xml"); //$NON-NLS-1$
+      report(new XMLReporter(expected.getPath()), findings);
+      report(new StreamingXMLReporter(streamed.getPath()), findings);
+      assertEquals(read(expected), read(streamed));
+      assertNoTemporaryFileLeft();
+    } finally {
+      for (File f : directory.listFiles()) {
+        f.delete();
+      }
+      directory.delete();
+    }
+  }
+
+  // --- Private code
+
+  /**
+   * Report the findings, each followed by a copy of another type.
+   */
+  private static void report(IReporter reporter, List<Message> findings) throws Exception {
+    Set<IRule> rules = new LinkedHashSet<IRule>();
+    for (Message m : findings) {
+      rules.add(m.getRule());
+    }
+    reporter.version("test"); //$NON-NLS-1$
+    for (IRule rule : rules) {
+      reporter.reportRuleLoading(rule);
+    }
+    for (Message m : findings) {
+      reporter.reportMessage(m);
+      reporter.reportMessage(new RetypedMessage(m));
+    }
+    reporter.reportAnalysisStatus(AnalysisStatus.NORMAL);
+    reporter.produceFinalReport();
+  }
+
+  private static void assertNoTemporaryFileLeft() {
+    File[] left = new File(System.getProperty("java.io.tmpdir")).listFiles(); //$NON-NLS-1$
+    for (File f : left) {
+      assertFalse(f.getName(), f.getName().startsWith("safe-findings")); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * @return the document element of the file, without its date, with the
+   *         messages elements sorted by type, and the findings and matched
+   *         rules in sorted order
+   */
+  private static String read(File file) throws Exception {
+    Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file).getDocumentElement();
+    root.removeAttribute(XMLReporterConstants.DATE_TAG);
+    sortChildren(root, XMLReporterConstants.MESSAGES_TAG);
+    for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (XMLReporterConstants.MESSAGES_TAG.equals(child.getNodeName())
+          || XMLReporterConstants.RULES_MATCHED_TAG.equals(child.getNodeName())) {
+        sortChildren((Element) child, null);
+      }
+    }
+    return toString(root);
+  }
+
+  /**
+   * Sort in place the child elements of parent with the given tag, or all its
+   * children if tag is null, by their text.
+   */
+  private static void sortChildren(Element parent, String tag) throws Exception {
+    List<Node> sorted = new ArrayList<Node>();
+    final Map<Node, String> texts = new HashMap<Node, String>();
+    Node anchor = null;
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (tag == null || tag.equals(child.getNodeName())) {
+        sorted.add(child);
+        texts.put(child, toString(child));
+      } else if (!sorted.isEmpty() && anchor == null) {
+        anchor = child;
+      }
+    }
+    Collections.sort(sorted, new Comparator<Node>() {
+      public int compare(Node left, Node right) {
+        return texts.get(left).compareTo(texts.get(right));
+      }
+    });
+    for (Node child : sorted) {
+      parent.removeChild(child);
+    }
+    for (Node child : sorted) {
+      parent.insertBefore(child, anchor);
+    }
+  }
+
+  private static String toString(Node node) throws Exception {
+    StringWriter result = new StringWriter();
+    TransformerFactory.newInstance().newTransformer().transform(new DOMSource(node), new StreamResult(result));
+    return result.toString();
+  }
+
+  private static final class RetypedMessage implements Message {
+
+    private final Message delegate;
+
+    RetypedMessage(Message delegate) {
+      this.delegate = delegate;
+    }
+
+    public IRule getRule() {
+      return delegate.getRule();
+    }
+
+    public Location getLocation() {
+      return delegate.getLocation();
+    }
+
+    public String getMessageType() {
+      return "retyped"; //$NON-NLS-1$
+    }
+
+    public String getText() {
+      return delegate.getText();
+    }
+
+    public String toString() {
+      return "retyped " + delegate; //$NON-NLS-1$
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.j2se.typestate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.safe.core.tests.SafeTCase;
+import com.ibm.safe.dfa.DFASpec;
+import com.ibm.safe.dfa.DFAState;
+import com.ibm.safe.dfa.DFATransition;
+import com.ibm.safe.dfa.IDFAState;
+import com.ibm.safe.dfa.IDFATransition;
+import com.ibm.safe.typestate.mine.AbstractTrace;
+import com.ibm.safe.typestate.mine.TraceContainer;
+import com.ibm.safe.typestate.mine.TraceWriter;
+
+/**
+ * Traces written by {@link TraceWriter} must read back as they were, whatever
+ * characters their names hold.
+ */
+public final class TraceContainerTest extends SafeTCase {
+
+  /**
+   * characters which XML parsers normalize in attribute values unless escaped
+   */
+  private static final String AWKWARD = "a\tb\r\nc \"<&>\" d"; //$NON-NLS-1$
+
+  public void testStringRoundTrip() throws Exception {
+    TraceContainer written = makeContainer();
+    String xml = written.asXMLString();
+    TraceContainer read = TraceContainer.readFromXMLString(xml);
+
+    assertEquals(2, read.getTraces().size());
+    for (int i = 0; i < 2; i++) {
+      assertSameTrace(written.getTraces().get(i), read.getTraces().get(i));
+    }
+    assertEquals(xml, read.asXMLString());
+  }
+
+  public void testCompressedFileRoundTrip() throws Exception {
+    TraceContainer written = makeContainer();
+    File f = File.createTempFile("traces", ".xml" + TraceWriter.COMPRESSED_SUFFIX); //$NON-NLS-1$ //$NON-NLS-2$
+    try {
+      TraceWriter out = TraceWriter.open(f);
+      for (AbstractTrace t : written.getTraces()) {
+        out.write(t);
+      }
+      out.close();
+
+      final List<AbstractTrace> visited = new ArrayList<AbstractTrace>();
+      TraceContainer.read(f, new TraceContainer.TraceVisitor() {
+        public void visit(AbstractTrace trace) {
+          visited.add(trace);
+        }
+      });
+      assertEquals(2, visited.size());
+      for (int i = 0; i < 2; i++) {
+        assertSameTrace(written.getTraces().get(i), visited.get(i));
+      }
+    } finally {
+      f.delete();
+    }
+  }
+
+  // --- Private code
+
+  private static TraceContainer makeContainer() {
+    TraceContainer result = new TraceContainer();
+    result.add(makeTrace("plain", "init", "open")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    result.add(makeTrace(AWKWARD, AWKWARD + "init", AWKWARD + "open")); //$NON-NLS-1$ //$NON-NLS-2$
+    return result;
+  }
+
+  private static AbstractTrace makeTrace(String program, String initialName, String event) {
+    DFASpec dfa = new DFASpec();
+    IDFAState initial = makeState(initialName);
+    dfa.addState(initial);
+    dfa.setInitialState(initial);
+    dfa.addState(makeState("opened")); //$NON-NLS-1$
+    IDFATransition t = new DFATransition();
+    t.setSource(initialName);
+    t.setDestination("opened"); //$NON-NLS-1$
+    t.setEvent(event);
+    dfa.addTransition(t);
+
+    AbstractTrace result = new AbstractTrace();
+    result.setDfa(dfa);
+    result.setProgram(program);
+    result.setType("java.io.File"); //$NON-NLS-1$
+    result.setSolver("BASE"); //$NON-NLS-1$
+    result.setMerger("UNIFY"); //$NON-NLS-1$
+    return result;
+  }
+
+  private static IDFAState makeState(String name) {
+    IDFAState result = new DFAState();
+    result.setAccepting(false);
+    result.setName(name);
+    return result;
+  }
+
+  private static void assertSameTrace(AbstractTrace expected, AbstractTrace actual) {
+    assertEquals(expected.getProgram(), actual.getProgram());
+    assertEquals(expected.getType(), actual.getType());
+    assertEquals(expected.getSolver(), actual.getSolver());
+    assertEquals(expected.getMerger(), actual.getMerger());
+
+    DFASpec expectedDfa = expected.getDfa();
+    DFASpec actualDfa = actual.getDfa();
+    assertEquals(expectedDfa.initialState().getName(), actualDfa.initialState().getName());
+    assertEquals(expectedDfa.getStates().size(), actualDfa.getStates().size());
+    for (int i = 0; i < expectedDfa.getStates().size(); i++) {
+      assertEquals(expectedDfa.getStates().get(i).getName(), actualDfa.getStates().get(i).getName());
+    }
+    assertEquals(expectedDfa.getTransitions().size(), actualDfa.getTransitions().size());
+    for (int i = 0; i < expectedDfa.getTransitions().size(); i++) {
+      IDFATransition e = expectedDfa.getTransitions().get(i);
+      IDFATransition a = actualDfa.getTransitions().get(i);
+      assertEquals(e.getSource(), a.getSource());
+      assertEquals(e.getDestination(), a.getDestination());
+      assertEquals(e.getEvent(), a.getEvent());
+    }
+  }
+}
@@ -139,6 +139,22 @@ public class TypestateRegressionUnit extends SafeRegressionUnit {
     setIntegerOption(TypestateProperties.Props.MUST_AP_KLIMIT.getName(), k);
   }
 
+  public void setTypestateThreads(int n) {
+    setIntegerOption(TypestateProperties.Props.TYPESTATE_THREADS.getName(), n);
+  }
+
+  public void setTypestateBatchSize(int n) {
+    setIntegerOption(TypestateProperties.Props.TYPESTATE_BATCH_SIZE.getName(), n);
+  }
+
+  public void setStagedSolvers(String kinds) {
+    setOption(TypestateProperties.Props.STAGED_SOLVERS.getName(), kinds);
+  }
+
+  public void setStagedPipelineBatch(int n) {
+    setIntegerOption(TypestateProperties.Props.STAGED_PIPELINE_BATCH.getName(), n);
+  }
+
   public void selectRTA() {
     setOption(WholeProgramProperties.Props.CG_KIND.getName(), "RTA");
   }
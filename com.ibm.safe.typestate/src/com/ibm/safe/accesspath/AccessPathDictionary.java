@@ -52,6 +52,11 @@ public class AccessPathDictionary {
    */
   private final Map<PathElement, BitVectorIntSet> startsWith = HashMapFactory.make();
 
+  /**
+   * number of times this dictionary has been cleared
+   */
+  private int generation = 0;
+
   /**
    * Reset all state to free up space.
    */
@@ -59,6 +64,22 @@ public class AccessPathDictionary {
     map.clear();
     vector = new SimpleVector<AccessPath>();
     startsWith.clear();
+    generation++;
+  }
+
+  /**
+   * @return number of canonical access paths in this dictionary
+   */
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * @return a number which changes each time this dictionary is cleared; sets
+   *         of access path ids built in an earlier generation are meaningless
+   */
+  public int getGeneration() {
+    return generation;
   }
 
   /**
@@ -17,7 +17,6 @@ import java.util.Set;
 import com.ibm.safe.typestate.quad.Auxiliary;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.BimodalMutableIntSet;
-import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.IntIterator;
 
 /**
@@ -260,12 +259,18 @@ public class AccessPathSet implements Auxiliary {
   }
 
   /*
-   * HashCode as a value!!! must be consistent with equals() TODO: cache?
+   * HashCode as a value!!! must be consistent with equals(). Computed from the
+   * path ids without copying them, as domains hash auxiliaries on every factoid
+   * lookup; not cached, since the set is mutable.
    * 
    * @see java.lang.Object#hashCode()
    */
   public int hashCode() {
-    return new BitVectorIntSet(contents).getBitVector().hashCode();
+    int result = 0;
+    for (IntIterator it = contents.intIterator(); it.hasNext();) {
+      result += it.next() * 0x9E3779B9;
+    }
+    return result;
   }
 
   /*
@@ -663,4 +663,11 @@ public abstract class AccessPathSetTransformers {
     return APDictionary;
   }
 
+  /**
+   * @return Returns the alias oracle.
+   */
+  public AliasOracle getAliasOracle() {
+    return aliasOracle;
+  }
+
 }
@@ -12,6 +12,7 @@ package com.ibm.safe.accesspath;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import com.ibm.safe.utils.Trace;
@@ -28,6 +29,7 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.TypedPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.GraphReachability;
@@ -62,6 +64,27 @@ public class FIAliasOracle implements AliasOracle {
 
   private final AccessPathDictionary APDictionary;
 
+  /**
+   * memo of {@link #getAcyclicAccessPaths(InstanceKey)}. The sets hold ids of
+   * APDictionary, so they are dropped when the dictionary is cleared, and when
+   * the maximum set width changes since that bounds their contents.
+   */
+  private final Map<InstanceKey, AccessPathSet> acyclicPaths = HashMapFactory.make();
+
+  /**
+   * dictionary generation for which acyclicPaths is valid
+   */
+  private int acyclicPathsGeneration;
+
+  /**
+   * maximum set width for which acyclicPaths is valid
+   */
+  private int acyclicPathsWidth;
+
+  private int acyclicPathsHits = 0;
+
+  private int acyclicPathsMisses = 0;
+
   /**
    * @param pointerAnalysis
    *          governing pointer analysis
@@ -70,6 +93,8 @@ public class FIAliasOracle implements AliasOracle {
     this.pointerAnalysis = pointerAnalysis;
     this.reach = reach;
     this.APDictionary = APDictionary;
+    this.acyclicPathsGeneration = APDictionary.getGeneration();
+    this.acyclicPathsWidth = AccessPathSet.getMaxSetWidth();
   }
 
   /*
@@ -93,8 +118,7 @@ public class FIAliasOracle implements AliasOracle {
       if (DEBUG) {
         Trace.println("Processing PTS element " + ik + " for " + xPtr);
       }
-      // TODO: cache this?
-      result.addAll(getAcyclicAccessPaths(ik));
+      result.addAll(findOrCreateAcyclicAccessPaths(ik));
     }
     if (DEBUG) {
       Trace.println("Aliases for: " + xPtr + " = " + result);
@@ -109,6 +133,49 @@ public class FIAliasOracle implements AliasOracle {
     return result;
   }
 
+  /**
+   * @return the acyclic access paths to instance, shared: callers must not
+   *         modify the result
+   */
+  private AccessPathSet findOrCreateAcyclicAccessPaths(InstanceKey instance) {
+    if (acyclicPathsGeneration != APDictionary.getGeneration() || acyclicPathsWidth != AccessPathSet.getMaxSetWidth()) {
+      acyclicPaths.clear();
+      acyclicPathsGeneration = APDictionary.getGeneration();
+      acyclicPathsWidth = AccessPathSet.getMaxSetWidth();
+    }
+    AccessPathSet result = acyclicPaths.get(instance);
+    if (result == null) {
+      acyclicPathsMisses++;
+      result = getAcyclicAccessPaths(instance);
+      acyclicPaths.put(instance, result);
+    } else {
+      acyclicPathsHits++;
+    }
+    return result;
+  }
+
+  /**
+   * @return number of instances whose acyclic access paths are memoized
+   */
+  public int getCacheSize() {
+    return acyclicPaths.size();
+  }
+
+  /**
+   * @return number of alias queries answered from memoized access paths, per
+   *         points-to set element
+   */
+  public int getCacheHits() {
+    return acyclicPathsHits;
+  }
+
+  /**
+   * @return number of times access paths to an instance had to be computed
+   */
+  public int getCacheMisses() {
+    return acyclicPathsMisses;
+  }
+
   /**
    * @param s
    *          Set<accessPath>
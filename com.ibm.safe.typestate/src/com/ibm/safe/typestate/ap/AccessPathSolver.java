@@ -11,15 +11,28 @@
 
 package com.ibm.safe.typestate.ap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.ibm.safe.Factoid;
 import com.ibm.safe.accesspath.AccessPathDictionary;
 import com.ibm.safe.accesspath.AccessPathSetTransformers;
+import com.ibm.safe.accesspath.AliasOracle;
+import com.ibm.safe.accesspath.FIAliasOracle;
+import com.ibm.safe.internal.exceptions.MaxFindingsException;
 import com.ibm.safe.internal.exceptions.PropertiesException;
+import com.ibm.safe.internal.exceptions.SetUpException;
+import com.ibm.safe.internal.exceptions.SolverTimeoutException;
+import com.ibm.safe.perf.PerformanceTracker;
 import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.message.ISolverResult;
 import com.ibm.safe.typestate.core.BenignOracle;
+import com.ibm.safe.typestate.core.WholeProgramSupergraph;
 import com.ibm.safe.typestate.merge.IMergeFunctionFactory;
 import com.ibm.safe.typestate.metrics.TypeStateMetrics;
 import com.ibm.safe.typestate.mine.TraceReporter;
@@ -28,6 +41,7 @@ import com.ibm.safe.typestate.quad.QuadSolver;
 import com.ibm.safe.typestate.rules.ITypeStateDFA;
 import com.ibm.safe.utils.Trace;
 import com.ibm.wala.analysis.pointers.HeapGraph;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.escape.ILiveObjectAnalysis;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
@@ -39,6 +53,7 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.TypedPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.SSAArrayStoreInstruction;
 import com.ibm.wala.ssa.SSACheckCastInstruction;
@@ -51,6 +66,8 @@ import com.ibm.wala.ssa.SSAMonitorInstruction;
 import com.ibm.wala.ssa.SSAPhiInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.ssa.SSAReturnInstruction;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.Predicate;
 import com.ibm.wala.util.WalaException;
 import com.ibm.wala.util.collections.CollectionFilter;
@@ -77,13 +94,24 @@ public abstract class AccessPathSolver extends QuadSolver {
    */
   private AccessPathSetTransformers apsTransformer;
 
+  /**
+   * path-set transformer private to a worker thread, when instances are solved
+   * in parallel. The access path dictionary is not thread-safe, so workers
+   * must not share it.
+   */
+  private final ThreadLocal<AccessPathSetTransformers> workerApsTransformer = new ThreadLocal<AccessPathSetTransformers>();
+
+  /**
+   * the worker transformers created during the current perform(), whose alias
+   * caches are counted in the performance span once it is over
+   */
+  private final List<AccessPathSetTransformers> workerApsTransformers = new ArrayList<AccessPathSetTransformers>();
+
   /**
    * call graph reachability analysis
    */
   private GraphReachability<CGNode,CGNode> reach;
 
-  private final AccessPathDictionary APDictionary;
-
   /**
    * Instantiate a new AccessPathsSafeSolver
    * 
@@ -103,14 +131,89 @@ public abstract class AccessPathSolver extends QuadSolver {
     super(domoOptions, cg, pointerAnalysis, dfa, options, live, ora, metrics, reporter, traceReporter, mergeFactory);
     apsTransformer = apst;
     this.reach = reach;
-    this.APDictionary = apst.getAPDictionary();
   }
 
   /**
-   * @return Returns the apsTransformer.
+   * @return Returns the apsTransformer for the calling thread.
    */
   protected AccessPathSetTransformers getApsTransformer() {
-    return apsTransformer;
+    AccessPathSetTransformers worker = workerApsTransformer.get();
+    return worker == null ? apsTransformer : worker;
+  }
+
+  /**
+   * @return a fresh path-set transformer, with its own access path dictionary
+   */
+  protected abstract AccessPathSetTransformers makeApsTransformer();
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ibm.safe.typestate.core.AbstractTypestateSolver#initializeWorkerState()
+   */
+  @Override
+  protected void initializeWorkerState() {
+    // keep a worker's transformer across instances, as the serial solver does,
+    // so that its dictionary and alias cache are reused
+    if (workerApsTransformer.get() == null) {
+      AccessPathSetTransformers t = makeApsTransformer();
+      workerApsTransformer.set(t);
+      synchronized (workerApsTransformers) {
+        workerApsTransformers.add(t);
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ibm.safe.typestate.core.AbstractTypestateSolver#perform(org.eclipse.core.runtime.IProgressMonitor)
+   */
+  @Override
+  public ISolverResult perform(final IProgressMonitor monitor) throws WalaException, SolverTimeoutException, PropertiesException,
+      MaxFindingsException, SetUpException, CancelException {
+    try {
+      return super.perform(monitor);
+    } finally {
+      recordAliasCache(apsTransformer);
+      synchronized (workerApsTransformers) {
+        for (AccessPathSetTransformers t : workerApsTransformers) {
+          recordAliasCache(t);
+        }
+        workerApsTransformers.clear();
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ibm.safe.typestate.core.AbstractTypestateSolver#recordProblemCounters(com.ibm.safe.perf.PerformanceTracker,
+   *      com.ibm.safe.typestate.core.WholeProgramSupergraph, com.ibm.wala.dataflow.IFDS.TabulationResult)
+   */
+  @Override
+  protected void recordProblemCounters(PerformanceTracker instanceSpan, WholeProgramSupergraph supergraph,
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> r) {
+    super.recordProblemCounters(instanceSpan, supergraph, r);
+    instanceSpan.setGauge("access paths", getApsTransformer().getAPDictionary().size());
+  }
+
+  /**
+   * add the use made of the access path cache of the alias oracle of t to the
+   * counters of this solver's span
+   */
+  private void recordAliasCache(AccessPathSetTransformers t) {
+    PerformanceTracker span = getPerformanceSpan();
+    if (t == null || span == null) {
+      return;
+    }
+    AliasOracle oracle = t.getAliasOracle();
+    if (oracle instanceof FIAliasOracle) {
+      FIAliasOracle fi = (FIAliasOracle) oracle;
+      span.addToCounter("alias cache hits", fi.getCacheHits());
+      span.addToCounter("alias cache misses", fi.getCacheMisses());
+      span.addToCounter("alias cache entries", fi.getCacheSize());
+    }
   }
 
   /**
@@ -341,6 +444,6 @@ public abstract class AccessPathSolver extends QuadSolver {
    * @return Returns the aPDictionary.
    */
   protected AccessPathDictionary getAPDictionary() {
-    return APDictionary;
+    return getApsTransformer().getAPDictionary();
   }
 }
@@ -13,6 +13,7 @@ package com.ibm.safe.typestate.ap.must;
 
 import java.util.Collection;
 
+import com.ibm.safe.accesspath.AccessPathSetTransformers;
 import com.ibm.safe.reporting.IReporter;
 import com.ibm.safe.typestate.ap.AccessPathSolver;
 import com.ibm.safe.typestate.core.BenignOracle;
@@ -58,6 +59,10 @@ public abstract class AbstractMustAPSolver extends AccessPathSolver {
         metrics, reporter, traceReporter, mergeFactory);
   }
 
+  protected AccessPathSetTransformers makeApsTransformer() {
+    return new MustAPSetTransformers(getPointerAnalysis(), getReach());
+  }
+
   /**
    * 
    * @param instances -
@@ -231,6 +231,14 @@ public class BaseSolver extends AbstractTypestateSolver {
     return InstanceBatchIterator.makeNoSeparation(allInstances);
   }
 
+  /**
+   * factoids of the base domain carry their instance, so several instances
+   * may be solved in one problem
+   */
+  protected boolean supportsInstanceBatching() {
+    return true;
+  }
+
   protected boolean supportsWitnessGeneration() {
     return false;
   }
@@ -48,4 +48,8 @@ public class SeparatingSolver extends BaseSolver {
   protected InstanceBatchIterator makeBatchIterator(Collection<InstanceKey> allInstances) {
     return InstanceBatchIterator.makeSeparation(allInstances);
   }
+
+  protected boolean supportsInstanceBatching() {
+    return false;
+  }
 }
\ No newline at end of file
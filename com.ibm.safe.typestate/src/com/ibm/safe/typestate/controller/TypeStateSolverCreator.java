@@ -27,6 +27,7 @@ import com.ibm.safe.perf.PerformanceTracker;
 import com.ibm.safe.reporting.IReporter;
 import com.ibm.safe.rules.TypestateRule;
 import com.ibm.safe.typestate.core.BenignOracle;
+import com.ibm.safe.typestate.core.SharedAnalysisContext;
 import com.ibm.safe.typestate.core.TypeStateProperty;
 import com.ibm.safe.typestate.core.TypestateSolverFactory;
 import com.ibm.safe.typestate.io.TypeStatePropertyDotWriter;
@@ -99,17 +100,18 @@ public class TypeStateSolverCreator {
   public ISafeSolver[] createSolvers() throws SafeException, CancelException {
 
     HeapGraph hg = callGraphEngine.getPointerAnalysis().getHeapGraph();
-    // ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ?
-    // computeLiveObjectAnalysis(domoCallGraph.getCallGraph(), hg) : null;
+    // reachability and live analysis are computed at most once, and shared by
+    // all solvers
+    SharedAnalysisContext context = new SharedAnalysisContext(callGraphEngine.getCallGraph(), hg, options, perfTracker);
     Collection<ISafeSolver> solvers = null;
     if (options.shouldMineDFA()) {
       Assertions.productionAssertion(options.getRules().length == 0, "don't specify rules when mining");
-      solvers = createMiners(hg, traceReporter);
+      solvers = createMiners(context, traceReporter);
     } else {
       final TypestateRule[] rules = this.options.getRules();
       solvers = new ArrayList<ISafeSolver>(rules.length);
       final Set<TypeStateProperty> typeStatePropertySet = new HashSet<TypeStateProperty>(rules.length);
-      createVerifiers(rules, solvers, typeStatePropertySet, hg);
+      createVerifiers(rules, solvers, typeStatePropertySet, context);
       if (this.options.shouldCreatePropertyDotFile()) {
         TypeStatePropertyDotWriter.write(this.options.getPropertyDotFile(), typeStatePropertySet);
       }
@@ -118,7 +120,7 @@ public class TypeStateSolverCreator {
     return solvers.toArray(new ISafeSolver[solvers.size()]);
   }
 
-  private Collection<ISafeSolver> createMiners(HeapGraph hg, TraceReporter traceReporter) throws PropertiesException, CancelException {
+  private Collection<ISafeSolver> createMiners(SharedAnalysisContext context, TraceReporter traceReporter) throws PropertiesException, CancelException {
     Set<ISafeSolver> result = HashSetFactory.make();
     String type = options.getMineType();
     Assertions.productionAssertion(type != null, "mine_type cannot be null!");
@@ -129,19 +131,19 @@ public class TypeStateSolverCreator {
     final ITypeStateDFA dfa = createTypeStateTracer(klass);
     BenignOracle ora = new BenignOracle(callGraphEngine.getCallGraph(), callGraphEngine.getPointerAnalysis());
     result.add(TypestateSolverFactory.getSolver(callGraphEngine.getAnalysisOptions(), callGraphEngine.getCallGraph(),
-        callGraphEngine.getPointerAnalysis(), hg, dfa, ora, options, metrics, reporter, perfTracker, traceReporter));
+        callGraphEngine.getPointerAnalysis(), context, dfa, ora, options, metrics, reporter, perfTracker, traceReporter));
 
     return result;
   }
 
   protected void createVerifiers(final TypestateRule[] rules, final Collection<ISafeSolver> solvers,
-      final Set<TypeStateProperty> typeStatePropertySet, HeapGraph hg) throws PropertiesException, CancelException {
+      final Set<TypeStateProperty> typeStatePropertySet, SharedAnalysisContext context) throws PropertiesException, CancelException {
     for (int i = 0; i < rules.length; i++) {
       final TypeStateProperty property = createTypeStateProperty(rules[i]);
       typeStatePropertySet.add(property);
       BenignOracle ora = new BenignOracle(callGraphEngine.getCallGraph(), callGraphEngine.getPointerAnalysis());
       solvers.add(TypestateSolverFactory.getSolver(callGraphEngine.getAnalysisOptions(), callGraphEngine.getCallGraph(),
-          callGraphEngine.getPointerAnalysis(), hg, property, ora, options, metrics, reporter, perfTracker, traceReporter));
+          callGraphEngine.getPointerAnalysis(), context, property, ora, options, metrics, reporter, perfTracker, traceReporter));
 
     }
   }
@@ -157,7 +159,10 @@ public class TypeStateSolverCreator {
    * @throws SetUpException
    */
   private void computeCallGraph(final boolean shouldDumpCallGraph) throws SafeException, IllegalArgumentException, CancelException {
-    this.callGraphEngine.computeCallGraph();
+    if (this.callGraphEngine.getCallGraph() == null) {
+      // not yet computed by the analysis session
+      this.callGraphEngine.computeCallGraph();
+    }
     if (Trace.getTraceFile() != null) {
       if (shouldDumpCallGraph) {
         Trace.println(this.callGraphEngine.getCallGraph());
@@ -11,6 +11,8 @@
 package com.ibm.safe.typestate.controller;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -33,6 +35,7 @@ import com.ibm.safe.rules.TypestateRule;
 import com.ibm.safe.runners.IResultObserver;
 import com.ibm.safe.typestate.mine.TraceReporter;
 import com.ibm.safe.typestate.options.TypeStateOptions;
+import com.ibm.safe.utils.PreparedIRs;
 import com.ibm.safe.utils.Trace;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.WalaException;
@@ -56,8 +59,15 @@ public class TypeStateSolverRunner extends WholeProgramSolverRunner {
       CancelException, CoreException {
     TraceReporter tReporter = (shouldMineDFA()) ? makeTraceReporter() : null;
     SubProgressMonitor cgMonitor = new SubProgressMonitor(monitor, 8);
+    final String[] propertyTypes = getPropertyTypes();
     CallGraphEngine cge = createCallGraphEngine(cgMonitor);
-    cge.setInterestingTypes(getPropertyTypes());
+    cge.setInterestingTypes(propertyTypes);
+    try {
+      cge = getAnalysisSession().getOrComputeCallGraph(cge, getManager(), getCallGraphKey(propertyTypes),
+          getPerformanceTracker());
+    } catch (IOException e) {
+      throw new SafeException("Unable to create analysis scope", e);
+    }
     TypeStateSolverCreator creator = new TypeStateSolverCreator(cge, getManager(), getReporter(), getPerformanceTracker(),
         tReporter);
 
@@ -65,7 +75,16 @@ public class TypeStateSolverRunner extends WholeProgramSolverRunner {
     monitor.subTask(Messages.TypeStateSolverRunner_CreateCallGraph);
 
     final ISafeSolver[] solvers = creator.createSolvers();
-    runSolvers(solvers, observer, AnalysisKind.TYPESTATE, Stages.TYPESTATE, new SubProgressMonitor(monitor, 12));
+    // concurrent solvers get IRs and def-uses through the cache of the call
+    // graph, which is not thread-safe
+    PreparedIRs irs = shouldRunSolversConcurrently(solvers) ? PreparedIRs.prepare(cge.getCallGraph()) : null;
+    try {
+      runSolvers(solvers, observer, AnalysisKind.TYPESTATE, Stages.TYPESTATE, new SubProgressMonitor(monitor, 12));
+    } finally {
+      if (irs != null) {
+        irs.release();
+      }
+    }
     if (creator.getMetrics() != null) {
       getReporter().reportStatistics(creator.getMetrics());
     }
@@ -131,6 +150,16 @@ public class TypeStateSolverRunner extends WholeProgramSolverRunner {
     return (TypeStateOptions) this.propertiesManager;
   }
 
+  /**
+   * @return a key identifying the call graph built for the given property
+   *         types; the custom call graph kind depends on them
+   */
+  private String getCallGraphKey(final String[] propertyTypes) throws PropertiesException {
+    final String[] sortedTypes = propertyTypes.clone();
+    Arrays.sort(sortedTypes);
+    return getManager().getCallGraphKind() + Arrays.toString(sortedTypes);
+  }
+
   private String[] getPropertyTypes() {
     Collection<String> propertyTypes = HashSetFactory.make();
     for (int i = 0; i < rules.length; i++) {
@@ -10,13 +10,24 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -25,13 +36,26 @@ import com.ibm.safe.Factoid;
 import com.ibm.safe.ICFGSupergraph;
 import com.ibm.safe.dfa.DFASpec;
 import com.ibm.safe.dfa.IDFAState;
+import com.ibm.safe.dfa.IDFATransition;
+import com.ibm.safe.dfa.events.IDispatchEvent;
 import com.ibm.safe.dfa.events.IEvent;
 import com.ibm.safe.dfa.events.IObjectDeathEventImpl;
 import com.ibm.safe.dfa.events.IProgramExitEventImpl;
+import com.ibm.safe.dfa.events.IReadFieldEvent;
+import com.ibm.safe.dfa.events.IWriteFieldEvent;
+import com.ibm.safe.incremental.CachedFinding;
+import com.ibm.safe.incremental.ClassFingerprints;
+import com.ibm.safe.incremental.IIncrementalSolver;
+import com.ibm.safe.incremental.IncrementalStore;
+import com.ibm.safe.incremental.ReplayedSolverResult;
 import com.ibm.safe.internal.exceptions.MaxFindingsException;
 import com.ibm.safe.internal.exceptions.PropertiesException;
 import com.ibm.safe.internal.exceptions.SetUpException;
 import com.ibm.safe.internal.exceptions.SolverTimeoutException;
+import com.ibm.safe.perf.IPerformanceTracked;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.perf.PerformanceTracker.Kind;
+import com.ibm.safe.perf.PerformanceTracker.Stages;
 import com.ibm.safe.reporting.IReporter;
 import com.ibm.safe.reporting.message.AggregateSolverResult;
 import com.ibm.safe.reporting.message.ISolverResult;
@@ -45,8 +69,10 @@ import com.ibm.safe.typestate.metrics.TypeStateMetrics;
 import com.ibm.safe.typestate.mine.TraceReporter;
 import com.ibm.safe.typestate.mine.TracingProperty;
 import com.ibm.safe.typestate.options.TypeStateOptions;
+import com.ibm.safe.typestate.rules.AbstractTypeStateDFA;
 import com.ibm.safe.typestate.rules.ITypeStateDFA;
 import com.ibm.safe.typestate.rules.InstanceBatchIterator;
+import com.ibm.safe.utils.PreparedIRs;
 import com.ibm.safe.utils.Trace;
 import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IClass;
@@ -59,6 +85,7 @@ import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.AllocationSite;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
@@ -89,12 +116,14 @@ import com.ibm.wala.util.intset.OrdinalSetMapping;
  * @author Eran Yahav (yahave)
  * @author Stephen Fink
  */
-public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver {
+public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver implements IPerformanceTracked,
+    IIncrementalSolver {
 
   /**
-   * analysis domain
+   * analysis domain. The domain is confined to the thread which initialized
+   * it, so that workers solving instances in parallel each see their own.
    */
-  private TypeStateDomain domain;
+  private final ThreadLocal<TypeStateDomain> domain = new ThreadLocal<TypeStateDomain>();
 
   /**
    * Property automaton
@@ -119,6 +148,35 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
 
   private final Logger logger = Logger.getGlobal();
 
+  /**
+   * If non-null, the only instances this solver may track; set by a staged
+   * solver to hand over the instances earlier stages could not verify
+   */
+  private Collection<InstanceKey> candidateInstances;
+
+  /**
+   * If non-null, the span in which to record the phases and counters of each
+   * set of instances solved
+   */
+  private PerformanceTracker performanceSpan;
+
+  /**
+   * number of instance spans created, to keep their names unique
+   */
+  private final AtomicInteger instanceSpanCount = new AtomicInteger();
+
+  /**
+   * slices computed before the instances are solved, by set of instances: for
+   * the footprint of the instances, or to batch them
+   */
+  private final ConcurrentHashMap<Set<InstanceKey>, Collection<CGNode>> slices = new ConcurrentHashMap<Set<InstanceKey>, Collection<CGNode>>();
+
+  /**
+   * If non-null, the findings of previous runs, replayed when nothing the
+   * tracked instances depend on has changed
+   */
+  private IncrementalStore incrementalStore;
+
   /**
    * Instantiate a new base-safe-solver.
    * 
@@ -164,7 +222,7 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
    * @return Returns the domain.
    */
   public TypeStateDomain getDomain() {
-    return domain;
+    return domain.get();
   }
 
   /**
@@ -196,6 +254,34 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
     return Iterator2Collection.toList(getCallGraph().iterator());
   }
 
+  /**
+   * @return the nodes that matter for the instances, computed at most once
+   *         during {@link #perform(IProgressMonitor)}
+   */
+  protected Collection<CGNode> getSlice(Collection<InstanceKey> instances) throws WalaException, PropertiesException {
+    Set<InstanceKey> key = new HashSet<InstanceKey>(instances);
+    Collection<CGNode> result = slices.get(key);
+    if (result == null) {
+      // computed outside any lock; if two workers race, both compute the same
+      // slice
+      result = computeNodesThatMatter(toOrdinalInstanceSet(instances));
+      Collection<CGNode> old = slices.putIfAbsent(key, result);
+      if (old != null) {
+        result = old;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the nodes that matter for the instances, for solving them: the
+   *         slice is not kept any longer
+   */
+  private Collection<CGNode> takeSlice(Collection<InstanceKey> instances) throws WalaException, PropertiesException {
+    Collection<CGNode> result = slices.remove(new HashSet<InstanceKey>(instances));
+    return (result != null) ? result : computeNodesThatMatter(toOrdinalInstanceSet(instances));
+  }
+
   /**
    * create an object to control the separation policy.
    * 
@@ -271,7 +357,17 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
    *          The domain to set.
    */
   public void setDomain(TypeStateDomain domain) {
-    this.domain = domain;
+    this.domain.set(domain);
+  }
+
+  /**
+   * Set up any solver state which must be confined to a single worker thread
+   * when instances are solved in parallel. Called on the worker before each
+   * call to {@link #initializeDomain(Collection)}.
+   * 
+   * subclasses should override this as desired
+   */
+  protected void initializeWorkerState() {
   }
 
   /**
@@ -411,6 +507,18 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
     return foundOne;
   }
 
+  /**
+   * Restrict this solver to a subset of the instances it would otherwise
+   * track.
+   * 
+   * @param instances
+   *          the instances still to be verified, or null to track all
+   *          instances of the property type
+   */
+  public void restrictToInstances(Collection<InstanceKey> instances) {
+    this.candidateInstances = instances;
+  }
+
   /**
    * compute the set of instance keys which should be solved for
    * 
@@ -474,6 +582,10 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
       System.err.println("after dfa slice : " + result.size());
     }
 
+    if (candidateInstances != null) {
+      result.retainAll(new HashSet<InstanceKey>(candidateInstances));
+    }
+
     logger.fine(() -> "Number of relevant instances: " + result.size());
 
     return result;
@@ -737,9 +849,8 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
   @SuppressWarnings("unused")
   protected TypeStateResult solveForInstances(Collection<InstanceKey> instances, AnalysisCache ac) throws WalaException,
       PropertiesException, SetUpException, CancelException {
-    OrdinalSet<InstanceKey> instanceSet = toOrdinalInstanceSet(instances);
     logger.fine(() -> "original callgraph: " + getCallGraph().getNumberOfNodes());
-    Collection<CGNode> relevantNodes = computeNodesThatMatter(instanceSet);
+    Collection<CGNode> relevantNodes = takeSlice(instances);
 
     logger.fine(() -> "sliced callgraph: " + relevantNodes.size());
 
@@ -751,7 +862,14 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
         Trace.println("Domain:\n" + getDomain().toString());
       }
 
-      WholeProgramSupergraph supergraph = buildSupergraph(ac, relevantNodes);
+      PerformanceTracker instanceSpan = makeInstanceSpan(instances);
+      startPhase(instanceSpan, Stages.SUPERGRAPH);
+      WholeProgramSupergraph supergraph;
+      try {
+        supergraph = buildSupergraph(ac, relevantNodes);
+      } finally {
+        stopPhase(instanceSpan, Stages.SUPERGRAPH);
+      }
 
       if (getOptions().shouldCollectStatistics()) {
         getMetrics().recordSupergraphSize(supergraph.getNumberOfNodes());
@@ -771,7 +889,16 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
 
       TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> solver = TabulationSolver.make(p);
 
-      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> r = solver.solve();
+      startPhase(instanceSpan, Stages.TABULATION);
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> r;
+      try {
+        r = solver.solve();
+      } finally {
+        stopPhase(instanceSpan, Stages.TABULATION);
+      }
+      if (instanceSpan != null) {
+        recordProblemCounters(instanceSpan, supergraph, r);
+      }
 
       if (DEBUG_LEVEL > 0) {
         Trace.println("IFDS Result \n " + r.toString());
@@ -794,6 +921,72 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
     }
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ibm.safe.perf.IPerformanceTracked#setPerformanceSpan(com.ibm.safe.perf.PerformanceTracker)
+   */
+  public void setPerformanceSpan(PerformanceTracker span) {
+    this.performanceSpan = span;
+  }
+
+  /**
+   * @return the span this solver records to, or null
+   */
+  protected PerformanceTracker getPerformanceSpan() {
+    return performanceSpan;
+  }
+
+  /**
+   * @return a new span for a set of instances about to be solved, or null if
+   *         performance is not tracked: the span is named by its number, and
+   *         lists the instances in its "instances" attribute
+   */
+  private PerformanceTracker makeInstanceSpan(Collection<InstanceKey> instances) {
+    if (performanceSpan == null) {
+      return null;
+    }
+    PerformanceTracker result = performanceSpan.getChild("#" + instanceSpanCount.incrementAndGet(), Kind.INSTANCE);
+    result.setAttribute("instances", instances.toString());
+    return result;
+  }
+
+  private static void startPhase(PerformanceTracker span, Stages phase) {
+    if (span != null) {
+      span.startTracking(phase.toString());
+    }
+  }
+
+  private static void stopPhase(PerformanceTracker span, Stages phase) {
+    if (span != null) {
+      span.stopTracking(phase.toString());
+    }
+  }
+
+  /**
+   * Record the size of a solved problem in the span of its instances. Counters
+   * are also added to the span of this solver, to give totals over all
+   * instances.
+   * 
+   * The tabulation solver does not expose its path edges, so their number is
+   * approximated by the facts reached: the pairs (supergraph node, factoid)
+   * which are the targets of some path edge.
+   */
+  protected void recordProblemCounters(PerformanceTracker instanceSpan, WholeProgramSupergraph supergraph,
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> r) {
+    long reachedFacts = 0;
+    Collection<BasicBlockInContext<IExplodedBasicBlock>> reached = r.getSupergraphNodesReached();
+    for (BasicBlockInContext<IExplodedBasicBlock> n : reached) {
+      reachedFacts += r.getResult(n).size();
+    }
+    instanceSpan.setGauge("supergraph nodes", supergraph.getNumberOfNodes());
+    instanceSpan.setGauge("factoids", getDomain().getSize());
+    instanceSpan.addToCounter("reached nodes", reached.size());
+    instanceSpan.addToCounter("reached facts", reachedFacts);
+    performanceSpan.addToCounter("reached nodes", reached.size());
+    performanceSpan.addToCounter("reached facts", reachedFacts);
+  }
+
   /**
    * Perfom the analysis
    * 
@@ -806,7 +999,6 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
    */
   public ISolverResult perform(final IProgressMonitor monitor) throws WalaException, SolverTimeoutException, PropertiesException,
       MaxFindingsException, SetUpException, CancelException {
-    AnalysisCache ac = new AnalysisCacheImpl();
     monitor.beginTask(null, 1);
     monitor.subTask(toString());
     AggregateSolverResult result = new AggregateSolverResult();
@@ -818,6 +1010,7 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
 
         Collection<InstanceKey> instances = computeTrackedInstances();
         result.addPotentialInstances(instances);
+        prepareEventNodeIndex();
 
         Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> potentialErrors = null;
         if (!getOptions().shouldMineDFA()) {
@@ -828,39 +1021,38 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
           TypeStateProperty property = (TypeStateProperty) getDFA();
           potentialErrors = oracle.possibleErrorLocations(property);
         }
+
+        IncrementalUnit unit = getIncrementalUnit(instances);
+        if (unit != null && unit.replay(instances, potentialErrors, result)) {
+          return result;
+        }
         if (getOptions().shouldCollectStatistics() && !getOptions().shouldMineDFA()) {
           getMetrics().setNumberOfCandidateStatements(getPropertyName(), countCandidateStatements(computeTrackedInstancesByType()));
         }
 
-        for (Iterator<InstanceKey> it = instances.iterator(); it.hasNext();) {
-          InstanceKey theInstance = it.next();
-
-          if (!oracle.isBenignInstanceKey(theInstance)) {
-            Set<InstanceKey> oneInstance = Collections.singleton(theInstance);
-            logger.info(() -> "Solve for " + theInstance);
-
-            initializeDomain(oneInstance);
-            TypeStateResult baseResult = solveForInstances(oneInstance, ac);
-
-            result.addInstanceResult(theInstance, baseResult);
-          } else {
-            result.addSkippedInstance(theInstance);
-            System.err.println("Skipped benign instance " + theInstance);
-          }
-
-          if (Thread.interrupted()) {
-            throw new SolverTimeoutException(result);
-          }
+        int nThreads = getOptions().getTypestateThreadCount();
+        if (nThreads > 1 && instances.size() > 1 && !getOptions().shouldMineDFA()) {
+          // the trace reporter used for mining is not thread-safe, so mining
+          // always runs serially
+          solveInParallel(instances, result, nThreads);
+        } else {
+          solveSerially(instances, result);
         }
+
         if (!getOptions().shouldMineDFA()) {
           updateBenignOracle(result, instances, potentialErrors);
         }
+        if (unit != null) {
+          unit.record(result, instances, potentialErrors);
+        }
 
       } else {
         Trace.println("---No instances of property Type were found---");
       }
     } finally {
       monitor.done();
+      releaseSupergraphs();
+      slices.clear();
 
       // TODO: the following is a ugly hack to be removed ASAP.
       if (getOptions().shouldMineDFA() && getOptions().shouldCollectStatistics()) {
@@ -871,6 +1063,478 @@ public abstract class AbstractTypestateSolver extends AbstractWholeProgramSolver
     return result;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see com.ibm.safe.incremental.IIncrementalSolver#setIncrementalStore(com.ibm.safe.incremental.IncrementalStore)
+   */
+  public void setIncrementalStore(IncrementalStore store) {
+    this.incrementalStore = store;
+  }
+
+  /**
+   * @return the unit of work under which the findings for the given instances
+   *         are kept in the incremental store, or null if the instances must
+   *         be solved
+   */
+  protected IncrementalUnit getIncrementalUnit(Collection<InstanceKey> instances) throws WalaException, PropertiesException {
+    IncrementalStore store = getUsableIncrementalStore(instances);
+    if (store == null) {
+      return null;
+    }
+    return new IncrementalUnit(store, getIncrementalKey(instances), computeFootprint(store, instances));
+  }
+
+  /**
+   * The findings of this solver for a set of instances, in the incremental
+   * store, with the footprint of the instances in the current scope.
+   */
+  protected final class IncrementalUnit {
+
+    private final IncrementalStore store;
+
+    private final String key;
+
+    private final Map<String, String> footprint;
+
+    private IncrementalUnit(IncrementalStore store, String key, Map<String, String> footprint) {
+      this.store = store;
+      this.key = key;
+      this.footprint = footprint;
+    }
+
+    /**
+     * Add the findings of a previous run to result, if the footprint did not
+     * change since, and tell the benign oracle what the previous run told it
+     * about the instances and their potential error locations.
+     * 
+     * @return true iff the findings were replayed
+     */
+    public boolean replay(Collection<InstanceKey> instances,
+        Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> potentialErrors, AggregateSolverResult result) {
+      List<CachedFinding> findings = store.lookup(key, footprint);
+      if (findings == null) {
+        return false;
+      }
+      replayFindings(findings, instances, result);
+      replayBenign(store.getFacts(key), instances, potentialErrors);
+      return true;
+    }
+
+    /**
+     * Keep the findings of this run for the next one, with what the benign
+     * oracle holds about the instances and their potential error locations.
+     */
+    public void record(ISolverResult result, Collection<InstanceKey> instances,
+        Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> potentialErrors) {
+      store.record(key, footprint, result.getMessages(), describeBenign(instances, potentialErrors));
+    }
+  }
+
+  /**
+   * @return the instances, and potential error locations of the instances,
+   *         that the benign oracle holds as error-free
+   */
+  private List<String> describeBenign(Collection<InstanceKey> instances,
+      Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> potentialErrors) {
+    BenignOracle oracle = getBenignOracle();
+    List<String> result = new ArrayList<String>();
+    for (InstanceKey instance : instances) {
+      if (oracle.isBenignInstanceKey(instance)) {
+        result.add(describeBenignInstance(instance));
+      }
+      Set<Pair<CGNode, SSAInstruction>> sites = (potentialErrors == null) ? null : potentialErrors.get(instance);
+      if (sites != null) {
+        for (Pair<CGNode, SSAInstruction> site : sites) {
+          if (oracle.isBenignStatement(site)) {
+            result.add(describeBenignSite(site));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Tell the benign oracle about the instances and potential error locations
+   * a previous run found error-free, as described by
+   * {@link #describeBenign(Collection, Map)}. The footprint of the instances
+   * did not change, so neither did their descriptions.
+   */
+  private void replayBenign(List<String> facts, Collection<InstanceKey> instances,
+      Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> potentialErrors) {
+    if (facts.isEmpty()) {
+      return;
+    }
+    Set<String> benign = new HashSet<String>(facts);
+    BenignOracle oracle = getBenignOracle();
+    for (InstanceKey instance : instances) {
+      if (benign.contains(describeBenignInstance(instance))) {
+        oracle.addBenignInstanceKey(instance);
+      }
+      Set<Pair<CGNode, SSAInstruction>> sites = (potentialErrors == null) ? null : potentialErrors.get(instance);
+      if (sites != null) {
+        for (Pair<CGNode, SSAInstruction> site : sites) {
+          if (benign.contains(describeBenignSite(site))) {
+            oracle.addBenignStatement(site.fst, site.snd);
+          }
+        }
+      }
+    }
+  }
+
+  private static String describeBenignInstance(InstanceKey instance) {
+    return "instance " + instance;
+  }
+
+  private static String describeBenignSite(Pair<CGNode, SSAInstruction> site) {
+    return "site " + site.fst + ' ' + site.snd;
+  }
+
+  /**
+   * @return the store of findings of previous runs, or null if the tracked
+   *         instances must be solved: when mining, when collecting
+   *         statistics, and when solving for the instances a staged solver
+   *         hands over, whose findings belong to the staged solver
+   */
+  private IncrementalStore getUsableIncrementalStore(Collection<InstanceKey> instances) throws PropertiesException {
+    if (incrementalStore == null || instances.isEmpty() || candidateInstances != null || getOptions().shouldMineDFA()
+        || getOptions().shouldCollectStatistics()) {
+      return null;
+    }
+    return incrementalStore;
+  }
+
+  /**
+   * @return the key of the findings of this solver for the given instances:
+   *         the property and the instances are only present through digests,
+   *         so that the key changes with the automaton, whatever its name,
+   *         and does not grow with the number of instances
+   */
+  private String getIncrementalKey(Collection<InstanceKey> instances) {
+    return getClass().getName() + '|' + getPropertyName() + '|' + ClassFingerprints.digest(describeDFA()) + '|'
+        + ClassFingerprints.digest(new TreeSet<String>(toStrings(instances)));
+  }
+
+  /**
+   * @return the types, states, events and transitions of the property, in
+   *         the order of its rule
+   */
+  private List<String> describeDFA() {
+    List<String> result = new ArrayList<String>();
+    if (!(getDFA() instanceof TypeStateProperty)) {
+      result.add(getDFA().getName());
+      return result;
+    }
+    TypestateRule rule = ((TypeStateProperty) getDFA()).getRule();
+    result.addAll(rule.getTypes());
+    DFASpec automaton = rule.getTypeStateAutomaton();
+    IDFAState initial = automaton.initialState();
+    result.add("initial " + (initial == null ? null : initial.getName()));
+    for (IDFAState state : automaton.getStates()) {
+      result.add("state " + state.getName() + (state.isAccepting() ? " accepting" : ""));
+    }
+    for (IEvent event : automaton.getEvents()) {
+      result.add("event " + event.getClass().getName() + ' ' + event.getName() + ' ' + describeEvent(event));
+    }
+    for (IDFATransition transition : automaton.getTransitions()) {
+      result.add("transition " + transition.getSource() + ' ' + transition.getEvent() + ' ' + transition.getDestination());
+    }
+    return result;
+  }
+
+  private static String describeEvent(IEvent event) {
+    if (event instanceof IDispatchEvent) {
+      return String.valueOf(((IDispatchEvent) event).getPattern());
+    } else if (event instanceof IReadFieldEvent) {
+      return String.valueOf(((IReadFieldEvent) event).getField());
+    } else if (event instanceof IWriteFieldEvent) {
+      return String.valueOf(((IWriteFieldEvent) event).getField());
+    }
+    return ""; //$NON-NLS-1$
+  }
+
+  private static Collection<String> toStrings(Collection<InstanceKey> instances) {
+    Collection<String> result = new ArrayList<String>(instances.size());
+    for (InstanceKey instance : instances) {
+      result.add(instance.toString());
+    }
+    return result;
+  }
+
+  /**
+   * The footprint of the instances is the set of classes declaring the nodes
+   * of their slice, or allocating them. A change outside the footprint may
+   * still alter the call graph or the points-to sets the slice is computed
+   * from; when a class enters or leaves the slice, the footprint differs.
+   * 
+   * @return Map: class name -> fingerprint, of the footprint of the instances
+   */
+  private Map<String, String> computeFootprint(IncrementalStore store, Collection<InstanceKey> instances)
+      throws WalaException, PropertiesException {
+    Set<IClass> classes = HashSetFactory.make();
+    for (CGNode n : getSlice(instances)) {
+      classes.add(n.getMethod().getDeclaringClass());
+    }
+    for (InstanceKey instance : instances) {
+      if (instance instanceof AllocationSiteInNode) {
+        classes.add(((AllocationSiteInNode) instance).getNode().getMethod().getDeclaringClass());
+      }
+    }
+    return store.getFingerprints().getFootprint(classes);
+  }
+
+  /**
+   * Report the findings of a previous run for the instances, each of which
+   * counts as processed.
+   */
+  private void replayFindings(List<CachedFinding> findings, Collection<InstanceKey> instances, AggregateSolverResult result) {
+    ReplayedSolverResult replayed = new ReplayedSolverResult();
+    Set<Message> messages = HashSetFactory.make();
+    for (CachedFinding finding : findings) {
+      messages.add(finding.toMessage(getDFAAsProperty().getRule()));
+    }
+    replayed.addMessages(messages);
+    for (InstanceKey instance : instances) {
+      result.addInstanceResult(instance, replayed);
+    }
+    logger.info(() -> "Replayed " + findings.size() + " findings of " + getPropertyName() + " for " + instances.size()
+        + " unchanged instances");
+  }
+
+  /**
+   * Build the event index of the property, if it has none yet, before any
+   * problem is set up, and report its size and the time it took in the span
+   * of this solver. Solvers sharing the index report the same values.
+   */
+  protected void prepareEventNodeIndex() {
+    if (getDFA() instanceof AbstractTypeStateDFA) {
+      final EventNodeIndex index = ((AbstractTypeStateDFA) getDFA()).getEventNodeIndex(getCallGraph(), getPointerAnalysis());
+      logger.fine(() -> "Event index for " + getPropertyName() + ": " + index.size() + " nodes, built in "
+          + index.getBuildMillis() + " ms");
+      if (performanceSpan != null) {
+        performanceSpan.setGauge("event index nodes", index.size());
+        performanceSpan.setGauge("event index build ms", index.getBuildMillis());
+      }
+    }
+  }
+
+  /**
+   * Slices of two instances solved together have at least this ratio of
+   * common nodes to total nodes.
+   */
+  private static final double MIN_BATCH_SLICE_OVERLAP = 0.8;
+
+  /**
+   * A batch is no larger than this number of factoids, estimated as the
+   * number of property states times the number of instances.
+   */
+  private static final int MAX_BATCH_FACTOIDS = 4096;
+
+  /**
+   * subclasses whose problems track several instances at once override this.
+   * 
+   * @return true iff instances may be solved together, according to
+   *         {@link TypeStateOptions#getTypestateBatchSize()}
+   */
+  protected boolean supportsInstanceBatching() {
+    return false;
+  }
+
+  /**
+   * Drop the benign instances, and group the others in batches, each of which
+   * is solved with one supergraph and one tabulation.
+   * 
+   * @param instances
+   *          the tracked instances
+   * @param result
+   *          aggregate result, to which skipped instances are added
+   * @return the batches of instances to solve, in order
+   */
+  private Iterator<Collection<InstanceKey>> makeSolvingBatches(Collection<InstanceKey> instances, AggregateSolverResult result)
+      throws WalaException, PropertiesException {
+    BenignOracle oracle = getBenignOracle();
+    List<InstanceKey> toSolve = new ArrayList<InstanceKey>(instances.size());
+    for (InstanceKey theInstance : instances) {
+      if (!oracle.isBenignInstanceKey(theInstance)) {
+        toSolve.add(theInstance);
+      } else {
+        result.addSkippedInstance(theInstance);
+        System.err.println("Skipped benign instance " + theInstance);
+      }
+    }
+    int maxBatchSize = getMaxBatchSize();
+    if (maxBatchSize <= 1 || toSolve.size() <= 1) {
+      return InstanceBatchIterator.makeSeparation(toSolve).getInstanceBatches();
+    }
+    Map<InstanceKey, Set<CGNode>> slices = new HashMap<InstanceKey, Set<CGNode>>();
+    for (InstanceKey theInstance : toSolve) {
+      Set<CGNode> slice = HashSetFactory.make();
+      slice.addAll(getSlice(Collections.singleton(theInstance)));
+      slices.put(theInstance, slice);
+    }
+    return InstanceBatchIterator.makeSliceOverlap(toSolve, slices, MIN_BATCH_SLICE_OVERLAP, maxBatchSize).getInstanceBatches();
+  }
+
+  /**
+   * @return most instances to solve together: the configured batch size,
+   *         capped by the estimated size of the domain
+   */
+  private int getMaxBatchSize() throws PropertiesException {
+    if (!supportsInstanceBatching() || getOptions().shouldMineDFA()) {
+      return 1;
+    }
+    int states = (getDFA() instanceof TypeStateProperty) ? ((TypeStateProperty) getDFA()).getNumberOfStates() : 1;
+    return Math.min(getOptions().getTypestateBatchSize(), Math.max(1, MAX_BATCH_FACTOIDS / Math.max(1, states)));
+  }
+
+  /**
+   * Solve for each batch of tracked instances in turn, on the calling thread.
+   * 
+   * @param instances
+   *          the tracked instances
+   * @param result
+   *          aggregate result to populate
+   */
+  private void solveSerially(Collection<InstanceKey> instances, AggregateSolverResult result) throws WalaException,
+      SolverTimeoutException, PropertiesException, SetUpException, CancelException {
+    AnalysisCache ac = new AnalysisCacheImpl();
+    for (Iterator<Collection<InstanceKey>> it = makeSolvingBatches(instances, result); it.hasNext();) {
+      Collection<InstanceKey> batch = it.next();
+      logger.info(() -> "Solve for " + describeBatch(batch));
+
+      initializeDomain(batch);
+      TypeStateResult baseResult = solveForInstances(batch, ac);
+
+      for (InstanceKey theInstance : batch) {
+        result.addInstanceResult(theInstance, baseResult);
+      }
+
+      if (Thread.interrupted()) {
+        throw new SolverTimeoutException(result);
+      }
+    }
+  }
+
+  private static String describeBatch(Collection<InstanceKey> batch) {
+    return (batch.size() == 1) ? batch.iterator().next().toString() : batch.size() + " instances " + batch;
+  }
+
+  /**
+   * Solve for the batches of tracked instances on a pool of worker threads.
+   * Each worker gets its own domain and analysis cache. The flow functions and
+   * exploded CFGs still get IRs and def-uses from the call graph nodes, so
+   * these are all built before the first worker starts. Results are added to
+   * the aggregate result in the order of the batches, regardless of the order
+   * in which the workers finish, so the outcome is the same as for
+   * {@link #solveSerially(Collection, AggregateSolverResult)}.
+   * 
+   * @param instances
+   *          the tracked instances
+   * @param result
+   *          aggregate result to populate
+   * @param nThreads
+   *          number of worker threads
+   */
+  private void solveInParallel(Collection<InstanceKey> instances, AggregateSolverResult result, int nThreads)
+      throws WalaException, SolverTimeoutException, PropertiesException, SetUpException, CancelException {
+    final ThreadLocal<AnalysisCache> caches = new ThreadLocal<AnalysisCache>() {
+      @Override
+      protected AnalysisCache initialValue() {
+        return new AnalysisCacheImpl();
+      }
+    };
+    PreparedIRs irs = PreparedIRs.prepare(getCallGraph());
+    ExecutorService pool = Executors.newFixedThreadPool(nThreads, new WorkerThreadFactory(toString()));
+    try {
+      List<Pair<Collection<InstanceKey>, Future<TypeStateResult>>> pending = new ArrayList<Pair<Collection<InstanceKey>, Future<TypeStateResult>>>();
+      for (Iterator<Collection<InstanceKey>> it = makeSolvingBatches(instances, result); it.hasNext();) {
+        final Collection<InstanceKey> batch = it.next();
+        Future<TypeStateResult> f = pool.submit(new Callable<TypeStateResult>() {
+          public TypeStateResult call() throws Exception {
+            logger.info(() -> "Solve for " + describeBatch(batch));
+            initializeWorkerState();
+            initializeDomain(batch);
+            return solveForInstances(batch, caches.get());
+          }
+        });
+        pending.add(Pair.make(batch, f));
+      }
+
+      for (Iterator<Pair<Collection<InstanceKey>, Future<TypeStateResult>>> it = pending.iterator(); it.hasNext();) {
+        Pair<Collection<InstanceKey>, Future<TypeStateResult>> p = it.next();
+        TypeStateResult batchResult = awaitWorkerResult(p.snd, result);
+        for (InstanceKey theInstance : p.fst) {
+          result.addInstanceResult(theInstance, batchResult);
+        }
+        if (Thread.interrupted()) {
+          throw new SolverTimeoutException(result);
+        }
+      }
+    } finally {
+      // interrupt any workers still running after a timeout or failure
+      pool.shutdownNow();
+      irs.release();
+    }
+  }
+
+  /**
+   * Wait for a worker to finish solving, and rethrow any failure on the calling
+   * thread.
+   * 
+   * @param f
+   *          the pending result of a worker
+   * @param partial
+   *          the results gathered so far, reported if the caller is
+   *          interrupted
+   */
+  protected static <T> T awaitWorkerResult(Future<T> f, ISolverResult partial)
+      throws WalaException, SolverTimeoutException, PropertiesException, SetUpException, CancelException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      throw new SolverTimeoutException(partial);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CancelException) {
+        throw (CancelException) cause;
+      } else if (cause instanceof WalaException) {
+        throw (WalaException) cause;
+      } else if (cause instanceof PropertiesException) {
+        throw (PropertiesException) cause;
+      } else if (cause instanceof SetUpException) {
+        throw (SetUpException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new SetUpException("typestate worker failed", cause);
+      }
+    }
+  }
+
+  /**
+   * Creates daemon worker threads, so that a solver which is abandoned after a
+   * timeout never keeps the VM alive.
+   */
+  protected static class WorkerThreadFactory implements ThreadFactory {
+
+    private final String name;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    protected WorkerThreadFactory(String name) {
+      this.name = name;
+    }
+
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, name + " worker " + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+
   /**
    * for debug purposes
    */
@@ -136,6 +136,12 @@ public abstract class AbstractWholeProgramSolver implements ISafeSolver {
    */
   protected final IReporter reporter;
 
+  /**
+   * supergraphs built on each thread, with the analysis cache the thread
+   * used last
+   */
+  private final ThreadLocal<SupergraphCache> supergraphCache = new ThreadLocal<SupergraphCache>();
+
   /**
    * a factory for merge functions from a given domain
    */
@@ -240,9 +246,19 @@ public abstract class AbstractWholeProgramSolver implements ISafeSolver {
    *          nodes which should be included in the supergraph
    */
   protected WholeProgramSupergraph buildSupergraph(AnalysisCache ac,Collection<CGNode> relevantNodes) {
-    WholeProgramSupergraph supergraph = new WholeProgramSupergraph(getCallGraph(), ac, new CollectionFilter<CGNode>(
-        relevantNodes));
-    return supergraph;
+    SupergraphCache cache = supergraphCache.get();
+    if (cache == null || cache.getAnalysisCache() != ac) {
+      cache = new SupergraphCache(getCallGraph(), ac);
+      supergraphCache.set(cache);
+    }
+    return cache.findOrCreate(relevantNodes);
+  }
+
+  /**
+   * Forget the supergraphs built on the calling thread.
+   */
+  protected void releaseSupergraphs() {
+    supergraphCache.remove();
   }
 
   /**
@@ -53,16 +53,22 @@ public class BenignOracle {
 
   private Set<Pair<CGNode, SSAInstruction>> benignStatements = HashSetFactory.make();
 
+  /**
+   * possible error locations per property; every stage of a staged solver asks
+   * for them, and they only depend on the call graph and pointer analysis
+   */
+  private final Map<TypeStateProperty, Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>>> errorLocations = HashMapFactory.make();
+
   public BenignOracle(CallGraph callGraph, PointerAnalysis pointerAnalysis) {
     this.cg = callGraph;
     this.pointerAnalysis = pointerAnalysis;
   }
 
-  public boolean isBenignInstanceKey(InstanceKey ik) {
+  public synchronized boolean isBenignInstanceKey(InstanceKey ik) {
     return benignInstanceKeys.contains(ik);
   }
 
-  public boolean isBenignStatement(CGNode caller, SSAInvokeInstruction call) {
+  public synchronized boolean isBenignStatement(CGNode caller, SSAInvokeInstruction call) {
     return benignStatements.contains(Pair.make(caller, call));
   }
 
@@ -75,21 +81,42 @@ public class BenignOracle {
     return false;
   }
 
-  public void addBenignInstanceKey(InstanceKey ik) {
+  public synchronized void addBenignInstanceKey(InstanceKey ik) {
     if (DEBUG_LEVEL > 0) {
       System.err.println("Adding instancekey: " + ik);
     }
     benignInstanceKeys.add(ik);
   }
 
-  public void addBenignStatement(CGNode node, SSAInstruction curr) {
+  public synchronized void addBenignStatement(CGNode node, SSAInstruction curr) {
     if (DEBUG_LEVEL > 0) {
       System.err.println("Adding statement: " + node + "," + curr);
     }
     benignStatements.add(Pair.make(node, curr));
   }
 
-  public Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> possibleErrorLocations(TypeStateProperty property) {
+  /**
+   * @return true iff the statement was found to be error-free
+   */
+  public synchronized boolean isBenignStatement(Pair<CGNode, SSAInstruction> statement) {
+    return benignStatements.contains(statement);
+  }
+
+  /**
+   * @return a map from each instance of the property type to the application
+   *         statements at which it may reach the accepting state. The result
+   *         is computed once per property and must not be modified.
+   */
+  public synchronized Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> possibleErrorLocations(TypeStateProperty property) {
+    Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> result = errorLocations.get(property);
+    if (result == null) {
+      result = computePossibleErrorLocations(property);
+      errorLocations.put(property, result);
+    }
+    return result;
+  }
+
+  private Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> computePossibleErrorLocations(TypeStateProperty property) {
     HashMap<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> result = HashMapFactory.make();
     // scan nodes and collect instances that flow to each event
     for (Iterator<CGNode> it = cg.iterator(); it.hasNext();) {
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.escape.ILiveObjectAnalysis;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.WalaException;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A live object analysis which may be queried by several typestate workers at
+ * once.
+ * 
+ * The WALA live analyses compute their answers lazily into unsynchronized
+ * maps, so the delegate is only queried under its lock. The answers for a
+ * single instruction, which the solvers ask for again and again, are
+ * remembered here, so that once computed they are read without locking.
+ */
+public class ConcurrentLiveObjectAnalysis implements ILiveObjectAnalysis {
+
+  private final ILiveObjectAnalysis delegate;
+
+  /**
+   * Map: query -> answer of the delegate
+   */
+  private final ConcurrentHashMap<Query, Boolean> answers = new ConcurrentHashMap<Query, Boolean>();
+
+  public ConcurrentLiveObjectAnalysis(ILiveObjectAnalysis delegate) {
+    assert delegate != null;
+    this.delegate = delegate;
+  }
+
+  public boolean mayBeLive(CGNode allocMethod, int allocPC, CGNode m, int instructionIndex) throws WalaException {
+    synchronized (delegate) {
+      return delegate.mayBeLive(allocMethod, allocPC, m, instructionIndex);
+    }
+  }
+
+  public boolean mayBeLive(InstanceKey ik, CGNode m, int instructionIndex) throws WalaException {
+    Query q = new Query(ik, m, instructionIndex);
+    Boolean result = answers.get(q);
+    if (result == null) {
+      synchronized (delegate) {
+        result = Boolean.valueOf(delegate.mayBeLive(ik, m, instructionIndex));
+      }
+      answers.putIfAbsent(q, result);
+    }
+    return result.booleanValue();
+  }
+
+  public boolean mayBeLive(InstanceKey ik, CGNode m, IntSet instructionIndices) throws WalaException {
+    synchronized (delegate) {
+      return delegate.mayBeLive(ik, m, instructionIndices);
+    }
+  }
+
+  /**
+   * @return the underlying analysis
+   */
+  public ILiveObjectAnalysis getDelegate() {
+    return delegate;
+  }
+
+  private static final class Query {
+
+    private final InstanceKey ik;
+
+    private final CGNode node;
+
+    private final int instructionIndex;
+
+    Query(InstanceKey ik, CGNode node, int instructionIndex) {
+      this.ik = ik;
+      this.node = node;
+      this.instructionIndex = instructionIndex;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * ik.hashCode() + node.hashCode()) + instructionIndex;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Query)) {
+        return false;
+      }
+      Query other = (Query) obj;
+      return instructionIndex == other.instructionIndex && ik.equals(other.ik) && node.equals(other.node);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.safe.dfa.events.IEvent;
+import com.ibm.safe.typestate.rules.ITypeStateDFA;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * The call graph nodes which dispatch an event of a typestate property,
+ * indexed by the instances their receiver may point to.
+ *
+ * Function providers need, for their tracked instances, the map CGNode ->
+ * IEvent of the nodes invoked on a tracked receiver. Computing it directly
+ * takes a scan of the whole call graph per problem; with the index, it costs
+ * a union of the node sets of the tracked instances.
+ *
+ * The index is immutable once built, and may be shared by concurrent solvers.
+ */
+public class EventNodeIndex {
+
+  private final CallGraph cg;
+
+  private final PointerAnalysis pointerAnalysis;
+
+  /**
+   * the nodes which dispatch an event, in call graph order
+   */
+  private final CGNode[] nodes;
+
+  /**
+   * events[i] is the event dispatched by nodes[i]
+   */
+  private final IEvent[] events;
+
+  /**
+   * Map: instance key index -> indices in nodes of the nodes whose receiver
+   * may point to the instance
+   */
+  private final Map<Integer, MutableSparseIntSet> nodesByInstance = HashMapFactory.make();
+
+  /**
+   * time taken to build the index
+   */
+  private final long buildMillis;
+
+  /**
+   * Scan the call graph for the non-static nodes which dispatch an event of
+   * the dfa.
+   */
+  public EventNodeIndex(ITypeStateDFA dfa, CallGraph cg, PointerAnalysis pointerAnalysis) {
+    long start = System.currentTimeMillis();
+    this.cg = cg;
+    this.pointerAnalysis = pointerAnalysis;
+    List<CGNode> eventNodes = new ArrayList<CGNode>();
+    List<IEvent> nodeEvents = new ArrayList<IEvent>();
+    for (Iterator<CGNode> it = cg.iterator(); it.hasNext();) {
+      CGNode n = it.next();
+      // TODO: support static methods and other more general events
+      if (n.getMethod().isStatic()) {
+        continue;
+      }
+      IEvent event = dfa.matchDispatchEvent(n.getMethod().getSignature());
+      if (event == null) {
+        continue;
+      }
+      PointerKey receiver = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, 1);
+      IntSet receivers = pointerAnalysis.getPointsToSet(receiver).getBackingSet();
+      if (receivers == null || receivers.isEmpty()) {
+        continue;
+      }
+      int index = eventNodes.size();
+      eventNodes.add(n);
+      nodeEvents.add(event);
+      for (IntIterator it2 = receivers.intIterator(); it2.hasNext();) {
+        Integer instance = Integer.valueOf(it2.next());
+        MutableSparseIntSet s = nodesByInstance.get(instance);
+        if (s == null) {
+          s = MutableSparseIntSet.makeEmpty();
+          nodesByInstance.put(instance, s);
+        }
+        s.add(index);
+      }
+    }
+    this.nodes = eventNodes.toArray(new CGNode[eventNodes.size()]);
+    this.events = nodeEvents.toArray(new IEvent[nodeEvents.size()]);
+    this.buildMillis = System.currentTimeMillis() - start;
+  }
+
+  /**
+   * Add to result the nodes which dispatch an event on one of the given
+   * instances, mapped to the event they dispatch.
+   *
+   * @param instances
+   *          the tracked instances
+   * @param result
+   *          Map: CGNode -> IEvent to populate
+   */
+  public void addEvents(OrdinalSet<InstanceKey> instances, Map<CGNode, IEvent> result) {
+    IntSet backing = instances.getBackingSet();
+    if (backing == null) {
+      return;
+    }
+    MutableSparseIntSet relevant = MutableSparseIntSet.makeEmpty();
+    for (IntIterator it = backing.intIterator(); it.hasNext();) {
+      IntSet s = nodesByInstance.get(Integer.valueOf(it.next()));
+      if (s != null) {
+        relevant.addAll(s);
+      }
+    }
+    for (IntIterator it = relevant.intIterator(); it.hasNext();) {
+      int i = it.next();
+      result.put(nodes[i], events[i]);
+    }
+  }
+
+  /**
+   * @return true iff this index was built over the given call graph and
+   *         pointer analysis
+   */
+  public boolean isFor(CallGraph callGraph, PointerAnalysis pa) {
+    return cg == callGraph && pointerAnalysis == pa;
+  }
+
+  /**
+   * @return number of nodes which dispatch an event
+   */
+  public int size() {
+    return nodes.length;
+  }
+
+  /**
+   * @return time taken to build the index, in milliseconds
+   */
+  public long getBuildMillis() {
+    return buildMillis;
+  }
+}
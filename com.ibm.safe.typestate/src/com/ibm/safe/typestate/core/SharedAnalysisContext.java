@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.core;
+
+import com.ibm.safe.internal.exceptions.PropertiesException;
+import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.typestate.controller.TypeStateSolverCreator;
+import com.ibm.safe.typestate.options.TypeStateOptions;
+import com.ibm.wala.analysis.pointers.HeapGraph;
+import com.ibm.wala.escape.ILiveObjectAnalysis;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.IndiscriminateFilter;
+import com.ibm.wala.util.graph.GraphReachability;
+
+/**
+ * Analyses over the call graph and heap graph which do not depend on the
+ * typestate property, and so can be shared by all solvers of a single run.
+ * Each analysis is computed lazily, the first time a solver asks for it.
+ * 
+ * The context may be queried by solvers running concurrently. How often each
+ * analysis was computed and reused is counted in the performance tracker of
+ * the run, if any.
+ */
+public class SharedAnalysisContext {
+
+  public final static String CG_REACHABILITY = "call graph reachability";
+
+  public final static String LIVE_ANALYSIS = "live object analysis";
+
+  public final static String EXPENSIVE_LIVE_ANALYSIS = "expensive live object analysis";
+
+  private final CallGraph cg;
+
+  private final HeapGraph hg;
+
+  private final TypeStateOptions options;
+
+  /**
+   * counts hits and misses; may be null
+   */
+  private final PerformanceTracker perfTracker;
+
+  private GraphReachability<CGNode,CGNode> reach;
+
+  private ILiveObjectAnalysis live;
+
+  private ILiveObjectAnalysis expensiveLive;
+
+  public SharedAnalysisContext(CallGraph cg, HeapGraph hg, TypeStateOptions options, PerformanceTracker perfTracker) {
+    assert cg != null;
+    assert options != null;
+    this.cg = cg;
+    this.hg = hg;
+    this.options = options;
+    this.perfTracker = perfTracker;
+  }
+
+  public CallGraph getCallGraph() {
+    return cg;
+  }
+
+  public HeapGraph getHeapGraph() {
+    return hg;
+  }
+
+  /**
+   * @return reachability over the call graph, solved
+   */
+  public synchronized GraphReachability<CGNode,CGNode> getReachability() throws CancelException {
+    if (reach == null) {
+      recordMiss(CG_REACHABILITY);
+      GraphReachability<CGNode,CGNode> r = new GraphReachability<CGNode,CGNode>(cg, IndiscriminateFilter.singleton());
+      // TODO: Allow real timeouts of CG reachability computations?
+      r.solve(null);
+      reach = r;
+    } else {
+      recordHit(CG_REACHABILITY);
+    }
+    return reach;
+  }
+
+  /**
+   * @param expensiveLiveAnalysis
+   *          should the more precise (and more expensive) analysis be used?
+   * @return the live object analysis, or null if live analysis is disabled.
+   *         When solvers or instances may be solved concurrently, the analysis
+   *         is wrapped so that its lazily computed state is not corrupted.
+   * @see ConcurrentLiveObjectAnalysis
+   */
+  public synchronized ILiveObjectAnalysis getLiveObjectAnalysis(boolean expensiveLiveAnalysis) throws PropertiesException {
+    if (!options.shouldUseLiveAnalysis()) {
+      return null;
+    }
+    ILiveObjectAnalysis result = expensiveLiveAnalysis ? expensiveLive : live;
+    String key = expensiveLiveAnalysis ? EXPENSIVE_LIVE_ANALYSIS : LIVE_ANALYSIS;
+    if (result == null) {
+      recordMiss(key);
+      result = TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, expensiveLiveAnalysis);
+      if (options.getTypestateThreadCount() > 1 || options.getSolverThreadCount() > 1) {
+        result = new ConcurrentLiveObjectAnalysis(result);
+      }
+      if (expensiveLiveAnalysis) {
+        expensiveLive = result;
+      } else {
+        live = result;
+      }
+    } else {
+      recordHit(key);
+    }
+    return result;
+  }
+
+  private void recordHit(String analysis) {
+    if (perfTracker != null) {
+      perfTracker.addToCounter(analysis + " reused", 1);
+    }
+  }
+
+  private void recordMiss(String analysis) {
+    if (perfTracker != null) {
+      perfTracker.addToCounter(analysis + " computed", 1);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+
+/**
+ * The supergraphs a solver built with one analysis cache, keyed by the call
+ * graph nodes they were built for, so that instances with the same slice share
+ * a supergraph. Each supergraph has an interprocedural CFG of its own, which
+ * grows as the tabulation explores it.
+ *
+ * The least recently used supergraphs are dropped first, once the supergraphs
+ * held total more than {@link #MAX_CACHED_NODES} nodes, as they stand when a
+ * new one is asked for. Not thread-safe: each worker thread has its own
+ * analysis cache, hence its own supergraph cache.
+ */
+final class SupergraphCache {
+
+  private static final int MAX_CACHED_NODES = 100000;
+
+  private final CallGraph cg;
+
+  private final AnalysisCache analysisCache;
+
+  private final Map<SliceKey, WholeProgramSupergraph> supergraphs = new LinkedHashMap<SliceKey, WholeProgramSupergraph>(16, 0.75f,
+      true /* access order */);
+
+  SupergraphCache(CallGraph cg, AnalysisCache analysisCache) {
+    this.cg = cg;
+    this.analysisCache = analysisCache;
+  }
+
+  AnalysisCache getAnalysisCache() {
+    return analysisCache;
+  }
+
+  /**
+   * @return a supergraph for the given call graph nodes
+   */
+  WholeProgramSupergraph findOrCreate(Collection<CGNode> relevantNodes) {
+    SliceKey key = new SliceKey(cg, relevantNodes);
+    WholeProgramSupergraph result = supergraphs.get(key);
+    if (result != null) {
+      return result;
+    }
+    evict();
+    result = new WholeProgramSupergraph(cg, analysisCache);
+    supergraphs.put(key, result);
+    return result;
+  }
+
+  /**
+   * Drop the least recently used supergraphs until the others hold at most
+   * {@link #MAX_CACHED_NODES} nodes.
+   */
+  private void evict() {
+    int cachedNodes = 0;
+    for (WholeProgramSupergraph g : supergraphs.values()) {
+      cachedNodes += g.getNumberOfNodes();
+    }
+    for (Iterator<WholeProgramSupergraph> it = supergraphs.values().iterator(); cachedNodes > MAX_CACHED_NODES && it.hasNext();) {
+      cachedNodes -= it.next().getNumberOfNodes();
+      it.remove();
+    }
+  }
+
+  /**
+   * A set of call graph nodes, as a bit set over their numbers.
+   */
+  private static final class SliceKey {
+
+    private final long[] bits;
+
+    private final int hashCode;
+
+    SliceKey(CallGraph cg, Collection<CGNode> nodes) {
+      bits = new long[(cg.getMaxNumber() >> 6) + 1];
+      for (CGNode n : nodes) {
+        int i = cg.getNumber(n);
+        bits[i >> 6] |= 1L << i;
+      }
+      hashCode = Arrays.hashCode(bits);
+    }
+
+    public int hashCode() {
+      return hashCode;
+    }
+
+    public boolean equals(Object o) {
+      return (o instanceof SliceKey) && Arrays.equals(bits, ((SliceKey) o).bits);
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.ibm.safe.typestate.base.BaseFactoid;
 import com.ibm.safe.typestate.mine.TraceReporter;
 import com.ibm.safe.typestate.mine.TracingProperty;
 import com.ibm.safe.typestate.quad.AggregateFlowFunction;
+import com.ibm.safe.typestate.rules.AbstractTypeStateDFA;
 import com.ibm.safe.typestate.rules.FilterKillFunction;
 import com.ibm.safe.typestate.rules.ITypeStateDFA;
 import com.ibm.safe.typestate.rules.IntFilter;
@@ -437,12 +438,18 @@ public abstract class TypeStateFunctionProvider extends WholeProgramFunctionProv
   /**
    * Compute a map: CGNode -> IEvent
    * 
-   * TODO: could reduce the work here by consulting ptr analysis
+   * The map is read off the event index of the dfa when it has one, which
+   * avoids a scan of the call graph for each problem.
    * 
    * @param cg
    *          governing call graph
    */
   protected void computeEventMap(CallGraph cg) {
+    if (dfa instanceof AbstractTypeStateDFA) {
+      EventNodeIndex index = ((AbstractTypeStateDFA) dfa).getEventNodeIndex(cg, getPointerAnalysis());
+      index.addEvents(getTrackedInstanceSet(), node2event);
+      return;
+    }
     for (Iterator<CGNode> it = cg.iterator(); it.hasNext();) {
       CGNode n = it.next();
       // TODO: support static methods and other more general events
@@ -26,7 +26,6 @@ import com.ibm.safe.typestate.ap.must.mustnot.MustMustNotAPSolver;
 import com.ibm.safe.typestate.ap.must.mustnot.MustMustNotMerge;
 import com.ibm.safe.typestate.base.BaseSolver;
 import com.ibm.safe.typestate.base.SeparatingSolver;
-import com.ibm.safe.typestate.controller.TypeStateSolverCreator;
 import com.ibm.safe.typestate.controller.TypeStateSolverKind;
 import com.ibm.safe.typestate.local.LocalMustMustNotSolver;
 import com.ibm.safe.typestate.merge.DebugMerge;
@@ -44,16 +43,12 @@ import com.ibm.safe.typestate.staged.StagedSolver;
 import com.ibm.safe.typestate.strongUpdate.StrongUpdateSolver;
 import com.ibm.safe.typestate.unique.UniqueSolver;
 import com.ibm.safe.utils.Trace;
-import com.ibm.wala.analysis.pointers.HeapGraph;
 import com.ibm.wala.escape.ILiveObjectAnalysis;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
-import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.util.CancelException;
-import com.ibm.wala.util.collections.IndiscriminateFilter;
 import com.ibm.wala.util.debug.Assertions;
-import com.ibm.wala.util.graph.GraphReachability;
 
 /**
  * A factory creating typestate solvers.
@@ -66,11 +61,11 @@ public class TypestateSolverFactory {
 
   private final static boolean DEBUG_MERGE = false;
 
-  public static ISafeSolver getSolver(AnalysisOptions domoOptions, CallGraph cg, PointerAnalysis pointerAnalysis, HeapGraph hg,
-      ITypeStateDFA dfa, BenignOracle ora, TypeStateOptions options, TypeStateMetrics metrics, IReporter reporter,
-      PerformanceTracker perfTracker, TraceReporter traceReporter) throws PropertiesException, CancelException {
-    return getSolver(options.getTypeStateSolverKind(), domoOptions, cg, pointerAnalysis, hg, dfa, ora, options, metrics, reporter,
-        perfTracker, traceReporter);
+  public static ISafeSolver getSolver(AnalysisOptions domoOptions, CallGraph cg, PointerAnalysis pointerAnalysis,
+      SharedAnalysisContext context, ITypeStateDFA dfa, BenignOracle ora, TypeStateOptions options, TypeStateMetrics metrics,
+      IReporter reporter, PerformanceTracker perfTracker, TraceReporter traceReporter) throws PropertiesException, CancelException {
+    return getSolver(options.getTypeStateSolverKind(), domoOptions, cg, pointerAnalysis, context, dfa, ora, options, metrics,
+        reporter, perfTracker, traceReporter);
   }
 
   public static IMergeFunctionFactory makeMergeFactory(TypeStateOptions options, TypeStateSolverKind kind)
@@ -128,8 +123,13 @@ public class TypestateSolverFactory {
     }
   }
 
+  /**
+   * @param context
+   *          analyses shared by all solvers of this run; reachability and live
+   *          analysis are taken from here rather than recomputed per solver
+   */
   public static ISafeSolver getSolver(TypeStateSolverKind kind, AnalysisOptions domoOptions, CallGraph cg,
-      PointerAnalysis pointerAnalysis, HeapGraph hg, ITypeStateDFA dfa, BenignOracle ora, TypeStateOptions options,
+      PointerAnalysis pointerAnalysis, SharedAnalysisContext context, ITypeStateDFA dfa, BenignOracle ora, TypeStateOptions options,
       TypeStateMetrics metrics, IReporter reporter, PerformanceTracker perfTracker, TraceReporter traceReporter)
       throws PropertiesException, CancelException {
 
@@ -138,35 +138,28 @@ public class TypestateSolverFactory {
 
     // TODO: this is ugly. fix it.
     if (kind == TypeStateSolverKind.BASE) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, false)
-          : null;
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(false);
       return new BaseSolver(cg, pointerAnalysis, dfa, options, live, ora, metrics, reporter, traceReporter, mergeFactory);
     } else if (kind == TypeStateSolverKind.SEPARATING) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, false)
-          : null;
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(false);
       return new SeparatingSolver(cg, pointerAnalysis, dfa, options, live, ora, metrics, reporter, traceReporter, mergeFactory);
     } else if (kind == TypeStateSolverKind.LOCAL_MUST_MUSTNOT) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, false)
-          : null;
-      return new LocalMustMustNotSolver(cg, pointerAnalysis, hg, property, options, live, computeReachability(cg), ora, metrics,
-          reporter, mergeFactory);
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(false);
+      return new LocalMustMustNotSolver(cg, pointerAnalysis, context.getHeapGraph(), property, options, live,
+          context.getReachability(), ora, metrics, reporter, mergeFactory);
     } else if (kind == TypeStateSolverKind.STRONG_UPDATE) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, false)
-          : null;
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(false);
       return new StrongUpdateSolver(cg, pointerAnalysis, dfa, options, live, ora, metrics, reporter, traceReporter, mergeFactory);
     } else if (kind == TypeStateSolverKind.UNIQUE) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, false)
-          : null;
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(false);
       return new UniqueSolver(cg, pointerAnalysis, dfa, options, live, ora, metrics, reporter, traceReporter, mergeFactory);
     } else if (kind == TypeStateSolverKind.AP_MUST) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, true)
-          : null;
-      return new MustAPSolver(domoOptions, cg, computeReachability(cg), pointerAnalysis, dfa, options, live, ora, metrics,
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(true);
+      return new MustAPSolver(domoOptions, cg, context.getReachability(), pointerAnalysis, dfa, options, live, ora, metrics,
           reporter, traceReporter, mergeFactory);
     } else if (kind == TypeStateSolverKind.AP_MUST_MUSTNOT) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, true)
-          : null;
-      return new MustMustNotAPSolver(domoOptions, cg, computeReachability(cg), pointerAnalysis, dfa, options, live, ora, metrics,
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(true);
+      return new MustMustNotAPSolver(domoOptions, cg, context.getReachability(), pointerAnalysis, dfa, options, live, ora, metrics,
           reporter, traceReporter, mergeFactory);
       // } else if (kind == TypeStateSolverKind.NULL_DEREF) {
       // ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ?
@@ -175,10 +168,9 @@ public class TypestateSolverFactory {
       // return new NullDerefSolver(cg, pointerAnalysis, property, options,
       // warnings, live);
     } else if (kind == TypeStateSolverKind.STAGED) {
-      return new StagedSolver(domoOptions, cg, pointerAnalysis, property, options, ora, metrics, reporter, perfTracker);
+      return new StagedSolver(domoOptions, cg, pointerAnalysis, context, property, options, ora, metrics, reporter, perfTracker);
     } else if (kind == TypeStateSolverKind.TVLA) {
-      ILiveObjectAnalysis live = options.shouldUseLiveAnalysis() ? TypeStateSolverCreator.computeLiveObjectAnalysis(cg, hg, true)
-          : null;
+      ILiveObjectAnalysis live = context.getLiveObjectAnalysis(true);
       return loadTVLASolver(domoOptions, cg, pointerAnalysis, property, options, live, ora, metrics, reporter);
       // return null;
     } else {
@@ -222,11 +214,4 @@ public class TypestateSolverFactory {
     Assertions.productionAssertion(ret != null, "could not create " + fullClassName);
     return ret;
   }
-
-  private static GraphReachability<CGNode,CGNode> computeReachability(CallGraph cg) throws CancelException {
-    GraphReachability<CGNode,CGNode> reach = new GraphReachability<CGNode,CGNode>(cg, IndiscriminateFilter.singleton());
-    // TODO: Allow real timeouts of CG reachability computations?
-    reach.solve(null);
-    return reach;
-  }
 }
\ No newline at end of file
@@ -10,11 +10,17 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.local;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -38,6 +44,7 @@ import com.ibm.safe.typestate.core.TypeStateResult;
 import com.ibm.safe.typestate.merge.IMergeFunctionFactory;
 import com.ibm.safe.typestate.metrics.TypeStateMetrics;
 import com.ibm.safe.typestate.options.TypeStateOptions;
+import com.ibm.safe.utils.PreparedIRs;
 import com.ibm.safe.utils.Trace;
 import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -73,7 +80,8 @@ import com.ibm.wala.util.intset.OrdinalSet;
 public abstract class AbstractLocalSolver extends AbstractTypestateSolver {
 
   /**
-   * Map: InstanceKey -> Set<CGNode>
+   * Map: InstanceKey -> Set<CGNode>. Guarded by itself, since the problems of
+   * several nodes may be solved in parallel.
    */
   private final Map<InstanceKey, Collection<CGNode>> nodesThatMatter = HashMapFactory.make();
 
@@ -112,10 +120,20 @@ public abstract class AbstractLocalSolver extends AbstractTypestateSolver {
    * @throws PropertiesException
    */
   private Collection<CGNode> getNodesThatMatter(InstanceKey ik) throws PropertiesException {
-    Collection<CGNode> result = nodesThatMatter.get(ik);
+    Collection<CGNode> result;
+    synchronized (nodesThatMatter) {
+      result = nodesThatMatter.get(ik);
+    }
     if (result == null) {
-      result = computeNodesThatMatter(ik);
-      nodesThatMatter.put(ik, result);
+      // computed outside the lock; if two workers race, the first stored wins
+      Collection<CGNode> computed = computeNodesThatMatter(ik);
+      synchronized (nodesThatMatter) {
+        result = nodesThatMatter.get(ik);
+        if (result == null) {
+          result = computed;
+          nodesThatMatter.put(ik, result);
+        }
+      }
     }
     return result;
   }
@@ -144,7 +162,6 @@ public abstract class AbstractLocalSolver extends AbstractTypestateSolver {
     return false;
   }
 
-  @SuppressWarnings("unused")
   public ISolverResult perform(IProgressMonitor monitor) throws WalaException, SolverTimeoutException, MaxFindingsException,
       SetUpException, PropertiesException {
     monitor.beginTask(null, 1);
@@ -154,6 +171,7 @@ public abstract class AbstractLocalSolver extends AbstractTypestateSolver {
       boolean hasPropertyType = initializeProperty();
       if (hasPropertyType != false) {
         Collection<InstanceKey> instances = computeTrackedInstances();
+        prepareEventNodeIndex();
 
         OrdinalSet<InstanceKey> ordInstances = toOrdinalInstanceSet(instances);
 
@@ -163,49 +181,13 @@ public abstract class AbstractLocalSolver extends AbstractTypestateSolver {
         // nodeSet := set of nodes which may directly go to error state.
         Collection<CGNode> nodeSet = computeRelevantCallers(acceptNodes, ordInstances);
 
-        BenignOracle oracle = getBenignOracle();
-
         Collection<Pair<CGNode, SSAInstruction>> instructions = HashSetFactory.make();
 
-        for (Iterator<CGNode> it = nodeSet.iterator(); it.hasNext();) {
-          CGNode n = it.next();
-          if (!oracle.isBenignMethod(n.getMethod())) {
-            // System.err.println(n);
-
-            // BFSPathFinder bfs = new
-            // BFSPathFinder(getCallGraph(),getCallGraph().getFakeRootNode(),n);
-            // List L = bfs.find();
-            // for (Iterator it2 = L.iterator(); it2.hasNext(); ) {
-            // System.err.println(it2.next());
-            // }
-            Collection<InstanceKey> relevant = computeInstancesForNode(n, ordInstances, acceptNodes);
-
-            Collection<Pair<CGNode, SSAInstruction>> relevantInstructions = oracle.computeMethodErrorInstructions(n, acceptNodes,
-                toOrdinalInstanceSet(relevant));
-            instructions.addAll(relevantInstructions);
-            // System.err.println(relevantInstructions);
-
-            initializeDomain(relevant);
-
-            SingleProcedureSupergraph supergraph = buildSupergraph(n);
-            checkGraph(supergraph);
-
-            TypeStateProblem p = createTypeStateProblem(n, supergraph, relevant);
-            TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> solver = TabulationSolver.make(p);
-            TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> r = solver.solve();
-
-            if (DEBUG_LEVEL > 0) {
-              Trace.println("IFDS Result \n " + r.toString());
-            }
-            if (GUI_DEBUG) {
-              launchGuiExplorer(r);
-            }
-            TypeStateResult t = new TypeStateResult(r, getDomain(), supergraph);
-            result.compose(t);
-          }
-          if (Thread.interrupted()) {
-            throw new SolverTimeoutException(result);
-          }
+        int nThreads = getOptions().getTypestateThreadCount();
+        if (nThreads > 1 && nodeSet.size() > 1) {
+          solveInParallel(nodeSet, ordInstances, acceptNodes, instructions, result, nThreads);
+        } else {
+          solveSerially(nodeSet, ordInstances, acceptNodes, instructions, result);
         }
         updateBenignOracle(instances, instructions, result);
 
@@ -221,6 +203,148 @@ public abstract class AbstractLocalSolver extends AbstractTypestateSolver {
     return result;
   }
 
+  /**
+   * Solve the problem of each node in turn, on the calling thread.
+   * 
+   * @param instructions
+   *          collects the instructions which may lead to an error
+   * @param result
+   *          result to populate
+   */
+  private void solveSerially(Collection<CGNode> nodeSet, OrdinalSet<InstanceKey> ordInstances, Collection<CGNode> acceptNodes,
+      Collection<Pair<CGNode, SSAInstruction>> instructions, LocalSolverResult result) throws WalaException,
+      SolverTimeoutException, PropertiesException, SetUpException, CancelException {
+    for (Iterator<CGNode> it = nodeSet.iterator(); it.hasNext();) {
+      LocalProblem problem = prepareProblem(it.next(), ordInstances, acceptNodes, instructions);
+      if (problem != null) {
+        result.compose(problem.solve());
+      }
+      if (Thread.interrupted()) {
+        throw new SolverTimeoutException(result);
+      }
+    }
+  }
+
+  /**
+   * Solve the problems of the nodes on a pool of worker threads. Each worker
+   * solves with its own domain. The flow functions get IRs and def-uses from
+   * the call graph nodes, through the call graph's cache, which is not
+   * thread-safe; so all of these, and all problems, are built on the calling
+   * thread before the first worker starts. Results are composed in the order
+   * of the nodes, so the outcome is the same as for
+   * {@link #solveSerially(Collection, OrdinalSet, Collection, Collection, LocalSolverResult)}.
+   * 
+   * @param instructions
+   *          collects the instructions which may lead to an error
+   * @param result
+   *          result to populate
+   * @param nThreads
+   *          number of worker threads
+   */
+  private void solveInParallel(Collection<CGNode> nodeSet, OrdinalSet<InstanceKey> ordInstances, Collection<CGNode> acceptNodes,
+      Collection<Pair<CGNode, SSAInstruction>> instructions, LocalSolverResult result, int nThreads) throws WalaException,
+      SolverTimeoutException, PropertiesException, SetUpException, CancelException {
+    PreparedIRs irs = PreparedIRs.prepare(getCallGraph());
+    ExecutorService pool = null;
+    try {
+      List<LocalProblem> problems = new ArrayList<LocalProblem>(nodeSet.size());
+      for (Iterator<CGNode> it = nodeSet.iterator(); it.hasNext();) {
+        LocalProblem problem = prepareProblem(it.next(), ordInstances, acceptNodes, instructions);
+        if (problem != null) {
+          problems.add(problem);
+        }
+        if (Thread.interrupted()) {
+          throw new SolverTimeoutException(result);
+        }
+      }
+
+      pool = Executors.newFixedThreadPool(nThreads, new WorkerThreadFactory(toString()));
+      List<Future<TypeStateResult>> pending = new ArrayList<Future<TypeStateResult>>(problems.size());
+      for (final LocalProblem problem : problems) {
+        pending.add(pool.submit(new Callable<TypeStateResult>() {
+          public TypeStateResult call() throws Exception {
+            return problem.solve();
+          }
+        }));
+      }
+
+      for (Iterator<Future<TypeStateResult>> it = pending.iterator(); it.hasNext();) {
+        result.compose(awaitWorkerResult(it.next(), result));
+        if (Thread.interrupted()) {
+          throw new SolverTimeoutException(result);
+        }
+      }
+    } finally {
+      // interrupt any workers still running after a timeout or failure
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+      irs.release();
+    }
+  }
+
+  /**
+   * Set up the problem of a node: the instances which may reach an accepting
+   * state from it, and its supergraph.
+   * 
+   * @param instructions
+   *          collects the instructions of n which may lead to an error
+   * @return the problem of n, or null if n is benign
+   */
+  private LocalProblem prepareProblem(CGNode n, OrdinalSet<InstanceKey> ordInstances, Collection<CGNode> acceptNodes,
+      Collection<Pair<CGNode, SSAInstruction>> instructions) throws PropertiesException {
+    BenignOracle oracle = getBenignOracle();
+    if (oracle.isBenignMethod(n.getMethod())) {
+      return null;
+    }
+    Collection<InstanceKey> relevant = computeInstancesForNode(n, ordInstances, acceptNodes);
+
+    instructions.addAll(oracle.computeMethodErrorInstructions(n, acceptNodes, toOrdinalInstanceSet(relevant)));
+
+    // compute the nodes that matter here, so that workers only read the cache
+    getNodesThatMatter(relevant);
+
+    return new LocalProblem(n, relevant, buildSupergraph(n));
+  }
+
+  /**
+   * The dataflow problem of one node, solved with a domain of its own, on
+   * whichever thread calls {@link #solve()}.
+   */
+  private class LocalProblem {
+
+    private final CGNode node;
+
+    private final Collection<InstanceKey> instances;
+
+    private final SingleProcedureSupergraph supergraph;
+
+    LocalProblem(CGNode node, Collection<InstanceKey> instances, SingleProcedureSupergraph supergraph) {
+      this.node = node;
+      this.instances = instances;
+      this.supergraph = supergraph;
+    }
+
+    @SuppressWarnings("unused")
+    TypeStateResult solve() throws WalaException, PropertiesException, SetUpException, CancelException {
+      initializeWorkerState();
+      initializeDomain(instances);
+      checkGraph(supergraph);
+
+      TypeStateProblem p = createTypeStateProblem(node, supergraph, instances);
+      TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> solver = TabulationSolver.make(p);
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Factoid> r = solver.solve();
+
+      if (DEBUG_LEVEL > 0) {
+        Trace.println("IFDS Result \n " + r.toString());
+      }
+      if (GUI_DEBUG) {
+        launchGuiExplorer(r);
+      }
+      return new TypeStateResult(r, getDomain(), supergraph);
+    }
+  }
+
   /**
    * Update benign oracle according to analysis results. All instances that were
    * processed and for which no error was reported are sent to benign-oracle for
@@ -15,6 +15,7 @@ import com.ibm.safe.typestate.base.BaseFactoid;
 import com.ibm.safe.typestate.core.TypeStateDomain;
 import com.ibm.safe.typestate.mine.AbstractHistory;
 import com.ibm.safe.typestate.mine.EventNameStateFactory;
+import com.ibm.safe.typestate.mine.LabelNumbering;
 import com.ibm.wala.dataflow.IFDS.IMergeFunction;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
@@ -45,6 +46,11 @@ public abstract class AbstractUnification implements IMergeFunction {
    */
   final SimpleIntVector rep2Last = new SimpleIntVector(-1);
 
+  /**
+   * label numbers of the histories this function merges
+   */
+  private final LabelNumbering labelNumbering = new LabelNumbering();
+
   protected AbstractUnification(TypeStateDomain domain) {
     this.domain = domain;
     stateFactory = EventNameStateFactory.getInstance();
@@ -107,4 +113,8 @@ public abstract class AbstractUnification implements IMergeFunction {
     return stateFactory;
   }
 
+  public LabelNumbering getLabelNumbering() {
+    return labelNumbering;
+  }
+
 }
@@ -76,14 +76,6 @@ public class FutureMerge extends AbstractUnification {
       return getRealRepresentative(jrep);
     }
 
-    // sharon: in order to add a join criterion that merges only
-    // histories with matching initial states
-    IDFA dfa_j = t_j.getDfa();
-    Collection initLabels_j = HashSetFactory.make();
-    for (Iterator lIt = dfa_j.getSuccNodes(dfa_j.getInitialState()); lIt.hasNext();) {
-      initLabels_j.addAll(dfa_j.getLabels(dfa_j.getInitialState(), lIt.next()));
-    }
-
     // reps := set of factoids to merge.
     BitVectorIntSet reps = new BitVectorIntSet();
     reps.add(jrep);
@@ -106,16 +98,11 @@ public class FutureMerge extends AbstractUnification {
           if (test == getRealRepresentative(r)) {
             // yes, the traces are equal excluding the dfa
             // we need to merge with r.
-            IDFA dfa_r = t_r.getDfa();
-            for (Iterator lIt = dfa_r.alphabet().iterator(); lIt.hasNext();) {
-              Object label = lIt.next();
-              if (dfa_r.successor(dfa_r.getInitialState(), label) != null) {
-                if (initLabels_j.contains(label)) {
-                  // a shared outgoing transition was found.
-                  reps.add(r);
-                  continue;
-                }
-              }
+            // sharon: in order to add a join criterion that merges only
+            // histories with matching initial states
+            if (t_r.sharesInitialLabel(t_j)) {
+              // a shared outgoing transition was found.
+              reps.add(r);
             }
             // reps.add(r);
           }
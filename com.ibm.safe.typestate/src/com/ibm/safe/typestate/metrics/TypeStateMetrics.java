@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.metrics;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -157,7 +158,7 @@ public final class TypeStateMetrics implements IMetrics {
    * @see com.ibm.safe.metrics.ITypeStateMetrics#setNumberOfCandidateStatements(java.lang.String,
    *      int)
    */
-  public void setNumberOfCandidateStatements(String propertyName, int n) {
+  public synchronized void setNumberOfCandidateStatements(String propertyName, int n) {
     // a sanity check ... staged solver will call this more than once
     int old = getNumberOfCandidateStatements(propertyName);
     if (old > -1) {
@@ -170,7 +171,7 @@ public final class TypeStateMetrics implements IMetrics {
    * @param propertyName
    * @return -1 if not registered
    */
-  public int getNumberOfCandidateStatements(String propertyName) {
+  public synchronized int getNumberOfCandidateStatements(String propertyName) {
     Integer n = candidateStatements.get(propertyName);
     return n == null ? -1 : n.intValue();
   }
@@ -181,7 +182,7 @@ public final class TypeStateMetrics implements IMetrics {
    * @see com.ibm.safe.metrics.ITypeStateMetrics#setNumberOfCandidateStatements(java.lang.String,
    *      int)
    */
-  public void setNumberOfDFASliceCandidateStatements(String propertyName, int n) {
+  public synchronized void setNumberOfDFASliceCandidateStatements(String propertyName, int n) {
     // a sanity check ... staged solver will call this more than once
     int old = getNumberOfDFASliceCandidateStatements(propertyName);
     if (old > -1) {
@@ -194,7 +195,7 @@ public final class TypeStateMetrics implements IMetrics {
    * @param propertyName
    * @return -1 if not registered
    */
-  public int getNumberOfDFASliceCandidateStatements(String propertyName) {
+  public synchronized int getNumberOfDFASliceCandidateStatements(String propertyName) {
     Integer n = DFAcandidateStatements.get(propertyName);
     return n == null ? -1 : n.intValue();
   }
@@ -204,14 +205,15 @@ public final class TypeStateMetrics implements IMetrics {
    * 
    * @see com.ibm.safe.metrics.ITypeStateMetrics#getPropertyNames()
    */
-  public Iterator<String> getPropertyNames() {
-    return candidateStatements.keySet().iterator();
+  public synchronized Iterator<String> getPropertyNames() {
+    // a copy, as solvers running concurrently may still add properties
+    return new ArrayList<String>(candidateStatements.keySet()).iterator();
   }
 
   /**
    * @return Returns the unoptimizedSupergraphSize.
    */
-  public int getUnoptimizedSupergraphSize() {
+  public synchronized int getUnoptimizedSupergraphSize() {
     return unoptimizedSupergraphSize;
   }
 
@@ -219,7 +221,7 @@ public final class TypeStateMetrics implements IMetrics {
    * @param unoptimizedSupergraphSize
    *            The unoptimizedSupergraphSize to set.
    */
-  public void setUnoptimizedSupergraphSize(int unoptimizedSupergraphSize) {
+  public synchronized void setUnoptimizedSupergraphSize(int unoptimizedSupergraphSize) {
     this.unoptimizedSupergraphSize = unoptimizedSupergraphSize;
   }
 
@@ -228,7 +230,7 @@ public final class TypeStateMetrics implements IMetrics {
    * 
    * @see com.ibm.safe.metrics.ITypeStateMetrics#recordSupergraphSize(int)
    */
-  public void recordSupergraphSize(int numberOfNodes) {
+  public synchronized void recordSupergraphSize(int numberOfNodes) {
     supergraphSizes.add(numberOfNodes, 1);
   }
 
@@ -237,7 +239,7 @@ public final class TypeStateMetrics implements IMetrics {
    * 
    * @see com.ibm.safe.metrics.ITypeStateMetrics#getSupergraphSizes()
    */
-  public Iterator getSupergraphSizes() {
+  public synchronized Iterator getSupergraphSizes() {
     return supergraphSizes.iterator();
   }
 
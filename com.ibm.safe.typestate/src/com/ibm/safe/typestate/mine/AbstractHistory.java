@@ -105,6 +105,12 @@ public class AbstractHistory implements IDFAState, Cloneable {
    */
   private IDFAStateFactory stateFactory;
 
+  /**
+   * int-indexed view of this history, built on demand and dropped whenever
+   * the history changes
+   */
+  private CompactHistory compact;
+
   public AbstractHistory(AbstractUnification merger) {
     this.merger = merger;
     if (merger != null) {
@@ -126,6 +132,20 @@ public class AbstractHistory implements IDFAState, Cloneable {
     initialize(dfa, currentStates, merger);
   }
 
+  /**
+   * Copy a history, without building an initial automaton only to replace
+   * it.
+   */
+  private AbstractHistory(AbstractHistory source, int extraStates) {
+    this.merger = source.merger;
+    this.stateFactory = source.stateFactory;
+    this.dfa = (DFA) source.dfa.clone();
+    this.currentStates = new HashSet<Object>(2 * (source.currentStates.size() + extraStates));
+    this.currentStates.addAll(source.currentStates);
+    this.hashCode = source.hashCode;
+    this.compact = source.compact;
+  }
+
   private void initialize(IDFA dfa, Collection<Object> currentStates, AbstractUnification merger) {
     this.dfa = dfa;
     this.currentStates = HashSetFactory.make();
@@ -313,56 +333,32 @@ public class AbstractHistory implements IDFAState, Cloneable {
       System.out.println("ISISO CALLS: " + counter++);
     }
 
-    IDFA dfa_j = this.getDfa();
-    IDFA dfa_i = t_i.getDfa();
-    Collection<Object> currentStates_j = this.getCurrentStates();
-    Collection<Object> currentStates_i = t_i.getCurrentStates();
-
-    // can the initial states be current???
-    if (currentStates_j.contains(dfa_j.getInitialState()) != currentStates_i.contains(dfa_i.getInitialState())) {
-      return false;
+    if (!hasCompactViews(t_i)) {
+      LabelNumbering labels = new LabelNumbering();
+      return new CompactHistory(dfa, currentStates, labels).isIsomorphic(new CompactHistory(t_i.dfa, t_i.currentStates, labels));
     }
+    return getCompact().isIsomorphic(t_i.getCompact());
+  }
 
-    if (!dfa_j.alphabet().equals(dfa_i.alphabet())) {
-      return false;
+  /**
+   * @return true iff some label leads out of the initial state of both this
+   *         history and t_i
+   */
+  public boolean sharesInitialLabel(AbstractHistory t_i) {
+    if (!hasCompactViews(t_i)) {
+      LabelNumbering labels = new LabelNumbering();
+      return new CompactHistory(dfa, currentStates, labels).sharesInitialLabel(new CompactHistory(t_i.dfa, t_i.currentStates,
+          labels));
     }
+    return getCompact().sharesInitialLabel(t_i.getCompact());
+  }
 
-    List<Pair<Object, Object>> workList = new LinkedList<Pair<Object, Object>>();
-    Collection<Pair<Object, Object>> explored = HashSetFactory.make();
-
-    Pair<Object, Object> origStatesPair = Pair.make(dfa_j.getInitialState(), dfa_i.getInitialState());
-    workList.add(origStatesPair);
-
-    while (!workList.isEmpty()) {
-      origStatesPair = workList.remove(0);
-
-      for (Iterator<Object> labelIt = dfa_i.alphabet().iterator(); labelIt.hasNext();) {
-        Object label = labelIt.next();
-        Object nextDest_j = dfa_j.successor(origStatesPair.fst, label);
-        Object nextDest_i = dfa_i.successor(origStatesPair.snd, label);
-
-        if ((nextDest_j == null) != (nextDest_i == null)) {
-          return false;
-        }
-
-        if (nextDest_j == null && nextDest_i == null) {
-          continue;
-        }
-
-        if (currentStates_j.contains(nextDest_j) != currentStates_i.contains(nextDest_i)) {
-          return false;
-        }
-
-        Pair<Object, Object> nextPair = Pair.make(nextDest_j, nextDest_i);
-        if (!explored.contains(nextPair)) {
-          workList.add(nextPair);
-          explored.add(nextPair);
-        }
-
-      }
-
-    }
-    return true;
+  /**
+   * @return true iff the cached views of this history and t_i number labels
+   *         the same way: both histories come from the same merge function
+   */
+  private boolean hasCompactViews(AbstractHistory t_i) {
+    return merger != null && merger == t_i.merger;
   }
 
   /*
@@ -372,6 +368,18 @@ public class AbstractHistory implements IDFAState, Cloneable {
    */
   private void updateHashCode() {
     hashCode = dfa.getNumberOfNodes() + 31 * dfa.getNumberOfLabels();
+    compact = null;
+  }
+
+  /**
+   * @return the int-indexed view of this history, with the label numbers of
+   *         its merge function
+   */
+  private CompactHistory getCompact() {
+    if (compact == null) {
+      compact = new CompactHistory(dfa, currentStates, merger.getLabelNumbering());
+    }
+    return compact;
   }
 
   /*
@@ -416,10 +424,20 @@ public class AbstractHistory implements IDFAState, Cloneable {
    * @see java.lang.Object#clone()
    */
   public Object clone() {
-    AbstractHistory result = new AbstractHistory(merger);
-    result.dfa = (DFA) dfa.clone();
-    result.currentStates = new HashSet<Object>(currentStates);
-    result.updateHashCode();
+    return new AbstractHistory(this, 0);
+  }
+
+  /**
+   * @return this history if its current states include the given ones,
+   *         otherwise a copy of it with the given states added to the current
+   *         ones
+   */
+  public AbstractHistory withCurrentStates(Collection<Object> newStates) {
+    if (currentStates.containsAll(newStates)) {
+      return this;
+    }
+    AbstractHistory result = new AbstractHistory(this, newStates.size());
+    result.addCurrentStates(newStates);
     return result;
   }
 
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.mine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.safe.dfa.IDFA;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * An int-indexed view of an abstract history, for the tests merge functions
+ * run again and again on the same histories. States are numbered from 0 (the
+ * initial state) in iteration order of the automaton; labels are numbered by
+ * a {@link LabelNumbering}, so that two views with the same numbering can be
+ * compared without looking at the automata again.
+ *
+ * The view is immutable: a history builds it on demand, and drops it when it
+ * changes.
+ */
+final class CompactHistory {
+
+  private final LabelNumbering numbering;
+
+  /**
+   * number of states
+   */
+  private final int size;
+
+  /**
+   * label numbers of the alphabet, sorted
+   */
+  private final int[] alphabet;
+
+  /**
+   * successors[s * alphabet.length + k] is the successor of state s by label
+   * alphabet[k], or -1
+   */
+  private final int[] successors;
+
+  /**
+   * bit s is set iff state s is current
+   */
+  private final long[] current;
+
+  /**
+   * label numbers with a successor from the initial state, sorted
+   */
+  private final int[] initialLabels;
+
+  CompactHistory(IDFA dfa, Collection<Object> currentStates, LabelNumbering numbering) {
+    this.numbering = numbering;
+    Map<Object, Integer> states = HashMapFactory.make();
+    Object init = dfa.getInitialState();
+    states.put(init, Integer.valueOf(0));
+    for (Iterator<Object> it = dfa.iterator(); it.hasNext();) {
+      Object s = it.next();
+      if (!states.containsKey(s)) {
+        states.put(s, Integer.valueOf(states.size()));
+      }
+    }
+    Object[] labels = dfa.alphabet().toArray();
+    int[] ids = new int[labels.length];
+    for (int k = 0; k < labels.length; k++) {
+      ids[k] = numbering.getId(labels[k]);
+    }
+    // sort the labels by number, keeping them paired with their objects
+    long[] byId = new long[labels.length];
+    for (int k = 0; k < labels.length; k++) {
+      byId[k] = ((long) ids[k] << 32) | k;
+    }
+    Arrays.sort(byId);
+    this.alphabet = new int[labels.length];
+    Object[] sortedLabels = new Object[labels.length];
+    for (int k = 0; k < labels.length; k++) {
+      this.alphabet[k] = (int) (byId[k] >>> 32);
+      sortedLabels[k] = labels[(int) byId[k]];
+    }
+
+    int n = states.size();
+    int a = alphabet.length;
+    this.size = n;
+    this.successors = new int[n * a];
+    this.current = new long[(n + 63) >>> 6];
+    int initialCount = 0;
+    int[] initial = new int[a];
+    for (Map.Entry<Object, Integer> e : states.entrySet()) {
+      int s = e.getValue().intValue();
+      if (currentStates.contains(e.getKey())) {
+        current[s >>> 6] |= 1L << s;
+      }
+      for (int k = 0; k < a; k++) {
+        Object succ = dfa.successor(e.getKey(), sortedLabels[k]);
+        successors[s * a + k] = (succ == null) ? -1 : states.get(succ).intValue();
+        if (s == 0 && succ != null) {
+          initial[initialCount++] = alphabet[k];
+        }
+      }
+    }
+    this.initialLabels = Arrays.copyOf(initial, initialCount);
+  }
+
+  private boolean isCurrent(int s) {
+    return (current[s >>> 6] & (1L << s)) != 0;
+  }
+
+  /**
+   * @return true iff some label leads out of the initial state of both
+   *         histories
+   */
+  boolean sharesInitialLabel(CompactHistory other) {
+    assert numbering == other.numbering;
+    int i = 0, j = 0;
+    while (i < initialLabels.length && j < other.initialLabels.length) {
+      if (initialLabels[i] == other.initialLabels[j]) {
+        return true;
+      } else if (initialLabels[i] < other.initialLabels[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same test as {@link AbstractHistory#isIsomorphic(AbstractHistory)}: walk
+   * both automata in lock step from the initial states, and check that the
+   * same labels lead to states which are current in both or in neither.
+   */
+  boolean isIsomorphic(CompactHistory other) {
+    assert numbering == other.numbering;
+    if (isCurrent(0) != other.isCurrent(0)) {
+      return false;
+    }
+    if (!Arrays.equals(alphabet, other.alphabet)) {
+      return false;
+    }
+    int a = alphabet.length;
+    if (a == 0) {
+      return true;
+    }
+    int m = other.size;
+    synchronized (numbering) {
+      // explored pairs (s, t), as bit s * m + t
+      long[] explored = numbering.getExplored((int) (((long) size * m + 63) >>> 6));
+      // work list of pairs, each explored pair entering it once
+      int[] work = numbering.getWork(2 * (size * m + 1));
+      int head = 0, tail = 0;
+      work[tail++] = 0;
+      work[tail++] = 0;
+      try {
+        while (head < tail) {
+          int s = work[head++];
+          int t = work[head++];
+          for (int k = 0; k < a; k++) {
+            int sNext = successors[s * a + k];
+            int tNext = other.successors[t * a + k];
+            if ((sNext == -1) != (tNext == -1)) {
+              return false;
+            }
+            if (sNext == -1) {
+              continue;
+            }
+            if (isCurrent(sNext) != other.isCurrent(tNext)) {
+              return false;
+            }
+            int bit = sNext * m + tNext;
+            if ((explored[bit >>> 6] & (1L << bit)) == 0) {
+              explored[bit >>> 6] |= 1L << bit;
+              work[tail++] = sNext;
+              work[tail++] = tNext;
+            }
+          }
+        }
+        return true;
+      } finally {
+        // the work list holds every pair marked explored
+        for (int i = 2; i < tail; i += 2) {
+          int bit = work[i] * m + work[i + 1];
+          explored[bit >>> 6] = 0;
+        }
+      }
+    }
+  }
+}
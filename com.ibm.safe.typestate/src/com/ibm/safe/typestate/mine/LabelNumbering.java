@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.mine;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Numbers of the labels of the histories of one merge function, so that their
+ * int-indexed views can be compared, and the scratch space the comparisons
+ * walk in. It lives as long as the merge function, hence as long as the solver
+ * using it.
+ */
+public final class LabelNumbering {
+
+  private final Map<Object, Integer> labelIds = HashMapFactory.make();
+
+  /**
+   * explored pairs of states of an isomorphism test; all clear between tests
+   */
+  private long[] explored = new long[0];
+
+  /**
+   * work list of an isomorphism test
+   */
+  private int[] work = new int[0];
+
+  /**
+   * @return the number of a label, the same for all histories of this
+   *         numbering
+   */
+  public synchronized int getId(Object label) {
+    Integer id = labelIds.get(label);
+    if (id == null) {
+      id = Integer.valueOf(labelIds.size());
+      labelIds.put(label, id);
+    }
+    return id.intValue();
+  }
+
+  /**
+   * @return a clear bit set of at least the given number of words; callers
+   *         clear the bits they set before the next call
+   */
+  long[] getExplored(int words) {
+    if (explored.length < words) {
+      explored = new long[Math.max(words, 2 * explored.length)];
+    }
+    return explored;
+  }
+
+  /**
+   * @return a work list of at least the given length
+   */
+  int[] getWork(int length) {
+    if (work.length < length) {
+      work = Arrays.copyOf(work, Math.max(length, 2 * work.length));
+    }
+    return work;
+  }
+}
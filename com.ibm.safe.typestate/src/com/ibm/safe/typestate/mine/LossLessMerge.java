@@ -10,13 +10,17 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.mine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
 
 import com.ibm.safe.dfa.IDFA;
 import com.ibm.safe.typestate.base.BaseFactoid;
 import com.ibm.safe.typestate.core.TypeStateDomain;
 import com.ibm.safe.typestate.merge.IMergeFunctionFactory;
 import com.ibm.wala.dataflow.IFDS.IMergeFunction;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
@@ -47,6 +51,21 @@ public class LossLessMerge implements IMergeFunction {
    */
   final IBinaryNaturalRelation merged = new BasicNaturalRelation();
 
+  /**
+   * numbers of the automaton states of the histories, for subset tests
+   */
+  private final Map<Object, Integer> stateIds = HashMapFactory.make();
+
+  /**
+   * numbers of the labels of the histories, for subset tests
+   */
+  private final LabelNumbering labelIds = new LabelNumbering();
+
+  /**
+   * states and edges of the history of each factoid, by factoid index
+   */
+  private final ArrayList<EdgeSet> edgeSets = new ArrayList<EdgeSet>();
+
   private LossLessMerge(TypeStateDomain domain) {
     this.domain = domain;
   }
@@ -82,58 +101,44 @@ public class LossLessMerge implements IMergeFunction {
         testSubset(j, i);
         if (subsetCache.isTrue(i, j)) {
           // t_i DFA is a subset of t_j dfa! merge i into j!!
-          AbstractHistory t_i = getAbstractHistory(i);
-          AbstractHistory t_j = getAbstractHistory(j);
-          AbstractHistory t_new = (AbstractHistory) t_j.clone();
-          t_new.addCurrentStates(t_i.getCurrentStates());
-          BaseFactoid f_j = (BaseFactoid) domain.getMappedObject(j);
-
-          int newJ = domain.getIndexForStateDelta(f_j, t_new);
-          // by construction, the new j is a superset of the old i and the old j
-          subsetCache.recordTrue(i, newJ);
-          subsetCache.recordTrue(j, newJ);
-          merged.add(i, newJ);
-          merged.add(j, newJ);
-
-          // update j .. it now represents the merged factoid, which is a
-          // candidate
-          // for further propagation
-          j = newJ;
-          if (x.contains(j)) {
-            // we've already propagated j. stop merging .. the extant facts
-            // should already be merged
-            return j;
-          }
+          j = mergeInto(i, j, getAbstractHistory(j), getAbstractHistory(i));
         } else if (subsetCache.isTrue(j, i)) {
           // t_j DFA is a subset of t_i dfa! merge j into i!!
-          AbstractHistory t_i = getAbstractHistory(i);
-          AbstractHistory t_j = getAbstractHistory(j);
-          AbstractHistory t_new = (AbstractHistory) t_i.clone();
-          t_new.addCurrentStates(t_j.getCurrentStates());
-          BaseFactoid f_j = (BaseFactoid) domain.getMappedObject(j);
-
-          int newJ = domain.getIndexForStateDelta(f_j, t_new);
-          // by construction, the new j is a superset of the old i and the old j
-          subsetCache.recordTrue(i, newJ);
-          subsetCache.recordTrue(j, newJ);
-          merged.add(i, newJ);
-          merged.add(j, newJ);
-
-          // update j .. it now represents the merged factoid, which is a
-          // candidate
-          // for further propagation
-          j = newJ;
-          if (x.contains(j)) {
-            // we've already propagated j. stop merging .. the extant facts
-            // should already be merged
-            return j;
-          }
+          j = mergeInto(i, j, getAbstractHistory(i), getAbstractHistory(j));
+        } else {
+          continue;
+        }
+        if (x.contains(j)) {
+          // we've already propagated j. stop merging .. the extant facts
+          // should already be merged
+          return j;
         }
       }
     }
     return j;
   }
 
+  /**
+   * Add the current states of the smaller history to the larger one, as state
+   * of factoid j.
+   * 
+   * @return the index of the merged factoid, which is a candidate for further
+   *         propagation
+   */
+  private int mergeInto(int i, int j, AbstractHistory larger, AbstractHistory smaller) {
+    // no copy of the larger history if it already has all the current states
+    AbstractHistory t_new = larger.withCurrentStates(smaller.getCurrentStates());
+    BaseFactoid f_j = (BaseFactoid) domain.getMappedObject(j);
+
+    int newJ = domain.getIndexForStateDelta(f_j, t_new);
+    // by construction, the new j is a superset of the old i and the old j
+    subsetCache.recordTrue(i, newJ);
+    subsetCache.recordTrue(j, newJ);
+    merged.add(i, newJ);
+    merged.add(j, newJ);
+    return newJ;
+  }
+
   /**
    * Ensure that the subset cache holds the result of testing whether i is a
    * subset of j
@@ -155,7 +160,7 @@ public class LossLessMerge implements IMergeFunction {
       // TODO: find a way to do this without creating a new index.
       int test = domain.getIndexForStateDelta(f_j, t_i);
       if (test == i) {
-        if (isSubset(t_i.getDfa(), t_j.getDfa())) {
+        if (isSubset(i, t_i, j, t_j)) {
           subsetCache.recordTrue(i, j);
           // since these two factoids are the same in every aspect except the
           // dfa,
@@ -174,10 +179,22 @@ public class LossLessMerge implements IMergeFunction {
     }
   }
 
+  /**
+   * is the automaton of t_i a subset of the one of t_j?
+   */
+  private boolean isSubset(int i, AbstractHistory t_i, int j, AbstractHistory t_j) {
+    EdgeSet a = getEdges(i, t_i);
+    EdgeSet b = getEdges(j, t_j);
+    if (a.edges == null || b.edges == null) {
+      return isSubset(t_i.getDfa(), t_j.getDfa());
+    }
+    return isSubset(a, b);
+  }
+
   /**
    * is a a subset of b?
    */
-  private boolean isSubset(IDFA a, IDFA b) {
+  private static boolean isSubset(IDFA a, IDFA b) {
     for (Iterator it = a.iterator(); it.hasNext();) {
       Object x = it.next();
       if (!b.containsNode(x))
@@ -186,7 +203,6 @@ public class LossLessMerge implements IMergeFunction {
         Object y = it2.next();
         if (!b.containsNode(y))
           return false;
-        // TODO: Steve, this is an awfully expensive operation now [EY]
         if (!a.getLabels(x, y).equals(b.getLabels(x, y))) {
           return false;
         }
@@ -195,6 +211,128 @@ public class LossLessMerge implements IMergeFunction {
     return true;
   }
 
+  /**
+   * is a a subset of b? both sets come from {@link #getEdges}: a's states
+   * must all be states of b, and each pair of states connected in a must be
+   * connected by the same labels in b.
+   */
+  private static boolean isSubset(EdgeSet a, EdgeSet b) {
+    if (a.nodes.length > b.nodes.length) {
+      return false;
+    }
+    for (int k = 0; k < a.nodes.length; k++) {
+      if (Arrays.binarySearch(b.nodes, a.nodes[k]) < 0) {
+        return false;
+      }
+    }
+    long[] ea = a.edges;
+    long[] eb = b.edges;
+    int k = 0;
+    while (k < ea.length) {
+      long pair = ea[k] & ~LABEL_MASK;
+      // the labels of (x,y) in b, from the first edge at or after (x,y,0)
+      int l = Arrays.binarySearch(eb, pair);
+      if (l < 0) {
+        l = -l - 1;
+      }
+      for (; k < ea.length && (ea[k] & ~LABEL_MASK) == pair; k++, l++) {
+        if (l >= eb.length || eb[l] != ea[k]) {
+          return false;
+        }
+      }
+      if (l < eb.length && (eb[l] & ~LABEL_MASK) == pair) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Bits of an encoded edge for its label; the target state and the source
+   * state take the same number of bits above it.
+   */
+  private static final int LABEL_BITS = 21;
+
+  private static final long LABEL_MASK = (1L << LABEL_BITS) - 1;
+
+  /**
+   * The states and edges of the history of factoid j, as sorted arrays of
+   * numbers. An edge x -l-> y is encoded as x:y:l on {@link #LABEL_BITS} bits
+   * each, so that the edges between two states are contiguous. Built once per
+   * factoid, instead of walking both automata on each subset test.
+   */
+  private EdgeSet getEdges(int j, AbstractHistory t_j) {
+    EdgeSet result = (j < edgeSets.size()) ? edgeSets.get(j) : null;
+    if (result == null) {
+      result = new EdgeSet(t_j.getDfa());
+      while (edgeSets.size() <= j) {
+        edgeSets.add(null);
+      }
+      edgeSets.set(j, result);
+    }
+    return result;
+  }
+
+  /**
+   * Number of an automaton state, the same for all histories of this merge
+   * function.
+   */
+  private int stateId(Object state) {
+    Integer id = stateIds.get(state);
+    if (id == null) {
+      id = Integer.valueOf(stateIds.size());
+      stateIds.put(state, id);
+    }
+    return id.intValue();
+  }
+
+  private final class EdgeSet {
+    final int[] nodes;
+
+    /**
+     * null if some state or label number does not fit in
+     * {@link #LABEL_BITS}; the automaton must then be walked
+     */
+    final long[] edges;
+
+    EdgeSet(IDFA dfa) {
+      nodes = new int[dfa.getNumberOfNodes()];
+      int n = 0;
+      int edgeCount = 0;
+      for (Iterator it = dfa.iterator(); it.hasNext();) {
+        Object x = it.next();
+        nodes[n++] = stateId(x);
+        for (Iterator it2 = dfa.getSuccNodes(x); it2.hasNext();) {
+          edgeCount += dfa.getLabels(x, it2.next()).size();
+        }
+      }
+      Arrays.sort(nodes);
+      edges = (nodes.length > 0 && nodes[nodes.length - 1] > LABEL_MASK) ? null : encodeEdges(dfa, edgeCount);
+    }
+
+    private long[] encodeEdges(IDFA dfa, int edgeCount) {
+      long[] result = new long[edgeCount];
+      int e = 0;
+      for (Iterator it = dfa.iterator(); it.hasNext();) {
+        Object x = it.next();
+        long src = (long) stateId(x) << (2 * LABEL_BITS);
+        for (Iterator it2 = dfa.getSuccNodes(x); it2.hasNext();) {
+          Object y = it2.next();
+          long pair = src | ((long) stateId(y) << LABEL_BITS);
+          for (Iterator it3 = dfa.getLabels(x, y).iterator(); it3.hasNext();) {
+            int label = labelIds.getId(it3.next());
+            if (label > LABEL_MASK) {
+              return null;
+            }
+            result[e++] = pair | label;
+          }
+        }
+      }
+      Arrays.sort(result);
+      return result;
+    }
+  }
+
   private AbstractHistory getAbstractHistory(int j) {
     BaseFactoid f_j = (BaseFactoid) domain.getMappedObject(j);
     return (AbstractHistory) f_j.state;
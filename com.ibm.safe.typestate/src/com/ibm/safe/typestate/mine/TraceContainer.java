@@ -10,29 +10,176 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.mine;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.ibm.safe.dfa.DFASpec;
+import com.ibm.safe.dfa.DFAState;
+import com.ibm.safe.dfa.DFATransition;
+import com.ibm.safe.dfa.IDFAState;
+import com.ibm.safe.dfa.IDFATransition;
+import com.ibm.safe.dfa.events.IEvent;
+import com.ibm.safe.dfa.events.IEventImpl;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * A set of abstract traces, as written by {@link TraceWriter}.
+ */
 public class TraceContainer {
 
+  /**
+   * Receives the traces of a file one at a time, as they are parsed.
+   */
+  public interface TraceVisitor {
+    void visit(AbstractTrace trace);
+  }
+
   List<AbstractTrace> traces = new ArrayList<AbstractTrace>();
-  
+
   public void add(AbstractTrace trace) {
     traces.add(trace);
   }
 
+  public List<AbstractTrace> getTraces() {
+    return Collections.unmodifiableList(traces);
+  }
+
   public String asXMLString() {
-    StringBuffer result = new StringBuffer();
-    for (AbstractTrace t : traces) {
-     result.append(t.getDfa().asGraph().toString()); 
+    StringWriter result = new StringWriter();
+    try {
+      TraceWriter w = new TraceWriter(result);
+      for (AbstractTrace t : traces) {
+        w.write(t);
+      }
+      w.close();
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      assert false : e;
     }
     return result.toString();
   }
 
-  public static TraceContainer readFromXMLString(String tcxml) {
+  public static TraceContainer readFromXMLString(String tcxml) throws IOException {
     TraceContainer tc = new TraceContainer();
-    
+    read(new InputSource(new StringReader(tcxml)), tc.adder());
     return tc;
   }
-  
+
+  /**
+   * Read all traces of a file written by {@link TraceWriter}, compressed or
+   * not. Use {@link #read(File, TraceVisitor)} for files too large to hold.
+   */
+  public static TraceContainer read(File f) throws IOException {
+    TraceContainer tc = new TraceContainer();
+    read(f, tc.adder());
+    return tc;
+  }
+
+  /**
+   * Read a file written by {@link TraceWriter}, compressed or not, handing
+   * each trace to visitor once parsed. Only the trace being parsed is held in
+   * memory.
+   */
+  public static void read(File f, TraceVisitor visitor) throws IOException {
+    InputStream s = new BufferedInputStream(new FileInputStream(f));
+    try {
+      if (TraceWriter.isCompressed(f)) {
+        s = new GZIPInputStream(s);
+      }
+      read(new InputSource(s), visitor);
+    } finally {
+      s.close();
+    }
+  }
+
+  private TraceVisitor adder() {
+    return new TraceVisitor() {
+      public void visit(AbstractTrace trace) {
+        add(trace);
+      }
+    };
+  }
+
+  private static void read(InputSource source, TraceVisitor visitor) throws IOException {
+    try {
+      SAXParserFactory.newInstance().newSAXParser().parse(source, new TraceHandler(visitor));
+    } catch (SAXException e) {
+      throw new IOException("malformed trace file: " + e.getMessage());
+    } catch (ParserConfigurationException e) {
+      throw new IOException("no XML parser available: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Builds one trace at a time from the parser events.
+   */
+  private static class TraceHandler extends DefaultHandler {
+
+    private final TraceVisitor visitor;
+
+    private AbstractTrace trace;
+
+    private Set<String> events;
+
+    TraceHandler(TraceVisitor visitor) {
+      this.visitor = visitor;
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+      if (qName.equals("trace")) {
+        trace = new AbstractTrace();
+        trace.setDfa(new DFASpec());
+        trace.setProgram(attributes.getValue("program"));
+        trace.setType(attributes.getValue("type"));
+        trace.setSolver(attributes.getValue("solver"));
+        trace.setMerger(attributes.getValue("merger"));
+        events = HashSetFactory.make();
+      } else if (trace != null && qName.equals("state")) {
+        IDFAState state = new DFAState();
+        state.setAccepting(false);
+        state.setName(attributes.getValue("name"));
+        trace.getDfa().addState(state);
+        if ("true".equals(attributes.getValue("initial"))) {
+          trace.getDfa().setInitialState(state);
+        }
+      } else if (trace != null && qName.equals("transition")) {
+        IDFATransition t = new DFATransition();
+        t.setSource(attributes.getValue("source"));
+        t.setDestination(attributes.getValue("destination"));
+        t.setEvent(attributes.getValue("event"));
+        trace.getDfa().addTransition(t);
+        if (events.add(t.getEvent())) {
+          IEvent e = new IEventImpl();
+          e.setName(t.getEvent());
+          trace.getDfa().addEvent(e);
+        }
+      }
+    }
+
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if (qName.equals("trace") && trace != null) {
+        visitor.visit(trace);
+        trace = null;
+        events = null;
+      }
+    }
+  }
 }
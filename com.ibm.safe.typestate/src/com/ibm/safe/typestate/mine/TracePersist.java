@@ -104,6 +104,7 @@ public class TracePersist {
     String initial = dfa.getInitialState().toString();
     IDFAState init = makeState(initial);
     result.getStates().add(init);
+    result.setInitialState(init);
     for (Iterator it = dfa.iterator(); it.hasNext();) {
       Object node = it.next();
       String nodeName = node.toString();
@@ -11,19 +11,15 @@
 package com.ibm.safe.typestate.mine;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 
 import com.ibm.safe.dfa.IDFA;
 import com.ibm.safe.typestate.base.BaseFactoid;
-import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.safe.utils.SafeLogger;
 import com.ibm.wala.util.WalaException;
-import com.ibm.wala.util.collections.HashMapFactory;
-import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.HashSetFactory;
 
 /**
  * @author sfink
@@ -34,8 +30,6 @@ import com.ibm.wala.util.collections.MapUtil;
  */
 public class TraceReporter {
 
-  private final static boolean VERBOSE = true;
-
   private final String outputDirectory;
 
   private final String programName;
@@ -58,73 +52,85 @@ public class TraceReporter {
   }
 
   /**
-   * Map: IDFA -> Collection<InstanceKey>
+   * the traces written so far
+   */
+  private final Set<IDFA> written = HashSetFactory.make();
+
+  /**
+   * the file being written, opened with the first trace
    */
-  Map<IDFA, Set<InstanceKey>> map = HashMapFactory.make();
+  private TraceWriter out;
+
+  /**
+   * the first failure to write, reported by {@link #persist()}
+   */
+  private IOException failure;
 
   /**
    * Record a particular factoid, holding an abstract trace, reaches the program
-   * exit.
+   * exit. The trace is written at once if it was not written before; instances
+   * are not part of the file, so later factoids with the same trace add
+   * nothing to it.
    */
-  public void record(BaseFactoid inputFact) {
-    if (VERBOSE) {
-      System.err.println("Reporting trace:");
-      System.err.println(inputFact.toString());
+  public synchronized void record(BaseFactoid inputFact) {
+    if (SafeLogger.isLoggable(Level.FINE)) {
+      SafeLogger.fine("Reporting trace:\n" + inputFact);
     }
     AbstractHistory t = (AbstractHistory) inputFact.state;
-    Set<InstanceKey> instances = MapUtil.findOrCreateSet(map, t.getDfa());
-    instances.add(inputFact.instance);
+    if (failure != null || !written.add(t.getDfa())) {
+      return;
+    }
+    try {
+      if (out == null) {
+        out = TraceWriter.open(getFile());
+      }
+      out.write(makeTrace(t.getDfa()));
+    } catch (IOException e) {
+      failure = e;
+    }
   }
 
   /**
-   * Persist the collected factoids to a file.
+   * Terminate the file of the recorded traces, which have been written as
+   * they were recorded.
    * 
    * @throws WalaException
+   *           if a trace could not be written
    */
-  public void persist() throws WalaException {
-    TraceContainer container = new TraceContainer();
-    for (Iterator<Map.Entry<IDFA, Set<InstanceKey>>> it = map.entrySet().iterator(); it.hasNext();) {
-      Map.Entry<IDFA, Set<InstanceKey>> e = it.next();
-      IDFA dfa = e.getKey();
-      Set<InstanceKey> instances = e.getValue();
-      AbstractTrace trace = makeTrace(dfa, instances);
-      container.add(trace);
-    }
-    writeToFile(container);
-  }
-
-  private void writeToFile(TraceContainer container) throws WalaException {
-    assert container != null;
-
-    File f = new File(outputDirectory + File.separator + filename);
+  public synchronized void persist() throws WalaException {
+    File f = getFile();
     try {
-      if (!f.exists()) {
-        File parent = f.getParentFile();
-        if (parent != null && !parent.exists()) {
-          parent.mkdirs();
-        }
-        f.createNewFile();
+      if (out == null && failure == null) {
+        out = TraceWriter.open(f);
+      }
+      if (out != null) {
+        out.close();
+        out = null;
       }
-
-      PrintWriter out = new PrintWriter(new FileOutputStream(f));
-      out.write(container.asXMLString());
-      out.close();
     } catch (IOException e) {
-      e.printStackTrace();
+      if (failure == null) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      failure.printStackTrace();
       throw new WalaException(getClass() + " failure to write to " + f.getAbsolutePath());
     }
 
     System.out.println("trace results have been created at " + f.getAbsolutePath());
   }
 
-  private AbstractTrace makeTrace(IDFA dfa, Set<InstanceKey> instances) {
+  private File getFile() {
+    return new File(outputDirectory + File.separator + filename);
+  }
+
+  private AbstractTrace makeTrace(IDFA dfa) {
     AbstractTrace trace = new AbstractTrace();
     trace.setDfa(TracePersist.toEMF(dfa));
     trace.setProgram(programName);
     trace.setSolver(solver);
     trace.setMerger(merger);
     trace.setType(type);
-    trace.addInstances(instances);
     return trace;
   }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.mine;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.safe.dfa.DFASpec;
+import com.ibm.safe.dfa.IDFAState;
+import com.ibm.safe.dfa.IDFATransition;
+
+/**
+ * Writes abstract traces one at a time, so that a trace can be dropped as soon
+ * as it is written. The format is read back by
+ * {@link TraceContainer#read(File)}:
+ *
+ * <pre>
+ * &lt;traces&gt;
+ *   &lt;trace program=&quot;...&quot; type=&quot;...&quot; solver=&quot;...&quot; merger=&quot;...&quot;&gt;
+ *     &lt;state name=&quot;...&quot; initial=&quot;true&quot;/&gt;
+ *     &lt;transition source=&quot;...&quot; destination=&quot;...&quot; event=&quot;...&quot;/&gt;
+ *   &lt;/trace&gt;
+ * &lt;/traces&gt;
+ * </pre>
+ *
+ * Files whose name ends with {@link #COMPRESSED_SUFFIX} are gzip-compressed.
+ */
+public class TraceWriter {
+
+  public static final String COMPRESSED_SUFFIX = ".gz";
+
+  private final Writer out;
+
+  public TraceWriter(Writer out) throws IOException {
+    this.out = out;
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<traces>\n");
+  }
+
+  /**
+   * Open a writer on a file, compressed if its name ends with
+   * {@link #COMPRESSED_SUFFIX}.
+   */
+  public static TraceWriter open(File f) throws IOException {
+    File parent = f.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists()) {
+      parent.mkdirs();
+    }
+    OutputStream s = new BufferedOutputStream(new FileOutputStream(f));
+    if (isCompressed(f)) {
+      s = new GZIPOutputStream(s);
+    }
+    return new TraceWriter(new OutputStreamWriter(s, "UTF-8"));
+  }
+
+  static boolean isCompressed(File f) {
+    return f.getName().endsWith(COMPRESSED_SUFFIX);
+  }
+
+  public void write(AbstractTrace trace) throws IOException {
+    out.write("  <trace");
+    attribute("program", trace.getProgram());
+    attribute("type", trace.getType());
+    attribute("solver", trace.getSolver());
+    attribute("merger", trace.getMerger());
+    out.write(">\n");
+    DFASpec dfa = trace.getDfa();
+    for (IDFAState s : dfa.getStates()) {
+      out.write("    <state");
+      attribute("name", s.getName());
+      if (s == dfa.initialState()) {
+        attribute("initial", "true");
+      }
+      out.write("/>\n");
+    }
+    for (IDFATransition t : dfa.getTransitions()) {
+      out.write("    <transition");
+      attribute("source", t.getSource());
+      attribute("destination", t.getDestination());
+      attribute("event", t.getEvent());
+      out.write("/>\n");
+    }
+    out.write("  </trace>\n");
+  }
+
+  /**
+   * Terminate the document and close the underlying stream.
+   */
+  public void close() throws IOException {
+    out.write("</traces>\n");
+    out.close();
+  }
+
+  private void attribute(String name, String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    out.write(' ');
+    out.write(name);
+    out.write("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+      case '<':
+        out.write("&lt;");
+        break;
+      case '>':
+        out.write("&gt;");
+        break;
+      case '&':
+        out.write("&amp;");
+        break;
+      case '"':
+        out.write("&quot;");
+        break;
+      case '\n':
+        out.write("&#10;");
+        break;
+      case '\r':
+        out.write("&#13;");
+        break;
+      case '\t':
+        out.write("&#9;");
+        break;
+      default:
+        out.write(c);
+      }
+    }
+    out.write('"');
+  }
+}
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.options;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.ibm.safe.internal.exceptions.PropertiesException;
 import com.ibm.safe.options.WholeProgramOptions;
 import com.ibm.safe.options.WholeProgramProperties;
@@ -107,6 +110,23 @@ public class TypeStateOptions extends WholeProgramOptions {
     return getIntValue(TypestateProperties.Props.MUST_AP_KLIMIT);
   }
 
+  /**
+   * @return number of worker threads used to solve tracked instances, or the
+   *         procedures of a local solver; never less than 1
+   * @throws PropertiesException
+   */
+  public int getTypestateThreadCount() throws PropertiesException {
+    return Math.max(1, getIntValue(TypestateProperties.Props.TYPESTATE_THREADS));
+  }
+
+  /**
+   * @return most tracked instances solved together; never less than 1
+   * @throws PropertiesException
+   */
+  public int getTypestateBatchSize() throws PropertiesException {
+    return Math.max(1, getIntValue(TypestateProperties.Props.TYPESTATE_BATCH_SIZE));
+  }
+
   public String getMineType() throws PropertiesException {
     return getStringValue(TypestateProperties.Props.MINE_TYPE);
   }
@@ -115,6 +135,36 @@ public class TypeStateOptions extends WholeProgramOptions {
     return getStringValue(TypestateProperties.Props.TYPESTATE_SOLVER_KIND);
   }
 
+  public int getStagedPipelineBatchSize() throws PropertiesException {
+    return Math.max(0, getIntValue(TypestateProperties.Props.STAGED_PIPELINE_BATCH));
+  }
+
+  /**
+   * @return the solver kinds run by the Staged solver, in order
+   * @throws PropertiesException
+   *           if a kind is unknown, or the list is empty or names the Staged
+   *           solver itself
+   */
+  public TypeStateSolverKind[] getStagedSolverKinds() throws PropertiesException {
+    final String value = getStringValue(TypestateProperties.Props.STAGED_SOLVERS);
+    final List<TypeStateSolverKind> kinds = new ArrayList<TypeStateSolverKind>();
+    for (String name : value.split("[,;]")) {
+      name = name.trim();
+      if (name.length() == 0) {
+        continue;
+      }
+      final TypeStateSolverKind kind = TypeStateSolverKind.getSolverKindFromString(name);
+      if (kind == null || kind == TypeStateSolverKind.STAGED) {
+        throw new PropertiesException("Bad staged solver kind " + name);
+      }
+      kinds.add(kind);
+    }
+    if (kinds.isEmpty()) {
+      throw new PropertiesException("No stages in staged solver list " + value);
+    }
+    return kinds.toArray(new TypeStateSolverKind[kinds.size()]);
+  }
+
   public String getMineMergeKindString() throws PropertiesException {
     return getStringValue(TypestateProperties.Props.MINE_MERGE);
   }
@@ -31,7 +31,7 @@ public class TypestateProperties {
 
   public static enum Props implements IPropertyDescriptor {
 
-    ABSTRACT_TRACE_FILE_NAME("abstract_trace_file_name", Type.STRING, "Name of output file used in spec mining."), GENERATE_WITNESS(
+    ABSTRACT_TRACE_FILE_NAME("abstract_trace_file_name", Type.STRING, "Name of output file used in spec mining; gzip-compressed if it ends with .gz."), GENERATE_WITNESS(
         "generate_witness", Type.BOOLEAN, ""), MINE_DFA("mine_dfa", Type.BOOLEAN, "Enable specification mining."), MINE_MERGE(
         "mine_merge", Type.STRING, "Simulation", "Specifies kind of merge operator used in spec mining."), MINE_TYPE("mine_type",
         Type.STRING, ""), MINE_CONTEXT("mine_context", Type.INT, 1, ""), MINE_CONTEXT_EVENT("mine_context_event", Type.STRING, ""), MODULAR_SUMMARY(
@@ -39,8 +39,13 @@ public class TypestateProperties {
         "Access path limit length for Must pointer analysis"), PROPERTY_GRAPH("property_graph", Type.STRING,
         "Outputs the property graph."), SELECT_TYPESTATE_RULES("select_typestate_rules", Type.STRING,
         "Selects a list of typestate rules to apply (file name without extension XMI)."), SLICE_DFA("slice_dfa", Type.BOOLEAN,
-        "Use DFA-slicing."), TYPESTATE_SOLVER_KIND("typestate_solver_kind", Type.STRING, "Staged",
-        "Specifies kind of solver to use for TypeState analysis.");
+        "Use DFA-slicing."), STAGED_PIPELINE_BATCH("staged_pipeline_batch", Type.INT, 0,
+        "Number of instances handed from one stage of the Staged solver to the next at a time (0 runs each stage on all instances)."), STAGED_SOLVERS(
+        "staged_solvers", Type.STRING, "LocalMustMustNot,Unique,APMustMustNot",
+        "Comma-separated list of solver kinds run in order by the Staged solver."), TYPESTATE_SOLVER_KIND("typestate_solver_kind", Type.STRING, "Staged",
+        "Specifies kind of solver to use for TypeState analysis."), TYPESTATE_BATCH_SIZE("typestate_batch_size", Type.INT, 1,
+        "Most tracked instances with overlapping slices solved together, by solvers which support it (1 solves each instance separately)."), TYPESTATE_THREADS("typestate_threads", Type.INT, 1,
+        "Number of worker threads used to solve tracked instances, or procedures for local solvers, in parallel (1 solves them serially).");
 
     private final String name;
 
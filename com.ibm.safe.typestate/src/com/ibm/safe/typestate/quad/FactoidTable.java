@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2004-2010 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.safe.typestate.quad;
+
+/**
+ * An open-addressing map from packed factoid keys to factoid numbers, so that
+ * a domain can find a factoid from its components without building it.
+ */
+public final class FactoidTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * keys[i] is meaningful iff values[i] != 0
+   */
+  private long[] keys = new long[INITIAL_CAPACITY];
+
+  /**
+   * factoid number + 1, or 0 for an empty slot
+   */
+  private int[] values = new int[INITIAL_CAPACITY];
+
+  private int size;
+
+  /**
+   * @return the factoid number for key, or -1 if none
+   */
+  public int get(long key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask);; i = (i + 1) & mask) {
+      int v = values[i];
+      if (v == 0) {
+        return -1;
+      } else if (keys[i] == key) {
+        return v - 1;
+      }
+    }
+  }
+
+  public void put(long key, int value) {
+    if (2 * (size + 1) > keys.length) {
+      grow();
+    }
+    if (insert(keys, values, key, value + 1)) {
+      size++;
+    }
+  }
+
+  private void grow() {
+    long[] newKeys = new long[2 * keys.length];
+    int[] newValues = new int[2 * values.length];
+    for (int i = 0; i < keys.length; i++) {
+      if (values[i] != 0) {
+        insert(newKeys, newValues, keys[i], values[i]);
+      }
+    }
+    keys = newKeys;
+    values = newValues;
+  }
+
+  /**
+   * @return true iff key was not in the table
+   */
+  private static boolean insert(long[] keys, int[] values, long key, int v) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask);; i = (i + 1) & mask) {
+      if (values[i] == 0) {
+        keys[i] = key;
+        values[i] = v;
+        return true;
+      } else if (keys[i] == key) {
+        values[i] = v;
+        return false;
+      }
+    }
+  }
+
+  private static int slot(long key, int mask) {
+    // spread the bits of all components over the low bits
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+}
@@ -13,7 +13,11 @@
  */
 package com.ibm.safe.typestate.quad;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.ibm.safe.accesspath.AccessPath;
 import com.ibm.safe.accesspath.AccessPathSet;
@@ -34,6 +38,7 @@ import com.ibm.safe.utils.Trace;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 
 /**
@@ -52,6 +57,41 @@ public class QuadTypeStateDomain extends TypeStateDomain {
    */
   private final PointerAnalysis pointsTo;
 
+  /**
+   * returned by {@link #encode(int, int, boolean, int)} when the ids do not
+   * fit in a key
+   */
+  private final static long NO_KEY = -1L;
+
+  private final static int INSTANCE_BITS = 20;
+
+  private final static int STATE_BITS = 11;
+
+  /**
+   * factoid numbers, by packed (instance, state, unique, auxiliary) ids
+   */
+  private final FactoidTable factoids = new FactoidTable();
+
+  private final Map<InstanceKey, Integer> instanceIds = HashMapFactory.make();
+
+  private final Map<IDFAState, Integer> stateIds = HashMapFactory.make();
+
+  /**
+   * hash-consed auxiliaries: equal auxiliaries share one id, and the factoids
+   * share the first auxiliary seen for it
+   */
+  private final Map<Auxiliary, Integer> auxIds = HashMapFactory.make();
+
+  /**
+   * ids of the shared auxiliaries, by identity. State deltas look up the
+   * auxiliary of an existing factoid, which is always a shared one; this finds
+   * it without hashing its access path sets, which {@link #auxIds} would do
+   * on every lookup.
+   */
+  private final Map<Auxiliary, Integer> sharedAuxIds = new IdentityHashMap<Auxiliary, Integer>();
+
+  private final List<Auxiliary> auxiliaries = new ArrayList<Auxiliary>();
+
   /**
    * @param dfa
    *          governing type state automaton
@@ -67,11 +107,55 @@ public class QuadTypeStateDomain extends TypeStateDomain {
    * @return the integer to which the object is mapped.
    */
   public int add(InstanceKey instance, IDFAState state, boolean isUnique, Auxiliary aux) {
-    QuadFactoid f = new QuadFactoid(instance, state, isUnique, aux);
-    if (VERBOSE && getMappedIndex(f) == -1) {
-      verbosePrint(f);
+    int auxId = auxId(aux);
+    long key = encode(id(instanceIds, instance), id(stateIds, state), isUnique, auxId);
+    int result = (key == NO_KEY) ? -1 : factoids.get(key);
+    if (result == -1) {
+      QuadFactoid f = new QuadFactoid(instance, state, isUnique, auxiliaries.get(auxId));
+      if (VERBOSE && getMappedIndex(f) == -1) {
+        verbosePrint(f);
+      }
+      result = add(f);
+      if (key != NO_KEY) {
+        factoids.put(key, result);
+      }
+    }
+    return result;
+  }
+
+  private static <T> int id(Map<T, Integer> ids, T o) {
+    Integer id = ids.get(o);
+    if (id == null) {
+      id = Integer.valueOf(ids.size());
+      ids.put(o, id);
+    }
+    return id.intValue();
+  }
+
+  private int auxId(Auxiliary aux) {
+    Integer id = sharedAuxIds.get(aux);
+    if (id != null) {
+      return id.intValue();
+    }
+    id = auxIds.get(aux);
+    if (id == null) {
+      id = Integer.valueOf(auxiliaries.size());
+      auxIds.put(aux, id);
+      sharedAuxIds.put(aux, id);
+      auxiliaries.add(aux);
+    }
+    return id.intValue();
+  }
+
+  /**
+   * @return the ids packed in a long, or {@link #NO_KEY} if they do not fit
+   */
+  private static long encode(int instanceId, int stateId, boolean isUnique, int auxId) {
+    if (instanceId >>> INSTANCE_BITS != 0 || stateId >>> STATE_BITS != 0) {
+      return NO_KEY;
     }
-    return add(f);
+    return ((long) auxId << (INSTANCE_BITS + STATE_BITS + 1)) | ((long) instanceId << (STATE_BITS + 1)) | (stateId << 1)
+        | (isUnique ? 1 : 0);
   }
 
   /**
@@ -169,11 +253,7 @@ public class QuadTypeStateDomain extends TypeStateDomain {
    */
   public int getIndexForStateDelta(BaseFactoid inputFact, IDFAState succState) {
     QuadFactoid i = (QuadFactoid) inputFact;
-    QuadFactoid f = new QuadFactoid(i.instance, succState, i.isUnique(), i.aux);
-    if (VERBOSE && getMappedIndex(f) == -1) {
-      verbosePrint(f);
-    }
-    return add(f);
+    return add(i.instance, succState, i.isUnique(), i.aux);
   }
 
   /*
@@ -15,9 +15,12 @@ import java.util.Iterator;
 
 import com.ibm.safe.dfa.events.IDispatchEvent;
 import com.ibm.safe.dfa.events.IEvent;
+import com.ibm.safe.typestate.core.EventNodeIndex;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 
 /**
@@ -51,6 +54,12 @@ public abstract class AbstractTypeStateDFA implements ITypeStateDFA {
    */
   private boolean observesObjectDeath;
 
+  /**
+   * the nodes of the call graph which dispatch an event of this dfa; built
+   * once and shared by all problems solved for the dfa
+   */
+  private EventNodeIndex eventNodeIndex;
+
   protected AbstractTypeStateDFA(IClassHierarchy cha, Collection<IClass> types) {
     this.cha = cha;
     this.types = types;
@@ -157,6 +166,18 @@ public abstract class AbstractTypeStateDFA implements ITypeStateDFA {
     this.observesObjectDeath = observesObjectDeath;
   }
 
+  /**
+   * @return the index of the nodes of cg which dispatch an event of this dfa,
+   *         built on the first request for this call graph and pointer
+   *         analysis
+   */
+  public synchronized EventNodeIndex getEventNodeIndex(CallGraph cg, PointerAnalysis pointerAnalysis) {
+    if (eventNodeIndex == null || !eventNodeIndex.isFor(cg, pointerAnalysis)) {
+      eventNodeIndex = new EventNodeIndex(this, cg, pointerAnalysis);
+    }
+    return eventNodeIndex;
+  }
+
   protected IClassHierarchy getClassHierarchy() {
     return cha;
   }
@@ -10,9 +10,13 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.rules;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.util.debug.Assertions;
@@ -46,7 +50,7 @@ public abstract class InstanceBatchIterator {
    * @return an Iterator<Collection<InstanceKey>>, where each Collection of
    *         instances will be solved simultaneously
    */
-  abstract Iterator<Collection<InstanceKey>> getInstanceBatches();
+  public abstract Iterator<Collection<InstanceKey>> getInstanceBatches();
 
   /**
    * 
@@ -66,6 +70,22 @@ public abstract class InstanceBatchIterator {
     return new Separation(allInstances);
   }
 
+  /**
+   * @param allInstances
+   * @param slices
+   *            the call graph nodes relevant to each instance
+   * @param minOverlap
+   *            least ratio between the common and the total nodes of the
+   *            slices of two instances solved together
+   * @param maxBatchSize
+   *            most instances solved together
+   * @return an iterator which embodies the "slice overlap" batch policy
+   */
+  public static <T> InstanceBatchIterator makeSliceOverlap(Collection<InstanceKey> allInstances,
+      Map<InstanceKey, ? extends Set<T>> slices, double minOverlap, int maxBatchSize) {
+    return new SliceOverlap<T>(allInstances, slices, minOverlap, maxBatchSize);
+  }
+
   /**
    * @author sfink
    * 
@@ -77,7 +97,7 @@ public abstract class InstanceBatchIterator {
       super(allInstances);
     }
 
-    Iterator<Collection<InstanceKey>> getInstanceBatches() {
+    public Iterator<Collection<InstanceKey>> getInstanceBatches() {
       return Collections.singleton(super.allInstances).iterator();
     }
   }
@@ -94,7 +114,7 @@ public abstract class InstanceBatchIterator {
       super(allInstances);
     }
 
-    Iterator<Collection<InstanceKey>> getInstanceBatches() {
+    public Iterator<Collection<InstanceKey>> getInstanceBatches() {
       final Iterator<InstanceKey> it = super.allInstances.iterator();
       return new Iterator<Collection<InstanceKey>>() {
 
@@ -113,4 +133,67 @@ public abstract class InstanceBatchIterator {
       };
     }
   }
+
+  /**
+   * "slice overlap": solve together instances whose slices are nearly the
+   * same, so that one supergraph and one tabulation serve all of them. Each
+   * instance joins the first batch whose first instance has a slice close
+   * enough to its own, and which is not full.
+   */
+  private static class SliceOverlap<T> extends InstanceBatchIterator {
+
+    private final Map<InstanceKey, ? extends Set<T>> slices;
+
+    private final double minOverlap;
+
+    private final int maxBatchSize;
+
+    SliceOverlap(Collection<InstanceKey> allInstances, Map<InstanceKey, ? extends Set<T>> slices, double minOverlap,
+        int maxBatchSize) {
+      super(allInstances);
+      this.slices = slices;
+      this.minOverlap = minOverlap;
+      this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public Iterator<Collection<InstanceKey>> getInstanceBatches() {
+      List<Collection<InstanceKey>> batches = new ArrayList<Collection<InstanceKey>>();
+      List<Set<T>> seeds = new ArrayList<Set<T>>();
+      for (InstanceKey instance : super.allInstances) {
+        Set<T> slice = slices.get(instance);
+        int target = -1;
+        for (int i = 0; i < batches.size() && target == -1; i++) {
+          if (batches.get(i).size() < maxBatchSize && overlap(seeds.get(i), slice) >= minOverlap) {
+            target = i;
+          }
+        }
+        if (target == -1) {
+          batches.add(new ArrayList<InstanceKey>());
+          seeds.add(slice);
+          target = batches.size() - 1;
+        }
+        batches.get(target).add(instance);
+      }
+      return batches.iterator();
+    }
+
+    /**
+     * @return |a & b| / |a | b|, 1 if both are empty
+     */
+    private static <T> double overlap(Set<T> a, Set<T> b) {
+      if (a.size() > b.size()) {
+        return overlap(b, a);
+      }
+      if (b.isEmpty()) {
+        return 1.0;
+      }
+      int common = 0;
+      for (T x : a) {
+        if (b.contains(x)) {
+          common++;
+        }
+      }
+      return ((double) common) / (a.size() + b.size() - common);
+    }
+  }
 }
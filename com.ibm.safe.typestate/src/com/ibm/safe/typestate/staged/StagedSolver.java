@@ -10,9 +10,23 @@
  *******************************************************************************/
 package com.ibm.safe.typestate.staged;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 
 import com.ibm.safe.ICFGSupergraph;
 import com.ibm.safe.controller.ISafeSolver;
@@ -20,12 +34,17 @@ import com.ibm.safe.internal.exceptions.MaxFindingsException;
 import com.ibm.safe.internal.exceptions.PropertiesException;
 import com.ibm.safe.internal.exceptions.SetUpException;
 import com.ibm.safe.internal.exceptions.SolverTimeoutException;
+import com.ibm.safe.perf.IPerformanceTracked;
 import com.ibm.safe.perf.PerformanceTracker;
+import com.ibm.safe.perf.PerformanceTracker.Kind;
 import com.ibm.safe.reporting.IReporter;
+import com.ibm.safe.reporting.message.AggregateSolverResult;
 import com.ibm.safe.reporting.message.ISolverResult;
+import com.ibm.safe.reporting.message.Message;
 import com.ibm.safe.typestate.controller.TypeStateSolverKind;
 import com.ibm.safe.typestate.core.AbstractTypestateSolver;
 import com.ibm.safe.typestate.core.BenignOracle;
+import com.ibm.safe.typestate.core.SharedAnalysisContext;
 import com.ibm.safe.typestate.core.TypeStateProblem;
 import com.ibm.safe.typestate.core.TypeStateProperty;
 import com.ibm.safe.typestate.core.TypestateSolverFactory;
@@ -33,55 +52,78 @@ import com.ibm.safe.typestate.core.WholeProgramSupergraph;
 import com.ibm.safe.typestate.metrics.TypeStateMetrics;
 import com.ibm.safe.typestate.options.TypeStateOptions;
 import com.ibm.safe.typestate.rules.InstanceBatchIterator;
+import com.ibm.safe.utils.PreparedIRs;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.WalaException;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Pair;
 
 /**
- * Execute different solvers in a staged manner
+ * Execute different solvers in a staged manner.
+ * 
+ * The stages are given by the staged_solvers property. Each stage is handed
+ * the instances that the previous stages could not verify, and skips the
+ * statements they found benign; the pipeline stops as soon as nothing is left,
+ * so the expensive stages are only set up for the instances that need them.
+ * With a positive staged_pipeline_batch, the instances are cut into batches
+ * that flow through the stages on a thread per stage, so that a later stage
+ * works on one batch while an earlier stage works on the next.
  * 
  * @author yahave
  * 
  */
 public class StagedSolver extends AbstractTypestateSolver {
 
-  /**
-   * definition of the sequence of stages, in order TODO: can expose that as a
-   * property with a defined default, but don't need it now
-   */
-  final static TypeStateSolverKind[] stageKinds = { TypeStateSolverKind.LOCAL_MUST_MUSTNOT, TypeStateSolverKind.UNIQUE,
-      TypeStateSolverKind.AP_MUST_MUSTNOT };
-
   /**
    * we could have stored only results of last stage, but for now, at least for
-   * the sake of tracability, keep all results
+   * the sake of tracability, keep all results. When the stages are pipelined,
+   * this holds the result of the last batch through each stage.
    * 
    * Be very careful that this doesn't cause a massive leak! Never ever store a
    * lot of data in a SafeSolverResult!
    */
-  private ISolverResult[] stageResults = new ISolverResult[stageKinds.length];
+  private ISolverResult[] stageResults;
 
   private final AnalysisOptions domoOptions;
 
   private final PerformanceTracker perfTracker;
 
-  public StagedSolver(AnalysisOptions domoOptions, CallGraph cg, PointerAnalysis pointerAnalysis, TypeStateProperty property,
-      TypeStateOptions options, BenignOracle ora, TypeStateMetrics metrics, IReporter reporter, PerformanceTracker perfTracker) {
+  /**
+   * analyses shared with the other solvers of this run, so that each stage
+   * does not recompute them
+   */
+  private final SharedAnalysisContext context;
+
+  private final Logger logger = Logger.getGlobal();
+
+  public StagedSolver(AnalysisOptions domoOptions, CallGraph cg, PointerAnalysis pointerAnalysis, SharedAnalysisContext context,
+      TypeStateProperty property, TypeStateOptions options, BenignOracle ora, TypeStateMetrics metrics, IReporter reporter,
+      PerformanceTracker perfTracker) {
     super(cg, pointerAnalysis, property, options, null, ora, metrics, reporter, null, null);
     this.domoOptions = domoOptions;
     this.perfTracker = perfTracker;
+    this.context = context;
 
   }
 
   /**
    * Perfom the analysis
    * 
+   * With an incremental store, the findings of all stages are kept under the
+   * tracked instances, and replayed as long as no class with a node in the
+   * call graph changed: the stages decide which nodes matter to each instance,
+   * so the footprint is the whole call graph. What the stages told the benign
+   * oracle about the tracked instances is kept and replayed with the findings.
+   * 
    * @throws WalaException
    * @throws SetUpException
    * @throws PropertiesException
@@ -92,38 +134,390 @@ public class StagedSolver extends AbstractTypestateSolver {
     monitor.beginTask(null, 1);
     monitor.subTask(toString());
 
-    optionalStatistics();
+    TypeStateSolverKind[] stageKinds = getOptions().getStagedSolverKinds();
+    stageResults = new ISolverResult[stageKinds.length];
 
-    for (int i = 0; i < stageKinds.length; i++) {
-      String timingKey = null;
-      try {
-        if (DEBUG_LEVEL > 1) {
-          System.err.println(stageKinds[i]);
+    ISolverResult result;
+    try {
+      optionalStatistics();
+      if (initializeProperty()) {
+        Map<InstanceKey, Set<Pair<CGNode, SSAInstruction>>> errorLocations = Collections.emptyMap();
+        if (getDFA() instanceof TypeStateProperty) {
+          errorLocations = getBenignOracle().possibleErrorLocations((TypeStateProperty) getDFA());
         }
-        ISafeSolver s = TypestateSolverFactory.getSolver(stageKinds[i], domoOptions, getCallGraph(), getPointerAnalysis(),
-            getPointerAnalysis().getHeapGraph(), getDFA(), getBenignOracle(), getOptions(), getMetrics(), getReporter(),
-            perfTracker, null);
-        timingKey = stageKinds[i] + " " + s.toString();
-        if (perfTracker != null) {
-          perfTracker.startTracking(timingKey);
+        Collection<InstanceKey> tracked = computeTrackedInstances();
+        IncrementalUnit unit = getIncrementalUnit(tracked);
+        AggregateSolverResult replayed = new AggregateSolverResult();
+        if (unit != null && unit.replay(tracked, errorLocations, replayed)) {
+          return replayed;
+        }
+        StageWork work = StageWork.unverified(tracked, getBenignOracle());
+
+        int batchSize = getOptions().getStagedPipelineBatchSize();
+        if (batchSize > 0 && stageKinds.length > 1 && work.size() > batchSize) {
+          result = performPipelined(stageKinds, work, batchSize, monitor);
+        } else {
+          result = performInStages(stageKinds, work, monitor);
         }
-        stageResults[i] = s.perform(monitor);
-      } catch (MaxFindingsException e) {
-        // TODO: handle this [EY]
-      } finally {
-        if (perfTracker != null) {
-          perfTracker.stopTracking(timingKey);
+        if (unit != null) {
+          unit.record(result, tracked, errorLocations);
         }
+      } else {
+        result = new AggregateSolverResult();
       }
+    } finally {
+      monitor.done();
+      releaseSupergraphs();
     }
 
     if (Thread.interrupted()) {
-      throw new SolverTimeoutException(stageResults[stageResults.length - 1]);
+      throw new SolverTimeoutException(result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Run the stages one after the other, each on everything the previous stage
+   * left unverified.
+   * 
+   * @return the result of the last stage that had work to do
+   */
+  private ISolverResult performInStages(TypeStateSolverKind[] stageKinds, StageWork work, IProgressMonitor monitor)
+      throws WalaException, SolverTimeoutException, SetUpException, PropertiesException, CancelException {
+    ISolverResult result = null;
+    for (int i = 0; i < stageKinds.length && !work.isEmpty(); i++) {
+      if (DEBUG_LEVEL > 1) {
+        System.err.println(stageKinds[i]);
+      }
+      stageResults[i] = runStage(stageKinds[i], work, monitor, "");
+      if (stageResults[i] != null) {
+        result = stageResults[i];
+      }
+      work = work.unverified(getBenignOracle());
+      logUnverified(stageKinds[i], work);
+    }
+    if (result == null) {
+      // the first stage had nothing to do, or gave up on too many findings
+      result = new AggregateSolverResult();
+    }
+    return result;
+  }
+
+  /**
+   * Run the stages as a pipeline over batches of instances. Each stage has a
+   * thread of its own and takes the batches in order; the work for a batch is
+   * whatever the previous stage left unverified in it. Results of the last
+   * stage are merged in batch order.
+   * 
+   * The stage solvers get IRs and def-uses from the call graph nodes, through
+   * the call graph's cache, which is not thread-safe; so all of these are built
+   * before the first stage starts. The stages see the caller's monitor only
+   * through {@link CancelForwardingMonitor}: a monitor reports progress from
+   * one thread.
+   */
+  private ISolverResult performPipelined(final TypeStateSolverKind[] stageKinds, StageWork work, int batchSize,
+      final IProgressMonitor monitor) throws WalaException, SolverTimeoutException, SetUpException, PropertiesException, CancelException {
+    PipelineResult result = new PipelineResult();
+    result.addPotentialInstances(work.getInstances());
+
+    PreparedIRs irs = PreparedIRs.prepare(getCallGraph());
+    final IProgressMonitor stageMonitor = new CancelForwardingMonitor(monitor);
+    ExecutorService[] stages = new ExecutorService[stageKinds.length];
+    for (int i = 0; i < stageKinds.length; i++) {
+      stages[i] = Executors.newSingleThreadExecutor(new StageThreadFactory(toString() + " " + stageKinds[i]));
+    }
+    try {
+      List<StageWork> batches = work.split(batchSize);
+      List<List<Future<StageOutcome>>> outcomes = new ArrayList<List<Future<StageOutcome>>>(stageKinds.length);
+      for (int i = 0; i < stageKinds.length; i++) {
+        outcomes.add(new ArrayList<Future<StageOutcome>>(batches.size()));
+      }
+      for (int b = 0; b < batches.size(); b++) {
+        final String batchName = " batch " + b;
+        Future<StageOutcome> previous = null;
+        for (int i = 0; i < stageKinds.length; i++) {
+          final int stage = i;
+          final StageWork batch = batches.get(b);
+          final Future<StageOutcome> input = previous;
+          // a stage only waits for an earlier stage, which runs on another
+          // thread, so the batches cannot deadlock
+          previous = stages[i].submit(new Callable<StageOutcome>() {
+            public StageOutcome call() throws Exception {
+              StageWork todo = (input == null) ? batch : input.get().getWork();
+              if (todo.isEmpty()) {
+                return new StageOutcome(todo, null);
+              }
+              if (monitor.isCanceled()) {
+                throw CancelException.make("staged solver canceled");
+              }
+              ISolverResult r = runStage(stageKinds[stage], todo, stageMonitor, batchName);
+              return new StageOutcome(todo.unverified(getBenignOracle()), r);
+            }
+          });
+          outcomes.get(i).add(previous);
+        }
+      }
+
+      List<Future<StageOutcome>> tails = outcomes.get(stageKinds.length - 1);
+      for (Iterator<Future<StageOutcome>> it = tails.iterator(); it.hasNext();) {
+        if (monitor.isCanceled()) {
+          throw CancelException.make("staged solver canceled");
+        }
+        StageOutcome outcome = awaitStage(it.next(), result);
+        result.merge(outcome.getResult());
+        if (Thread.interrupted()) {
+          throw new SolverTimeoutException(result);
+        }
+      }
+
+      // every stage is done with every batch once the last stage is; keep the
+      // result of the last batch each stage worked on
+      for (int i = 0; i < stageKinds.length; i++) {
+        for (Iterator<Future<StageOutcome>> it = outcomes.get(i).iterator(); it.hasNext();) {
+          ISolverResult r = awaitStage(it.next(), result).getResult();
+          if (r != null) {
+            stageResults[i] = r;
+          }
+        }
+      }
+    } finally {
+      // interrupt any stage still running after a timeout, failure or cancel
+      for (int i = 0; i < stages.length; i++) {
+        stages[i].shutdownNow();
+      }
+      irs.release();
+    }
+    return result;
+  }
+
+  /**
+   * Create the solver for a stage, restrict it to the unverified instances,
+   * and run it.
+   * 
+   * @return the result of the stage, or null if it gave up after too many
+   *         findings
+   */
+  private ISolverResult runStage(TypeStateSolverKind kind, StageWork work, IProgressMonitor monitor, String suffix)
+      throws WalaException, SolverTimeoutException, SetUpException, PropertiesException, CancelException {
+    String timingKey = null;
+    try {
+      ISafeSolver s = TypestateSolverFactory.getSolver(kind, domoOptions, getCallGraph(), getPointerAnalysis(), context, getDFA(),
+          getBenignOracle(), getOptions(), getMetrics(), getReporter(), perfTracker, null);
+      if (s instanceof AbstractTypestateSolver) {
+        ((AbstractTypestateSolver) s).restrictToInstances(work.getInstances());
+      }
+      if (s instanceof IPerformanceTracked && getPerformanceSpan() != null) {
+        ((IPerformanceTracked) s).setPerformanceSpan(getPerformanceSpan().getChild(kind + suffix, Kind.SOLVER));
+      }
+      timingKey = kind + " " + s.toString() + suffix;
+      if (perfTracker != null) {
+        perfTracker.startTracking(timingKey);
+      }
+      return s.perform(monitor);
+    } catch (MaxFindingsException e) {
+      // TODO: handle this [EY]
+      return null;
+    } finally {
+      if (perfTracker != null && timingKey != null) {
+        perfTracker.stopTracking(timingKey);
+      }
+    }
+  }
+
+  private void logUnverified(final TypeStateSolverKind kind, final StageWork work) {
+    logger.fine(() -> "After stage " + kind + ": " + work.size() + " unverified instances");
+  }
+
+  /**
+   * Wait for the last stage to finish a batch, and rethrow any failure of any
+   * stage on the calling thread.
+   */
+  private static StageOutcome awaitStage(Future<StageOutcome> f, ISolverResult partial) throws WalaException,
+      SolverTimeoutException, SetUpException, PropertiesException, CancelException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      throw new SolverTimeoutException(partial);
+    } catch (ExecutionException e) {
+      // a failure in an earlier stage reaches us wrapped once per later stage
+      Throwable cause = e.getCause();
+      while (cause instanceof ExecutionException) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof SolverTimeoutException) {
+        throw new SolverTimeoutException(partial);
+      } else if (cause instanceof CancelException) {
+        throw (CancelException) cause;
+      } else if (cause instanceof WalaException) {
+        throw (WalaException) cause;
+      } else if (cause instanceof PropertiesException) {
+        throw (PropertiesException) cause;
+      } else if (cause instanceof SetUpException) {
+        throw (SetUpException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new SetUpException("typestate stage failed", cause);
+      }
+    }
+  }
+
+  /**
+   * The instances that no stage has verified yet. This is what a stage hands
+   * to the next one; the next stage skips the error sites the oracle knows to
+   * be benign on its own, so only instances are narrowed here.
+   */
+  private static final class StageWork {
+
+    private final List<InstanceKey> instances;
+
+    private StageWork(List<InstanceKey> instances) {
+      this.instances = instances;
+    }
+
+    /**
+     * @return the candidates the oracle does not (yet) know to be benign
+     */
+    static StageWork unverified(Collection<InstanceKey> candidates, BenignOracle oracle) {
+      List<InstanceKey> instances = new ArrayList<InstanceKey>();
+      for (Iterator<InstanceKey> it = candidates.iterator(); it.hasNext();) {
+        InstanceKey ik = it.next();
+        if (!oracle.isBenignInstanceKey(ik)) {
+          instances.add(ik);
+        }
+      }
+      return new StageWork(instances);
+    }
+
+    /**
+     * @return what remains of this work after a stage has updated the oracle
+     */
+    StageWork unverified(BenignOracle oracle) {
+      return unverified(instances, oracle);
+    }
+
+    /**
+     * @return this work cut into consecutive batches of at most batchSize
+     *         instances
+     */
+    List<StageWork> split(int batchSize) {
+      List<StageWork> result = new ArrayList<StageWork>();
+      for (int i = 0; i < instances.size(); i += batchSize) {
+        result.add(new StageWork(new ArrayList<InstanceKey>(instances.subList(i, Math.min(instances.size(), i + batchSize)))));
+      }
+      return result;
+    }
+
+    List<InstanceKey> getInstances() {
+      return instances;
+    }
+
+    int size() {
+      return instances.size();
+    }
+
+    boolean isEmpty() {
+      return instances.isEmpty();
+    }
+  }
+
+  /**
+   * What a stage left unverified in a batch, and the result it produced for
+   * it (null if it had nothing to do)
+   */
+  private static final class StageOutcome {
+
+    private final StageWork work;
+
+    private final ISolverResult result;
+
+    StageOutcome(StageWork work, ISolverResult result) {
+      this.work = work;
+      this.result = result;
+    }
+
+    StageWork getWork() {
+      return work;
     }
 
-    monitor.done();
+    ISolverResult getResult() {
+      return result;
+    }
+  }
+
+  /**
+   * The merged results of the last stage over all batches. Results of
+   * instance-based solvers keep their per-instance breakdown; the messages of
+   * other results are kept as they are.
+   */
+  private static final class PipelineResult extends AggregateSolverResult {
+
+    private final Set<Message> otherMessages = HashSetFactory.make();
+
+    void merge(ISolverResult r) {
+      if (r instanceof AggregateSolverResult) {
+        AggregateSolverResult a = (AggregateSolverResult) r;
+        for (Iterator<InstanceKey> it = a.iterateInstances(); it.hasNext();) {
+          InstanceKey ik = it.next();
+          addInstanceResult(ik, a.getInstanceResult(ik));
+        }
+      } else if (r != null) {
+        otherMessages.addAll(r.getMessages());
+      }
+    }
+
+    @Override
+    public Set<Message> getMessages() {
+      Set<Message> messages = super.getMessages();
+      messages.addAll(otherMessages);
+      return messages;
+    }
+  }
+
+  /**
+   * Hands the stages the cancellation of the caller's monitor, and nothing
+   * else: the stages run on threads of their own, and a monitor reports
+   * progress from one thread.
+   */
+  private static final class CancelForwardingMonitor extends NullProgressMonitor {
 
-    return stageResults[stageResults.length - 1];
+    private final IProgressMonitor monitor;
+
+    CancelForwardingMonitor(IProgressMonitor monitor) {
+      this.monitor = monitor;
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return monitor.isCanceled();
+    }
+
+    @Override
+    public void setCanceled(boolean value) {
+      monitor.setCanceled(value);
+    }
+  }
+
+  /**
+   * Creates daemon stage threads, so that a solver which is abandoned after a
+   * timeout never keeps the VM alive.
+   */
+  private static class StageThreadFactory implements ThreadFactory {
+
+    private final String name;
+
+    StageThreadFactory(String name) {
+      this.name = name;
+    }
+
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, name);
+      t.setDaemon(true);
+      return t;
+    }
   }
 
   private void optionalStatistics() throws PropertiesException {
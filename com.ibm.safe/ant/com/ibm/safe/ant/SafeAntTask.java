@@ -14,6 +14,7 @@ import com.ibm.safe.lightweight.options.LightweightProperties;
 import com.ibm.safe.options.WholeProgramProperties;
 import com.ibm.safe.properties.CommonProperties;
 import com.ibm.safe.properties.PropertiesManager;
+import com.ibm.safe.reporting.IReporter;
 import com.ibm.safe.typestate.options.TypestateProperties;
 
 /**
@@ -38,8 +39,10 @@ public final class SafeAntTask extends Task {
       final String analysisResultFile = propertiesManager.getStringValue(CommonProperties.Props.RESULT_FILENAME);
 
       final AbstractSafeController controller = createController(propertiesManager);
-      controller.execute(controller.getRules(), ReporterFactory.createXMLAndConsoleReporter(analysisResultFile),
-          new NullProgressMonitor());
+      final IReporter reporter = ReporterFactory.createXMLAndConsoleReporter(analysisResultFile, propertiesManager
+          .getBooleanValue(CommonProperties.Props.STREAM_RESULTS));
+      controller.execute(controller.getRules(), ReporterFactory.addPerformanceReporter(reporter, propertiesManager
+          .getStringValue(CommonProperties.Props.PERFORMANCE_FILE)), new NullProgressMonitor());
     } catch (Throwable except) {
       except.printStackTrace();
       throw new BuildException(except.getMessage());
@@ -251,6 +254,15 @@ public final class SafeAntTask extends Task {
     }
   }
 
+  /**
+   * Specifies if the XML result file should be written while analysis runs.
+   */
+  public void setStream_Results(final boolean shouldStreamResults) {
+    if (shouldStreamResults) {
+      this.options.put(CommonProperties.Props.STREAM_RESULTS.getName(), this.activatedOption.toString());
+    }
+  }
+
   /**
    * Specifies if end-user wants structural analysis activated.
    */
@@ -277,6 +289,14 @@ public final class SafeAntTask extends Task {
     }
   }
 
+  /**
+   * Specifies a file where to export performance tracking, as CSV or JSON
+   * depending on its extension.
+   */
+  public void setPerformance_File(final String fileName) {
+    this.options.put(CommonProperties.Props.PERFORMANCE_FILE.toString(), fileName);
+  }
+
   /**
    * Specifies the timeout for limit of processing time of each rule.
    */
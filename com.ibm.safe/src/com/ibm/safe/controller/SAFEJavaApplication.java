@@ -55,7 +55,8 @@ public class SAFEJavaApplication extends AbstractSafeJavaApplication {
       final String analysisResultFile = properties.getPathValue(Props.OUTPUT_DIR) + File.separator
           + properties.getStringValue(Props.RESULT_FILENAME);
       assert analysisResultFile != null;
-      runner.execute(rules, ReporterFactory.createDefaultReporter(analysisResultFile), new NullProgressMonitor());
+      runner.execute(rules, ReporterFactory.createDefaultReporter(analysisResultFile,
+          properties.getBooleanValue(Props.STREAM_RESULTS)), new NullProgressMonitor());
     } catch (SafeException except) {
       except.printStackTrace();
       SafeLogger.severe(except.getMessage());